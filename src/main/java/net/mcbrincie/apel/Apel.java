@@ -1,11 +1,15 @@
 package net.mcbrincie.apel;
 
 import net.fabricmc.api.ModInitializer;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
 import net.fabricmc.fabric.api.networking.v1.PayloadTypeRegistry;
+import net.fabricmc.fabric.api.networking.v1.ServerPlayConnectionEvents;
 import net.mcbrincie.apel.item.ModItems;
+import net.mcbrincie.apel.lib.renderers.ApelFrameAggregator;
+import net.mcbrincie.apel.lib.renderers.ApelFramePartPayload;
 import net.mcbrincie.apel.lib.renderers.ApelFramePayload;
 import net.mcbrincie.apel.lib.util.math.TrigTable;
-import net.mcbrincie.apel.lib.util.scheduler.ApelScheduler;
+import net.mcbrincie.apel.lib.util.models.ModelCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -16,9 +20,10 @@ public class Apel implements ModInitializer {
     public static final String MOD_ID = "apel";
     public static final Logger LOGGER = LoggerFactory.getLogger(MOD_ID);
 
-    public static final ApelScheduler SCHEDULER = new ApelScheduler();
     public static final ExecutorService DRAW_EXECUTOR = Executors.newSingleThreadExecutor();
     public static final TrigTable TRIG_TABLE = new TrigTable(700);
+    public static final ModelCache MODEL_CACHE = new ModelCache(64L * 1024 * 1024);
+    public static final ApelFrameAggregator FRAME_AGGREGATOR = new ApelFrameAggregator();
 
     @Override
     public void onInitialize() {
@@ -26,5 +31,8 @@ public class Apel implements ModInitializer {
         ModItems.initItems();
         // TODO: This uses Fabric's networking wrappers, which I'm not convinced are necessary.
         PayloadTypeRegistry.playS2C().register(ApelFramePayload.ID, ApelFramePayload.PACKET_CODEC);
+        PayloadTypeRegistry.playS2C().register(ApelFramePartPayload.ID, ApelFramePartPayload.PACKET_CODEC);
+        ServerTickEvents.END_SERVER_TICK.register(FRAME_AGGREGATOR::flush);
+        ServerPlayConnectionEvents.DISCONNECT.register((handler, server) -> FRAME_AGGREGATOR.remove(handler.player));
     }
 }
\ No newline at end of file
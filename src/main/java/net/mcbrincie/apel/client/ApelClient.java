@@ -1,7 +1,10 @@
 package net.mcbrincie.apel.client;
 
 import net.fabricmc.api.ClientModInitializer;
+import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientTickEvents;
+import net.fabricmc.fabric.api.client.networking.v1.ClientPlayConnectionEvents;
 import net.fabricmc.fabric.api.client.networking.v1.ClientPlayNetworking;
+import net.mcbrincie.apel.lib.renderers.ApelFramePartPayload;
 import net.mcbrincie.apel.lib.renderers.ApelFramePayload;
 
 public class ApelClient implements ClientModInitializer {
@@ -9,5 +12,11 @@ public class ApelClient implements ClientModInitializer {
     public void onInitializeClient() {
         ApelFramePayloadHandler apelFramePayloadHandler = new ApelFramePayloadHandler(new ParticleManagerRenderer());
         ClientPlayNetworking.registerGlobalReceiver(ApelFramePayload.ID, apelFramePayloadHandler);
+        ApelFramePartPayloadHandler apelFramePartPayloadHandler =
+                new ApelFramePartPayloadHandler(apelFramePayloadHandler);
+        ClientPlayNetworking.registerGlobalReceiver(ApelFramePartPayload.ID, apelFramePartPayloadHandler);
+        // Joining runs on the client thread, before any payload of the new connection is handled
+        ClientPlayConnectionEvents.JOIN.register((handler, sender, client) -> apelFramePartPayloadHandler.reset());
+        ClientTickEvents.END_CLIENT_TICK.register(apelFramePayloadHandler::tick);
     }
 }
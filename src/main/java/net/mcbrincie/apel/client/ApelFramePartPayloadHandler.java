@@ -0,0 +1,85 @@
+package net.mcbrincie.apel.client;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import net.fabricmc.fabric.api.client.networking.v1.ClientPlayNetworking;
+import net.mcbrincie.apel.lib.renderers.ApelFramePartPayload;
+import net.mcbrincie.apel.lib.renderers.ApelFramePayload;
+import net.mcbrincie.apel.lib.renderers.ParticleEffectPalette;
+import net.minecraft.network.RegistryByteBuf;
+
+/**
+ * Reassembles {@link ApelFramePartPayload}s into the {@link ApelFramePayload} they were cut from, and hands it to the
+ * {@link ApelFramePayloadHandler} once its last part arrives.
+ * <p>
+ * The parts of a payload are sent in order over a single connection, so only one payload is ever being reassembled;
+ * a part of another payload arriving first means the previous one was cut short, and it is dropped.
+ * <p>
+ * Payloads reference particle effects through the {@link ParticleEffectPalette} of the connection, which is
+ * {@link #reset() reset} whenever the client joins a server.
+ */
+final class ApelFramePartPayloadHandler implements ClientPlayNetworking.PlayPayloadHandler<ApelFramePartPayload> {
+
+    private final ApelFramePayloadHandler frameHandler;
+    // Only accessed on the client thread
+    private ParticleEffectPalette palette = new ParticleEffectPalette();
+    private ByteBuf[] parts;
+    private int partsId;
+    private int received;
+
+    ApelFramePartPayloadHandler(ApelFramePayloadHandler frameHandler) {
+        this.frameHandler = frameHandler;
+    }
+
+    @Override
+    public void receive(ApelFramePartPayload part, ClientPlayNetworking.Context context) {
+        context.client().execute(() -> {
+            if (this.parts == null || part.id() != this.partsId || this.parts.length != part.count()) {
+                this.releaseParts();
+                this.parts = new ByteBuf[part.count()];
+                this.partsId = part.id();
+                this.received = 0;
+            }
+            ByteBuf previous = this.parts[part.index()];
+            if (previous == null) {
+                this.received++;
+            } else {
+                previous.release();
+            }
+            // Retained, so releasing it below is balanced even when the part was not decoded from a packet but
+            // handed over as is by an integrated server, whose encoding it still shares
+            this.parts[part.index()] = part.bytes().retainedDuplicate();
+            if (this.received < this.parts.length) {
+                return;
+            }
+            // Wrapping the parts concatenates them without copying, and releasing it releases every part
+            ByteBuf bytes = Unpooled.wrappedBuffer(this.parts);
+            this.parts = null;
+            try {
+                RegistryByteBuf buf = new RegistryByteBuf(bytes, context.player().getRegistryManager());
+                this.frameHandler.receive(ApelFramePayload.decode(buf, this.palette), context);
+            } finally {
+                bytes.release();
+            }
+        });
+    }
+
+    /** Forgets the payload being reassembled and the particle effects of the previous connection */
+    void reset() {
+        this.releaseParts();
+        this.palette = new ParticleEffectPalette();
+    }
+
+    // Releases the parts of a payload that will never be completed
+    private void releaseParts() {
+        if (this.parts == null) {
+            return;
+        }
+        for (ByteBuf part : this.parts) {
+            if (part != null) {
+                part.release();
+            }
+        }
+        this.parts = null;
+    }
+}
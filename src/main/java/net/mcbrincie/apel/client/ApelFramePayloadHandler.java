@@ -3,16 +3,66 @@ package net.mcbrincie.apel.client;
 import net.fabricmc.fabric.api.client.networking.v1.ClientPlayNetworking;
 import net.mcbrincie.apel.lib.renderers.ApelFramePayload;
 import net.mcbrincie.apel.lib.renderers.ApelRenderer;
+import net.mcbrincie.apel.lib.util.math.ParticleVelocity;
 import net.mcbrincie.apel.lib.util.math.bezier.BezierCurve;
+import net.minecraft.client.MinecraftClient;
 import net.minecraft.particle.ParticleEffect;
 import org.joml.Vector3f;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
 /**
  * Handles {@link ApelFramePayload}s from the server.
+ * <p>
+ * A frame holding a {@link ApelRenderer.Motion} is a keyframe: it is drawn once when it arrives, and then again on
+ * every client tick, moved along the path of the motion, until the path ends.  The server then only needs to send
+ * one frame every few steps of an animation.
+ * <p>
+ * A frame holding {@link ApelRenderer.Track}s is a whole animation: the instructions following each track are
+ * drawn once per position of the track, on the tick that position is due, so the server sends a single frame for
+ * the entire animation.
+ * <p>
+ * A payload may hold several frames, each starting at its {@link ApelRenderer.Frame}, since the server merges the
+ * frames sent to a player during a tick.  Every frame is handled on its own, as if it came in its own payload.
  */
 final class ApelFramePayloadHandler implements ClientPlayNetworking.PlayPayloadHandler<ApelFramePayload> {
 
     private final ParticleManagerRenderer renderer;
+    // Only accessed on the client thread
+    private final List<Keyframe> keyframes = new ArrayList<>();
+    private final List<Program> programs = new ArrayList<>();
+
+    private static final class Keyframe {
+        private final List<ApelRenderer.Instruction> instructions;
+        private final ApelRenderer.Motion motion;
+        private int ticks;
+
+        private Keyframe(List<ApelRenderer.Instruction> instructions, ApelRenderer.Motion motion) {
+            this.instructions = instructions;
+            this.motion = motion;
+        }
+    }
+
+    private static final class Segment {
+        private final ApelRenderer.Track track;
+        private final List<ApelRenderer.Instruction> instructions = new ArrayList<>();
+        private int next;
+
+        private Segment(ApelRenderer.Track track) {
+            this.track = track;
+        }
+    }
+
+    private static final class Program {
+        private final List<Segment> segments;
+        private int ticks;
+
+        private Program(List<Segment> segments) {
+            this.segments = segments;
+        }
+    }
 
     ApelFramePayloadHandler(ParticleManagerRenderer renderer) {
         this.renderer = renderer;
@@ -24,44 +74,178 @@ final class ApelFramePayloadHandler implements ClientPlayNetworking.PlayPayloadH
         renderer.setParticleManager(context.client().particleManager);
 
         context.client().execute(() -> {
+            // The frames of every animation around the player are merged into one payload per tick
+            List<ApelRenderer.Instruction> instructions = payload.instructions();
+            int frameStart = 0;
+            for (int i = 1; i <= instructions.size(); i++) {
+                if (i == instructions.size() || instructions.get(i) instanceof ApelRenderer.Frame) {
+                    this.receiveFrame(instructions.subList(frameStart, i));
+                    frameStart = i;
+                }
+            }
+        });
+    }
 
-            Vector3f frameOrigin = new Vector3f(0);
-            ParticleEffect particleEffect = null;
-            for (ApelRenderer.Instruction ins : payload.instructions()) {
-                switch (ins) {
-                    case ApelRenderer.Frame(Vector3f origin) -> frameOrigin = origin;
+    private void receiveFrame(List<ApelRenderer.Instruction> instructions) {
+        int firstTrack = 0;
+        while (firstTrack < instructions.size() && !(instructions.get(firstTrack) instanceof ApelRenderer.Track)) {
+            firstTrack++;
+        }
+        if (firstTrack < instructions.size()) {
+            Program program = this.toProgram(instructions.subList(firstTrack, instructions.size()));
+            if (!this.play(program)) {
+                this.programs.add(program);
+            }
+            return;
+        }
+        ApelRenderer.Motion motion = this.draw(instructions);
+        if (motion != null && motion.durationTicks() > 0) {
+            this.keyframes.add(new Keyframe(instructions, motion));
+        }
+    }
 
-                    case ApelRenderer.PType(ParticleEffect pe) -> particleEffect = pe;
+    private Program toProgram(List<ApelRenderer.Instruction> instructions) {
+        List<Segment> segments = new ArrayList<>();
+        for (ApelRenderer.Instruction ins : instructions) {
+            if (ins instanceof ApelRenderer.Track track) {
+                segments.add(new Segment(track));
+            } else {
+                segments.getLast().instructions.add(ins);
+            }
+        }
+        return new Program(segments);
+    }
 
-                    case ApelRenderer.Particle(Vector3f pos) -> renderer.drawParticle(particleEffect, 0, pos);
+    /**
+     * Draws the steps of a program that are due by its current tick.
+     *
+     * @param program The program to play
+     * @return Whether every step of the program was drawn
+     */
+    private boolean play(Program program) {
+        Vector3f offset = new Vector3f();
+        boolean finished = true;
+        for (Segment segment : program.segments) {
+            ApelRenderer.Track track = segment.track;
+            float[] positions = track.positions();
+            while (segment.next < track.size() && track.tickOf(segment.next) <= program.ticks) {
+                int i = segment.next * 3;
+                this.renderer.setOffset(offset.set(positions[i], positions[i + 1], positions[i + 2]));
+                this.draw(segment.instructions);
+                segment.next++;
+            }
+            finished &= segment.next == track.size();
+        }
+        this.renderer.setOffset(offset.zero());
+        return finished;
+    }
 
-                    case ApelRenderer.Line(Vector3f drawPos, Vector3f start, Vector3f end, Vector3f rotation, int amount) ->
-                            renderer.drawLine(particleEffect, 0, drawPos, start, end, rotation, amount);
+    /**
+     * Draws the steps of the programs that are due, and every keyframe again at its position along its path,
+     * dropping the programs and keyframes that ended.
+     *
+     * @param client The client, ticked at the end of every tick
+     */
+    void tick(MinecraftClient client) {
+        if (client.world == null) {
+            this.keyframes.clear();
+            this.programs.clear();
+            return;
+        }
+        if (client.isPaused()) {
+            return;
+        }
+        Iterator<Program> programIterator = this.programs.iterator();
+        while (programIterator.hasNext()) {
+            Program program = programIterator.next();
+            program.ticks++;
+            if (this.play(program)) {
+                programIterator.remove();
+            }
+        }
+        Vector3f offset = new Vector3f();
+        Iterator<Keyframe> iterator = this.keyframes.iterator();
+        while (iterator.hasNext()) {
+            Keyframe keyframe = iterator.next();
+            keyframe.ticks++;
+            // The next keyframe arrives once the path ends
+            if (keyframe.ticks >= keyframe.motion.durationTicks()) {
+                iterator.remove();
+                continue;
+            }
+            this.renderer.setOffset(keyframe.motion.offsetAt(keyframe.ticks, offset));
+            this.draw(keyframe.instructions);
+        }
+        this.renderer.setOffset(new Vector3f());
+    }
 
-                    case ApelRenderer.Ellipse(
-                            Vector3f center, float radius, float stretch, Vector3f rotation, int amount
-                    ) -> renderer.drawEllipse(particleEffect, 0, center, radius, stretch, rotation, amount);
+    /**
+     * Draws the instructions of a payload.
+     *
+     * @param instructions The instructions to draw
+     * @return The motion of the payload if it is a keyframe, or {@code null}
+     */
+    private ApelRenderer.Motion draw(List<ApelRenderer.Instruction> instructions) {
+        Vector3f frameOrigin = new Vector3f(0);
+        ParticleEffect particleEffect = null;
+        ApelRenderer.Motion keyframeMotion = null;
+        for (ApelRenderer.Instruction ins : instructions) {
+            switch (ins) {
+                case ApelRenderer.Frame(Vector3f origin) -> frameOrigin = origin;
 
-                    case ApelRenderer.Ellipsoid(
-                            Vector3f drawPos, float xSemiAxis, float ySemiAxis, float zSemiAxis, Vector3f rotation,
-                            int amount
-                    ) -> renderer.drawEllipsoid(particleEffect, 0, drawPos, xSemiAxis, ySemiAxis, zSemiAxis, rotation,
-                                                amount
-                    );
+                case ApelRenderer.PType(ParticleEffect pe) -> particleEffect = pe;
 
-                    case ApelRenderer.BezierCurve(
-                            Vector3f drawPos, BezierCurve bezierCurve, Vector3f rotation, int amount
-                    ) -> renderer.drawBezier(particleEffect, 0, drawPos, bezierCurve, rotation, amount);
+                case ApelRenderer.Motion motion -> keyframeMotion = motion;
 
-                    case ApelRenderer.Cone(
-                            Vector3f drawPos, float height, float radius, Vector3f rotation, int amount
-                    ) -> renderer.drawCone(particleEffect, 0, drawPos, height, radius, rotation, amount);
+                // Tracks are split off into programs before drawing
+                case ApelRenderer.Track track -> { }
 
-                    case ApelRenderer.Cylinder(
-                            Vector3f drawPos, float radius, float height, Vector3f rotation, int amount
-                    ) -> renderer.drawCylinder(particleEffect, 0, drawPos, radius, height, rotation, amount);
-                }
+                case ApelRenderer.Velocity(Vector3f center, ParticleVelocity velocity) ->
+                        renderer.drawVelocity(0, center, velocity);
+
+                case ApelRenderer.Particle(Vector3f pos) -> renderer.drawParticle(particleEffect, 0, pos);
+
+                case ApelRenderer.Points(Vector3f drawPos, float[] points) ->
+                        renderer.drawPoints(particleEffect, 0, drawPos, points, 0, points.length / 3);
+
+                case ApelRenderer.ColouredPoints coloured -> renderer.drawColouredPoints(
+                        coloured.size(), 0, coloured.drawPos(), coloured.points(), coloured.toColours(), 0,
+                        coloured.colourIndices().length
+                );
+
+                case ApelRenderer.Wireframe(
+                        Vector3f drawPos, float[] vertices, int[] edges, Vector3f rotation, int amount
+                ) -> renderer.drawWireframe(particleEffect, 0, drawPos, vertices, edges, rotation, amount);
+
+                case ApelRenderer.Line(Vector3f drawPos, Vector3f start, Vector3f end, Vector3f rotation, int amount) ->
+                        renderer.drawLine(particleEffect, 0, drawPos, start, end, rotation, amount);
+
+                case ApelRenderer.Ellipse(
+                        Vector3f center, float radius, float stretch, Vector3f rotation, int amount
+                ) -> renderer.drawEllipse(particleEffect, 0, center, radius, stretch, rotation, amount);
+
+                case ApelRenderer.Ellipsoid(
+                        Vector3f drawPos, float xSemiAxis, float ySemiAxis, float zSemiAxis, Vector3f rotation,
+                        int amount
+                ) -> renderer.drawEllipsoid(particleEffect, 0, drawPos, xSemiAxis, ySemiAxis, zSemiAxis, rotation,
+                                            amount
+                );
+
+                case ApelRenderer.BezierCurve(
+                        Vector3f drawPos, BezierCurve bezierCurve, Vector3f rotation, int amount
+                ) -> renderer.drawBezier(particleEffect, 0, drawPos, bezierCurve, rotation, amount);
+
+                case ApelRenderer.Cone(
+                        Vector3f drawPos, float height, float radius, Vector3f rotation, int amount
+                ) -> renderer.drawCone(particleEffect, 0, drawPos, height, radius, rotation, amount);
+
+                case ApelRenderer.Cylinder(
+                        Vector3f drawPos, float radius, float height, Vector3f rotation, int amount
+                ) -> renderer.drawCylinder(particleEffect, 0, drawPos, radius, height, rotation, amount);
             }
-        });
+        }
+        // Velocities only last until the end of the payload
+        renderer.drawVelocity(0, frameOrigin, ParticleVelocity.NONE);
+        return keyframeMotion;
     }
 }
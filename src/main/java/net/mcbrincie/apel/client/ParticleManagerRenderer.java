@@ -9,6 +9,8 @@ import org.joml.Vector3f;
 final class ParticleManagerRenderer extends BaseApelRenderer implements ApelRenderer {
 
     private ParticleManager particleManager;
+    private final Vector3f offset = new Vector3f();
+    private final Vector3f velocity = new Vector3f();
 
     ParticleManagerRenderer() {}
 
@@ -17,8 +19,18 @@ final class ParticleManagerRenderer extends BaseApelRenderer implements ApelRend
         this.particleManager = particleManager;
     }
 
+    // Moves everything drawn afterward, used to draw keyframes along their path
+    /* package-private */ void setOffset(Vector3f offset) {
+        this.offset.set(offset);
+    }
+
     @Override
     public void drawParticle(ParticleEffect particleEffect, int step, Vector3f drawPos) {
-        particleManager.addParticle(particleEffect, drawPos.x, drawPos.y, drawPos.z, 0.0f, 0.0f, 0.0f);
+        // The velocity only depends on the position relative to its centre, which the offset moves as well
+        this.velocityAt(drawPos.x, drawPos.y, drawPos.z, this.velocity);
+        particleManager.addParticle(
+                particleEffect, drawPos.x + offset.x, drawPos.y + offset.y, drawPos.z + offset.z,
+                this.velocity.x, this.velocity.y, this.velocity.z
+        );
     }
 }
@@ -1,12 +1,12 @@
 package net.mcbrincie.apel.lib.animators;
 
-import net.mcbrincie.apel.lib.exceptions.SeqDuplicateException;
 import net.mcbrincie.apel.lib.exceptions.SeqMissingException;
 import net.mcbrincie.apel.lib.renderers.ApelServerRenderer;
 import net.mcbrincie.apel.lib.util.AnimationTrimming;
 import net.mcbrincie.apel.lib.util.interceptor.OldInterceptors;
 import net.mcbrincie.apel.lib.util.interceptor.InterceptData;
 import net.mcbrincie.apel.lib.util.math.bezier.BezierCurve;
+import net.mcbrincie.apel.lib.util.scheduler.SequenceAllocation;
 import net.minecraft.server.world.ServerWorld;
 import org.joml.Vector3f;
 
@@ -87,34 +87,40 @@ public class BezierCurveAnimator extends PathAnimatorBase {
     }
 
     @Override
-    public void beginAnimation(ApelServerRenderer renderer) throws SeqDuplicateException, SeqMissingException {
+    public boolean canRunOnClient() {
+        return this.duringRenderingSteps.isIdentity() && this.particleObject.isReplayable();
+    }
+
+    @Override
+    public void beginAnimation(ApelServerRenderer renderer) throws SeqMissingException {
         float tStart = this.trimming.getStart();
         float tEnd = this.trimming.getEnd();
-        this.allocateToScheduler();
+        try (SequenceAllocation allocation = this.allocateToScheduler(renderer)) {
 
-        int step = -1;
-        for (int index = 0; index < this.bezierCurves.size(); index++) {
-            BezierCurve bezierCurve = this.bezierCurves.get(index);
-            int curveSteps = this.stepsForCurves.get(index);
+            int step = -1;
+            for (int index = 0; index < this.bezierCurves.size(); index++) {
+                BezierCurve bezierCurve = this.bezierCurves.get(index);
+                int curveSteps = this.stepsForCurves.get(index);
 
-            // Interval MUST be the reciprocal of steps so t is in [0, 1].
-            float tDelta = 1.0f / curveSteps;
-            for (float t = 0; t < 1.0f; t += tDelta) {
-                step++;
-                if (t < tStart) {
-                    continue;
-                }
-                // Handle trimming, but only if the end was set to a non-default value
-                if (t >= tEnd && tEnd != -1) {
-                    break;
-                }
-                Vector3f pos = bezierCurve.compute(t);
-                InterceptData<OnRenderStep> interceptData = this.doBeforeStep(renderer.getServerWorld(), pos, step);
-                if (!interceptData.getMetadata(OnRenderStep.SHOULD_DRAW_STEP, true)) {
-                    continue;
+                // Interval MUST be the reciprocal of steps so t is in [0, 1].
+                float tDelta = 1.0f / curveSteps;
+                for (float t = 0; t < 1.0f; t += tDelta) {
+                    step++;
+                    if (t < tStart) {
+                        continue;
+                    }
+                    // Handle trimming, but only if the end was set to a non-default value
+                    if (t >= tEnd && tEnd != -1) {
+                        break;
+                    }
+                    Vector3f pos = bezierCurve.compute(t);
+                    InterceptData<OnRenderStep> interceptData = this.doBeforeStep(renderer.getServerWorld(), pos, step);
+                    if (!interceptData.getMetadata(OnRenderStep.SHOULD_DRAW_STEP, true)) {
+                        continue;
+                    }
+                    pos = interceptData.getMetadata(OnRenderStep.RENDERING_POSITION, pos);
+                    this.handleDrawingStep(renderer, allocation, step, pos);
                 }
-                pos = interceptData.getMetadata(OnRenderStep.RENDERING_POSITION, pos);
-                this.handleDrawingStep(renderer, step, pos);
             }
         }
     }
@@ -1,12 +1,12 @@
 package net.mcbrincie.apel.lib.animators;
 
-import net.mcbrincie.apel.lib.exceptions.SeqDuplicateException;
 import net.mcbrincie.apel.lib.exceptions.SeqMissingException;
 import net.mcbrincie.apel.lib.objects.ParticleObject;
 import net.mcbrincie.apel.lib.renderers.ApelServerRenderer;
 import net.mcbrincie.apel.lib.util.AnimationTrimming;
 import net.mcbrincie.apel.lib.util.interceptor.OldInterceptors;
 import net.mcbrincie.apel.lib.util.interceptor.InterceptData;
+import net.mcbrincie.apel.lib.util.scheduler.SequenceAllocation;
 import net.minecraft.server.world.ServerWorld;
 import org.jetbrains.annotations.NotNull;
 import org.joml.Vector3f;
@@ -229,11 +229,16 @@ public class CircularAnimator extends PathAnimatorBase {
         return (int) (Math.ceil(Math.TAU / this.renderingInterval) + 1) * this.revolutions;
     }
 
+    @Override
+    public boolean canRunOnClient() {
+        return this.duringRenderingSteps.isIdentity() && this.particleObject.isReplayable();
+    }
+
     /**
      * This method is used to compute the animation logic.  It runs, in its entirety, as soon as it's called.
      */
     @Override
-    public void beginAnimation(ApelServerRenderer renderer) throws SeqMissingException, SeqDuplicateException {
+    public void beginAnimation(ApelServerRenderer renderer) throws SeqMissingException {
         Predicate<Float> isTrimmed = this.computeTrimmingPredicate();
 
         int stepsPerRevolution = this.renderingSteps;
@@ -251,23 +256,24 @@ public class CircularAnimator extends PathAnimatorBase {
             referenceAngle = (float) Math.TAU;
         }
 
-        this.allocateToScheduler();
-        int step = -1;
-        for (int revolutionCount = 0; revolutionCount < this.revolutions; revolutionCount++) {
-            for (int i = 0; i < stepsPerRevolution; i++) {
-                step++;
-                // Compute this way to avoid the awkward i == 0 case
-                float currAngle = referenceAngle + i * angleInterval;
-                if (isTrimmed.test(currAngle)) {
-                    continue;
-                }
-                Vector3f pos = calculatePoint(currAngle);
-                InterceptData<OnRenderStep> interceptData = this.doBeforeStep(renderer.getServerWorld(), pos, i);
-                if (!interceptData.getMetadata(OnRenderStep.SHOULD_DRAW_STEP, true)) {
-                    continue;
+        try (SequenceAllocation allocation = this.allocateToScheduler(renderer)) {
+            int step = -1;
+            for (int revolutionCount = 0; revolutionCount < this.revolutions; revolutionCount++) {
+                for (int i = 0; i < stepsPerRevolution; i++) {
+                    step++;
+                    // Compute this way to avoid the awkward i == 0 case
+                    float currAngle = referenceAngle + i * angleInterval;
+                    if (isTrimmed.test(currAngle)) {
+                        continue;
+                    }
+                    Vector3f pos = calculatePoint(currAngle);
+                    InterceptData<OnRenderStep> interceptData = this.doBeforeStep(renderer.getServerWorld(), pos, i);
+                    if (!interceptData.getMetadata(OnRenderStep.SHOULD_DRAW_STEP, true)) {
+                        continue;
+                    }
+                    pos = interceptData.getMetadata(OnRenderStep.RENDERING_POSITION, pos);
+                    this.handleDrawingStep(renderer, allocation, step, pos);
                 }
-                pos = interceptData.getMetadata(OnRenderStep.RENDERING_POSITION, pos);
-                this.handleDrawingStep(renderer, step, pos);
             }
         }
     }
@@ -1,11 +1,11 @@
 package net.mcbrincie.apel.lib.animators;
 
-import net.mcbrincie.apel.lib.exceptions.SeqDuplicateException;
 import net.mcbrincie.apel.lib.exceptions.SeqMissingException;
 import net.mcbrincie.apel.lib.renderers.ApelServerRenderer;
 import net.mcbrincie.apel.lib.util.AnimationTrimming;
 import net.mcbrincie.apel.lib.util.interceptor.OldInterceptors;
 import net.mcbrincie.apel.lib.util.interceptor.InterceptData;
+import net.mcbrincie.apel.lib.util.scheduler.SequenceAllocation;
 import net.minecraft.server.world.ServerWorld;
 import org.joml.Vector3f;
 
@@ -188,13 +188,18 @@ public class EllipseAnimator extends PathAnimatorBase {
         return (int) (Math.ceil(this.tempDiffStore / this.renderingInterval) + 1) * this.revolutions;
     }
 
+    @Override
+    public boolean canRunOnClient() {
+        return this.duringRenderingSteps.isIdentity() && this.particleObject.isReplayable();
+    }
+
     /**
      * This method is used for beginning the animation logic.
      * It accepts the server world as a parameter. Unlike most
      * path animators, this one uses angles for trimming
      */
     @Override
-    public void beginAnimation(ApelServerRenderer renderer) throws SeqMissingException, SeqDuplicateException {
+    public void beginAnimation(ApelServerRenderer renderer) throws SeqMissingException {
         float startAngle = this.trimming.getStart();
         float differenceAngle = this.trimming.getEnd() - startAngle;
         this.tempDiffStore = differenceAngle;
@@ -206,17 +211,18 @@ public class EllipseAnimator extends PathAnimatorBase {
 
         float currAngle = startAngle;
         Vector3f pos = calculatePoint(currAngle);
-        this.allocateToScheduler();
-        for (int i = 0; i < particleAmount; i++) {
-            InterceptData<OnRenderStep> interceptData = this.doBeforeStep(renderer.getServerWorld(), pos, i);
-            if (!interceptData.getMetadata(OnRenderStep.SHOULD_DRAW_STEP, true)) {
-                continue;
+        try (SequenceAllocation allocation = this.allocateToScheduler(renderer)) {
+            for (int i = 0; i < particleAmount; i++) {
+                InterceptData<OnRenderStep> interceptData = this.doBeforeStep(renderer.getServerWorld(), pos, i);
+                if (!interceptData.getMetadata(OnRenderStep.SHOULD_DRAW_STEP, true)) {
+                    continue;
+                }
+                pos = interceptData.getMetadata(OnRenderStep.RENDERING_POSITION, pos);
+                this.handleDrawingStep(renderer, allocation, i, pos);
+                currAngle += this.clockwise ? angleInterval : -angleInterval;
+                currAngle = (float) ((currAngle + Math.TAU) % Math.TAU);
+                pos = this.calculatePoint(currAngle);
             }
-            pos = interceptData.getMetadata(OnRenderStep.RENDERING_POSITION, pos);
-            this.handleDrawingStep(renderer, i, pos);
-            currAngle += this.clockwise ? angleInterval : -angleInterval;
-            currAngle = (float) ((currAngle + Math.TAU) % Math.TAU);
-            pos = this.calculatePoint(currAngle);
         }
     }
 
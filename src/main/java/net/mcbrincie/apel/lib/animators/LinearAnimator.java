@@ -1,11 +1,11 @@
 package net.mcbrincie.apel.lib.animators;
 
-import net.mcbrincie.apel.lib.exceptions.SeqDuplicateException;
 import net.mcbrincie.apel.lib.exceptions.SeqMissingException;
 import net.mcbrincie.apel.lib.renderers.ApelServerRenderer;
 import net.mcbrincie.apel.lib.util.AnimationTrimming;
 import net.mcbrincie.apel.lib.util.interceptor.OldInterceptors;
 import net.mcbrincie.apel.lib.util.interceptor.InterceptData;
+import net.mcbrincie.apel.lib.util.scheduler.SequenceAllocation;
 import net.minecraft.server.world.ServerWorld;
 import org.joml.Vector3f;
 
@@ -61,35 +61,41 @@ public class LinearAnimator extends PathAnimatorBase {
     }
 
     @Override
-    public void beginAnimation(ApelServerRenderer renderer) throws SeqDuplicateException, SeqMissingException {
+    public boolean canRunOnClient() {
+        return this.duringRenderingSteps.isIdentity() && this.particleObject.isReplayable();
+    }
+
+    @Override
+    public void beginAnimation(ApelServerRenderer renderer) throws SeqMissingException {
         int startStep = this.trimming.getStart();
         int endStep = this.trimming.getEnd();
-        this.allocateToScheduler();
+        try (SequenceAllocation allocation = this.allocateToScheduler(renderer)) {
 
-        int step = -1;
-        for (int segmentIndex = 0; segmentIndex < this.endpoints.size() - 1; segmentIndex++) {
-            Vector3f segmentStart = this.endpoints.get(segmentIndex);
-            Vector3f segmentEnd = this.endpoints.get(segmentIndex + 1);
-            int segmentSteps = this.stepsForSegments.get(segmentIndex);
+            int step = -1;
+            for (int segmentIndex = 0; segmentIndex < this.endpoints.size() - 1; segmentIndex++) {
+                Vector3f segmentStart = this.endpoints.get(segmentIndex);
+                Vector3f segmentEnd = this.endpoints.get(segmentIndex + 1);
+                int segmentSteps = this.stepsForSegments.get(segmentIndex);
 
-            Vector3f segmentDelta = new Vector3f(segmentEnd).sub(segmentStart).div(segmentSteps);
-            for (int i = 0; i < segmentSteps; i++) {
-                step++;
-                if (i < startStep) {
-                    continue;
-                }
-                // Handle trimming, but only if the end was set to a non-default value
-                if (i >= endStep && endStep != -1) {
-                    break;
-                }
-                Vector3f pos = new Vector3f(segmentDelta).mul(i).add(segmentStart);
-                InterceptData<OnRenderStep> interceptData =
-                        this.doBeforeStep(renderer.getServerWorld(), segmentIndex, pos, step);
-                if (!interceptData.getMetadata(OnRenderStep.SHOULD_DRAW_STEP, true)) {
-                    continue;
+                Vector3f segmentDelta = new Vector3f(segmentEnd).sub(segmentStart).div(segmentSteps);
+                for (int i = 0; i < segmentSteps; i++) {
+                    step++;
+                    if (i < startStep) {
+                        continue;
+                    }
+                    // Handle trimming, but only if the end was set to a non-default value
+                    if (i >= endStep && endStep != -1) {
+                        break;
+                    }
+                    Vector3f pos = new Vector3f(segmentDelta).mul(i).add(segmentStart);
+                    InterceptData<OnRenderStep> interceptData =
+                            this.doBeforeStep(renderer.getServerWorld(), segmentIndex, pos, step);
+                    if (!interceptData.getMetadata(OnRenderStep.SHOULD_DRAW_STEP, true)) {
+                        continue;
+                    }
+                    pos = interceptData.getMetadata(OnRenderStep.RENDERING_POSITION, pos);
+                    this.handleDrawingStep(renderer, allocation, step, pos);
                 }
-                pos = interceptData.getMetadata(OnRenderStep.RENDERING_POSITION, pos);
-                this.handleDrawingStep(renderer, step, pos);
             }
         }
     }
@@ -1,13 +1,14 @@
 package net.mcbrincie.apel.lib.animators;
 
 import net.mcbrincie.apel.Apel;
-import net.mcbrincie.apel.lib.exceptions.SeqDuplicateException;
 import net.mcbrincie.apel.lib.exceptions.SeqMissingException;
 import net.mcbrincie.apel.lib.objects.ParticleObject;
 import net.mcbrincie.apel.lib.renderers.ApelServerRenderer;
 import net.mcbrincie.apel.lib.util.interceptor.OldInterceptors;
 import net.mcbrincie.apel.lib.util.interceptor.InterceptData;
+import net.mcbrincie.apel.lib.util.scheduler.ApelScheduler;
 import net.mcbrincie.apel.lib.util.scheduler.ScheduledStep;
+import net.mcbrincie.apel.lib.util.scheduler.SequenceAllocation;
 import net.minecraft.server.world.ServerWorld;
 import org.jetbrains.annotations.NotNull;
 
@@ -112,7 +113,7 @@ public class ParallelAnimator extends PathAnimatorBase implements TreePathAnimat
     }
 
     @Override
-    public void beginAnimation(ApelServerRenderer renderer) throws SeqDuplicateException, SeqMissingException {
+    public void beginAnimation(ApelServerRenderer renderer) throws SeqMissingException {
         for (int index = 0; index < this.animators.size(); index++) {
             PathAnimatorBase animator = this.animators.get(index);
             int totalDelay = this.delay + this.animatorDelays.get(index);
@@ -132,12 +133,35 @@ public class ParallelAnimator extends PathAnimatorBase implements TreePathAnimat
             if (delayForAnimator == 0) {
                 Apel.DRAW_EXECUTOR.submit(func);
             } else {
-                scheduledAnimator.allocateToScheduler();
-                Apel.SCHEDULER.allocateNewStep(
-                        scheduledAnimator, new ScheduledStep(delayForAnimator, new Runnable[]{func})
-                );
+                // The sequence is allocated here even if the animator would not schedule its own steps
+                ApelScheduler scheduler = ApelScheduler.forWorld(renderer.getServerWorld());
+                try (SequenceAllocation allocation = scheduler.allocateNewSequence(scheduledAnimator)) {
+                    allocation.allocateStep(new ScheduledStep(delayForAnimator, new Runnable[]{func}));
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean canRunOnClient() {
+        if (!this.onAnimatorRendering.isIdentity()) {
+            return false;
+        }
+        for (PathAnimatorBase animator : this.animators) {
+            if (!animator.canRunOnClient()) {
+                return false;
             }
         }
+        return true;
+    }
+
+    @Override
+    protected void recordTracks(ApelServerRenderer renderer, int startTick, List<ClientTrack> tracks) {
+        // Mirrors the scheduling of beginAnimation
+        for (int index = 0; index < this.animators.size(); index++) {
+            int totalDelay = this.delay + this.animatorDelays.get(index);
+            this.animators.get(index).recordTracks(renderer, startTick + totalDelay, tracks);
+        }
     }
 
     /** Set the interceptor to run before the drawing of each individual rendering step. The interceptor will be provided
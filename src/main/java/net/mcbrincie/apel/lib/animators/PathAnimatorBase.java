@@ -1,18 +1,22 @@
 package net.mcbrincie.apel.lib.animators;
 
+import it.unimi.dsi.fastutil.floats.FloatArrayList;
 import net.mcbrincie.apel.Apel;
-import net.mcbrincie.apel.lib.exceptions.SeqDuplicateException;
 import net.mcbrincie.apel.lib.exceptions.SeqMissingException;
 import net.mcbrincie.apel.lib.objects.ParticleObject;
 import net.mcbrincie.apel.lib.renderers.ApelServerRenderer;
+import net.mcbrincie.apel.lib.renderers.BufferedApelRenderer;
 import net.mcbrincie.apel.lib.util.math.TrigTable;
+import net.mcbrincie.apel.lib.util.scheduler.ApelScheduler;
 import net.mcbrincie.apel.lib.util.scheduler.ScheduledStep;
+import net.mcbrincie.apel.lib.util.scheduler.SequenceAllocation;
 import org.jetbrains.annotations.NotNull;
 import org.joml.Vector3f;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.BooleanSupplier;
 
 
 /** The abstract base class that all path animators inherit from. It
@@ -22,13 +26,30 @@ import java.util.List;
 */
 @SuppressWarnings({"unused", "UnusedReturnValue"})
 public abstract class PathAnimatorBase {
+    /** The most steps an animation may have to be played on the client, so its payload stays well below the limit */
+    public static final int MAX_CLIENT_STEPS = 1 << 15;
+
     protected float renderingInterval = 0.0f;
     protected int renderingSteps = 0;
     protected int delay;
     protected int processingSpeed = 1;
+    protected int keyframeInterval = 1;
+    protected boolean dormantWhenUnseen = false;
+    protected boolean displayListUsed = false;
     protected ParticleObject<? extends ParticleObject<?>> particleObject;
 
     protected List<Runnable> storedFuncsBuffer = new ArrayList<>();
+    // The draw positions of the buffered funcs, checked for visibility when their step runs
+    private final List<Vector3f> storedPositionsBuffer = new ArrayList<>();
+    // The keyframe whose path the following steps extend, see handleDrawingStep
+    private Keyframe pendingKeyframe;
+    // Collects the positions of the steps instead of drawing them while recording, see recordTracks
+    private FloatArrayList recordedPositions;
+    private int firstRecordedStep;
+    // The object drawn once at the origin, and the object it was drawn from, see setDisplayListUsed. Only drawn by
+    // the draw executor, but invalidated from any thread
+    private volatile BufferedApelRenderer displayList;
+    private volatile ParticleObject<?> displayListObject;
 
     protected static TrigTable trigTable = Apel.TRIG_TABLE;
 
@@ -36,6 +57,9 @@ public abstract class PathAnimatorBase {
         this.setParticleObject(builder.particleObject);
         this.setDelay(builder.delay);
         this.setProcessingSpeed(builder.processingSpeed);
+        this.setKeyframeInterval(builder.keyframeInterval);
+        this.setDormantWhenUnseen(builder.dormantWhenUnseen);
+        this.setDisplayListUsed(builder.displayListUsed);
         if (builder.renderingInterval == -1.0f) {
             this.renderingSteps = builder.renderingSteps;
             return;
@@ -61,18 +85,27 @@ public abstract class PathAnimatorBase {
         this.renderingInterval = animator.renderingInterval;
         this.renderingSteps = animator.renderingSteps;
         this.processingSpeed = animator.processingSpeed;
+        this.keyframeInterval = animator.keyframeInterval;
+        this.dormantWhenUnseen = animator.dormantWhenUnseen;
+        this.displayListUsed = animator.displayListUsed;
         this.storedFuncsBuffer = new ArrayList<>();
     }
 
     /** Simplifies the process of scheduling a new sequence in the scheduler.
      *  Instead of checking if the delay isn't 0 and that there is no already allocated
-     *  sequence. The method does that for your convenience
+     *  sequence. The method does that for your convenience. The sequence is allocated on
+     *  the scheduler of the world the renderer draws in. The returned allocation is passed to
+     *  {@link #handleDrawingStep(ApelServerRenderer, SequenceAllocation, int, Vector3f)} and must be closed once
+     *  every step is handled, preferably with a try-with-resources statement
+     *
+     * @param renderer The renderer whose world's scheduler should host the sequence
+     * @return The allocation of the sequence, or null if the steps are not scheduled
      */
-    public void allocateToScheduler() {
-        if (this.delay == 0) {
-            return;
+    public SequenceAllocation allocateToScheduler(ApelServerRenderer renderer) {
+        if (this.delay == 0 || this.recordedPositions != null) {
+            return null;
         }
-        Apel.SCHEDULER.allocateNewSequence(this);
+        return ApelScheduler.forWorld(renderer.getServerWorld()).allocateNewSequence(this);
     }
 
     /** Gets the amount of rendering steps, which can be zero indicating
@@ -205,21 +238,199 @@ public abstract class PathAnimatorBase {
         return prevProcessSpeed;
     }
 
+    /** Gets the number of steps between two keyframes, 1 meaning that every step is sent as its own frame
+     *
+     * @see PathAnimatorBase#setKeyframeInterval(int)
+     * @return The keyframe interval
+     */
+    public int getKeyframeInterval() {
+        return this.keyframeInterval;
+    }
+
+    /** Sets the number of steps between two keyframes and returns the previous one. With an interval above 1,
+     *  renderers that {@link ApelServerRenderer#supportsMotion() support keyframes} (such as the client-side
+     *  renderer) only get a frame every {@code interval} steps, along with the path of the following steps,
+     *  and move that frame along the path on their own. This sends {@code interval} times fewer packets, and the
+     *  client interpolates the position between steps every tick, which looks smoother when the delay is above 1
+     *  <br><br>
+     *  <strong>note:</strong> the object itself is only drawn on keyframes, so changes to its shape between two
+     *  keyframes (for example by interceptors) are not shown. Other renderers, and animations with a delay of 0,
+     *  still draw every step
+     *
+     * @param interval The number of steps between two keyframes
+     * @return The previous keyframe interval
+     */
+    public int setKeyframeInterval(int interval) {
+        if (interval < 1) {
+            throw new IllegalArgumentException("Keyframe interval cannot be below 1");
+        }
+        int prevInterval = this.keyframeInterval;
+        this.keyframeInterval = interval;
+        return prevInterval;
+    }
+
+    /** Whether the animation pauses while nobody can see it, rather than skipping the steps nobody can see
+     *
+     * @see PathAnimatorBase#setDormantWhenUnseen(boolean)
+     * @return Whether the animation goes dormant
+     */
+    public boolean isDormantWhenUnseen() {
+        return this.dormantWhenUnseen;
+    }
+
+    /** Sets whether the animation pauses while nobody can see it, and returns the previous value.  Before a step is
+     *  drawn, the renderer is asked whether {@link ApelServerRenderer#canBeSeen(Vector3f, float) anybody could see
+     *  it}, given the {@link ParticleObject#getBoundingRadius() size} of the object; if not, the step is skipped by
+     *  default, so the animation keeps its timing and nobody pays for drawing it.  A dormant animation instead waits
+     *  on that step, checking again every tick, and carries on from it once somebody comes close
+     *  <br><br>
+     *  <strong>note:</strong> animations with a delay of 0 are drawn at once, so their unseen steps are always
+     *  skipped
+     *
+     * @param dormantWhenUnseen Whether the animation goes dormant
+     * @return The previous value
+     */
+    public boolean setDormantWhenUnseen(boolean dormantWhenUnseen) {
+        boolean prevDormantWhenUnseen = this.dormantWhenUnseen;
+        this.dormantWhenUnseen = dormantWhenUnseen;
+        return prevDormantWhenUnseen;
+    }
+
+    /** Whether the object is drawn once and its drawing replayed at every step, see
+     * {@link #setDisplayListUsed(boolean)}
+     *
+     * @return Whether a display list is used
+     */
+    public boolean isDisplayListUsed() {
+        return this.displayListUsed;
+    }
+
+    /** Sets whether the object is drawn once and its drawing replayed at every step, and returns the previous value.
+     *  The first step records every call the object makes to the renderer, drawn at the origin, into a display
+     *  list; the following steps replay that list moved to their position, so the shapes of the object are not
+     *  computed again.  This only applies to objects that are {@link ParticleObject#isReplayable() replayable},
+     *  other objects are still drawn at every step
+     *  <br><br>
+     *  <strong>note:</strong> changes made to the object while the display list is in use cannot be observed, call
+     *  {@link #invalidateDisplayList()} after modifying the object so the next step draws it again
+     *
+     * @param displayListUsed Whether to use a display list
+     * @return The previous value
+     */
+    public boolean setDisplayListUsed(boolean displayListUsed) {
+        boolean prevDisplayListUsed = this.displayListUsed;
+        this.displayListUsed = displayListUsed;
+        this.invalidateDisplayList();
+        return prevDisplayListUsed;
+    }
+
+    /** Discards the display list, so the object is drawn again by the next step, see
+     * {@link #setDisplayListUsed(boolean)}
+     */
+    public void invalidateDisplayList() {
+        this.displayList = null;
+    }
+
     /** Does the calculations to convert from an interval to rendering steps
      *
      * @return The number of steps
      */
     public abstract int convertIntervalToSteps();
 
+    /**
+     * Plays the whole animation on the clients: the object is drawn once, and a single payload holding the position
+     * and timing of every step is sent, instead of one payload per step. The clients then play the steps with their
+     * own timing. This only applies when the renderer {@link ApelServerRenderer#supportsTracks() supports it} and
+     * the animation {@link #canRunOnClient() does not depend on the server}; otherwise the animation begins as usual
+     * through {@link #beginAnimation(ApelServerRenderer)}. Animations longer than {@link #MAX_CLIENT_STEPS} steps
+     * also begin as usual
+     *
+     * @param renderer The renderer used for drawing
+     * @return Whether the animation is played on the clients
+     */
+    public final boolean beginClientAnimation(ApelServerRenderer renderer) {
+        if (!renderer.supportsTracks() || !this.canRunOnClient()) {
+            this.beginAnimation(renderer);
+            return false;
+        }
+        List<ClientTrack> tracks = new ArrayList<>();
+        this.recordTracks(renderer, 0, tracks);
+        if (tracks.stream().mapToInt(track -> track.positions.length / 3).sum() > MAX_CLIENT_STEPS) {
+            this.beginAnimation(renderer);
+            return false;
+        }
+        if (tracks.isEmpty()) {
+            return true;
+        }
+        Vector3f origin = tracks.getFirst().origin;
+        Apel.DRAW_EXECUTOR.submit(() -> {
+            renderer.beforeFrame(0, origin);
+            for (ClientTrack track : tracks) {
+                renderer.drawTrack(0, track.startTick, track.delay, track.stepsPerTick, track.positions);
+                track.template.replay(renderer, 0);
+            }
+            renderer.afterFrame(0, origin);
+        });
+        return true;
+    }
+
+    /** Whether the animation can be played on the client, meaning it has no interceptors, and neither do its
+     * objects or child animators, so that it does not depend on the server once it begins. Animators support it
+     * by overriding this, the default is false
+     *
+     * @see #beginClientAnimation(ApelServerRenderer)
+     * @return Whether the animation can be played on the client
+     */
+    public boolean canRunOnClient() {
+        return false;
+    }
+
+    /** The recording of one animator: its object drawn once at its first position, and the position of every step
+     * relative to that one
+     */
+    protected record ClientTrack(
+            int startTick, int delay, int stepsPerTick, Vector3f origin, float[] positions,
+            BufferedApelRenderer template
+    ) {}
+
+    /** Records the steps of the animation into tracks, without scheduling or drawing anything. Animators holding
+     * other animators override this to record those, starting at the tick they would be begun
+     *
+     * @param renderer The renderer the animation would be drawn with
+     * @param startTick The tick at which the animation begins
+     * @param tracks The list receiving the tracks
+     */
+    protected void recordTracks(ApelServerRenderer renderer, int startTick, List<ClientTrack> tracks) {
+        FloatArrayList positions = new FloatArrayList();
+        this.recordedPositions = positions;
+        try {
+            this.beginAnimation(renderer);
+        } finally {
+            this.recordedPositions = null;
+        }
+        if (positions.isEmpty()) {
+            return;
+        }
+        float[] offsets = positions.toFloatArray();
+        Vector3f origin = new Vector3f(offsets[0], offsets[1], offsets[2]);
+        for (int i = 0; i < offsets.length; i += 3) {
+            offsets[i] -= origin.x;
+            offsets[i + 1] -= origin.y;
+            offsets[i + 2] -= origin.z;
+        }
+        BufferedApelRenderer template = new BufferedApelRenderer(renderer.getServerWorld());
+        this.particleObject.doDraw(template, this.firstRecordedStep, new Vector3f(origin));
+        tracks.add(new ClientTrack(startTick, this.delay, this.processingSpeed, origin, offsets, template));
+    }
+
     /**
      * This method is used for beginning the animation logic.
      * This method must be used when creating a particle animator.
      * Ideally, the animators should implement their own trimming
      *
-     * @throws SeqDuplicateException When it allocates a new sequence but there is already an allocated sequence
-     * @throws SeqMissingException   When it finds, there is no sequence yet allocated
+     * @throws SeqMissingException When it finds, there is no sequence yet allocated
      */
-    public abstract void beginAnimation(ApelServerRenderer renderer) throws SeqDuplicateException, SeqMissingException;
+    public abstract void beginAnimation(ApelServerRenderer renderer) throws SeqMissingException;
 
     /** Calculates the total duration, in ticks, for the path animator
      *
@@ -232,7 +443,9 @@ public abstract class PathAnimatorBase {
     }
 
     /**
-     * This method is used for drawing the object. It does more than just drawing, primarily scheduling
+     * This method is used for drawing the object. It does more than just drawing, primarily scheduling.  Steps are
+     * scheduled in the sequence of this animator without holding it open, use
+     * {@link #handleDrawingStep(ApelServerRenderer, SequenceAllocation, int, Vector3f)} instead
      *
      * @param renderer     The renderer used for drawing
      * @param step         The current step in
@@ -240,25 +453,135 @@ public abstract class PathAnimatorBase {
      * @throws SeqMissingException When it finds that there is no sequence yet allocated
      */
     public void handleDrawingStep(ApelServerRenderer renderer, int step, Vector3f drawPosition) throws SeqMissingException {
+        this.handleDrawingStep(renderer, null, step, drawPosition);
+    }
+
+    /**
+     * This method is used for drawing the object. It does more than just drawing, primarily scheduling
+     *
+     * @param renderer     The renderer used for drawing
+     * @param allocation   The allocation returned by {@link #allocateToScheduler(ApelServerRenderer)}
+     * @param step         The current step in
+     * @param drawPosition The planned drawing position
+     * @throws SeqMissingException When it finds that there is no sequence yet allocated
+     */
+    public void handleDrawingStep(
+            ApelServerRenderer renderer, SequenceAllocation allocation, int step, Vector3f drawPosition
+    ) throws SeqMissingException {
+        if (this.recordedPositions != null) {
+            if (this.recordedPositions.isEmpty()) {
+                this.firstRecordedStep = step;
+            }
+            this.recordedPositions.add(drawPosition.x);
+            this.recordedPositions.add(drawPosition.y);
+            this.recordedPositions.add(drawPosition.z);
+            return;
+        }
         Runnable func = () -> {
             renderer.beforeFrame(step, drawPosition);
-            this.particleObject.doDraw(renderer, step, drawPosition);
+            this.drawObject(renderer, step, drawPosition);
             renderer.afterFrame(step, drawPosition);
         };
+        if (this.keyframeInterval > 1 && this.delay > 0 && renderer.supportsMotion()) {
+            func = this.keyframeStep(renderer, step, drawPosition);
+        }
+        // Computed up front, since drawing may change the object
+        float radius = this.particleObject.getBoundingRadius();
         if (this.delay == 0) {
-            Apel.DRAW_EXECUTOR.submit(func);
+            if (renderer.canBeSeen(drawPosition, radius)) {
+                Apel.DRAW_EXECUTOR.submit(func);
+            }
             return;
         }
         if (this.processingSpeed == 1) {
-            Apel.SCHEDULER.allocateNewStep(this, new ScheduledStep(this.delay, new Runnable[]{func}));
+            this.allocateStep(renderer, allocation, new ScheduledStep(
+                    this.delay, new Runnable[]{func}, () -> renderer.canBeSeen(drawPosition, radius), this.dormantWhenUnseen
+            ));
             return;
         }
         this.storedFuncsBuffer.add(func);
+        this.storedPositionsBuffer.add(drawPosition);
         if (this.storedFuncsBuffer.size() == this.processingSpeed) {
-            Apel.SCHEDULER.allocateNewStep(
-                    this, new ScheduledStep(this.delay, this.storedFuncsBuffer.toArray(Runnable[]::new))
-            );
+            // The steps of a tick are close together, so they are seen, skipped or held back as one
+            Vector3f[] positions = this.storedPositionsBuffer.toArray(Vector3f[]::new);
+            BooleanSupplier canBeSeen = () -> Arrays.stream(positions).anyMatch(position -> renderer.canBeSeen(position, radius));
+            this.allocateStep(renderer, allocation, new ScheduledStep(
+                    this.delay, this.storedFuncsBuffer.toArray(Runnable[]::new), canBeSeen, this.dormantWhenUnseen
+            ));
             this.storedFuncsBuffer.clear();
+            this.storedPositionsBuffer.clear();
+        }
+    }
+
+    private void allocateStep(ApelServerRenderer renderer, SequenceAllocation allocation, ScheduledStep step) {
+        if (allocation == null) {
+            ApelScheduler.forWorld(renderer.getServerWorld()).allocateNewStep(this, step);
+        } else {
+            allocation.allocateStep(step);
+        }
+    }
+
+    /** Draws the object for a step, from the display list if one is used. Only called by the draw executor */
+    private void drawObject(ApelServerRenderer renderer, int step, Vector3f drawPosition) {
+        ParticleObject<?> object = this.particleObject;
+        if (!this.displayListUsed || !object.isReplayable()) {
+            object.doDraw(renderer, step, drawPosition);
+            return;
+        }
+        BufferedApelRenderer displayList = this.displayList;
+        if (displayList == null || this.displayListObject != object) {
+            displayList = new BufferedApelRenderer(renderer.getServerWorld());
+            object.doDraw(displayList, step, new Vector3f());
+            this.displayListObject = object;
+            this.displayList = displayList;
+        }
+        displayList.replay(renderer, step, drawPosition);
+    }
+
+    /** Turns a step into a keyframe, or into an empty step extending the path of the current keyframe. Steps are
+     * handled in order before any of them runs, so a keyframe's path is complete by the time it is drawn. The path
+     * also takes the position of the next keyframe, so the renderer moves all the way to it. A gap in the steps
+     * (from trimming, or a skipped step) ends the path early.
+     */
+    private Runnable keyframeStep(ApelServerRenderer renderer, int step, Vector3f drawPosition) {
+        Keyframe keyframe = this.pendingKeyframe;
+        if (keyframe != null && step == keyframe.lastStep + 1) {
+            keyframe.extend(step, drawPosition);
+            if (keyframe.path.size() / 3 <= this.keyframeInterval) {
+                // Keeps the timing of the step, the renderer draws it from the keyframe
+                return () -> {};
+            }
+        }
+        Keyframe next = new Keyframe(step, drawPosition);
+        this.pendingKeyframe = next;
+        float ticksPerStep = (float) this.delay / this.processingSpeed;
+        return () -> {
+            renderer.beforeFrame(step, drawPosition);
+            this.drawObject(renderer, step, drawPosition);
+            renderer.drawMotion(step, next.path.toFloatArray(), ticksPerStep);
+            renderer.afterFrame(step, drawPosition);
+        };
+    }
+
+    /** A keyframe, and the positions of the steps following it relative to its own */
+    private static final class Keyframe {
+        private final Vector3f origin;
+        private final FloatArrayList path = new FloatArrayList();
+        private int lastStep;
+
+        private Keyframe(int step, Vector3f origin) {
+            this.origin = new Vector3f(origin);
+            this.lastStep = step;
+            this.path.add(0);
+            this.path.add(0);
+            this.path.add(0);
+        }
+
+        private void extend(int step, Vector3f position) {
+            this.path.add(position.x - this.origin.x);
+            this.path.add(position.y - this.origin.y);
+            this.path.add(position.z - this.origin.z);
+            this.lastStep = step;
         }
     }
 
@@ -296,6 +619,9 @@ public abstract class PathAnimatorBase {
         protected ParticleObject<? extends ParticleObject<?>> particleObject;
         protected int delay = 1;
         protected int processingSpeed = 1;
+        protected int keyframeInterval = 1;
+        protected boolean dormantWhenUnseen = false;
+        protected boolean displayListUsed = false;
         protected int renderingSteps = -1;
         protected float renderingInterval = -1.0f;
         protected renderingTypeUsed renderTypeUsed = Builder.renderingTypeUsed.UNSET;
@@ -339,6 +665,39 @@ public abstract class PathAnimatorBase {
             return self();
         }
 
+        /** The number of steps between two keyframes sent to the renderer, defaults to 1 (every step)
+         *
+         * @see PathAnimatorBase#setKeyframeInterval(int)
+         * @param keyframeInterval The keyframe interval
+         * @return The builder instance
+        */
+        public final B keyframeInterval(int keyframeInterval) {
+            this.keyframeInterval = keyframeInterval;
+            return self();
+        }
+
+        /** Whether the animation pauses while nobody can see it, defaults to false (unseen steps are skipped)
+         *
+         * @see PathAnimatorBase#setDormantWhenUnseen(boolean)
+         * @param dormantWhenUnseen Whether the animation goes dormant
+         * @return The builder instance
+        */
+        public final B dormantWhenUnseen(boolean dormantWhenUnseen) {
+            this.dormantWhenUnseen = dormantWhenUnseen;
+            return self();
+        }
+
+        /** Whether the object is drawn once and replayed at every step, defaults to false
+         *
+         * @see PathAnimatorBase#setDisplayListUsed(boolean)
+         * @param displayListUsed Whether to use a display list
+         * @return The builder instance
+        */
+        public final B displayListUsed(boolean displayListUsed) {
+            this.displayListUsed = displayListUsed;
+            return self();
+        }
+
         /** The renderingSteps in use for the path animator
          *
          * @param renderingSteps The processingSpeed in use
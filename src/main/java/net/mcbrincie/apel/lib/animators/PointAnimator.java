@@ -1,10 +1,10 @@
 package net.mcbrincie.apel.lib.animators;
 
-import net.mcbrincie.apel.lib.exceptions.SeqDuplicateException;
 import net.mcbrincie.apel.lib.exceptions.SeqMissingException;
 import net.mcbrincie.apel.lib.renderers.ApelServerRenderer;
 import net.mcbrincie.apel.lib.util.interceptor.OldInterceptors;
 import net.mcbrincie.apel.lib.util.interceptor.InterceptData;
+import net.mcbrincie.apel.lib.util.scheduler.SequenceAllocation;
 import net.minecraft.server.world.ServerWorld;
 import org.joml.Vector3f;
 
@@ -68,14 +68,20 @@ public class PointAnimator extends PathAnimatorBase {
     }
 
     @Override
-    public void beginAnimation(ApelServerRenderer renderer) throws SeqDuplicateException, SeqMissingException {
-        this.allocateToScheduler();
-        for (int i = 0; i < this.renderingSteps; i++) {
-            InterceptData<OnRenderStep> interceptData = this.doBeforeStep(renderer.getServerWorld(), i);
-            if (!interceptData.getMetadata(OnRenderStep.SHOULD_DRAW_STEP, true)) {
-                continue;
+    public boolean canRunOnClient() {
+        return this.duringRenderingSteps.isIdentity() && this.particleObject.isReplayable();
+    }
+
+    @Override
+    public void beginAnimation(ApelServerRenderer renderer) throws SeqMissingException {
+        try (SequenceAllocation allocation = this.allocateToScheduler(renderer)) {
+            for (int i = 0; i < this.renderingSteps; i++) {
+                InterceptData<OnRenderStep> interceptData = this.doBeforeStep(renderer.getServerWorld(), i);
+                if (!interceptData.getMetadata(OnRenderStep.SHOULD_DRAW_STEP, true)) {
+                    continue;
+                }
+                this.handleDrawingStep(renderer, allocation, i, this.point);
             }
-            this.handleDrawingStep(renderer, i, this.point);
         }
     }
 
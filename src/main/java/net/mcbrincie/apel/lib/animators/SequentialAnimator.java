@@ -1,13 +1,14 @@
 package net.mcbrincie.apel.lib.animators;
 
 import net.mcbrincie.apel.Apel;
-import net.mcbrincie.apel.lib.exceptions.SeqDuplicateException;
 import net.mcbrincie.apel.lib.exceptions.SeqMissingException;
 import net.mcbrincie.apel.lib.objects.ParticleObject;
 import net.mcbrincie.apel.lib.renderers.ApelServerRenderer;
 import net.mcbrincie.apel.lib.util.interceptor.OldInterceptors;
 import net.mcbrincie.apel.lib.util.interceptor.InterceptData;
+import net.mcbrincie.apel.lib.util.scheduler.ApelScheduler;
 import net.mcbrincie.apel.lib.util.scheduler.ScheduledStep;
+import net.mcbrincie.apel.lib.util.scheduler.SequenceAllocation;
 import net.minecraft.server.world.ServerWorld;
 import org.jetbrains.annotations.NotNull;
 
@@ -109,7 +110,7 @@ public class SequentialAnimator extends PathAnimatorBase implements TreePathAnim
     }
 
     @Override
-    public void beginAnimation(ApelServerRenderer renderer) throws SeqDuplicateException, SeqMissingException {
+    public void beginAnimation(ApelServerRenderer renderer) throws SeqMissingException {
         int totalDelay = this.delay;
         for (int index = 0; index < this.animators.size(); index++) {
             PathAnimatorBase animator = this.animators.get(index);
@@ -130,16 +131,47 @@ public class SequentialAnimator extends PathAnimatorBase implements TreePathAnim
                 Apel.DRAW_EXECUTOR.submit(func);
             } else {
                 totalDelay += delayForAnimator;
-                animatorToSchedule.allocateToScheduler();
                 Apel.LOGGER.info("Scheduling {} with {} delay", animatorToSchedule.getClass(), totalDelay);
-                Apel.SCHEDULER.allocateNewStep(
-                        animatorToSchedule, new ScheduledStep(totalDelay, new Runnable[]{func})
-                );
+                // The sequence is allocated here even if the animator would not schedule its own steps
+                ApelScheduler scheduler = ApelScheduler.forWorld(renderer.getServerWorld());
+                try (SequenceAllocation allocation = scheduler.allocateNewSequence(animatorToSchedule)) {
+                    allocation.allocateStep(new ScheduledStep(totalDelay, new Runnable[]{func}));
+                }
                 totalDelay += animatorToSchedule.calculateDuration();
             }
         }
     }
 
+    @Override
+    public boolean canRunOnClient() {
+        if (!this.onAnimatorRendering.isIdentity()) {
+            return false;
+        }
+        for (PathAnimatorBase animator : this.animators) {
+            if (!animator.canRunOnClient()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    protected void recordTracks(ApelServerRenderer renderer, int startTick, List<ClientTrack> tracks) {
+        // Mirrors the scheduling of beginAnimation
+        int totalDelay = this.delay;
+        for (int index = 0; index < this.animators.size(); index++) {
+            PathAnimatorBase animator = this.animators.get(index);
+            int animatorDelay = this.animatorDelays.get(index);
+            if (this.delay + animatorDelay == 0) {
+                animator.recordTracks(renderer, startTick, tracks);
+            } else {
+                totalDelay += animatorDelay;
+                animator.recordTracks(renderer, startTick + totalDelay, tracks);
+                totalDelay += animator.calculateDuration();
+            }
+        }
+    }
+
     /** Set the interceptor to run before the drawing of each individual rendering step. The interceptor will be provided
      * with references to the {@link ServerWorld}, the current step number. As far as it goes for the metadata, you
      * have access to the path animator that will be drawn, the delay of the path animator before rendering and a
@@ -1,7 +0,0 @@
-package net.mcbrincie.apel.lib.exceptions;
-
-public class SeqDuplicateException extends RuntimeException {
-    public SeqDuplicateException(String errorMessage) {
-        super(errorMessage);
-    }
-}
@@ -0,0 +1,327 @@
+package net.mcbrincie.apel.lib.objects;
+
+import net.mcbrincie.apel.Apel;
+import net.mcbrincie.apel.lib.renderers.ApelServerRenderer;
+import net.mcbrincie.apel.lib.util.image.DustPalateGenerator;
+import net.mcbrincie.apel.lib.util.image.ImagePointSet;
+import net.mcbrincie.apel.lib.util.image.ImageSequence;
+import net.mcbrincie.apel.lib.util.image.PalateGenerator;
+import net.mcbrincie.apel.lib.util.interceptor.DrawContext;
+import net.mcbrincie.apel.lib.util.interceptor.ObjectInterceptor;
+import net.minecraft.particle.ParticleEffect;
+import org.joml.Vector3f;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+
+/** The particle object class that plays a multi-frame image, either an animated GIF or a sprite sheet cut into
+ * equally sized frames, drawn like a {@link ParticleImage}. The animation step picks the frame, and the animation
+ * loops once every frame has been shown.
+ * <br><br>
+ * Every frame is decoded, downsampled and quantized once into an {@link ImageSequence}. This happens in the
+ * background when the file is set, never on the drawing thread, and the object draws nothing until it is done
+ * (see {@link #getLoadFuture()}). Frames that repeat share their point set, and copies of the object share the
+ * whole sequence
+ */
+@SuppressWarnings({"unused", "UnusedReturnValue"})
+public class ParticleAnimatedImage extends ParticleObject<ParticleAnimatedImage> {
+    private String filename;
+    private int frameWidth;
+    private int frameHeight;
+    private int frameDuration;
+    private ImageSequence.Options options;
+    private PalateGenerator palateGenerator;
+    // Written by the loading thread, read by the drawing thread
+    private volatile CompletableFuture<ImageSequence> loading;
+    private volatile ImageSequence sequence;
+    // The points of every frame of the sequence below, rotated by the rotation below
+    private final Map<ImagePointSet, float[]> rotatedFrames = new IdentityHashMap<>();
+    private ImageSequence rotatedFramesSequence;
+    private final Vector3f rotatedFramesRotation = new Vector3f();
+
+    public static ParticleAnimatedImage.Builder<?> builder() {
+        return new ParticleAnimatedImage.Builder<>();
+    }
+
+    private ParticleAnimatedImage(Builder<?> builder) {
+        super(null, builder.rotation, builder.offset, 1, builder.beforeDraw, builder.afterDraw);
+        this.setVelocity(builder.velocity);
+        this.palateGenerator = builder.palateGenerator;
+        this.frameWidth = builder.frameWidth;
+        this.frameHeight = builder.frameHeight;
+        this.frameDuration = builder.frameDuration;
+        this.options = new ImageSequence.Options(
+                builder.maxResolution, builder.alphaThreshold, builder.pixelSize, builder.paletteSize, builder.dithering
+        );
+        this.setFilename(builder.filename);
+    }
+
+    /** The copy constructor for a specific particle object. It copies all
+     * the params, including the interceptors the particle object has.
+     * The decoded frames are shared with the original
+     *
+     * @param image The particle animated image object to copy from
+     */
+    public ParticleAnimatedImage(ParticleAnimatedImage image) {
+        super(image);
+        this.filename = image.filename;
+        this.frameWidth = image.frameWidth;
+        this.frameHeight = image.frameHeight;
+        this.frameDuration = image.frameDuration;
+        this.options = image.options;
+        this.palateGenerator = image.palateGenerator;
+        this.sequence = image.sequence;
+        this.track(image.loading);
+    }
+
+    /** Sets the path to the image file and returns the previous one. The frames are decoded in the background,
+     * the previous frames keep being drawn until the new ones are ready
+     *
+     * @param filename The new path to the image file
+     * @return The previous path
+     */
+    public final String setFilename(String filename) {
+        String prevFilename = this.filename;
+        this.filename = filename;
+        this.reload();
+        return prevFilename;
+    }
+
+    /** Sets the settings the frames are prepared with and returns the previous ones. The frames are decoded
+     * again in the background
+     *
+     * @param options The new settings
+     * @return The previous settings
+     */
+    public final ImageSequence.Options setOptions(ImageSequence.Options options) {
+        ImageSequence.Options prevOptions = this.options;
+        this.options = options;
+        this.reload();
+        return prevOptions;
+    }
+
+    public PalateGenerator setPalateGenerator(PalateGenerator palateGenerator) {
+        PalateGenerator prevPalateGenerator = this.palateGenerator;
+        this.palateGenerator = palateGenerator;
+        return prevPalateGenerator;
+    }
+
+    private void reload() {
+        File file = new File(this.filename);
+        int frameWidth = this.frameWidth;
+        int frameHeight = this.frameHeight;
+        int frameDuration = this.frameDuration;
+        ImageSequence.Options options = this.options;
+        this.track(CompletableFuture.supplyAsync(() -> {
+            try {
+                if (frameWidth > 0 && frameHeight > 0) {
+                    return ImageSequence.loadSpriteSheet(file, frameWidth, frameHeight, frameDuration, options);
+                }
+                return ImageSequence.load(file, options);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }));
+    }
+
+    private void track(CompletableFuture<ImageSequence> loading) {
+        this.loading = loading;
+        loading.whenComplete((loaded, e) -> {
+            if (e != null) {
+                Apel.LOGGER.error("There was a problem loading the animated image {}", this.filename, e);
+            } else if (this.loading == loading) {
+                // A slower, older load must not replace the frames of a newer one
+                this.sequence = loaded;
+            }
+        });
+    }
+
+    public String getFilename() {return this.filename;}
+
+    public ImageSequence.Options getOptions() {return this.options;}
+
+    public PalateGenerator getPalateGenerator() {return this.palateGenerator;}
+
+    /** Gets the decoded frames, or null until the first ones are decoded (or if they failed to decode)
+     *
+     * @return The sequence of frames
+     */
+    public ImageSequence getSequence() {
+        return this.sequence;
+    }
+
+    /** Gets the future completing once the frames are decoded, for callers that want to wait before drawing
+     *
+     * @return The future of the sequence of frames
+     */
+    public CompletableFuture<ImageSequence> getLoadFuture() {
+        return this.loading;
+    }
+
+    /** THIS METHOD SHOULD NOT BE USED */
+    @Override
+    @Deprecated
+    public ParticleEffect getParticleEffect() {
+        throw new UnsupportedOperationException("ParticleAnimatedImage doesn't support getting a particle effect.");
+    }
+
+    /** The frame drawn depends on the step, so the image can never be drawn once and moved */
+    @Override
+    public boolean isReplayable() {
+        return false;
+    }
+
+    @Override
+    public void draw(ApelServerRenderer renderer, DrawContext drawContext) {
+        ImageSequence frames = this.getSequence();
+        if (frames == null) {
+            return;
+        }
+        ImagePointSet frame = frames.frameAt(drawContext.getCurrentStep());
+        // The rotation may also be modified in-place, so compare by value
+        if (this.rotatedFramesSequence != frames || !this.rotatedFramesRotation.equals(this.rotation)) {
+            this.rotatedFrames.clear();
+            this.rotatedFramesSequence = frames;
+            this.rotatedFramesRotation.set(this.rotation);
+        }
+        float[] rotated = this.rotatedFrames.computeIfAbsent(
+                frame, points -> ParticleImage.rotatePoints(points.getPoints(), this.rotation)
+        );
+        Vector3f objectDrawPos = new Vector3f(drawContext.getPosition()).add(this.offset);
+        ParticleImage.drawPointSet(
+                renderer, drawContext.getCurrentStep(), objectDrawPos, frame, rotated, this.palateGenerator
+        );
+    }
+
+    /** This is the particle animated image builder used for setting up a new animated image instance.
+     * It is designed to be more friendly of how you arrange the parameters. Call {@code .builder()} to initiate
+     * the builder, once you supplied the parameters then you can call {@code .build()} to create the instance
+     *
+     * @param <B> The builder type itself
+     */
+    public static class Builder<B extends ParticleAnimatedImage.Builder<B>>
+            extends ParticleObject.Builder<B, ParticleAnimatedImage> {
+        protected String filename;
+        protected int frameWidth = 0;
+        protected int frameHeight = 0;
+        protected int frameDuration = 1;
+        protected int maxResolution = 0;
+        protected int alphaThreshold = ParticleImage.DEFAULT_ALPHA_THRESHOLD;
+        protected float pixelSize = ParticleImage.DEFAULT_PIXEL_SIZE;
+        protected int paletteSize = ParticleImage.DEFAULT_PALETTE_SIZE;
+        protected boolean dithering = false;
+        protected PalateGenerator palateGenerator = new DustPalateGenerator();
+
+        /** The path (filename) of the GIF or sprite sheet to play
+         *
+         * @param filename The image path
+         * @return The builder instance
+         */
+        public B filename(String filename) {
+            this.filename = filename;
+            return self();
+        }
+
+        /** Treats the image as a sprite sheet, cut into frames of the given size that are read row by row. Without
+         * a frame size, GIFs play their own frames and other images show a single frame
+         *
+         * @param frameWidth The width of a frame, in pixels
+         * @param frameHeight The height of a frame, in pixels
+         * @return The builder instance
+         */
+        public B frameSize(int frameWidth, int frameHeight) {
+            this.frameWidth = frameWidth;
+            this.frameHeight = frameHeight;
+            return self();
+        }
+
+        /** The number of steps every sprite sheet frame lasts, GIFs use their own delays
+         *
+         * @param frameDuration The duration of a frame, in steps
+         * @return The builder instance
+         */
+        public B frameDuration(int frameDuration) {
+            this.frameDuration = frameDuration;
+            return self();
+        }
+
+        /** The size of the longest side of the drawn frames, larger frames are downsampled. Defaults to 0, which
+         * keeps the original size
+         *
+         * @param maxResolution The maximum resolution, in pixels
+         * @return The builder instance
+         */
+        public B maxResolution(int maxResolution) {
+            this.maxResolution = maxResolution;
+            return self();
+        }
+
+        /** The lowest alpha (from 0 to 255) of the pixels that are drawn
+         *
+         * @param alphaThreshold The alpha threshold
+         * @return The builder instance
+         */
+        public B alphaThreshold(int alphaThreshold) {
+            this.alphaThreshold = alphaThreshold;
+            return self();
+        }
+
+        /** The distance between neighbouring pixels
+         *
+         * @param pixelSize The pixel size
+         * @return The builder instance
+         */
+        public B pixelSize(float pixelSize) {
+            this.pixelSize = pixelSize;
+            return self();
+        }
+
+        /** The maximum number of colours over all frames, 0 keeps every colour
+         *
+         * @param paletteSize The palette size
+         * @return The builder instance
+         */
+        public B paletteSize(int paletteSize) {
+            this.paletteSize = paletteSize;
+            return self();
+        }
+
+        /** Whether the colours reduced to the palette are dithered
+         *
+         * @param dithering Whether to dither the frames
+         * @return The builder instance
+         */
+        public B dithering(boolean dithering) {
+            this.dithering = dithering;
+            return self();
+        }
+
+        /** The generator turning pixel colours into particle effects, defaults to coloured dust
+         *
+         * @param palateGenerator The palette generator
+         * @return The builder instance
+         */
+        public B palateGenerator(PalateGenerator palateGenerator) {
+            this.palateGenerator = palateGenerator;
+            return self();
+        }
+
+        private Builder() {}
+
+        @Override
+        public ParticleAnimatedImage build() {
+            if (this.filename == null) {
+                throw new IllegalStateException("Image Path Must Be Specified");
+            }
+            if (this.frameDuration < 1) {
+                throw new IllegalStateException("Frame Duration Must Be Positive");
+            }
+            return new ParticleAnimatedImage(this);
+        }
+    }
+}
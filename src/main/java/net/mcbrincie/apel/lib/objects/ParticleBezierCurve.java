@@ -31,6 +31,7 @@ public class ParticleBezierCurve extends ParticleObject<ParticleBezierCurve> {
                 builder.particleEffect, builder.rotation, builder.offset, builder.amount, builder.beforeDraw,
                 builder.afterDraw
         );
+        this.setVelocity(builder.velocity);
         this.setBezierCurves(builder.bezierCurves, builder.amounts);
     }
 
@@ -22,6 +22,7 @@ public class ParticleCircle extends ParticleObject<ParticleCircle> {
     private ParticleCircle(Builder<?> builder) {
         super(builder.particleEffect, builder.rotation, builder.offset, builder.amount, builder.beforeDraw,
               builder.afterDraw);
+        this.setVelocity(builder.velocity);
         this.setRadius(builder.radius);
     }
 
@@ -60,6 +61,11 @@ public class ParticleCircle extends ParticleObject<ParticleCircle> {
         return prevRadius;
     }
 
+    @Override
+    protected float getExtent() {
+        return Math.abs(this.radius);
+    }
+
     @Override
     public void draw(ApelServerRenderer renderer, DrawContext drawContext) {
         Vector3f objectDrawPos = new Vector3f(drawContext.getPosition()).add(this.offset);
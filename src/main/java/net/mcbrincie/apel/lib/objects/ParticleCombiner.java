@@ -1,15 +1,22 @@
 package net.mcbrincie.apel.lib.objects;
 
 import net.mcbrincie.apel.lib.renderers.ApelServerRenderer;
+import net.mcbrincie.apel.lib.renderers.BufferedApelRenderer;
+import net.mcbrincie.apel.lib.renderers.PointCloud;
 import net.mcbrincie.apel.lib.util.interceptor.DrawContext;
 import net.mcbrincie.apel.lib.util.interceptor.ObjectInterceptor;
+import net.mcbrincie.apel.lib.util.math.ParticleVelocity;
 import net.minecraft.particle.ParticleEffect;
 import net.minecraft.server.world.ServerWorld;
 import org.joml.Vector3f;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ForkJoinTask;
 
 /** A utility particle object class that groups all particle objects as
  * one object instead of multiple. Particle combiners can also group themselves
@@ -48,11 +55,34 @@ import java.util.Optional;
  * without the need of making your own particle object class and configuring the params to work that way. All
  * this logic you would have to go and implement is handled for you. You can also use recursive
  * methods to scale down the tree and modify the values<br><br>
+ *
+ * <b>Parallel Drawing</b><br>
+ * Large combiners may opt in to drawing their children in parallel via {@link #setParallelDrawing(boolean)}.  Each
+ * child is drawn on the common {@link java.util.concurrent.ForkJoinPool} into its own buffer, and the buffers are
+ * then replayed into the renderer in child order, so the output is identical to drawing sequentially.  Children with
+ * interceptors of their own are drawn on the calling thread, as interceptors are not required to be thread-safe, and
+ * so are children sharing an object with a child handed off before them (such as the same object added twice, or
+ * also added to a nested combiner), as objects keep caches while drawing.  Those are drawn once the others are done.
+ * The {@code beforeChildDraw} interceptor still runs on the calling thread, in child order, before each child is
+ * drawn; it must not modify objects that were handed off earlier in the same frame.  Combiners with an
+ * {@code afterChildDraw} interceptor always draw sequentially, since it must observe each child's drawing
+ * before the next child begins.<br><br>
+ *
+ * <b>Compiling Static Hierarchies</b><br>
+ * Hierarchies of {@link #isReplayable() replayable} objects draw the same particles, relative to the draw position,
+ * every single frame.  Such a combiner can be {@link #compile() compiled}, which draws the whole hierarchy once and keeps the resulting
+ * particles as a single {@link PointCloud}.  From then on, drawing the combiner only translates that cloud to the
+ * draw position instead of walking the hierarchy and recomputing every shape.  The setters of the combiner discard
+ * the compiled form, but changes made directly to child objects cannot be observed, so call {@link #invalidate()}
+ * (or compile again) after modifying a child of a compiled combiner.<br><br>
  */
 @SuppressWarnings({"unused", "UnusedReturnValue"})
 public class ParticleCombiner extends ParticleObject<ParticleCombiner> {
     protected List<ParticleObject<?>> objects = new ArrayList<>();
     protected int amount = -1;
+    protected boolean parallelDrawing = false;
+    // Read once per draw, and replaced or cleared while another thread may be drawing
+    protected volatile PointCloud compiled;
 
     private ObjectInterceptor<ParticleCombiner> afterChildDraw = ObjectInterceptor.identity();
     private ObjectInterceptor<ParticleCombiner> beforeChildDraw = ObjectInterceptor.identity();
@@ -67,9 +97,11 @@ public class ParticleCombiner extends ParticleObject<ParticleCombiner> {
     private ParticleCombiner(Builder<?> builder) {
         super(builder.particleEffect, builder.rotation, builder.offset, builder.amount, ObjectInterceptor.identity(),
               ObjectInterceptor.identity());
+        this.setVelocity(builder.velocity);
         this.setObjects(builder.objects);
         this.setAfterChildDraw(builder.afterChildDraw);
         this.setBeforeChildDraw(builder.beforeChildDraw);
+        this.setParallelDrawing(builder.parallelDrawing);
     }
 
     /** The copy constructor for the particle combiner. Which
@@ -84,6 +116,9 @@ public class ParticleCombiner extends ParticleObject<ParticleCombiner> {
         this.amount = combiner.amount;
         this.afterChildDraw = combiner.afterChildDraw;
         this.beforeChildDraw = combiner.beforeChildDraw;
+        this.parallelDrawing = combiner.parallelDrawing;
+        // Point clouds are immutable, and the copy draws the same objects
+        this.compiled = combiner.compiled;
     }
 
     /**
@@ -96,6 +131,7 @@ public class ParticleCombiner extends ParticleObject<ParticleCombiner> {
      * @see ParticleCombiner#setRotations(Vector3f, Vector3f)
      */
     public List<Vector3f> setRotations(Vector3f rotation) {
+        this.invalidate();
         List<Vector3f> prevRotations = new ArrayList<>(this.objects.size());
         for (ParticleObject<?> object : this.objects) {
             // Defensive copy happens in superclass method
@@ -122,6 +158,7 @@ public class ParticleCombiner extends ParticleObject<ParticleCombiner> {
      * @see ParticleCombiner#setRotations(Vector3f, Vector3f)
      */
     public List<Vector3f> setRotations(Vector3f rotation, float offsetX, float offsetY, float offsetZ) {
+        this.invalidate();
         List<Vector3f> prevRotations = new ArrayList<>(this.objects.size());
         Vector3f baseRotation = new Vector3f(rotation);
         if (!this.objects.isEmpty()) {
@@ -165,6 +202,7 @@ public class ParticleCombiner extends ParticleObject<ParticleCombiner> {
      * @see ParticleCombiner#setRotationsRecursively(Vector3f)
      */
     public void setRotationsRecursively(Vector3f rotation) {
+        this.invalidate();
         for (ParticleObject<?> object : this.objects) {
             if (object instanceof ParticleCombiner combiner) {
                 combiner.setRotationsRecursively(rotation);
@@ -187,6 +225,7 @@ public class ParticleCombiner extends ParticleObject<ParticleCombiner> {
         if (offset.equals(new Vector3f())) {
             throw new IllegalArgumentException("offset rotation must not equal (0, 0, 0)");
         }
+        this.invalidate();
         Vector3f rotationToOffset = new Vector3f(rotation);
         for (ParticleObject<?> object : this.objects) {
             if (object instanceof ParticleCombiner combiner) {
@@ -246,6 +285,7 @@ public class ParticleCombiner extends ParticleObject<ParticleCombiner> {
      * @return The previous offsets
      */
     public List<Vector3f> setOffsets(Vector3f offset) {
+        this.invalidate();
         List<Vector3f> prevOffsets = new ArrayList<>(this.objects.size());
         Vector3f newOffset = Optional.ofNullable(offset).orElse(new Vector3f());
         for (ParticleObject<?> object : this.objects) {
@@ -262,6 +302,7 @@ public class ParticleCombiner extends ParticleObject<ParticleCombiner> {
      * @return The previous offset
      */
     public Vector3f setOffset(int index, Vector3f offset) {
+        this.invalidate();
         return this.objects.get(index).setOffset(new Vector3f(offset));
     }
 
@@ -291,6 +332,7 @@ public class ParticleCombiner extends ParticleObject<ParticleCombiner> {
      * @return The previous particle effects
      */
     public List<ParticleEffect> setParticleEffects(ParticleEffect particleEffect) {
+        this.invalidate();
         List<ParticleEffect> prevParticleEffects = new ArrayList<>(this.objects.size());
         for (ParticleObject<?> object : this.objects) {
             prevParticleEffects.add(object.setParticleEffect(particleEffect));
@@ -312,6 +354,7 @@ public class ParticleCombiner extends ParticleObject<ParticleCombiner> {
      * @see ParticleCombiner#setParticleEffectsRecursively(ParticleEffect[])
      */
     public void setParticleEffectsRecursively(ParticleEffect particle) {
+        this.invalidate();
         ParticleEffect prevParticle = super.setParticleEffect(particle);
         for (ParticleObject<?> object : this.objects) {
             if (object instanceof ParticleCombiner combiner) {
@@ -337,6 +380,7 @@ public class ParticleCombiner extends ParticleObject<ParticleCombiner> {
      * @see ParticleCombiner#setParticleEffectsRecursively(ParticleEffect)
      */
     public void setParticleEffectsRecursively(ParticleEffect[] particleEffects) {
+        this.invalidate();
         this.setParticleEffect(null);
         this.particleEffectRecursiveLogic(particleEffects, 0);
     }
@@ -367,6 +411,7 @@ public class ParticleCombiner extends ParticleObject<ParticleCombiner> {
      * @see ParticleCombiner#setAmount(int)
      */
     public List<Integer> setAmounts(int amount) {
+        this.invalidate();
         List<Integer> prevAmounts = new ArrayList<>(this.objects.size());
         for (ParticleObject<?> object : this.objects) {
             prevAmounts.add(object.setAmount(amount));
@@ -392,6 +437,7 @@ public class ParticleCombiner extends ParticleObject<ParticleCombiner> {
      * @see ParticleCombiner#setAmount(int)
      */
     public List<Integer> setAmounts(int amount, int offset) {
+        this.invalidate();
         List<Integer> prevAmounts = new ArrayList<>(this.objects.size());
         int baseOffset = 0;
         if (!this.objects.isEmpty()) {
@@ -422,6 +468,7 @@ public class ParticleCombiner extends ParticleObject<ParticleCombiner> {
      * @see ParticleCombiner#setAmount(int)
      */
     public void setAmountsRecursively(int amount, int offset) {
+        this.invalidate();
         if (offset == 0) {
             throw new IllegalArgumentException("offset must not equal to 0");
         }
@@ -453,6 +500,7 @@ public class ParticleCombiner extends ParticleObject<ParticleCombiner> {
      * @see ParticleCombiner#setAmounts(int, int)
      */
     public void setAmountsRecursively(int amount, int offset, int recursiveOffset) {
+        this.invalidate();
         if (offset == 0) {
             throw new IllegalArgumentException("Normal Offset must not equal to 0");
         }
@@ -495,6 +543,7 @@ public class ParticleCombiner extends ParticleObject<ParticleCombiner> {
         if (objects.isEmpty()) {
             throw new IllegalArgumentException("There has to be at least one object supplied");
         }
+        this.invalidate();
         List<ParticleObject<?>> prevObjects = this.objects;
 
         // Defensive copy (and to guarantee internal mutability)
@@ -509,6 +558,7 @@ public class ParticleCombiner extends ParticleObject<ParticleCombiner> {
      * @return The previous particle object
      */
     public ParticleObject<?> setObject(int index, ParticleObject<?> newObject) {
+        this.invalidate();
         return this.objects.set(index, newObject);
     }
 
@@ -517,6 +567,7 @@ public class ParticleCombiner extends ParticleObject<ParticleCombiner> {
      * @param objects The objects to add
      */
     public final void appendObjects(List<ParticleObject<?>> objects) {
+        this.invalidate();
         this.objects.addAll(objects);
     }
 
@@ -528,6 +579,7 @@ public class ParticleCombiner extends ParticleObject<ParticleCombiner> {
      * @param object The object to add to the list
      */
     public void appendObject(ParticleObject<?> object) {
+        this.invalidate();
         this.objects.add(object);
     }
 
@@ -537,6 +589,7 @@ public class ParticleCombiner extends ParticleObject<ParticleCombiner> {
      * @return The removed object
      */
     public ParticleObject<?> removeObject(int index) {
+        this.invalidate();
         return this.objects.remove(index);
     }
 
@@ -546,12 +599,126 @@ public class ParticleCombiner extends ParticleObject<ParticleCombiner> {
      * @return The removed object
      */
     public ParticleObject<?> removeObject(ParticleObject<?> object) {
+        this.invalidate();
         int index = this.objects.indexOf(object);
         return this.objects.remove(index);
     }
 
+    /** Gets whether the child objects are drawn in parallel.
+     *
+     * @return true if the child objects are drawn in parallel
+     */
+    public boolean isParallelDrawing() {
+        return this.parallelDrawing;
+    }
+
+    /** Sets whether the child objects are drawn in parallel and returns the previous value.  The particles that are
+     * drawn do not change, only the threads computing them do.  See the class documentation for how interceptors
+     * behave when drawing in parallel.
+     *
+     * @param parallelDrawing Whether to draw the child objects in parallel
+     * @return The previous value
+     */
+    public boolean setParallelDrawing(boolean parallelDrawing) {
+        boolean prevParallelDrawing = this.parallelDrawing;
+        this.parallelDrawing = parallelDrawing;
+        return prevParallelDrawing;
+    }
+
+    /** Flattens the hierarchy beneath this combiner into a single {@link PointCloud}, which is then used for drawing
+     * until the combiner is modified.  The hierarchy is drawn once, relative to the origin, and every shape is
+     * expanded into its particles, grouped by particle effect.  Only {@link #isReplayable() replayable}
+     * hierarchies can be compiled, since interceptors, animated images or level-of-detail models change what is
+     * drawn from one frame to the next.  The velocities of the objects beneath the combiner are not kept, the
+     * compiled form only has the velocity of the combiner itself.
+     *
+     * @return The compiled point cloud
+     * @throws IllegalStateException if this combiner or any object beneath it is not replayable
+     *
+     * @see #invalidate()
+     */
+    public PointCloud compile() {
+        if (!this.isReplayable()) {
+            throw new IllegalStateException(
+                    "Only hierarchies that draw the same particles every frame, without interceptors, can be compiled"
+            );
+        }
+        this.invalidate();
+        PointCloud.Recorder recorder = new PointCloud.Recorder(null);
+        this.drawSequentially(recorder, new DrawContext(null, new Vector3f(), 0));
+        PointCloud compiled = recorder.toPointCloud();
+        this.compiled = compiled;
+        return compiled;
+    }
+
+    /** Gets whether this combiner is currently drawn from its compiled form.
+     *
+     * @return true if the combiner is compiled
+     */
+    public boolean isCompiled() {
+        return this.compiled != null;
+    }
+
+    /** Discards the compiled form of this combiner, if any, so the hierarchy is walked again on the next draw.  This
+     * must be called after modifying a child object of a compiled combiner directly.
+     */
+    public void invalidate() {
+        this.compiled = null;
+    }
+
+    @Override
+    protected boolean isInterceptorFree() {
+        if (!super.isInterceptorFree() || !this.beforeChildDraw.isIdentity() || !this.afterChildDraw.isIdentity()) {
+            return false;
+        }
+        for (ParticleObject<?> object : this.objects) {
+            if (!object.isInterceptorFree()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isReplayable() {
+        if (!this.isInterceptorFree()) {
+            return false;
+        }
+        for (ParticleObject<?> object : this.objects) {
+            if (!object.isReplayable()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    protected float getExtent() {
+        // Children are drawn around the position of the combiner, so its offset only widens the bound
+        float extent = 0;
+        for (ParticleObject<?> object : this.objects) {
+            extent = Math.max(extent, object.getBoundingRadius());
+        }
+        return extent;
+    }
+
     @Override
     public void draw(ApelServerRenderer renderer, DrawContext drawContext) {
+        PointCloud compiledCloud = this.compiled;
+        if (compiledCloud != null && super.isInterceptorFree()) {
+            compiledCloud.draw(renderer, drawContext.getCurrentStep(), drawContext.getPosition());
+            return;
+        }
+        if (this.parallelDrawing && this.afterChildDraw.isIdentity() && this.objects.size() > 1) {
+            this.drawInParallel(renderer, drawContext);
+            return;
+        }
+        this.drawSequentially(renderer, drawContext);
+    }
+
+    private void drawSequentially(ApelServerRenderer renderer, DrawContext drawContext) {
+        ParticleVelocity childVelocity = this.childVelocity(drawContext);
+        Vector3f childVelocityCenter = this.childVelocityCenter(drawContext);
         for (ParticleObject<?> object : this.objects) {
             drawContext.addMetadata(OBJECT_IN_USE, object);
             drawContext.addMetadata(SHOULD_DRAW_OBJECT, true);
@@ -563,11 +730,95 @@ public class ParticleCombiner extends ParticleObject<ParticleCombiner> {
             ParticleObject<?> childObject = drawContext.getMetadata(OBJECT_IN_USE);
             // Defensive copy before passing to a child object
             Vector3f childDrawPos = new Vector3f(drawContext.getPosition());
-            childObject.doDraw(renderer, drawContext.getCurrentStep(), childDrawPos);
+            childObject.doDraw(
+                    renderer, drawContext.getCurrentStep(), childDrawPos, childVelocity, childVelocityCenter
+            );
             this.afterChildDraw.apply(drawContext, this);
         }
     }
 
+    private void drawInParallel(ApelServerRenderer renderer, DrawContext drawContext) {
+        int step = drawContext.getCurrentStep();
+        ParticleVelocity childVelocity = this.childVelocity(drawContext);
+        Vector3f childVelocityCenter = this.childVelocityCenter(drawContext);
+        List<ParallelChild> children = new ArrayList<>(this.objects.size());
+        Set<ParticleObject<?>> forked = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (ParticleObject<?> object : this.objects) {
+            drawContext.addMetadata(OBJECT_IN_USE, object);
+            drawContext.addMetadata(SHOULD_DRAW_OBJECT, true);
+            this.beforeChildDraw.apply(drawContext, this);
+            boolean shouldDraw = drawContext.getMetadata(SHOULD_DRAW_OBJECT);
+            if (!shouldDraw) {
+                continue;
+            }
+            ParticleObject<?> childObject = drawContext.getMetadata(OBJECT_IN_USE);
+            // Defensive copy before passing to a child object
+            Vector3f childDrawPos = new Vector3f(drawContext.getPosition());
+            ForkJoinTask<BufferedApelRenderer> task = null;
+            // Interceptors are developer code that need not be thread-safe, and objects keep caches while drawing,
+            // so only interceptor-free children whose objects are not drawn by another task are handed off
+            if (childObject.isInterceptorFree() && claim(childObject, forked)) {
+                task = ForkJoinTask.adapt(() -> {
+                    BufferedApelRenderer buffer = new BufferedApelRenderer(renderer.getServerWorld());
+                    childObject.doDraw(buffer, step, childDrawPos, childVelocity, childVelocityCenter);
+                    return buffer;
+                }).fork();
+            }
+            children.add(new ParallelChild(childObject, childDrawPos, task));
+        }
+        // The children kept on this thread may share objects with any task, so they are drawn once all are done
+        for (ParallelChild child : children) {
+            if (child.task() != null) {
+                child.task().quietlyJoin();
+            }
+        }
+        // Merge in child order, so the output matches drawing sequentially
+        for (ParallelChild child : children) {
+            if (child.task() != null) {
+                child.task().join().replay(renderer, step);
+            } else {
+                child.object().doDraw(renderer, step, child.drawPos(), childVelocity, childVelocityCenter);
+            }
+        }
+    }
+
+    private record ParallelChild(
+            ParticleObject<?> object, Vector3f drawPos, ForkJoinTask<BufferedApelRenderer> task
+    ) {}
+
+    // Adds the object and every object beneath it to the claimed objects, unless one of them is claimed already
+    private static boolean claim(ParticleObject<?> object, Set<ParticleObject<?>> claimed) {
+        Set<ParticleObject<?>> hierarchy = Collections.newSetFromMap(new IdentityHashMap<>());
+        collectHierarchy(object, hierarchy);
+        for (ParticleObject<?> member : hierarchy) {
+            if (claimed.contains(member)) {
+                return false;
+            }
+        }
+        claimed.addAll(hierarchy);
+        return true;
+    }
+
+    private static void collectHierarchy(ParticleObject<?> object, Set<ParticleObject<?>> hierarchy) {
+        if (hierarchy.add(object) && object instanceof ParticleCombiner combiner) {
+            for (ParticleObject<?> child : combiner.objects) {
+                collectHierarchy(child, hierarchy);
+            }
+        }
+    }
+
+    // Children without a velocity of their own use the one of this combiner, or the one it inherited if it has none
+    private ParticleVelocity childVelocity(DrawContext drawContext) {
+        return this.velocity.isNone() ? drawContext.getInheritedVelocity() : this.velocity;
+    }
+
+    private Vector3f childVelocityCenter(DrawContext drawContext) {
+        if (this.velocity.isNone()) {
+            return drawContext.getInheritedVelocityCenter();
+        }
+        return new Vector3f(drawContext.getPosition()).add(this.offset);
+    }
+
     /**
      * Set the interceptor to run before drawing each child object.  The interceptor will be provided
      * with references to the {@link ServerWorld}, the step number of the animation, the child object
@@ -576,6 +827,7 @@ public class ParticleCombiner extends ParticleObject<ParticleCombiner> {
      * @param beforeChildDrawIntercept The interceptor to execute before drawing each child object
      */
     public void setBeforeChildDraw(ObjectInterceptor<ParticleCombiner> beforeChildDrawIntercept) {
+        this.invalidate();
         this.beforeChildDraw = Optional.ofNullable(beforeChildDrawIntercept).orElse(ObjectInterceptor.identity());
     }
 
@@ -586,6 +838,7 @@ public class ParticleCombiner extends ParticleObject<ParticleCombiner> {
      * @param afterChildDraw The interceptor to execute after drawing each child object
      */
     public void setAfterChildDraw(ObjectInterceptor<ParticleCombiner> afterChildDraw) {
+        this.invalidate();
         this.afterChildDraw = Optional.ofNullable(afterChildDraw).orElse(ObjectInterceptor.identity());
     }
 
@@ -593,6 +846,7 @@ public class ParticleCombiner extends ParticleObject<ParticleCombiner> {
         protected List<ParticleObject<?>> objects = new ArrayList<>();
         protected ObjectInterceptor<ParticleCombiner> afterChildDraw;
         protected ObjectInterceptor<ParticleCombiner> beforeChildDraw;
+        protected boolean parallelDrawing = false;
 
         private Builder() {}
 
@@ -636,6 +890,17 @@ public class ParticleCombiner extends ParticleObject<ParticleCombiner> {
             return self();
         }
 
+        /**
+         * Sets whether the child objects are drawn in parallel.  This method is not cumulative; repeated calls will
+         * overwrite the value.
+         *
+         * @see ParticleCombiner#setParallelDrawing(boolean)
+         */
+        public B parallelDrawing(boolean parallelDrawing) {
+            this.parallelDrawing = parallelDrawing;
+            return self();
+        }
+
         @Override
         public ParticleCombiner build() {
             return new ParticleCombiner(this);
@@ -20,6 +20,7 @@ public class ParticleCone extends ParticleObject<ParticleCone> {
     private ParticleCone(Builder<?> builder) {
         super(builder.particleEffect, builder.rotation, builder.offset, builder.amount, builder.beforeDraw,
               builder.afterDraw);
+        this.setVelocity(builder.velocity);
         this.setHeight(builder.height);
         this.setRadius(builder.radius);
     }
@@ -79,6 +80,11 @@ public class ParticleCone extends ParticleObject<ParticleCone> {
         return prevRadius;
     }
 
+    @Override
+    protected float getExtent() {
+        return (float) Math.sqrt(this.radius * this.radius + this.height * this.height);
+    }
+
     @Override
     public void draw(ApelServerRenderer renderer, DrawContext drawContext) {
         Vector3f objectDrawPos = new Vector3f(drawContext.getPosition()).add(this.offset);
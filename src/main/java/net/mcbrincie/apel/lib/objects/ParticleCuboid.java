@@ -52,6 +52,7 @@ public class ParticleCuboid extends ParticleObject<ParticleCuboid> {
 
     private ParticleCuboid(Builder<?> builder) {
         super(builder.particleEffect, builder.rotation, builder.offset, 1, builder.beforeDraw, builder.afterDraw);
+        this.setVelocity(builder.velocity);
         // Defensive copies are made in setters to protect against in-place modification of vectors
         this.setSize(builder.size);
         this.setAmounts(builder.amounts);
@@ -163,6 +164,11 @@ public class ParticleCuboid extends ParticleObject<ParticleCuboid> {
         drawContext.addMetadata(VERTICES, vertices);
     }
 
+    @Override
+    protected float getExtent() {
+        return this.size.length() / 2;
+    }
+
     @Override
     public void draw(ApelServerRenderer renderer, DrawContext drawContext) {
         Vector3f objectDrawPos = new Vector3f(drawContext.getPosition()).add(this.offset);
@@ -24,6 +24,7 @@ public class ParticleCylinder extends ParticleObject<ParticleCylinder> {
     private ParticleCylinder(Builder<?> builder) {
         super(builder.particleEffect, builder.rotation, builder.offset, builder.amount, builder.beforeDraw,
               builder.afterDraw);
+        this.setVelocity(builder.velocity);
         this.setRadius(builder.radius);
         this.setHeight(builder.height);
     }
@@ -89,6 +90,11 @@ public class ParticleCylinder extends ParticleObject<ParticleCylinder> {
         return prevHeight;
     }
 
+    @Override
+    protected float getExtent() {
+        return (float) Math.sqrt(this.radius * this.radius + this.height * this.height);
+    }
+
     @Override
     public void draw(ApelServerRenderer renderer, DrawContext drawContext) {
         Vector3f objectDrawPos = new Vector3f(drawContext.getPosition()).add(this.offset);
@@ -23,6 +23,7 @@ public class ParticleEllipse extends ParticleObject<ParticleEllipse> {
     private ParticleEllipse(Builder<?> builder) {
         super(builder.particleEffect, builder.rotation, builder.offset, builder.amount, builder.beforeDraw,
               builder.afterDraw);
+        this.setVelocity(builder.velocity);
         this.setRadius(builder.radius);
         this.setStretch(builder.stretch);
     }
@@ -88,6 +89,11 @@ public class ParticleEllipse extends ParticleObject<ParticleEllipse> {
         return prevHeight;
     }
 
+    @Override
+    protected float getExtent() {
+        return Math.max(Math.abs(this.radius), Math.abs(this.stretch));
+    }
+
     @Override
     public void draw(ApelServerRenderer renderer, DrawContext drawContext) {
         Vector3f objectDrawPos = new Vector3f(drawContext.getPosition()).add(this.offset);
@@ -23,6 +23,7 @@ public class ParticleEllipsoid extends ParticleObject<ParticleEllipsoid> {
     private ParticleEllipsoid(Builder<?> builder) {
         super(builder.particleEffect, builder.rotation, builder.offset, builder.amount, builder.beforeDraw,
               builder.afterDraw);
+        this.setVelocity(builder.velocity);
         this.setXSemiAxis(builder.xSemiAxis);
         this.setYSemiAxis(builder.ySemiAxis);
         this.setZSemiAxis(builder.zSemiAxis);
@@ -119,6 +120,11 @@ public class ParticleEllipsoid extends ParticleObject<ParticleEllipsoid> {
         return prevZSemiAxis;
     }
 
+    @Override
+    protected float getExtent() {
+        return Math.max(Math.abs(this.xSemiAxis), Math.max(Math.abs(this.ySemiAxis), Math.abs(this.zSemiAxis)));
+    }
+
     @Override
     public void draw(ApelServerRenderer renderer, DrawContext drawContext) {
         Vector3f objectDrawPos = new Vector3f(drawContext.getPosition()).add(this.offset);
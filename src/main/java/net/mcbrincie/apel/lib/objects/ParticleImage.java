@@ -2,34 +2,60 @@ package net.mcbrincie.apel.lib.objects;
 
 import net.mcbrincie.apel.Apel;
 import net.mcbrincie.apel.lib.renderers.ApelServerRenderer;
+import net.mcbrincie.apel.lib.util.image.ColourQuantizer;
 import net.mcbrincie.apel.lib.util.image.DustPalateGenerator;
+import net.mcbrincie.apel.lib.util.image.ImagePointSet;
 import net.mcbrincie.apel.lib.util.image.PalateGenerator;
 import net.mcbrincie.apel.lib.util.interceptor.DrawContext;
 import net.mcbrincie.apel.lib.util.interceptor.ObjectInterceptor;
 import net.minecraft.particle.ParticleEffect;
 import net.minecraft.util.Identifier;
+import org.joml.Quaternionf;
+import org.joml.Quaternionfc;
 import org.joml.Vector3f;
 
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
-import java.util.HashMap;
 
 
-/** Particle Image is a Work In Progress(WIP) stage.
- * Feel free to use it, but it is not complete and there are
- * some known issues as well as being unoptimized
+/** The particle object class that represents an image, drawn as one particle per pixel in the XY plane, centred
+ * on the drawing position. The colour of every pixel is turned into a particle effect by the
+ * {@link PalateGenerator}, which defaults to dust particles of the pixel's colour.
+ * <br><br>
+ * The image is decoded once when the file is set. It can then be downsampled so that its longest side fits a
+ * maximum resolution, and pixels whose alpha is below a threshold are dropped. The remaining pixels are laid out
+ * ahead of time in an {@link ImagePointSet}, grouped by colour, so every frame only rotates the positions (when the
+ * rotation changed) and hands each colour to the renderer in a single batch. The palette generator is called once
+ * per colour and frame, with the coordinates of the first pixel of that colour. With the default
+ * {@link DustPalateGenerator}, the whole image is handed over in one call to
+ * {@link ApelServerRenderer#drawColouredPoints}
+ * <br><br>
+ * To keep the number of distinct particle effects small, the colours of the image are reduced to a palette of at
+ * most {@link #DEFAULT_PALETTE_SIZE} colours by default, see {@link ColourQuantizer}. Dithering can be enabled to
+ * smooth out gradients, and a palette size of 0 keeps every colour of the image
  */
 @SuppressWarnings({"unused", "UnusedReturnValue"})
 public class ParticleImage extends ParticleObject<ParticleImage> {
+    public static final float DEFAULT_PIXEL_SIZE = 0.1f;
+    public static final int DEFAULT_ALPHA_THRESHOLD = 128;
+    public static final int DEFAULT_PALETTE_SIZE = 64;
+
     private String filename;
-    private BufferedImage image;
-    private boolean transparency = false;
     private PalateGenerator palateGenerator = new DustPalateGenerator();
     private int[] rgbArray;
-
-    private HashMap<Vector3f, ParticleEffect> positions;
+    private int imageWidth;
+    private int imageHeight;
+    private int maxResolution = 0;
+    private int alphaThreshold = DEFAULT_ALPHA_THRESHOLD;
+    private float pixelSize = DEFAULT_PIXEL_SIZE;
+    private int paletteSize = DEFAULT_PALETTE_SIZE;
+    private boolean dithering = false;
+    private ImagePointSet pointSet;
+    // The positions of the point set rotated by the rotation below
+    private float[] rotatedPoints;
+    private final Vector3f rotatedPointsRotation = new Vector3f();
 
     public ParticleImage(String filename, Vector3f rotation) {
         super(null, rotation, new Vector3f(0), 1, ObjectInterceptor.identity(), ObjectInterceptor.identity());
@@ -52,10 +78,16 @@ public class ParticleImage extends ParticleObject<ParticleImage> {
         super(image);
         this.filename = image.filename;
         this.rgbArray = image.rgbArray;
-        this.positions = image.positions;
-        this.image = image.image;
+        this.imageWidth = image.imageWidth;
+        this.imageHeight = image.imageHeight;
+        this.maxResolution = image.maxResolution;
+        this.alphaThreshold = image.alphaThreshold;
+        this.pixelSize = image.pixelSize;
+        this.paletteSize = image.paletteSize;
+        this.dithering = image.dithering;
+        // The point set is immutable, so it can be shared
+        this.pointSet = image.pointSet;
         this.palateGenerator = image.palateGenerator;
-        this.transparency = image.transparency;
     }
 
     public String setFilename(String filename) {
@@ -63,16 +95,107 @@ public class ParticleImage extends ParticleObject<ParticleImage> {
         this.filename = filename;
         try {
             File file = new File(filename);
-            this.image = ImageIO.read(file);
-            int width = this.image.getWidth();
-            int height = this.image.getHeight();
-            this.rgbArray = this.image.getRGB(0, 0, width, height, null, 0, width);
+            BufferedImage image = ImageIO.read(file);
+            if (image == null) {
+                throw new IllegalArgumentException("The supplied file is not a supported image");
+            }
+            this.imageWidth = image.getWidth();
+            this.imageHeight = image.getHeight();
+            this.rgbArray = image.getRGB(0, 0, this.imageWidth, this.imageHeight, null, 0, this.imageWidth);
+            this.rebuildPointSet();
         } catch (IOException e) {
             Apel.LOGGER.error("There was a problem loading the image {}", filename);
         }
         return prevFilename;
     }
 
+    /** Sets the size of the longest side of the drawn image, in pixels, and returns the previous one. Larger images
+     * are downsampled by averaging blocks of pixels. A resolution of 0 keeps the original size
+     *
+     * @param maxResolution The new maximum resolution, or 0 to keep the original size
+     * @return The previous maximum resolution
+     */
+    public int setMaxResolution(int maxResolution) {
+        if (maxResolution < 0) {
+            throw new IllegalArgumentException("Maximum resolution cannot be negative");
+        }
+        int prevMaxResolution = this.maxResolution;
+        this.maxResolution = maxResolution;
+        this.rebuildPointSet();
+        return prevMaxResolution;
+    }
+
+    /** Sets the lowest alpha (from 0 to 255) of the pixels that are drawn and returns the previous one. Pixels that
+     * are more transparent are not drawn at all
+     *
+     * @param alphaThreshold The new alpha threshold
+     * @return The previous alpha threshold
+     */
+    public int setAlphaThreshold(int alphaThreshold) {
+        if (alphaThreshold < 0 || alphaThreshold > 255) {
+            throw new IllegalArgumentException("Alpha threshold must be between 0 and 255");
+        }
+        int prevAlphaThreshold = this.alphaThreshold;
+        this.alphaThreshold = alphaThreshold;
+        this.rebuildPointSet();
+        return prevAlphaThreshold;
+    }
+
+    /** Sets the distance between neighbouring pixels and returns the previous one
+     *
+     * @param pixelSize The new pixel size
+     * @return The previous pixel size
+     */
+    public float setPixelSize(float pixelSize) {
+        if (pixelSize <= 0) {
+            throw new IllegalArgumentException("Pixel size must be positive");
+        }
+        float prevPixelSize = this.pixelSize;
+        this.pixelSize = pixelSize;
+        this.rebuildPointSet();
+        return prevPixelSize;
+    }
+
+    /** Sets the maximum number of colours the image is drawn with and returns the previous one. A palette size
+     * of 0 keeps every colour of the image
+     *
+     * @param paletteSize The new palette size, or 0 to keep every colour
+     * @return The previous palette size
+     */
+    public int setPaletteSize(int paletteSize) {
+        if (paletteSize < 0) {
+            throw new IllegalArgumentException("Palette size cannot be negative");
+        }
+        int prevPaletteSize = this.paletteSize;
+        this.paletteSize = paletteSize;
+        this.rebuildPointSet();
+        return prevPaletteSize;
+    }
+
+    /** Sets whether the colours reduced to the palette are dithered and returns the previous setting
+     *
+     * @param dithering Whether to dither the image
+     * @return Whether the image was dithered before
+     */
+    public boolean setDithering(boolean dithering) {
+        boolean prevDithering = this.dithering;
+        this.dithering = dithering;
+        this.rebuildPointSet();
+        return prevDithering;
+    }
+
+    private void rebuildPointSet() {
+        if (this.rgbArray == null) {
+            return;
+        }
+        ColourQuantizer quantizer = this.paletteSize > 0 ? new ColourQuantizer(this.paletteSize, this.dithering) : null;
+        this.pointSet = ImagePointSet.fromArgb(
+                this.rgbArray, this.imageWidth, this.imageHeight, this.maxResolution, this.alphaThreshold,
+                this.pixelSize, quantizer
+        );
+        this.rotatedPoints = null;
+    }
+
     public PalateGenerator setPalateGenerator(PalateGenerator palateGenerator) {
         PalateGenerator prevPalateGenerator = this.palateGenerator;
         this.palateGenerator = palateGenerator;
@@ -83,6 +206,22 @@ public class ParticleImage extends ParticleObject<ParticleImage> {
 
     public String getFilename() {return filename;}
 
+    public int getMaxResolution() {return this.maxResolution;}
+
+    public int getAlphaThreshold() {return this.alphaThreshold;}
+
+    public float getPixelSize() {return this.pixelSize;}
+
+    public int getPaletteSize() {return this.paletteSize;}
+
+    public boolean isDithering() {return this.dithering;}
+
+    /** Gets the precomputed pixels of the image, or null if no image was loaded
+     *
+     * @return The point set of the image
+     */
+    public ImagePointSet getPointSet() {return this.pointSet;}
+
     /** THIS METHOD SHOULD NOT BE USED */
     @Override
     @Deprecated
@@ -92,16 +231,61 @@ public class ParticleImage extends ParticleObject<ParticleImage> {
 
     @Override
     public void draw(ApelServerRenderer renderer, DrawContext drawContext) {
-        int width = this.image.getWidth();
-        int height = this.image.getHeight();
-        for (int x = 0; x < width; x++) {
-            for (int y = 0; y < height; y++) {
-                int rgba = this.rgbArray[y * width + x];
-                int alpha = (rgba >> 24) & 0xff;
-                ParticleEffect particle = this.palateGenerator.apply(rgba, x, y, drawContext.getPosition());
-                Vector3f pos = new Vector3f(drawContext.getPosition()).add(x, y, 0).mul(0.01f);
-                // this.drawParticle(particle, renderer, step, pos);
-            }
+        ImagePointSet points = this.pointSet;
+        if (points == null) {
+            return;
+        }
+        Vector3f objectDrawPos = new Vector3f(drawContext.getPosition()).add(this.offset);
+        // The rotation may also be modified in-place, so compare by value
+        if (this.rotatedPoints == null || !this.rotatedPointsRotation.equals(this.rotation)) {
+            this.rotatedPoints = rotatePoints(points.getPoints(), this.rotation);
+            this.rotatedPointsRotation.set(this.rotation);
+        }
+        drawPointSet(renderer, drawContext.getCurrentStep(), objectDrawPos, points, this.rotatedPoints,
+                     this.palateGenerator
+        );
+    }
+
+    /** Draws the pixels of a point set, one batch per colour, or all at once for plain coloured dust.
+     * Shared with {@link ParticleAnimatedImage}
+     */
+    static void drawPointSet(
+            ApelServerRenderer renderer, int step, Vector3f drawPos, ImagePointSet points, float[] rotatedPoints,
+            PalateGenerator palateGenerator
+    ) {
+        if (palateGenerator.getClass() == DustPalateGenerator.class) {
+            // Plain coloured dust needs no effect per colour, the renderer can send the colours compactly
+            DustPalateGenerator dust = (DustPalateGenerator) palateGenerator;
+            renderer.drawColouredPoints(
+                    dust.getSize(), step, drawPos, rotatedPoints, points.getPointColours(), 0, points.size()
+            );
+            return;
+        }
+        for (int colour = 0; colour < points.getColourCount(); colour++) {
+            ParticleEffect particle = palateGenerator.apply(
+                    0xFF000000 | points.getColour(colour), points.getFirstPixelX(colour),
+                    points.getFirstPixelY(colour), drawPos
+            );
+            renderer.drawPoints(
+                    particle, step, drawPos, rotatedPoints, points.getRunStart(colour), points.getRunEnd(colour)
+            );
+        }
+    }
+
+    /** Rotates flat point coordinates, returning the same array when there is no rotation */
+    static float[] rotatePoints(float[] points, Vector3f rotation) {
+        if (rotation.x == 0 && rotation.y == 0 && rotation.z == 0) {
+            return points;
+        }
+        Quaternionfc quaternion = new Quaternionf().rotateZ(rotation.z).rotateY(rotation.y).rotateX(rotation.x);
+        float[] rotated = new float[points.length];
+        Vector3f point = new Vector3f();
+        for (int i = 0; i < points.length; i += 3) {
+            point.set(points[i], points[i + 1], points[i + 2]).rotate(quaternion);
+            rotated[i] = point.x;
+            rotated[i + 1] = point.y;
+            rotated[i + 2] = point.z;
         }
+        return rotated;
     }
 }
@@ -29,6 +29,7 @@ public class ParticleLine extends ParticleObject<ParticleLine> {
     private ParticleLine(Builder<?> builder) {
         super(builder.particleEffect, builder.rotation, builder.offset, builder.amount, builder.beforeDraw,
               builder.afterDraw);
+        this.setVelocity(builder.velocity);
         this.setStart(builder.start);
         this.setEnd(builder.end);
     }
@@ -95,6 +96,11 @@ public class ParticleLine extends ParticleObject<ParticleLine> {
         return prevEnd;
     }
 
+    @Override
+    protected float getExtent() {
+        return Math.max(this.start.length(), this.end.length());
+    }
+
     @Override
     public void draw(ApelServerRenderer renderer, DrawContext drawContext) {
         Vector3f objectDrawPos = new Vector3f(drawContext.getPosition()).add(this.offset);
@@ -1,31 +1,94 @@
 package net.mcbrincie.apel.lib.objects;
 
+import net.mcbrincie.apel.Apel;
 import net.mcbrincie.apel.lib.renderers.ApelServerRenderer;
 import net.mcbrincie.apel.lib.util.interceptor.DrawContext;
 import net.mcbrincie.apel.lib.util.interceptor.ObjectInterceptor;
-import net.mcbrincie.apel.lib.util.models.ModelParserManager;
+import net.mcbrincie.apel.lib.util.models.ModelLodChain;
+import net.mcbrincie.apel.lib.util.models.ModelMesh;
+import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.server.world.ServerWorld;
 import net.minecraft.util.Pair;
+import org.joml.Quaternionf;
+import org.joml.Quaternionfc;
 import org.joml.Vector3f;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 
 /** The particle object class that represents a 3D model. It has a path to the 3D model
  * file which is the geometry of the model, it also has scaling which stretches the model
- * in different axis. The model is drawn in a wireframe fashion, which means that only the
+ * in different axis. By default, the model is drawn in a wireframe fashion, which means that only the
  * edges are visible and for now it supports one particle for rendering the model. Textures
  * are coming soon on the next release
+ * <br><br>
+ * The model is kept as an indexed {@link ModelMesh}, in which every edge shared by neighbouring faces is stored
+ * only once, and all of its edges are drawn in a single batched call to the renderer
+ * <br><br>
+ * The model can also be drawn as its surface, see {@link DrawMode}. The surface is covered by {@code amount}
+ * points picked once, in proportion to the area of every triangle, so the number of particles stays the same
+ * however detailed the model is. The points are picked when the model, the amount or the draw mode is set, rather
+ * than while drawing, and are kept until one of them changes
+ * <br><br>
+ * Large models can be drawn as a wireframe with less detail, using the {@link ModelLodChain} built from the model.
+ * A particle budget picks the most detailed level that fits within it, and a level-of-detail distance switches to a
+ * coarser level every time the nearest player is twice as far away. When both are set, the coarser level wins.
+ * The levels are built in the background as soon as the model needs them, and the full model is drawn until then
  */
 @SuppressWarnings({"unused", "UnusedReturnValue"})
 public class ParticleModel extends ParticleObject<ParticleModel> {
     private String filename;
     private Vector3f scale;
     private File model_file;
-    private List<Pair<Vector3f, Vector3f>> face_vertices = new ArrayList<>();
-    private final ModelParserManager modelParserManager = new ModelParserManager();
+    private ModelMesh mesh;
+    // Built in the background once a level of detail is needed, the full mesh is drawn until it is done
+    private volatile CompletableFuture<ModelLodChain> lodChain;
+    private int particleBudget;
+    private float lodDistance;
+    // The vertices of a mesh multiplied by the scale they were computed for
+    private float[] scaledVertices;
+    private ModelMesh scaledVerticesMesh;
+    private final Vector3f scaledVerticesScale = new Vector3f();
+    private DrawMode drawMode;
+    // The unscaled surface points, sampled by the setters and never modified, null in wireframe mode
+    private volatile float[] surfacePoints;
+    // Only used while drawing: the surface points above, scaled and rotated by the values below
+    private float[] transformedSurfacePoints;
+    private float[] transformedSurfacePointsSource;
+    // Only used while drawing: the surface points of a mesh an interceptor replaced, for the amount and draw mode below
+    private float[] interceptedSurfacePoints;
+    private ModelMesh interceptedSurfaceMesh;
+    private int interceptedSurfaceAmount;
+    private DrawMode interceptedSurfaceMode;
+    private final Vector3f transformedSurfacePointsScale = new Vector3f();
+    private final Vector3f transformedSurfacePointsRotation = new Vector3f();
 
+    // Surface points are picked the same way every time, so every copy of a model looks the same
+    private static final long SURFACE_SEED = 0x41504C4DL;
+
+    /** How the model is drawn */
+    public enum DrawMode {
+        /** Draws {@code amount} particles along every edge of the model */
+        WIREFRAME,
+        /** Draws {@code amount} particles over the whole surface of the model, placed at random */
+        SURFACE,
+        /** Draws up to {@code amount} particles over the whole surface of the model, keeping them evenly apart
+         * (Poisson-disk sampling). Sampling is slower, but happens only when the model or the amount changes */
+        EVEN_SURFACE
+    }
+
+    public static final DrawContext.Key<ModelMesh> MESH = new DrawContext.Key<>("mesh") {};
+    /** The edges of the mesh about to be drawn as pairs of unscaled vertices, as models were kept before they were
+     * stored as a {@link ModelMesh}.  It is a read-only view derived from {@link #MESH} before the interceptors run,
+     * and only provided to models with interceptors; changing it does not change what is drawn
+     *
+     * @deprecated Use {@link #MESH}, which interceptors may also replace.  This key will be removed in the next release
+     */
+    @Deprecated(forRemoval = true)
     public static final DrawContext.Key<List<Pair<Vector3f, Vector3f>>> FACE_VERTICES = DrawContext.vector3fListPairKey(
             "face_vertices"
     );
@@ -36,8 +99,12 @@ public class ParticleModel extends ParticleObject<ParticleModel> {
 
     private ParticleModel(Builder<?> builder) {
         super(builder.particleEffect, builder.rotation, new Vector3f(), builder.amount, builder.beforeDraw, builder.afterDraw);
+        this.setVelocity(builder.velocity);
         this.setScale(builder.scale);
         this.setFilename(builder.filename);
+        this.setDrawMode(builder.drawMode);
+        this.setParticleBudget(builder.particleBudget);
+        this.setLodDistance(builder.lodDistance);
     }
 
     /** The copy constructor for a specific particle object. It copies all
@@ -49,8 +116,14 @@ public class ParticleModel extends ParticleObject<ParticleModel> {
         super(model);
         this.scale = model.scale;
         this.filename = model.filename;
-        this.face_vertices = model.face_vertices;
+        this.mesh = model.mesh;
         this.model_file = model.model_file;
+        this.drawMode = model.drawMode;
+        this.lodChain = model.lodChain;
+        this.particleBudget = model.particleBudget;
+        this.lodDistance = model.lodDistance;
+        // The surface points are never modified, so they can be shared
+        this.surfacePoints = model.surfacePoints;
     }
 
     /**
@@ -70,7 +143,8 @@ public class ParticleModel extends ParticleObject<ParticleModel> {
 
     /**
      * Set the path to the 3D model for this ParticleModel and returns the previous filename that was used.
-     * The model also parses the file and spits out the positions of each vertex from the different faces and lines
+     * The mesh of the model is shared through {@link Apel#MODEL_CACHE}, so the file is only parsed when no other
+     * model has loaded it yet, or when it has changed on disk since
      * <p>
      * This implementation is used by the constructor, so subclasses cannot override this method.
      *
@@ -81,25 +155,91 @@ public class ParticleModel extends ParticleObject<ParticleModel> {
         String prevFilename = this.filename;
         this.filename = filename;
         this.model_file = new File(filename);
-        this.modelParserManager.parseFile(this.model_file);
-        for (ModelParserManager.FaceToken faceToken : this.modelParserManager.drawableFaces) {
-            Vector3f prevVertex = faceToken.vertices[0];
-            int vertexIndex = 0;
-            for (Vector3f vertex : faceToken.vertices) {
-                if (vertexIndex == 0) {
-                    vertexIndex++;
-                    continue;
-                } else if (vertexIndex == faceToken.vertices.length - 1) {
-                    prevVertex = faceToken.vertices[0];
-                }
-                this.face_vertices.add(new Pair<>(prevVertex, vertex));
-                prevVertex = vertex;
-                vertexIndex++;
-            }
-        }
+        this.mesh = Apel.MODEL_CACHE.get(this.model_file);
+        this.lodChain = null;
+        this.scaledVertices = null;
+        this.requestLodChain();
+        this.sampleSurface();
         return prevFilename;
     }
 
+    /**
+     * Set how this ParticleModel is drawn and returns the previous draw mode that was used.
+     * <p>
+     * This implementation is used by the constructor, so subclasses cannot override this method.
+     *
+     * @param drawMode the new draw mode
+     * @return the previously used draw mode
+     */
+    public final DrawMode setDrawMode(DrawMode drawMode) {
+        if (drawMode == null) {
+            throw new IllegalArgumentException("Draw mode cannot be null");
+        }
+        DrawMode prevDrawMode = this.drawMode;
+        this.drawMode = drawMode;
+        this.requestLodChain();
+        this.sampleSurface();
+        return prevDrawMode;
+    }
+
+    /**
+     * Set the maximum number of particles this ParticleModel draws as a wireframe and returns the previous budget.
+     * When the full model needs more particles, a simplified level of the model is drawn instead. A budget of 0
+     * always draws the full model
+     * <p>
+     * This implementation is used by the constructor, so subclasses cannot override this method.
+     *
+     * @param particleBudget the new particle budget, or 0 to disable it
+     * @return the previous particle budget
+     */
+    public final int setParticleBudget(int particleBudget) {
+        if (particleBudget < 0) {
+            throw new IllegalArgumentException("Particle budget cannot be negative");
+        }
+        int prevParticleBudget = this.particleBudget;
+        this.particleBudget = particleBudget;
+        this.requestLodChain();
+        return prevParticleBudget;
+    }
+
+    /**
+     * Set the distance up to which this ParticleModel is drawn in full detail and returns the previous distance.
+     * Every time the nearest player is twice as far away, the next simplified level of the model is drawn. A
+     * distance of 0 always draws the full model
+     * <p>
+     * This implementation is used by the constructor, so subclasses cannot override this method.
+     *
+     * @param lodDistance the new full-detail distance, or 0 to disable it
+     * @return the previous full-detail distance
+     */
+    public final float setLodDistance(float lodDistance) {
+        if (lodDistance < 0) {
+            throw new IllegalArgumentException("Level of detail distance cannot be negative");
+        }
+        float prevLodDistance = this.lodDistance;
+        this.lodDistance = lodDistance;
+        this.requestLodChain();
+        return prevLodDistance;
+    }
+
+    /** Gets the particle budget of the ParticleModel and returns it.
+     *
+     * @return the particle budget of the ParticleModel, 0 if it has none
+     */
+    public int getParticleBudget() {return this.particleBudget;}
+
+    /** Gets the full-detail distance of the ParticleModel and returns it.
+     *
+     * @return the full-detail distance of the ParticleModel, 0 if it has none
+     */
+    public float getLodDistance() {return this.lodDistance;}
+
+    /** Gets the draw mode of the ParticleModel and returns it.
+     *
+     * @return the draw mode of the ParticleModel
+     */
+    public DrawMode getDrawMode() {return this.drawMode;}
+
     /** Gets the filename of the ParticleModel and returns it.
      *
      * @return the filename of the ParticleModel
@@ -112,23 +252,176 @@ public class ParticleModel extends ParticleObject<ParticleModel> {
      */
     public Vector3f getScale() {return this.scale;}
 
+    /** Gets the indexed mesh of the ParticleModel and returns it.
+     *
+     * @return the mesh of the ParticleModel
+     */
+    public ModelMesh getMesh() {return this.mesh;}
+
+    /** Gets the levels of detail of the ParticleModel, waiting for them if they are still being built.
+     *
+     * @return the levels of detail of the ParticleModel
+     */
+    public ModelLodChain getLodChain() {
+        CompletableFuture<ModelLodChain> lodChain = this.lodChain;
+        if (lodChain == null) {
+            lodChain = Apel.MODEL_CACHE.getLodChainAsync(this.model_file);
+            this.lodChain = lodChain;
+        }
+        return lodChain.join();
+    }
+
+    @Override
+    protected void amountChanged() {
+        this.sampleSurface();
+    }
+
+    // Samples the surface when the model, the amount or the draw mode is set, so drawing only has to transform it
+    private void sampleSurface() {
+        if (this.drawMode == null || this.mesh == null) {
+            return;
+        }
+        this.surfacePoints = switch (this.drawMode) {
+            case WIREFRAME -> null;
+            case SURFACE -> this.mesh.sampleSurface(this.amount, SURFACE_SEED);
+            case EVEN_SURFACE -> this.mesh.samplePoissonDisk(this.amount, SURFACE_SEED);
+        };
+    }
+
+    // Starts building the levels of detail as soon as the wireframe needs them, rather than when it is first drawn
+    private void requestLodChain() {
+        if (this.lodChain == null && this.model_file != null && this.drawMode == DrawMode.WIREFRAME
+                && (this.particleBudget > 0 || this.lodDistance > 0)) {
+            this.lodChain = Apel.MODEL_CACHE.getLodChainAsync(this.model_file);
+        }
+    }
+
+    /** The level of detail picked by distance depends on where the players are, so such a model is only replayable
+     * without a full-detail distance */
+    @Override
+    public boolean isReplayable() {
+        return super.isReplayable() && (this.drawMode != DrawMode.WIREFRAME || this.lodDistance == 0);
+    }
+
     @Override
     protected void prepareContext(DrawContext drawContext) {
-        drawContext.addMetadata(FACE_VERTICES, this.face_vertices);
+        ModelMesh drawnMesh = this.mesh;
+        // Surface modes already draw a fixed number of particles.  The full mesh is drawn until the levels are built
+        CompletableFuture<ModelLodChain> lodChain = this.lodChain;
+        if (this.drawMode == DrawMode.WIREFRAME && (this.particleBudget > 0 || this.lodDistance > 0)
+                && lodChain != null && lodChain.isDone() && !lodChain.isCompletedExceptionally()) {
+            ModelLodChain chain = lodChain.join();
+            drawnMesh = chain.getLevel(this.selectLevel(chain, drawContext));
+        }
+        drawContext.addMetadata(MESH, drawnMesh);
+        if (!this.isInterceptorFree()) {
+            drawContext.addMetadata(FACE_VERTICES, getEdgePairs(drawnMesh));
+        }
+    }
+
+    private static List<Pair<Vector3f, Vector3f>> getEdgePairs(ModelMesh drawnMesh) {
+        float[] vertices = drawnMesh.getScaledVertices(new Vector3f(1));
+        int[] edges = drawnMesh.getEdges();
+        List<Pair<Vector3f, Vector3f>> edgePairs = new ArrayList<>(edges.length / 2);
+        for (int i = 0; i < edges.length; i += 2) {
+            int start = edges[i] * 3;
+            int end = edges[i + 1] * 3;
+            edgePairs.add(new Pair<>(
+                    new Vector3f(vertices[start], vertices[start + 1], vertices[start + 2]),
+                    new Vector3f(vertices[end], vertices[end + 1], vertices[end + 2])
+            ));
+        }
+        return Collections.unmodifiableList(edgePairs);
+    }
+
+    private int selectLevel(ModelLodChain chain, DrawContext drawContext) {
+        int level = 0;
+        if (this.particleBudget > 0) {
+            level = chain.selectForBudget(this.particleBudget, this.amount);
+        }
+        ServerWorld world = drawContext.getWorld();
+        if (this.lodDistance > 0 && world != null && !world.getPlayers().isEmpty()) {
+            Vector3f position = new Vector3f(drawContext.getPosition()).add(this.offset);
+            double closestSquared = Double.MAX_VALUE;
+            for (ServerPlayerEntity player : world.getPlayers()) {
+                closestSquared = Math.min(closestSquared, player.squaredDistanceTo(position.x, position.y, position.z));
+            }
+            level = Math.max(level, chain.selectForDistance((float) Math.sqrt(closestSquared), this.lodDistance));
+        }
+        return level;
     }
 
     @Override
     public void draw(ApelServerRenderer renderer, DrawContext drawContext) {
         Vector3f objectDrawPos = new Vector3f(drawContext.getPosition()).add(this.offset);
-        List<Pair<Vector3f, Vector3f>> modifiedPos = drawContext.getMetadata(FACE_VERTICES);
-        for (Pair<Vector3f, Vector3f> vertexPair : modifiedPos) {
-            Vector3f vertex1 = new Vector3f(vertexPair.getLeft()).mul(this.scale);
-            Vector3f vertex2 = new Vector3f(vertexPair.getRight()).mul(this.scale);
-            renderer.drawLine(
-                    this.particleEffect, drawContext.getCurrentStep(), objectDrawPos,
-                    vertex1, vertex2, this.rotation, this.amount
+        ModelMesh drawnMesh = drawContext.getMetadata(MESH);
+        float[] surfacePoints = this.surfacePoints;
+        if (surfacePoints != null) {
+            if (drawnMesh != this.mesh) {
+                // An interceptor replaced the mesh, which can only be sampled now
+                surfacePoints = this.sampleInterceptedSurface(drawnMesh);
+            }
+            float[] points = this.getTransformedSurfacePoints(surfacePoints);
+            renderer.drawPoints(
+                    this.particleEffect, drawContext.getCurrentStep(), objectDrawPos, points, 0, points.length / 3
             );
+            return;
+        }
+        float[] vertices = this.getScaledVertices(drawnMesh);
+        renderer.drawWireframe(
+                this.particleEffect, drawContext.getCurrentStep(), objectDrawPos,
+                vertices, drawnMesh.getEdges(), this.rotation, this.amount
+        );
+    }
+
+    private float[] getScaledVertices(ModelMesh drawnMesh) {
+        // The scale may also be modified in-place, so compare by value
+        if (this.scaledVertices == null || this.scaledVerticesMesh != drawnMesh
+                || !this.scaledVerticesScale.equals(this.scale)) {
+            this.scaledVertices = drawnMesh.getScaledVertices(this.scale);
+            this.scaledVerticesMesh = drawnMesh;
+            this.scaledVerticesScale.set(this.scale);
+        }
+        return this.scaledVertices;
+    }
+
+    private float[] sampleInterceptedSurface(ModelMesh drawnMesh) {
+        if (this.interceptedSurfacePoints == null || this.interceptedSurfaceMesh != drawnMesh
+                || this.interceptedSurfaceAmount != this.amount || this.interceptedSurfaceMode != this.drawMode) {
+            this.interceptedSurfacePoints = this.drawMode == DrawMode.SURFACE
+                                            ? drawnMesh.sampleSurface(this.amount, SURFACE_SEED)
+                                            : drawnMesh.samplePoissonDisk(this.amount, SURFACE_SEED);
+            this.interceptedSurfaceMesh = drawnMesh;
+            this.interceptedSurfaceAmount = this.amount;
+            this.interceptedSurfaceMode = this.drawMode;
+        }
+        return this.interceptedSurfacePoints;
+    }
+
+    private float[] getTransformedSurfacePoints(float[] surfacePoints) {
+        // The scale and rotation may also be modified in-place, so compare by value
+        if (this.transformedSurfacePointsSource != surfacePoints
+                || !this.transformedSurfacePointsScale.equals(this.scale)
+                || !this.transformedSurfacePointsRotation.equals(this.rotation)) {
+            Quaternionfc quaternion = new Quaternionf().rotateZ(this.rotation.z)
+                                                       .rotateY(this.rotation.y)
+                                                       .rotateX(this.rotation.x);
+            float[] points = new float[surfacePoints.length];
+            Vector3f point = new Vector3f();
+            for (int i = 0; i < points.length; i += 3) {
+                point.set(surfacePoints[i], surfacePoints[i + 1], surfacePoints[i + 2])
+                     .mul(this.scale)
+                     .rotate(quaternion);
+                points[i] = point.x;
+                points[i + 1] = point.y;
+                points[i + 2] = point.z;
+            }
+            this.transformedSurfacePoints = points;
+            this.transformedSurfacePointsSource = surfacePoints;
+            this.transformedSurfacePointsScale.set(this.scale);
+            this.transformedSurfacePointsRotation.set(this.rotation);
         }
+        return this.transformedSurfacePoints;
     }
 
     /** This is the particle model object builder used for setting up a new particle model instance.
@@ -142,6 +435,9 @@ public class ParticleModel extends ParticleObject<ParticleModel> {
         protected ObjectInterceptor<ParticleModel> beforeDraw;
         protected Vector3f scale = new Vector3f(1);
         protected String filename;
+        protected DrawMode drawMode = DrawMode.WIREFRAME;
+        protected int particleBudget = 0;
+        protected float lodDistance = 0;
 
         /** The scale of the particle model. The provided vector can also have different scaling on different axis
          *
@@ -173,6 +469,39 @@ public class ParticleModel extends ParticleObject<ParticleModel> {
             return self();
         }
 
+        /** How the particle model is drawn, defaults to {@link DrawMode#WIREFRAME}. In the surface modes,
+         * the amount is the number of particles covering the whole model rather than the number per edge
+         *
+         * @param drawMode The draw mode
+         * @return The builder instance
+         */
+        public B drawMode(DrawMode drawMode) {
+            this.drawMode = drawMode;
+            return self();
+        }
+
+        /** The maximum number of particles the wireframe may use. When the full model needs more, a simplified
+         * level of the model is drawn instead. Defaults to 0, which always draws the full model
+         *
+         * @param particleBudget The particle budget
+         * @return The builder instance
+         */
+        public B particleBudget(int particleBudget) {
+            this.particleBudget = particleBudget;
+            return self();
+        }
+
+        /** The distance up to which the full model is drawn. Every time the nearest player is twice as far away,
+         * the next simplified level of the model is drawn. Defaults to 0, which always draws the full model
+         *
+         * @param lodDistance The full-detail distance
+         * @return The builder instance
+         */
+        public B lodDistance(float lodDistance) {
+            this.lodDistance = lodDistance;
+            return self();
+        }
+
         private Builder() {}
 
         @Override
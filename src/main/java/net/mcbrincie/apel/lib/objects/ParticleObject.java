@@ -3,6 +3,7 @@ package net.mcbrincie.apel.lib.objects;
 import net.mcbrincie.apel.lib.renderers.ApelServerRenderer;
 import net.mcbrincie.apel.lib.util.interceptor.DrawContext;
 import net.mcbrincie.apel.lib.util.interceptor.ObjectInterceptor;
+import net.mcbrincie.apel.lib.util.math.ParticleVelocity;
 import net.minecraft.particle.ParticleEffect;
 import net.minecraft.server.world.ServerWorld;
 import org.joml.Vector3f;
@@ -52,6 +53,7 @@ public abstract class ParticleObject<T extends ParticleObject<T>> {
     protected Vector3f rotation;
     protected Vector3f offset = new Vector3f(0, 0, 0);
     protected int amount = 1;
+    protected ParticleVelocity velocity = ParticleVelocity.NONE;
     protected ObjectInterceptor<T> afterDraw = ObjectInterceptor.identity();
     protected ObjectInterceptor<T> beforeDraw = ObjectInterceptor.identity();
 
@@ -88,6 +90,7 @@ public abstract class ParticleObject<T extends ParticleObject<T>> {
         this.rotation = new Vector3f(object.rotation);
         this.offset = new Vector3f(object.offset);
         this.amount = object.amount;
+        this.velocity = object.velocity;
         this.beforeDraw = object.beforeDraw;
         this.afterDraw = object.afterDraw;
     }
@@ -201,9 +204,48 @@ public abstract class ParticleObject<T extends ParticleObject<T>> {
         }
         int prevAmount = this.amount;
         this.amount = amount;
+        if (amount != prevAmount) {
+            this.amountChanged();
+        }
         return prevAmount;
     }
 
+    /**
+     * Called by {@link #setAmount(int)} once the amount has changed, for subclasses that precompute what they draw
+     * from it.  The constructor sets the amount too, so this may run before the fields of the subclass are set.  The
+     * default implementation does nothing.
+     */
+    protected void amountChanged() {
+    }
+
+    /** Gets the velocity the particles of the object spawn with.
+     *
+     * @return The velocity of the particles
+     */
+    public ParticleVelocity getVelocity() {
+        return this.velocity;
+    }
+
+    /**
+     * Sets the velocity the particles of the object spawn with, centred on the drawing position plus the offset, and
+     * returns the previous one.  The velocity is in world space: it is not rotated with the object.  A shape drawn
+     * once with a velocity keeps moving on the client, so expanding shells, swirls or drifting clouds do not need to
+     * be drawn again every step.  {@code null} sets {@link ParticleVelocity#NONE}.
+     * <p>
+     * Objects drawn by a {@link ParticleCombiner} without a velocity of their own use the velocity of the combiner, or
+     * the one of the nearest enclosing combiner that has one.
+     * <p>
+     * This implementation is used by the constructor, so subclasses cannot override this method.
+     *
+     * @param velocity The new velocity
+     * @return The previous velocity
+     */
+    public final ParticleVelocity setVelocity(ParticleVelocity velocity) {
+        ParticleVelocity prevVelocity = this.velocity;
+        this.velocity = Optional.ofNullable(velocity).orElse(ParticleVelocity.NONE);
+        return prevVelocity;
+    }
+
     /**
      * Set the interceptor to run prior to drawing the object.  The interceptor will be provided with references to the
      * {@link ServerWorld}, an "origin" point from which the object should be drawn, the step number of the animation,
@@ -252,15 +294,83 @@ public abstract class ParticleObject<T extends ParticleObject<T>> {
     public abstract void draw(ApelServerRenderer renderer, DrawContext data);
 
     public final void doDraw(ApelServerRenderer renderer, int step, Vector3f drawPos) {
-        DrawContext drawContext = new DrawContext(renderer.getServerWorld(), drawPos, step);
+        this.doDraw(renderer, step, drawPos, ParticleVelocity.NONE, drawPos);
+    }
+
+    // Objects drawn inside a combiner spawn their particles with the velocity of the nearest enclosing object that has
+    // one, and set it again once drawn if they had a velocity of their own
+    final void doDraw(
+            ApelServerRenderer renderer, int step, Vector3f drawPos, ParticleVelocity inheritedVelocity,
+            Vector3f inheritedVelocityCenter
+    ) {
+        DrawContext drawContext = new DrawContext(
+                renderer.getServerWorld(), drawPos, step, inheritedVelocity, inheritedVelocityCenter
+        );
         this.prepareContext(drawContext);
         //noinspection unchecked
         this.beforeDraw.apply(drawContext, (T) this);
+        // Read after the interceptor, which may change it
+        ParticleVelocity drawVelocity = this.velocity;
+        if (!drawVelocity.isNone()) {
+            renderer.drawVelocity(step, new Vector3f(drawPos).add(this.offset), drawVelocity);
+        }
         this.draw(renderer, drawContext);
+        if (!drawVelocity.isNone()) {
+            renderer.drawVelocity(step, inheritedVelocityCenter, inheritedVelocity);
+        }
         //noinspection unchecked
         this.afterDraw.apply(drawContext, (T) this);
     }
 
+    /**
+     * Whether drawing this object runs only library code, meaning both of its interceptors are the identity.  Such
+     * objects may be drawn on other threads, since no developer-provided code is involved.  Subclasses that run
+     * additional interceptors should override this to account for them.
+     *
+     * @return true if neither interceptor of this object does anything
+     */
+    protected boolean isInterceptorFree() {
+        return this.beforeDraw.isIdentity() && this.afterDraw.isIdentity();
+    }
+
+    /**
+     * Whether the particles of this object depend only on the position it is drawn at, so that drawing it once and
+     * moving the result gives the same particles as drawing it again.  This holds for objects without interceptors,
+     * unless they look at the step or the world while drawing, in which case they should override this.  Path
+     * animators rely on it to play whole animations on the client.
+     *
+     * @return true if the object can be drawn once and moved to every position
+     */
+    public boolean isReplayable() {
+        return this.isInterceptorFree();
+    }
+
+    /**
+     * Gets the radius of a sphere, around the position the object is drawn at, that holds every particle of the
+     * object.  Path animators use it to tell whether anybody could see a step.  Objects with interceptors may change
+     * their shape while drawing, so their radius is infinite, as is the radius of objects whose extent is unknown.
+     *
+     * @return The bounding radius, or {@link Float#POSITIVE_INFINITY} if the object is not bounded
+     * @see #getExtent()
+     */
+    public float getBoundingRadius() {
+        if (!this.isInterceptorFree()) {
+            return Float.POSITIVE_INFINITY;
+        }
+        return this.offset.length() + this.getExtent();
+    }
+
+    /**
+     * Gets the distance from the origin of the object, before it is offset, to its furthest particle.  Rotating the
+     * object does not change it.  The default implementation does not know the shape, so it is infinite; subclasses
+     * should override it with a bound that is quick to compute.
+     *
+     * @return The extent of the object, or {@link Float#POSITIVE_INFINITY} if it is unknown
+     */
+    protected float getExtent() {
+        return Float.POSITIVE_INFINITY;
+    }
+
     /**
      * Subclasses should override to provide metadata into the {@code interceptData}.  The default implementation does
      * nothing.
@@ -287,6 +397,7 @@ public abstract class ParticleObject<T extends ParticleObject<T>> {
         protected Vector3f rotation = new Vector3f(0);
         protected Vector3f offset = new Vector3f(0);
         protected int amount = 1;
+        protected ParticleVelocity velocity = ParticleVelocity.NONE;
         protected ObjectInterceptor<T> beforeDraw;
         protected ObjectInterceptor<T> afterDraw;
 
@@ -329,6 +440,17 @@ public abstract class ParticleObject<T extends ParticleObject<T>> {
             return self();
         }
 
+        /**
+         * Set the velocity the particles spawn with on the builder.  This method is not cumulative; repeated calls
+         * will overwrite the value.
+         *
+         * @see ParticleObject#setVelocity(ParticleVelocity)
+         */
+        public final B velocity(ParticleVelocity velocity) {
+            this.velocity = velocity;
+            return self();
+        }
+
         /**
          * Sets the interceptor to run before drawing.  This method is not cumulative; repeated calls will overwrite
          * the value.
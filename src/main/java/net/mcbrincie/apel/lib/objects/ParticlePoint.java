@@ -26,6 +26,7 @@ public class ParticlePoint extends ParticleObject<ParticlePoint> {
         super(builder.particleEffect, builder.rotation, builder.offset, builder.amount, builder.beforeDraw,
               builder.afterDraw
         );
+        this.setVelocity(builder.velocity);
     }
 
     /** The copy constructor for a specific particle object. It copies all
@@ -42,6 +43,11 @@ public class ParticlePoint extends ParticleObject<ParticlePoint> {
         drawContext.addMetadata(DRAW_POSITION, drawContext.getPosition());
     }
 
+    @Override
+    protected float getExtent() {
+        return 0;
+    }
+
     public void draw(ApelServerRenderer renderer, DrawContext drawContext) {
         Vector3f objectDrawPosition = drawContext.getMetadata(DRAW_POSITION); //, drawContext.getPosition());
         renderer.drawParticle(this.particleEffect, drawContext.getCurrentStep(), objectDrawPosition.add(this.offset));
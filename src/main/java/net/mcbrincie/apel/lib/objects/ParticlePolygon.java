@@ -28,6 +28,7 @@ public class ParticlePolygon extends ParticleObject<ParticlePolygon> {
     private ParticlePolygon(Builder<?> builder) {
         super(builder.particleEffect, builder.rotation, builder.offset, builder.amount, builder.beforeDraw,
               builder.afterDraw);
+        this.setVelocity(builder.velocity);
         this.setSides(builder.sides);
         this.setSize(builder.size);
     }
@@ -97,6 +98,11 @@ public class ParticlePolygon extends ParticleObject<ParticlePolygon> {
         return this.size;
     }
 
+    @Override
+    protected float getExtent() {
+        return Math.abs(this.size);
+    }
+
     @Override
     public void draw(ApelServerRenderer renderer, DrawContext drawContext) {
         Vector3f[] vertices = getRawVertices();
@@ -32,6 +32,7 @@ public class ParticleQuad extends ParticleObject<ParticleQuad> {
     private ParticleQuad(Builder<?> builder) {
         super(builder.particleEffect, builder.rotation, builder.offset, builder.amount, builder.beforeDraw,
               builder.afterDraw);
+        this.setVelocity(builder.velocity);
         this.setVertex1(builder.vertex1);
         this.setVertex2(builder.vertex2);
         this.setVertex3(builder.vertex3);
@@ -169,6 +170,12 @@ public class ParticleQuad extends ParticleObject<ParticleQuad> {
         return this.vertex4;
     }
 
+    @Override
+    protected float getExtent() {
+        return Math.max(Math.max(this.vertex1.length(), this.vertex2.length()),
+                        Math.max(this.vertex3.length(), this.vertex4.length()));
+    }
+
     @Override
     public void draw(ApelServerRenderer renderer, DrawContext drawContext) {
         // Defensive copy of `drawPos`
@@ -20,6 +20,7 @@ public class ParticleSphere extends ParticleObject<ParticleSphere> {
     private ParticleSphere(Builder<?> builder) {
         super(builder.particleEffect, builder.rotation, builder.offset, builder.amount, builder.beforeDraw,
               builder.afterDraw);
+        this.setVelocity(builder.velocity);
         this.setRadius(builder.radius);
     }
 
@@ -58,6 +59,11 @@ public class ParticleSphere extends ParticleObject<ParticleSphere> {
         return this.radius;
     }
 
+    @Override
+    protected float getExtent() {
+        return Math.abs(this.radius);
+    }
+
     @Override
     public void draw(ApelServerRenderer renderer, DrawContext drawContext) {
         Vector3f objectDrawPos = new Vector3f(drawContext.getPosition()).add(this.offset);
@@ -22,6 +22,7 @@ public class ParticleTetrahedron extends ParticleObject<ParticleTetrahedron> {
     private ParticleTetrahedron(Builder<?> builder) {
         super(builder.particleEffect, builder.rotation, builder.offset, builder.amount, builder.beforeDraw,
               builder.afterDraw);
+        this.setVelocity(builder.velocity);
         this.setVertices(builder.vertex1, builder.vertex2, builder.vertex3, builder.vertex4);
     }
 
@@ -175,6 +176,12 @@ public class ParticleTetrahedron extends ParticleObject<ParticleTetrahedron> {
         return this.vertex4;
     }
 
+    @Override
+    protected float getExtent() {
+        return Math.max(Math.max(this.vertex1.length(), this.vertex2.length()),
+                        Math.max(this.vertex3.length(), this.vertex4.length()));
+    }
+
     @Override
     public void draw(ApelServerRenderer renderer, DrawContext drawContext) {
         // Defensive copy of `drawPos`
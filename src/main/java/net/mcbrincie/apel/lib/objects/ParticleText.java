@@ -0,0 +1,297 @@
+package net.mcbrincie.apel.lib.objects;
+
+import net.mcbrincie.apel.lib.renderers.ApelServerRenderer;
+import net.mcbrincie.apel.lib.util.interceptor.DrawContext;
+import net.mcbrincie.apel.lib.util.text.GlyphCache;
+import net.mcbrincie.apel.lib.util.text.TextPoints;
+import org.joml.Quaternionf;
+import org.joml.Quaternionfc;
+import org.joml.Vector3f;
+
+import java.awt.Font;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+
+/** The particle object class that represents text, drawn in the XY plane with one particle per pixel of the font.
+ * The first line starts at the drawing position, on its baseline, and is shifted left according to the
+ * {@link Alignment}. Lines are separated by {@code '\n'}.
+ * <br><br>
+ * Glyphs are rasterized only once per font and pixel size, see {@link GlyphCache}, and the text is laid out by
+ * concatenating their points. Changing the text lays out and rotates only the characters from the first one that
+ * changed onwards, so counters, timers and scoreboards can change every tick without rasterizing anything.  The text
+ * may be changed while it is drawn on another thread: every change publishes a copy of its points, and a draw always
+ * uses one whole version of the text
+ */
+@SuppressWarnings({"unused", "UnusedReturnValue"})
+public class ParticleText extends ParticleObject<ParticleText> {
+    public static final Font DEFAULT_FONT = new Font(Font.SANS_SERIF, Font.PLAIN, 16);
+
+    public enum Alignment {
+        /** The text starts at the drawing position */
+        LEFT(0),
+        /** The widest line is centred on the drawing position */
+        CENTER(0.5f),
+        /** The text ends at the drawing position */
+        RIGHT(1);
+
+        private final float shift;
+
+        Alignment(float shift) {
+            this.shift = shift;
+        }
+    }
+
+    /** A copy of the laid out points, published by the setters and never modified, so drawing on another thread
+     * always sees a whole version of the text.  Every version has the next generation, and remembers the first point
+     * that changed since the version before it.
+     */
+    private record Layout(int generation, float[] points, int size, float width, int changedFrom) {
+        private static final Layout EMPTY = new Layout(0, new float[0], 0, 0, 0);
+    }
+
+    private Alignment alignment;
+    // Laid out on the thread of the setters, only read by drawing through the layout published from it
+    private TextPoints textPoints;
+    private volatile Layout layout = Layout.EMPTY;
+    // Only used while drawing: the points of a layout rotated by the rotation below
+    private float[] rotatedPoints = new float[0];
+    private final Vector3f rotatedPointsRotation = new Vector3f();
+    private Layout rotatedLayout = Layout.EMPTY;
+
+    public static Builder<?> builder() {
+        return new Builder<>();
+    }
+
+    private ParticleText(Builder<?> builder) {
+        super(builder.particleEffect, builder.rotation, builder.offset, 1, builder.beforeDraw, builder.afterDraw);
+        this.setVelocity(builder.velocity);
+        this.alignment = builder.alignment;
+        this.textPoints = new TextPoints(GlyphCache.of(builder.font, builder.pixelSize));
+        this.setText(builder.text);
+    }
+
+    /** The copy constructor for a specific particle object. It copies all
+     * the params, including the interceptors the particle object has.
+     * The glyph cache is shared with the original
+     *
+     * @param text The particle text object to copy from
+     */
+    public ParticleText(ParticleText text) {
+        super(text);
+        this.alignment = text.alignment;
+        this.textPoints = new TextPoints(text.textPoints);
+        this.layout = text.layout;
+    }
+
+    /** Sets the text to draw and returns the previous one. Only the characters from the first one that differs
+     * from the previous text are laid out again
+     *
+     * @param text The new text
+     * @return The previous text
+     */
+    public final String setText(String text) {
+        if (text == null) {
+            throw new IllegalArgumentException("Text cannot be null");
+        }
+        String prevText = this.textPoints.getText();
+        if (!text.equals(prevText)) {
+            this.publish(this.textPoints.setText(text));
+        }
+        return prevText;
+    }
+
+    /** Sets the font and returns the previous one. The size of the font is its height in pixels
+     *
+     * @param font The new font
+     * @return The previous font
+     */
+    public Font setFont(Font font) {
+        Font prevFont = this.getFont();
+        this.relayout(GlyphCache.of(font, this.getPixelSize()));
+        return prevFont;
+    }
+
+    /** Sets the distance between neighbouring pixels of the font and returns the previous one
+     *
+     * @param pixelSize The new pixel size
+     * @return The previous pixel size
+     */
+    public float setPixelSize(float pixelSize) {
+        float prevPixelSize = this.getPixelSize();
+        this.relayout(GlyphCache.of(this.getFont(), pixelSize));
+        return prevPixelSize;
+    }
+
+    public Alignment setAlignment(Alignment alignment) {
+        Alignment prevAlignment = this.alignment;
+        this.alignment = alignment;
+        return prevAlignment;
+    }
+
+    private void relayout(GlyphCache glyphs) {
+        String text = this.textPoints.getText();
+        this.textPoints = new TextPoints(glyphs);
+        this.textPoints.setText(text);
+        this.publish(0);
+    }
+
+    private void publish(int changedFrom) {
+        int size = this.textPoints.size();
+        float[] points = Arrays.copyOf(this.textPoints.getPoints(), size * 3);
+        this.layout = new Layout(
+                this.layout.generation() + 1, points, size, this.textPoints.getWidth(), changedFrom
+        );
+    }
+
+    public String getText() {return this.textPoints.getText();}
+
+    public Font getFont() {return this.textPoints.getGlyphCache().getFont();}
+
+    public float getPixelSize() {return this.textPoints.getGlyphCache().getPixelSize();}
+
+    public Alignment getAlignment() {return this.alignment;}
+
+    /** Gets the laid out points of the text, before rotation
+     *
+     * @return The points of the text
+     */
+    public TextPoints getTextPoints() {return this.textPoints;}
+
+    @Override
+    public void draw(ApelServerRenderer renderer, DrawContext drawContext) {
+        Layout layout = this.layout;
+        int size = layout.size();
+        if (size == 0) {
+            return;
+        }
+        Quaternionfc quaternion = new Quaternionf()
+                .rotateZ(this.rotation.z).rotateY(this.rotation.y).rotateX(this.rotation.x);
+        int validUntil;
+        // The rotation may also be modified in-place, so compare by value
+        if (!this.rotatedPointsRotation.equals(this.rotation)) {
+            this.rotatedPointsRotation.set(this.rotation);
+            validUntil = 0;
+        } else if (layout.generation() == this.rotatedLayout.generation()) {
+            validUntil = size;
+        } else if (layout.generation() == this.rotatedLayout.generation() + 1) {
+            validUntil = layout.changedFrom();
+        } else {
+            // Several versions were published since the last draw, compare with the one that was rotated
+            int mismatch = Arrays.mismatch(this.rotatedLayout.points(), layout.points());
+            validUntil = mismatch == -1 ? size : mismatch / 3;
+        }
+        if (this.rotatedPoints.length < size * 3) {
+            this.rotatedPoints = Arrays.copyOf(this.rotatedPoints, size * 3);
+        }
+        float[] points = layout.points();
+        Vector3f point = new Vector3f();
+        for (int i = Math.min(validUntil, size) * 3; i < size * 3; i += 3) {
+            point.set(points[i], points[i + 1], points[i + 2]).rotate(quaternion);
+            this.rotatedPoints[i] = point.x;
+            this.rotatedPoints[i + 1] = point.y;
+            this.rotatedPoints[i + 2] = point.z;
+        }
+        this.rotatedLayout = layout;
+
+        // Aligning moves the whole text, so it never invalidates the rotated points
+        Vector3f alignmentShift = new Vector3f(-layout.width() * this.alignment.shift, 0, 0);
+        Vector3f objectDrawPos = new Vector3f(drawContext.getPosition())
+                .add(this.offset)
+                .add(alignmentShift.rotate(quaternion));
+        renderer.drawPoints(
+                this.particleEffect, drawContext.getCurrentStep(), objectDrawPos, this.rotatedPoints, 0, size
+        );
+    }
+
+    /** This is the particle text builder used for setting up a new text instance.
+     * It is designed to be more friendly of how you arrange the parameters. Call {@code .builder()} to initiate
+     * the builder, once you supplied the parameters then you can call {@code .build()} to create the instance
+     *
+     * @param <B> The builder type itself
+     */
+    public static class Builder<B extends Builder<B>> extends ParticleObject.Builder<B, ParticleText> {
+        protected String text = "";
+        protected Font font = DEFAULT_FONT;
+        protected float pixelSize = ParticleImage.DEFAULT_PIXEL_SIZE;
+        protected Alignment alignment = Alignment.LEFT;
+
+        private Builder() {}
+
+        /** The text to draw, lines are separated by {@code '\n'}
+         *
+         * @param text The text
+         * @return The builder instance
+         */
+        public B text(String text) {
+            this.text = text;
+            return self();
+        }
+
+        /** The font to rasterize the text with, its size being the height of the text in pixels.
+         * Defaults to {@link #DEFAULT_FONT}
+         *
+         * @param font The font
+         * @return The builder instance
+         */
+        public B font(Font font) {
+            this.font = font;
+            return self();
+        }
+
+        /** Loads a TrueType or OpenType font file, such as one bundled with a mod, as the font of the text
+         *
+         * @param filename The path to the font file
+         * @param size The height of the text in pixels
+         * @return The builder instance
+         */
+        public B fontFile(String filename, float size) {
+            try {
+                this.font = GlyphCache.loadFont(new File(filename), size);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return self();
+        }
+
+        /** Changes the size of the font, keeping its family and style
+         *
+         * @param size The height of the text in pixels
+         * @return The builder instance
+         */
+        public B fontSize(float size) {
+            this.font = this.font.deriveFont(size);
+            return self();
+        }
+
+        /** The distance between neighbouring pixels of the font
+         *
+         * @param pixelSize The pixel size
+         * @return The builder instance
+         */
+        public B pixelSize(float pixelSize) {
+            this.pixelSize = pixelSize;
+            return self();
+        }
+
+        /** Where the text is placed relative to the drawing position, defaults to {@link Alignment#LEFT}
+         *
+         * @param alignment The alignment
+         * @return The builder instance
+         */
+        public B alignment(Alignment alignment) {
+            this.alignment = alignment;
+            return self();
+        }
+
+        @Override
+        public ParticleText build() {
+            if (this.text == null) {
+                throw new IllegalStateException("Text Must Be Specified");
+            }
+            return new ParticleText(this);
+        }
+    }
+}
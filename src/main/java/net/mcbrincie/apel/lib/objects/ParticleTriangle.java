@@ -25,6 +25,7 @@ public class ParticleTriangle extends ParticleObject<ParticleTriangle> {
     private ParticleTriangle(Builder<?> builder) {
         super(builder.particleEffect, builder.rotation, builder.offset, builder.amount, builder.beforeDraw,
               builder.afterDraw);
+        this.setVelocity(builder.velocity);
         this.setVertices(builder.vertex1, builder.vertex2, builder.vertex3);
     }
 
@@ -147,6 +148,11 @@ public class ParticleTriangle extends ParticleObject<ParticleTriangle> {
         return this.vertex3;
     }
 
+    @Override
+    protected float getExtent() {
+        return Math.max(this.vertex1.length(), Math.max(this.vertex2.length(), this.vertex3.length()));
+    }
+
     @Override
     public void draw(ApelServerRenderer renderer, DrawContext drawContext) {
         // Defensive copy of `drawPos`
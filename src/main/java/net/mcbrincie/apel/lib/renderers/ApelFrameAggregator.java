@@ -0,0 +1,218 @@
+package net.mcbrincie.apel.lib.renderers;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import net.fabricmc.fabric.api.networking.v1.ServerPlayNetworking;
+import net.mcbrincie.apel.mixin.ClientConnectionAccessor;
+import net.mcbrincie.apel.mixin.ServerCommonNetworkHandlerAccessor;
+import net.minecraft.network.ClientConnection;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.network.ServerPlayerEntity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** Collects the frames sent to every player during a tick, so each player receives them merged into one
+ * {@link ApelFramePayload} (or a few, see {@link #MAX_INSTRUCTIONS_PER_PAYLOAD}) at the end of the tick, rather than
+ * one packet per frame of every animation around them.  Every frame keeps its own {@link ApelRenderer.Frame}, and
+ * the client splits the payload back into frames at them.
+ * <br><br>
+ * <b>Backpressure:</b> nothing is sent to a player whose connection is behind, meaning its channel is not writable
+ * because its outbound buffer is above the high water mark.  A frame only shows a single step of an animation, so
+ * once a tick has passed it is stale, and the newer frames of the next tick replace it: the frames of the player are
+ * dropped, and counted (see {@link #getDroppedFrames(ServerPlayerEntity)}), instead of piling up in server memory.
+ * Frames holding {@link ApelRenderer.Track}s are whole animations rather than a step, so they are held back until
+ * the connection catches up, unless more than {@link #MAX_HELD_INSTRUCTIONS} instructions are already held.
+ * <br><br>
+ * Frames may be queued from any thread (network renderers usually draw on the draw executor), while
+ * {@link #flush(MinecraftServer)} is called once per server tick by the server thread.  Frames queued while a flush
+ * is running are sent by the next one.
+ * <br><br>
+ * Every payload is encoded once, and payloads larger than the {@link #setPayloadBytes(int) byte budget} are sent in
+ * several {@link ApelFramePartPayload parts}, which are slices of that single encoding, and reassembled by the client
+ * into one payload.
+ * <br><br>
+ * Every player also has a {@link ParticleEffectPalette}, so a particle effect is encoded in full only the first time
+ * it is sent to them, and referenced by a small id afterward.  It is forgotten along with the player, and rebuilt from
+ * scratch when they reconnect or respawn.
+ */
+public final class ApelFrameAggregator {
+    /** The number of instructions above which the frames of a player are split into several payloads.  Frames are
+     * never split, so a single larger frame is still sent in one payload */
+    public static final int MAX_INSTRUCTIONS_PER_PAYLOAD = 4096;
+    /** The number of instructions of track frames held back for a player whose connection is behind, above which
+     * they are dropped as well */
+    public static final int MAX_HELD_INSTRUCTIONS = 1 << 16;
+    /** The largest byte budget of a payload, leaving room for the header below the 1 MiB limit of custom payloads */
+    public static final int MAX_PAYLOAD_BYTES = (1 << 20) - 1024;
+    public static final int DEFAULT_PAYLOAD_BYTES = 1 << 18;
+
+    private final Map<ServerPlayerEntity, Outbox> outboxes = new ConcurrentHashMap<>();
+    private volatile int payloadBytes = DEFAULT_PAYLOAD_BYTES;
+    // Only used by the server thread
+    private int nextPayloadId = 0;
+
+    /** The frames waiting to be sent to a player, guarded by its own lock */
+    private static final class Outbox {
+        // Only used by the server thread
+        private final ParticleEffectPalette palette = new ParticleEffectPalette();
+        private List<List<ApelRenderer.Instruction>> frames = new ArrayList<>();
+        private long droppedFrames;
+
+        private synchronized void add(List<ApelRenderer.Instruction> frame) {
+            this.frames.add(frame);
+        }
+
+        private synchronized List<List<ApelRenderer.Instruction>> take() {
+            List<List<ApelRenderer.Instruction>> taken = this.frames;
+            this.frames = new ArrayList<>();
+            return taken;
+        }
+
+        // Puts the held frames back in front of those queued since they were taken
+        private synchronized void holdBack(List<List<ApelRenderer.Instruction>> held, int dropped) {
+            this.frames.addAll(0, held);
+            this.droppedFrames += dropped;
+        }
+
+        private synchronized long getDroppedFrames() {
+            return this.droppedFrames;
+        }
+    }
+
+    /** Queues a frame for a player, to be sent with the other frames of the tick.  The frame must start with its
+     * {@link ApelRenderer.Frame} instruction, and must not be modified afterward since it may be shared by players
+     *
+     * @param player The player to send the frame to
+     * @param frame The instructions of the frame
+     */
+    public void enqueue(ServerPlayerEntity player, List<ApelRenderer.Instruction> frame) {
+        this.outboxes.computeIfAbsent(player, key -> new Outbox()).add(frame);
+    }
+
+    /** Sets the largest number of bytes sent in a single packet, payloads above it are split into parts, and returns
+     * the previous one.  Defaults to {@link #DEFAULT_PAYLOAD_BYTES}
+     *
+     * @param payloadBytes The new byte budget
+     * @return The previous byte budget
+     */
+    public int setPayloadBytes(int payloadBytes) {
+        if (payloadBytes <= 0 || payloadBytes > MAX_PAYLOAD_BYTES) {
+            throw new IllegalArgumentException("Byte budget must be between 1 and " + MAX_PAYLOAD_BYTES);
+        }
+        int prevPayloadBytes = this.payloadBytes;
+        this.payloadBytes = payloadBytes;
+        return prevPayloadBytes;
+    }
+
+    public int getPayloadBytes() {
+        return this.payloadBytes;
+    }
+
+    /** Sends the frames queued for every player, merged into as few payloads as the instruction limit allows, in the
+     * order they were queued.  The frames of players whose connection is behind are dropped or held back instead,
+     * and players that disconnected or respawned are forgotten
+     *
+     * @param server The server, whose registries encode the particle effects
+     */
+    public void flush(MinecraftServer server) {
+        int payloadBytes = this.payloadBytes;
+        for (Map.Entry<ServerPlayerEntity, Outbox> entry : this.outboxes.entrySet()) {
+            ServerPlayerEntity player = entry.getKey();
+            // Respawning replaces the player entity, so removed entities are forgotten as well
+            if (player.isDisconnected() || player.isRemoved()) {
+                this.outboxes.remove(player);
+                continue;
+            }
+            Outbox outbox = entry.getValue();
+            List<List<ApelRenderer.Instruction>> frames = outbox.take();
+            if (frames.isEmpty()) {
+                continue;
+            }
+            if (isBehind(player)) {
+                List<List<ApelRenderer.Instruction>> held = holdTracks(frames);
+                outbox.holdBack(held, frames.size() - held.size());
+                continue;
+            }
+            for (List<ApelRenderer.Instruction> instructions : merge(frames)) {
+                ApelFramePayload payload = new ApelFramePayload(instructions);
+                ByteBuf encoded = payload.encode(server.getRegistryManager(), outbox.palette);
+                int id = this.nextPayloadId++;
+                for (ApelFramePartPayload part : ApelFramePartPayload.split(encoded, id, payloadBytes)) {
+                    ServerPlayNetworking.send(player, part);
+                }
+            }
+        }
+    }
+
+    /** Forgets a player, along with the frames still queued for them
+     *
+     * @param player The player that left
+     */
+    public void remove(ServerPlayerEntity player) {
+        this.outboxes.remove(player);
+    }
+
+    /** Gets the number of frames that were dropped because the connection of the player was behind, since the
+     * player joined or last respawned
+     *
+     * @param player The player
+     * @return The number of dropped frames
+     */
+    public long getDroppedFrames(ServerPlayerEntity player) {
+        Outbox outbox = this.outboxes.get(player);
+        return outbox == null ? 0 : outbox.getDroppedFrames();
+    }
+
+    // The channel stops being writable once its outbound buffer goes above the high water mark
+    private static boolean isBehind(ServerPlayerEntity player) {
+        ServerCommonNetworkHandlerAccessor handler = (ServerCommonNetworkHandlerAccessor) player.networkHandler;
+        ClientConnection connection = handler.apel$getConnection();
+        Channel channel = ((ClientConnectionAccessor) connection).apel$getChannel();
+        return channel != null && !channel.isWritable();
+    }
+
+    /** Picks the frames to hold back for a connection that is behind: the track frames, most recent first, up to
+     * {@link #MAX_HELD_INSTRUCTIONS} instructions, in their original order
+     *
+     * @param frames The queued frames, in order
+     * @return The frames to hold back, in order
+     */
+    static List<List<ApelRenderer.Instruction>> holdTracks(List<List<ApelRenderer.Instruction>> frames) {
+        List<List<ApelRenderer.Instruction>> held = new ArrayList<>();
+        int heldInstructions = 0;
+        for (int i = frames.size() - 1; i >= 0; i--) {
+            List<ApelRenderer.Instruction> frame = frames.get(i);
+            boolean isTrack = frame.stream().anyMatch(ApelRenderer.Track.class::isInstance);
+            if (isTrack && heldInstructions + frame.size() <= MAX_HELD_INSTRUCTIONS) {
+                held.addFirst(frame);
+                heldInstructions += frame.size();
+            }
+        }
+        return held;
+    }
+
+    /** Concatenates frames into as few instruction lists as possible, starting a new list whenever the next frame
+     * would push the current one over {@link #MAX_INSTRUCTIONS_PER_PAYLOAD}
+     *
+     * @param frames The frames, in order
+     * @return The instructions of every payload, in order
+     */
+    static List<List<ApelRenderer.Instruction>> merge(List<List<ApelRenderer.Instruction>> frames) {
+        List<List<ApelRenderer.Instruction>> payloads = new ArrayList<>();
+        List<ApelRenderer.Instruction> current = new ArrayList<>();
+        for (List<ApelRenderer.Instruction> frame : frames) {
+            if (!current.isEmpty() && current.size() + frame.size() > MAX_INSTRUCTIONS_PER_PAYLOAD) {
+                payloads.add(current);
+                current = new ArrayList<>();
+            }
+            current.addAll(frame);
+        }
+        if (!current.isEmpty()) {
+            payloads.add(current);
+        }
+        return payloads;
+    }
+}
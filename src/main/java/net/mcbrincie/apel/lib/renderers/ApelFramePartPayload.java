@@ -0,0 +1,78 @@
+package net.mcbrincie.apel.lib.renderers;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import net.mcbrincie.apel.Apel;
+import net.minecraft.network.RegistryByteBuf;
+import net.minecraft.network.codec.PacketCodec;
+import net.minecraft.network.packet.CustomPayload;
+import net.minecraft.registry.DynamicRegistryManager;
+import net.minecraft.util.Identifier;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** A part of an encoded {@link ApelFramePayload}.  Frames are encoded once, then cut into parts of at most a given
+ * number of bytes, so a large model or image never goes over the size limit of custom payloads.  The parts of a
+ * payload share its {@code id}, are numbered from 0 to {@code count - 1}, and are sent in order; the client
+ * concatenates their bytes and decodes the result as a single payload.
+ *
+ * @param id The id of the payload the part belongs to
+ * @param index The index of the part
+ * @param count The number of parts of the payload
+ * @param bytes The bytes of the part
+ */
+public record ApelFramePartPayload(int id, int index, int count, ByteBuf bytes) implements CustomPayload {
+    public static final CustomPayload.Id<ApelFramePartPayload> ID =
+            new CustomPayload.Id<>(Identifier.of(Apel.MOD_ID, "frame_part"));
+    public static final PacketCodec<RegistryByteBuf, ApelFramePartPayload> PACKET_CODEC =
+            PacketCodec.of(ApelFramePartPayload::write, ApelFramePartPayload::read);
+
+    /** Cuts an encoded payload into parts.  The parts are slices of {@code encoded}, so no bytes are copied, and
+     * {@code encoded} must not be modified while they are being sent.  An empty payload still has one part
+     *
+     * @param encoded The encoded payload, see {@link ApelFramePayload#encode(DynamicRegistryManager)}
+     * @param id The id of the payload
+     * @param maxBytes The largest number of bytes of a part
+     * @return The parts, in order
+     */
+    public static List<ApelFramePartPayload> split(ByteBuf encoded, int id, int maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("Parts must hold at least one byte");
+        }
+        int length = encoded.readableBytes();
+        int count = Math.max(1, (length + maxBytes - 1) / maxBytes);
+        List<ApelFramePartPayload> parts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int offset = i * maxBytes;
+            ByteBuf slice = encoded.slice(encoded.readerIndex() + offset, Math.min(maxBytes, length - offset));
+            parts.add(new ApelFramePartPayload(id, i, count, slice));
+        }
+        return parts;
+    }
+
+    private static ApelFramePartPayload read(RegistryByteBuf buf) {
+        int id = buf.readVarInt();
+        int index = buf.readVarInt();
+        int count = buf.readVarInt();
+        // Copied onto the heap, since the packet buffer is released once the packet is read; unlike readBytes(int),
+        // which allocates from the pooled allocator of the packet, the copy needs no release
+        byte[] bytes = new byte[buf.readVarInt()];
+        buf.readBytes(bytes);
+        return new ApelFramePartPayload(id, index, count, Unpooled.wrappedBuffer(bytes));
+    }
+
+    private void write(RegistryByteBuf buf) {
+        buf.writeVarInt(this.id);
+        buf.writeVarInt(this.index);
+        buf.writeVarInt(this.count);
+        buf.writeVarInt(this.bytes.readableBytes());
+        // Leaves the reader index of the slice alone, so the part can be written again
+        buf.writeBytes(this.bytes, this.bytes.readerIndex(), this.bytes.readableBytes());
+    }
+
+    @Override
+    public Id<? extends CustomPayload> getId() {
+        return ID;
+    }
+}
@@ -1,9 +1,13 @@
 package net.mcbrincie.apel.lib.renderers;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import net.mcbrincie.apel.Apel;
 import net.minecraft.network.RegistryByteBuf;
 import net.minecraft.network.codec.PacketCodec;
 import net.minecraft.network.packet.CustomPayload;
+import net.minecraft.particle.ParticleEffect;
+import net.minecraft.registry.DynamicRegistryManager;
 import net.minecraft.util.Identifier;
 import org.jetbrains.annotations.NotNull;
 
@@ -17,23 +21,59 @@ public record ApelFramePayload(List<ApelNetworkRenderer.Instruction> instruction
                                                                                                      ApelFramePayload::new);
 
     private ApelFramePayload(RegistryByteBuf buf) {
-        this(readInstructions(buf));
+        this(readInstructions(buf, null));
     }
 
-    private static @NotNull List<ApelNetworkRenderer.Instruction> readInstructions(RegistryByteBuf buf) {
+    /** Decodes a payload that was encoded with {@link #encode(DynamicRegistryManager)}, such as one reassembled
+     * from its {@link ApelFramePartPayload parts}
+     *
+     * @param buf The encoded payload
+     * @return The decoded payload
+     */
+    public static ApelFramePayload decode(RegistryByteBuf buf) {
+        return new ApelFramePayload(buf);
+    }
+
+    /** Decodes a payload that was encoded with {@link #encode(DynamicRegistryManager, ParticleEffectPalette)},
+     * looking its particle effects up in the palette of the connection
+     *
+     * @param buf The encoded payload
+     * @param palette The particle effects the connection has seen so far, updated with those defined by the payload
+     * @return The decoded payload
+     */
+    public static ApelFramePayload decode(RegistryByteBuf buf, ParticleEffectPalette palette) {
+        return new ApelFramePayload(readInstructions(buf, palette));
+    }
+
+    private static @NotNull List<ApelNetworkRenderer.Instruction> readInstructions(
+            RegistryByteBuf buf, ParticleEffectPalette palette
+    ) {
         // TODO: Consider a value to describe the number of instructions
         List<ApelNetworkRenderer.Instruction> instructions = new ArrayList<>();
         while (buf.readableBytes() > 0) {
-            switch (buf.readByte()) {
+            byte tag = buf.readByte();
+            switch (tag) {
                 case 'F' -> instructions.add(ApelRenderer.Frame.from(buf));
                 case 'T' -> instructions.add(ApelRenderer.PType.from(buf));
                 case 'L' -> instructions.add(ApelRenderer.Line.from(buf));
                 case 'P' -> instructions.add(ApelRenderer.Particle.from(buf));
+                case 'A' -> instructions.add(ApelRenderer.Points.from(buf));
+                case 'K' -> instructions.add(ApelRenderer.ColouredPoints.from(buf));
+                case 'W' -> instructions.add(ApelRenderer.Wireframe.from(buf));
                 case 'E' -> instructions.add(ApelRenderer.Ellipse.from(buf));
                 case 'S' -> instructions.add(ApelRenderer.Ellipsoid.from(buf));
                 case 'B' -> instructions.add(ApelRenderer.BezierCurve.from(buf));
                 case 'C' -> instructions.add(ApelRenderer.Cone.from(buf));
                 case 'Y' -> instructions.add(ApelRenderer.Cylinder.from(buf));
+                case 'M' -> instructions.add(ApelRenderer.Motion.from(buf));
+                case 'R' -> instructions.add(ApelRenderer.Track.from(buf));
+                case 'V' -> instructions.add(ApelRenderer.Velocity.from(buf));
+                case ParticleEffectPalette.DEFINE, ParticleEffectPalette.REFERENCE -> {
+                    if (palette == null) {
+                        throw new IllegalStateException("Payload references a particle effect palette");
+                    }
+                    instructions.add(new ApelRenderer.PType(palette.read(buf, tag)));
+                }
             }
         }
         return instructions;
@@ -47,4 +87,37 @@ public record ApelFramePayload(List<ApelNetworkRenderer.Instruction> instruction
     void write(RegistryByteBuf buf) {
         this.instructions.forEach(ins -> ins.write(buf));
     }
+
+    /** Encodes the payload once, so it can be measured and cut into {@link ApelFramePartPayload parts} without
+     * encoding it again
+     *
+     * @param registries The registries used to encode particle effects
+     * @return The encoded payload
+     */
+    public ByteBuf encode(DynamicRegistryManager registries) {
+        RegistryByteBuf buf = new RegistryByteBuf(Unpooled.buffer(), registries);
+        this.write(buf);
+        return buf;
+    }
+
+    /** Encodes the payload once, like {@link #encode(DynamicRegistryManager)}, but sends each particle effect in
+     * full only the first time the connection sees it, and by its id in the palette afterward.  The payload must be
+     * sent over the connection the palette belongs to, and decoded with {@link #decode(RegistryByteBuf,
+     * ParticleEffectPalette)}, in the order payloads were encoded
+     *
+     * @param registries The registries used to encode particle effects
+     * @param palette The particle effects the connection has seen so far, updated with those of the payload
+     * @return The encoded payload
+     */
+    public ByteBuf encode(DynamicRegistryManager registries, ParticleEffectPalette palette) {
+        RegistryByteBuf buf = new RegistryByteBuf(Unpooled.buffer(), registries);
+        for (ApelRenderer.Instruction instruction : this.instructions) {
+            if (instruction instanceof ApelRenderer.PType(ParticleEffect particleEffect)) {
+                palette.write(buf, particleEffect);
+            } else {
+                instruction.write(buf);
+            }
+        }
+        return buf;
+    }
 }
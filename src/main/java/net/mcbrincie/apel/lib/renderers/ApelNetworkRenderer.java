@@ -1,7 +1,8 @@
 package net.mcbrincie.apel.lib.renderers;
 
 import net.fabricmc.fabric.api.networking.v1.PlayerLookup;
-import net.fabricmc.fabric.api.networking.v1.ServerPlayNetworking;
+import net.mcbrincie.apel.Apel;
+import net.mcbrincie.apel.lib.util.math.ParticleVelocity;
 import net.minecraft.particle.ParticleEffect;
 import net.minecraft.server.network.ServerPlayerEntity;
 import net.minecraft.server.world.ServerWorld;
@@ -9,6 +10,7 @@ import net.minecraft.util.math.Vec3d;
 import org.joml.Vector3f;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /** The apel network renderer is used for client-side rendering.
@@ -46,6 +48,62 @@ public class ApelNetworkRenderer implements ApelServerRenderer {
         this.instructions.add(new Particle(drawPos));
     }
 
+    /** Creates an instruction in the packet to draw a run of points relative to the drawPos, so the points are
+     * sent as a compact array rather than one instruction per particle
+     *
+     * @param particleEffect The ParticleEffect to draw
+     * @param step The step its currently in
+     * @param drawPos The position the points are relative to
+     * @param points The flat array of point coordinates
+     * @param fromIndex The index of the first point to draw
+     * @param toIndex The index after the last point to draw
+     */
+    @Override
+    public void drawPoints(
+            ParticleEffect particleEffect, int step, Vector3f drawPos, float[] points, int fromIndex, int toIndex
+    ) {
+        this.detectParticleTypeChange(particleEffect);
+        this.instructions.add(new Points(drawPos, Arrays.copyOfRange(points, fromIndex * 3, toIndex * 3)));
+    }
+
+    /** Creates an instruction in the packet to draw a run of coloured dust points. The colours are sent as a palette
+     * with an index per point, so no particle effect has to be sent for every colour change
+     *
+     * @param size The size of the dust particles
+     * @param step The step its currently in
+     * @param drawPos The position the points are relative to
+     * @param points The flat array of point coordinates
+     * @param colours The colour of every point
+     * @param fromIndex The index of the first point to draw
+     * @param toIndex The index after the last point to draw
+     */
+    @Override
+    public void drawColouredPoints(
+            float size, int step, Vector3f drawPos, float[] points, int[] colours, int fromIndex, int toIndex
+    ) {
+        this.instructions.add(ColouredPoints.of(drawPos, size, points, colours, fromIndex, toIndex));
+    }
+
+    /** Creates an instruction in the packet to draw the edges of an indexed mesh, so shared vertices are sent once
+     * and the client computes the particles along each edge
+     *
+     * @param particleEffect The ParticleEffect to draw
+     * @param step The step its currently in
+     * @param drawPos The position the vertices are relative to
+     * @param vertices The flat array of vertex coordinates
+     * @param edges The flat array of vertex index pairs
+     * @param rotation The rotation to apply to the mesh
+     * @param amount The number of particles per edge
+     */
+    @Override
+    public void drawWireframe(
+            ParticleEffect particleEffect, int step, Vector3f drawPos, float[] vertices, int[] edges,
+            Vector3f rotation, int amount
+    ) {
+        this.detectParticleTypeChange(particleEffect);
+        this.instructions.add(new Wireframe(drawPos, vertices, edges, rotation, amount));
+    }
+
     /** Creates an instruction in the packet to draw a particle line with the start position, end position and
      * the number of particles as parameters this instruction is then sent to the client which it renders
      * the shape itself
@@ -123,16 +181,73 @@ public class ApelNetworkRenderer implements ApelServerRenderer {
         this.instructions.add(new Cylinder(center, radius, height, rotation, amount));
     }
 
+    @Override
+    public boolean supportsMotion() {
+        return true;
+    }
+
+    /** Marks the frame being built as a keyframe, so the client keeps drawing it along the path until the next
+     * keyframe arrives, instead of the server sending a frame every step
+     *
+     * @param step The step its currently in
+     * @param path The flat array of positions relative to the frame origin, one per step
+     * @param ticksPerStep The number of ticks between two positions of the path
+     */
+    @Override
+    public void drawMotion(int step, float[] path, float ticksPerStep) {
+        this.instructions.add(new Motion(path, ticksPerStep));
+    }
+
+    @Override
+    public boolean supportsTracks() {
+        return true;
+    }
+
+    /** Starts a track in the packet, so the client plays the instructions following it once per position, with
+     * the timing of the animator, instead of the server sending a frame every step
+     *
+     * @param step The step its currently in
+     * @param startTick The tick, counted from the frame, at which the track starts
+     * @param delay The delay of the animator, in ticks
+     * @param stepsPerTick The processing speed of the animator
+     * @param positions The flat array of offsets, one per step
+     */
+    @Override
+    public void drawTrack(int step, int startTick, int delay, int stepsPerTick, float[] positions) {
+        this.instructions.add(new Track(startTick, delay, stepsPerTick, positions));
+        // The client plays every track on its own, so each one needs its particle type
+        this.prevParticleEffect = null;
+    }
+
+    /** Creates an instruction in the packet to give the particles drawn afterward a velocity, so the client moves
+     * them on its own instead of the server sending the shape again every step
+     *
+     * @param step The step its currently in
+     * @param center The position the velocity field is centred on
+     * @param velocity The velocity field
+     */
+    @Override
+    public void drawVelocity(int step, Vector3f center, ParticleVelocity velocity) {
+        this.instructions.add(new Velocity(center, velocity));
+    }
+
     @Override
     public void beforeFrame(int step, Vector3f frameOrigin) {
         this.instructions.add(new Frame(frameOrigin));
     }
 
+    /** Queues the frame for every player around it, see {@link ApelFrameAggregator}, so all the frames a player
+     * receives during a tick are sent together at its end
+     *
+     * @param step The step its currently in
+     * @param frameOrigin The origin of the frame
+     */
     @Override
     public void afterFrame(int step, Vector3f frameOrigin) {
-        ApelFramePayload payload = new ApelFramePayload(this.instructions);
-        for (ServerPlayerEntity player : PlayerLookup.around(this.getServerWorld(), new Vec3d(frameOrigin), 32)) {
-            ServerPlayNetworking.send(player, payload);
+        // The list is handed over, and shared by every player, so it is never modified again
+        Vec3d origin = new Vec3d(frameOrigin);
+        for (ServerPlayerEntity player : PlayerLookup.around(this.getServerWorld(), origin, VIEW_DISTANCE)) {
+            Apel.FRAME_AGGREGATOR.enqueue(player, this.instructions);
         }
         // Recreate, with initial capacity
         this.instructions = new ArrayList<>(this.instructions.size());
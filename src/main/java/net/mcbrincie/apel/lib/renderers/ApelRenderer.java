@@ -1,6 +1,10 @@
 package net.mcbrincie.apel.lib.renderers;
 
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 import net.mcbrincie.apel.Apel;
+import net.mcbrincie.apel.lib.util.image.DustPalateGenerator;
+import net.mcbrincie.apel.lib.util.math.ParticleVelocity;
 import net.mcbrincie.apel.lib.util.math.TrigTable;
 import net.minecraft.network.RegistryByteBuf;
 import net.minecraft.particle.ParticleEffect;
@@ -11,6 +15,7 @@ import org.joml.Quaternionfc;
 import org.joml.Vector3f;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -45,6 +50,58 @@ public interface ApelRenderer {
      */
     void drawParticle(ParticleEffect particleEffect, int step, Vector3f drawPos);
 
+    /**
+     * Instructs the renderer to draw a run of points, all using the given particle effect.  The points are stored
+     * flat in {@code points} as consecutive {@code x, y, z} triples relative to {@code drawPos}, and the points with
+     * indices from {@code fromIndex} (inclusive) to {@code toIndex} (exclusive) are drawn.  Implementations must not
+     * modify {@code points}.
+     *
+     * @param particleEffect The ParticleEffect to draw
+     * @param step The current step of the animation
+     * @param drawPos The position the points are relative to
+     * @param points The flat array of point coordinates
+     * @param fromIndex The index of the first point to draw
+     * @param toIndex The index after the last point to draw
+     */
+    default void drawPoints(
+            ParticleEffect particleEffect, int step, Vector3f drawPos, float[] points, int fromIndex, int toIndex
+    ) {
+        for (int i = fromIndex * 3; i < toIndex * 3; i += 3) {
+            Vector3f pos = new Vector3f(points[i], points[i + 1], points[i + 2]).add(drawPos);
+            drawParticle(particleEffect, step, pos);
+        }
+    }
+
+    /**
+     * Instructs the renderer to draw a run of points as dust particles of the given size, each point with its own
+     * colour.  The points are laid out as in {@link #drawPoints(ParticleEffect, int, Vector3f, float[], int, int)},
+     * and {@code colours} holds one {@code 0xRRGGBB} colour per point.  Implementations must not modify either array.
+     * <p>
+     * The default implementation draws every run of consecutive points sharing a colour with a single call to
+     * {@code drawPoints}, using the shared dust effects of {@link DustPalateGenerator}.
+     * </p>
+     *
+     * @param size The size of the dust particles
+     * @param step The current step of the animation
+     * @param drawPos The position the points are relative to
+     * @param points The flat array of point coordinates
+     * @param colours The colour of every point
+     * @param fromIndex The index of the first point to draw
+     * @param toIndex The index after the last point to draw
+     */
+    default void drawColouredPoints(
+            float size, int step, Vector3f drawPos, float[] points, int[] colours, int fromIndex, int toIndex
+    ) {
+        int runStart = fromIndex;
+        for (int i = fromIndex + 1; i <= toIndex; i++) {
+            if (i == toIndex || colours[i] != colours[runStart]) {
+                ParticleEffect dust = DustPalateGenerator.dust(colours[runStart], size);
+                drawPoints(dust, step, drawPos, points, runStart, i);
+                runStart = i;
+            }
+        }
+    }
+
     /**
      * Instructs the renderer to draw a line of the given particle effect from {@code start} to {@code end} using
      * {@code count} particles.  Particles
@@ -79,6 +136,58 @@ public interface ApelRenderer {
         }
     }
 
+    /**
+     * Instructs the renderer to draw the edges of an indexed mesh as lines of the given particle effect, with
+     * {@code amount} particles per edge.  The vertices are stored flat as consecutive {@code x, y, z} triples relative
+     * to {@code drawPos}, the edges as consecutive pairs of vertex indices.  Implementations must not modify either
+     * array.
+     * <p>
+     * The default implementation rotates every vertex once, rather than once per edge using it, then draws all the
+     * edges in a single call to {@link #drawPoints(ParticleEffect, int, Vector3f, float[], int, int)}.
+     * </p>
+     *
+     * @param particleEffect The ParticleEffect to use
+     * @param step The current animation step
+     * @param drawPos The position the vertices are relative to
+     * @param vertices The flat array of vertex coordinates
+     * @param edges The flat array of vertex index pairs
+     * @param rotation The rotation to apply to the mesh
+     * @param amount The number of particles to use per edge
+     */
+    default void drawWireframe(
+            ParticleEffect particleEffect, int step, Vector3f drawPos, float[] vertices, int[] edges,
+            Vector3f rotation, int amount
+    ) {
+        Quaternionfc quaternion = new Quaternionf().rotateZ(rotation.z).rotateY(rotation.y).rotateX(rotation.x);
+        float[] rotated = new float[vertices.length];
+        Vector3f vertex = new Vector3f();
+        for (int i = 0; i < vertices.length; i += 3) {
+            vertex.set(vertices[i], vertices[i + 1], vertices[i + 2]).rotate(quaternion);
+            rotated[i] = vertex.x;
+            rotated[i + 1] = vertex.y;
+            rotated[i + 2] = vertex.z;
+        }
+
+        // Rotation is linear, so interpolating between rotated vertices matches rotating the interpolated points
+        float[] points = new float[edges.length / 2 * amount * 3];
+        // A single particle sits on the start of the edge
+        float fraction = amount > 1 ? 1f / (amount - 1) : 0f;
+        int p = 0;
+        for (int e = 0; e < edges.length; e += 2) {
+            int start = edges[e] * 3;
+            int end = edges[e + 1] * 3;
+            float stepX = (rotated[end] - rotated[start]) * fraction;
+            float stepY = (rotated[end + 1] - rotated[start + 1]) * fraction;
+            float stepZ = (rotated[end + 2] - rotated[start + 2]) * fraction;
+            for (int i = 0; i < amount; i++) {
+                points[p++] = rotated[start] + stepX * i;
+                points[p++] = rotated[start + 1] + stepY * i;
+                points[p++] = rotated[start + 2] + stepZ * i;
+            }
+        }
+        drawPoints(particleEffect, step, drawPos, points, 0, points.length / 3);
+    }
+
     /**
      * Instructs the renderer to draw an ellipsoid of the given particle effect at {@code drawPos} with the given
      * {@code xSemiAxis}, {@code ySemiAxis}, {@code zSemiAxis}, {@code rotation}, and {@code amount} of particles.
@@ -245,6 +354,69 @@ public interface ApelRenderer {
     default void afterFrame(int step, Vector3f frameOrigin) {
     }
 
+    /**
+     * Whether the renderer can keep drawing a frame along a path on its own, see
+     * {@link #drawMotion(int, float[], float)}.  Animators only send keyframes to renderers that do, and draw every
+     * step otherwise.
+     *
+     * @return Whether the renderer supports keyframes
+     */
+    default boolean supportsMotion() {
+        return false;
+    }
+
+    /**
+     * Instructs the renderer to keep drawing the current frame, moved along a path, until the path ends.  The path
+     * holds one position per animation step as consecutive {@code x, y, z} triples relative to the frame origin,
+     * the first one being the frame itself, and the renderer interpolates between them at its own rate.  Renderers
+     * that do not {@link #supportsMotion() support keyframes} ignore it.
+     *
+     * @param step The current step of the animation
+     * @param path The flat array of positions, one per step
+     * @param ticksPerStep The number of ticks between two positions of the path
+     */
+    default void drawMotion(int step, float[] path, float ticksPerStep) {
+    }
+
+    /**
+     * Whether the renderer can play whole animations on its own, see
+     * {@link #drawTrack(int, int, int, int, float[])}.
+     *
+     * @return Whether the renderer supports tracks
+     */
+    default boolean supportsTracks() {
+        return false;
+    }
+
+    /**
+     * Starts a track in the current frame: everything drawn after it, up to the next track or the end of the frame,
+     * is not drawn right away but once per position, each time moved by that position.  The positions are timed
+     * like the steps of a path animator, see {@link Track#tickOf(int)}.  Renderers that do not
+     * {@link #supportsTracks() support tracks} ignore it.
+     *
+     * @param step The current step of the animation
+     * @param startTick The tick, counted from the frame, at which the track starts
+     * @param delay The delay of the animator, in ticks
+     * @param stepsPerTick The processing speed of the animator
+     * @param positions The flat array of offsets, one per step
+     */
+    default void drawTrack(int step, int startTick, int delay, int stepsPerTick, float[] positions) {
+    }
+
+    /**
+     * Sets the velocity the particles drawn afterward spawn with, until it is set again.  The velocity of every
+     * particle is computed from its position relative to {@code center}, see {@link ParticleVelocity}, so shapes can
+     * be drawn once and moved by the client particle simulation instead of being drawn again every step.  Setting
+     * {@link ParticleVelocity#NONE} goes back to particles that stay where they spawn.  Renderers that cannot give
+     * particles a velocity ignore it.
+     *
+     * @param step The current step of the animation
+     * @param center The position the velocity field is centred on
+     * @param velocity The velocity field
+     */
+    default void drawVelocity(int step, Vector3f center, ParticleVelocity velocity) {
+    }
+
     sealed interface Instruction {
         void write(RegistryByteBuf buf);
 
@@ -285,7 +457,7 @@ public interface ApelRenderer {
         @Override
         public void write(RegistryByteBuf buf) {
             buf.writeByte('T');
-            ParticleTypes.PACKET_CODEC.encode(buf, this.particleEffect);
+            EncodedParticleEffects.encode(buf, this.particleEffect);
         }
 
         @Override
@@ -314,6 +486,360 @@ public interface ApelRenderer {
         }
     }
 
+    record Points(Vector3f drawPos, float[] points) implements Instruction {
+
+        static Points from(RegistryByteBuf buf) {
+            Vector3f drawPos = new Vector3f(buf.readFloat(), buf.readFloat(), buf.readFloat());
+            float[] points = new float[buf.readVarInt() * 3];
+            for (int i = 0; i < points.length; i++) {
+                points[i] = buf.readFloat();
+            }
+            return new Points(drawPos, points);
+        }
+
+        @Override
+        public void write(RegistryByteBuf buf) {
+            buf.writeByte('A');
+            buf.writeFloat(drawPos.x);
+            buf.writeFloat(drawPos.y);
+            buf.writeFloat(drawPos.z);
+            buf.writeVarInt(points.length / 3);
+            for (float coordinate : points) {
+                buf.writeFloat(coordinate);
+            }
+        }
+
+        @Override
+        public Vector3f[] computePoints() {
+            Vector3f[] vectors = new Vector3f[points.length / 3];
+            for (int i = 0; i < vectors.length; i++) {
+                vectors[i] = new Vector3f(points[i * 3], points[i * 3 + 1], points[i * 3 + 2]);
+            }
+            return vectors;
+        }
+    }
+
+    /**
+     * A run of dust particles with a colour per point.  The colours are sent once in a palette, and every point only
+     * carries the index of its colour, so mixing many colours does not need a {@link PType} per colour change.
+     *
+     * @param drawPos The position the points are relative to
+     * @param size The size of the dust particles
+     * @param points The flat array of point coordinates
+     * @param palette The distinct colours of the points, as {@code 0xRRGGBB}
+     * @param colourIndices The index into the palette of every point's colour
+     */
+    record ColouredPoints(
+            Vector3f drawPos, float size, float[] points, int[] palette, int[] colourIndices
+    ) implements Instruction {
+
+        /** Builds the instruction for a range of points, collecting the palette of their colours
+         *
+         * @param drawPos The position the points are relative to
+         * @param size The size of the dust particles
+         * @param points The flat array of point coordinates
+         * @param colours The colour of every point
+         * @param fromIndex The index of the first point
+         * @param toIndex The index after the last point
+         * @return The new instruction, holding copies of the points
+         */
+        public static ColouredPoints of(
+                Vector3f drawPos, float size, float[] points, int[] colours, int fromIndex, int toIndex
+        ) {
+            Int2IntOpenHashMap paletteIndices = new Int2IntOpenHashMap();
+            paletteIndices.defaultReturnValue(-1);
+            IntArrayList palette = new IntArrayList();
+            int[] colourIndices = new int[toIndex - fromIndex];
+            for (int i = fromIndex; i < toIndex; i++) {
+                int colour = colours[i] & 0xFFFFFF;
+                int index = paletteIndices.get(colour);
+                if (index == -1) {
+                    index = palette.size();
+                    palette.add(colour);
+                    paletteIndices.put(colour, index);
+                }
+                colourIndices[i - fromIndex] = index;
+            }
+            float[] copy = Arrays.copyOfRange(points, fromIndex * 3, toIndex * 3);
+            return new ColouredPoints(drawPos, size, copy, palette.toIntArray(), colourIndices);
+        }
+
+        static ColouredPoints from(RegistryByteBuf buf) {
+            Vector3f drawPos = new Vector3f(buf.readFloat(), buf.readFloat(), buf.readFloat());
+            float size = buf.readFloat();
+            int[] palette = new int[buf.readVarInt()];
+            for (int i = 0; i < palette.length; i++) {
+                palette[i] = buf.readUnsignedMedium();
+            }
+            float[] points = new float[buf.readVarInt() * 3];
+            for (int i = 0; i < points.length; i++) {
+                points[i] = buf.readFloat();
+            }
+            int[] colourIndices = new int[points.length / 3];
+            for (int i = 0; i < colourIndices.length; i++) {
+                colourIndices[i] = buf.readVarInt();
+            }
+            return new ColouredPoints(drawPos, size, points, palette, colourIndices);
+        }
+
+        @Override
+        public void write(RegistryByteBuf buf) {
+            buf.writeByte('K');
+            buf.writeFloat(drawPos.x);
+            buf.writeFloat(drawPos.y);
+            buf.writeFloat(drawPos.z);
+            buf.writeFloat(size);
+            buf.writeVarInt(palette.length);
+            for (int colour : palette) {
+                buf.writeMedium(colour);
+            }
+            buf.writeVarInt(points.length / 3);
+            for (float coordinate : points) {
+                buf.writeFloat(coordinate);
+            }
+            // Indices below 128 take a single byte
+            for (int index : colourIndices) {
+                buf.writeVarInt(index);
+            }
+        }
+
+        /** Expands the palette indices back into a colour per point
+         *
+         * @return The colour of every point, as {@code 0xRRGGBB}
+         */
+        public int[] toColours() {
+            int[] colours = new int[colourIndices.length];
+            for (int i = 0; i < colours.length; i++) {
+                colours[i] = palette[colourIndices[i]];
+            }
+            return colours;
+        }
+
+        @Override
+        public Vector3f[] computePoints() {
+            return new Points(drawPos, points).computePoints();
+        }
+    }
+
+    /**
+     * Marks the frame it is part of as a keyframe, to be drawn again along a path until the next keyframe arrives.
+     *
+     * @param path The flat array of positions relative to the frame origin, one per step, starting at the frame
+     * @param ticksPerStep The number of ticks between two positions of the path
+     * @see ApelRenderer#drawMotion(int, float[], float)
+     */
+    record Motion(float[] path, float ticksPerStep) implements Instruction {
+
+        static Motion from(RegistryByteBuf buf) {
+            float ticksPerStep = buf.readFloat();
+            float[] path = new float[buf.readVarInt() * 3];
+            for (int i = 0; i < path.length; i++) {
+                path[i] = buf.readFloat();
+            }
+            return new Motion(path, ticksPerStep);
+        }
+
+        @Override
+        public void write(RegistryByteBuf buf) {
+            buf.writeByte('M');
+            buf.writeFloat(ticksPerStep);
+            buf.writeVarInt(path.length / 3);
+            for (float coordinate : path) {
+                buf.writeFloat(coordinate);
+            }
+        }
+
+        /** Gets the number of ticks from the keyframe to the end of the path
+         *
+         * @return The duration of the path, in ticks
+         */
+        public float durationTicks() {
+            return Math.max(0, path.length / 3 - 1) * ticksPerStep;
+        }
+
+        /** Computes the offset from the keyframe at a number of ticks after it, interpolating linearly between the
+         * positions of the path, and holding the last position past its end
+         *
+         * @param ticks The number of ticks since the keyframe
+         * @param dest The vector receiving the offset
+         * @return The offset, in {@code dest}
+         */
+        public Vector3f offsetAt(float ticks, Vector3f dest) {
+            int samples = path.length / 3;
+            if (samples < 2 || ticksPerStep <= 0) {
+                return samples == 0 ? dest.zero() : dest.set(path[0], path[1], path[2]);
+            }
+            float position = Math.max(0, ticks / ticksPerStep);
+            int i = Math.min((int) position, samples - 2);
+            float t = Math.min(position - i, 1);
+            return dest.set(
+                    path[i * 3] + (path[i * 3 + 3] - path[i * 3]) * t,
+                    path[i * 3 + 1] + (path[i * 3 + 4] - path[i * 3 + 1]) * t,
+                    path[i * 3 + 2] + (path[i * 3 + 5] - path[i * 3 + 2]) * t
+            );
+        }
+
+        @Override
+        public Vector3f[] computePoints() {
+            throw new UnsupportedOperationException("Motions do not have points");
+        }
+    }
+
+    /**
+     * Starts a track, which plays the instructions following it once per position, see
+     * {@link ApelRenderer#drawTrack(int, int, int, int, float[])}.
+     *
+     * @param startTick The tick, counted from the frame, at which the track starts
+     * @param delay The delay of the animator, in ticks
+     * @param stepsPerTick The processing speed of the animator
+     * @param positions The flat array of offsets, one per step
+     */
+    record Track(int startTick, int delay, int stepsPerTick, float[] positions) implements Instruction {
+
+        static Track from(RegistryByteBuf buf) {
+            int startTick = buf.readVarInt();
+            int delay = buf.readVarInt();
+            int stepsPerTick = buf.readVarInt();
+            float[] positions = new float[buf.readVarInt() * 3];
+            for (int i = 0; i < positions.length; i++) {
+                positions[i] = buf.readFloat();
+            }
+            return new Track(startTick, delay, stepsPerTick, positions);
+        }
+
+        @Override
+        public void write(RegistryByteBuf buf) {
+            buf.writeByte('R');
+            buf.writeVarInt(startTick);
+            buf.writeVarInt(delay);
+            buf.writeVarInt(stepsPerTick);
+            buf.writeVarInt(positions.length / 3);
+            for (float coordinate : positions) {
+                buf.writeFloat(coordinate);
+            }
+        }
+
+        /** Gets the number of steps of the track
+         *
+         * @return The number of positions
+         */
+        public int size() {
+            return positions.length / 3;
+        }
+
+        /** Gets the tick at which a step is drawn, matching the scheduling of path animators: with a delay of 0
+         * every step is drawn at once, otherwise every group of {@code stepsPerTick} steps is drawn {@code delay}
+         * ticks after the previous one
+         *
+         * @param index The index of the step
+         * @return The tick, counted from the frame
+         */
+        public int tickOf(int index) {
+            if (delay == 0) {
+                return startTick;
+            }
+            return startTick + (index / stepsPerTick + 1) * delay;
+        }
+
+        @Override
+        public Vector3f[] computePoints() {
+            return new Points(new Vector3f(), positions).computePoints();
+        }
+    }
+
+    /**
+     * Sets the velocity of the particles drawn by the instructions following it, see
+     * {@link ApelRenderer#drawVelocity(int, Vector3f, ParticleVelocity)}.
+     *
+     * @param center The position the velocity field is centred on
+     * @param velocity The velocity field
+     */
+    record Velocity(Vector3f center, ParticleVelocity velocity) implements Instruction {
+
+        static Velocity from(RegistryByteBuf buf) {
+            Vector3f center = new Vector3f(buf.readFloat(), buf.readFloat(), buf.readFloat());
+            Vector3f linear = new Vector3f(buf.readFloat(), buf.readFloat(), buf.readFloat());
+            float radial = buf.readFloat();
+            Vector3f spin = new Vector3f(buf.readFloat(), buf.readFloat(), buf.readFloat());
+            return new Velocity(center, new ParticleVelocity(linear, radial, spin));
+        }
+
+        @Override
+        public void write(RegistryByteBuf buf) {
+            buf.writeByte('V');
+            buf.writeFloat(center.x);
+            buf.writeFloat(center.y);
+            buf.writeFloat(center.z);
+            buf.writeFloat(velocity.linear().x());
+            buf.writeFloat(velocity.linear().y());
+            buf.writeFloat(velocity.linear().z());
+            buf.writeFloat(velocity.radial());
+            buf.writeFloat(velocity.spin().x());
+            buf.writeFloat(velocity.spin().y());
+            buf.writeFloat(velocity.spin().z());
+        }
+
+        @Override
+        public Vector3f[] computePoints() {
+            throw new UnsupportedOperationException("Velocities do not have points");
+        }
+    }
+
+    record Wireframe(
+            Vector3f drawPos, float[] vertices, int[] edges, Vector3f rotation, int amount
+    ) implements Instruction {
+
+        static Wireframe from(RegistryByteBuf buf) {
+            Vector3f drawPos = new Vector3f(buf.readFloat(), buf.readFloat(), buf.readFloat());
+            float[] vertices = new float[buf.readVarInt() * 3];
+            for (int i = 0; i < vertices.length; i++) {
+                vertices[i] = buf.readFloat();
+            }
+            int[] edges = new int[buf.readVarInt() * 2];
+            for (int i = 0; i < edges.length; i++) {
+                edges[i] = buf.readVarInt();
+            }
+            Vector3f rotation = new Vector3f(buf.readFloat(), buf.readFloat(), buf.readFloat());
+            return new Wireframe(drawPos, vertices, edges, rotation, buf.readShort());
+        }
+
+        @Override
+        public void write(RegistryByteBuf buf) {
+            buf.writeByte('W');
+            buf.writeFloat(drawPos.x);
+            buf.writeFloat(drawPos.y);
+            buf.writeFloat(drawPos.z);
+            buf.writeVarInt(vertices.length / 3);
+            for (float coordinate : vertices) {
+                buf.writeFloat(coordinate);
+            }
+            buf.writeVarInt(edges.length / 2);
+            for (int index : edges) {
+                buf.writeVarInt(index);
+            }
+            buf.writeFloat(rotation.x);
+            buf.writeFloat(rotation.y);
+            buf.writeFloat(rotation.z);
+            buf.writeShort(amount);
+        }
+
+        @Override
+        public Vector3f[] computePoints() {
+            Vector3f[] points = new Vector3f[edges.length / 2 * amount];
+            int p = 0;
+            for (int e = 0; e < edges.length; e += 2) {
+                Vector3f start = new Vector3f(vertices[edges[e] * 3], vertices[edges[e] * 3 + 1],
+                                              vertices[edges[e] * 3 + 2]);
+                Vector3f end = new Vector3f(vertices[edges[e + 1] * 3], vertices[edges[e + 1] * 3 + 1],
+                                            vertices[edges[e + 1] * 3 + 2]);
+                for (Vector3f point : new Line(drawPos, start, end, rotation, amount).computePoints()) {
+                    points[p++] = point;
+                }
+            }
+            return points;
+        }
+    }
+
     record Line(Vector3f drawPos, Vector3f start, Vector3f end, Vector3f rotation, int amount) implements Instruction {
 
         static Line from(RegistryByteBuf buf) {
@@ -1,11 +1,17 @@
 package net.mcbrincie.apel.lib.renderers;
 
+import net.mcbrincie.apel.lib.objects.ParticleObject;
+import net.minecraft.server.network.ServerPlayerEntity;
 import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.math.ChunkSectionPos;
+import org.joml.Vector3f;
 
 /**
  * This extends the {@link ApelRenderer} to provide server-side functionality that requires the {@link ServerWorld}.
  */
 public interface ApelServerRenderer extends ApelRenderer {
+    /** The distance, in blocks, up to which players receive particles, the same as vanilla particle packets */
+    double VIEW_DISTANCE = 32;
 
     static ApelServerRenderer create(ServerWorld world) {
         return new DefaultApelRenderer(world);
@@ -16,4 +22,40 @@ public interface ApelServerRenderer extends ApelRenderer {
     }
 
     ServerWorld getServerWorld();
+
+    /**
+     * Whether anybody could see a frame drawn around the given position, by an object reaching {@code radius} blocks
+     * from it: a player is within {@link #VIEW_DISTANCE} of some part of the object, and its chunk is loaded.
+     * Animators check this before drawing a step, and skip the step when it is false, rather than computing a frame
+     * nobody receives.  Objects of unknown size have an infinite radius, and are always drawn.  Renderers that do
+     * not draw for nearby players should override it to return true.
+     * <br><br>
+     * The chunk is only checked when the whole object lies within a single chunk, and only on the server thread,
+     * since chunks may not be looked up elsewhere; otherwise it is assumed to be loaded
+     *
+     * @param position The position the frame is drawn at
+     * @param radius The radius of the object around the position, see {@link ParticleObject#getBoundingRadius()}
+     * @return Whether the frame may have an audience
+     */
+    default boolean canBeSeen(Vector3f position, float radius) {
+        if (radius == Float.POSITIVE_INFINITY) {
+            return true;
+        }
+        ServerWorld world = this.getServerWorld();
+        double maxDistance = VIEW_DISTANCE + radius;
+        double maxDistanceSquared = maxDistance * maxDistance;
+        for (ServerPlayerEntity player : world.getPlayers()) {
+            if (player.squaredDistanceTo(position.x, position.y, position.z) <= maxDistanceSquared) {
+                int chunkX = ChunkSectionPos.getSectionCoordFloored(position.x - radius);
+                int chunkZ = ChunkSectionPos.getSectionCoordFloored(position.z - radius);
+                if (chunkX != ChunkSectionPos.getSectionCoordFloored(position.x + radius)
+                        || chunkZ != ChunkSectionPos.getSectionCoordFloored(position.z + radius)
+                        || !world.getServer().isOnThread()) {
+                    return true;
+                }
+                return world.isChunkLoaded(chunkX, chunkZ);
+            }
+        }
+        return false;
+    }
 }
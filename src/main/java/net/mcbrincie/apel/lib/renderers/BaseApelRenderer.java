@@ -1,5 +1,6 @@
 package net.mcbrincie.apel.lib.renderers;
 
+import net.mcbrincie.apel.lib.util.math.ParticleVelocity;
 import net.minecraft.particle.ParticleEffect;
 import org.joml.Quaternionf;
 import org.joml.Quaternionfc;
@@ -20,10 +21,44 @@ public abstract class BaseApelRenderer implements ApelRenderer {
     // TODO: Consider some sort of cache eviction
     private final Map<Instruction, Vector3f[]> positionsCache;
 
+    private final Vector3f velocityCenter = new Vector3f();
+    private ParticleVelocity velocity = ParticleVelocity.NONE;
+
     public BaseApelRenderer() {
         this.positionsCache = new HashMap<>();
     }
 
+    @Override
+    public void drawVelocity(int step, Vector3f center, ParticleVelocity velocity) {
+        this.velocityCenter.set(center);
+        this.velocity = velocity;
+    }
+
+    /**
+     * Whether the particles drawn now spawn with a velocity, see
+     * {@link #drawVelocity(int, Vector3f, ParticleVelocity)}.
+     *
+     * @return true if particles get a velocity
+     */
+    protected boolean hasVelocity() {
+        return !this.velocity.isNone();
+    }
+
+    /**
+     * Computes the velocity of a particle drawn at the given position, zero unless a velocity was set.
+     *
+     * @param x The x coordinate of the particle
+     * @param y The y coordinate of the particle
+     * @param z The z coordinate of the particle
+     * @param dest The vector receiving the velocity
+     * @return The velocity, in {@code dest}
+     */
+    protected Vector3f velocityAt(float x, float y, float z, Vector3f dest) {
+        return this.velocity.at(
+                x - this.velocityCenter.x, y - this.velocityCenter.y, z - this.velocityCenter.z, dest
+        );
+    }
+
     @Override
     public void drawLine(
             ParticleEffect particleEffect, int step, Vector3f drawPos, Vector3f start, Vector3f end, Vector3f rotation,
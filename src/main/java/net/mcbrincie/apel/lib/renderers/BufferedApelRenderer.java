@@ -0,0 +1,264 @@
+package net.mcbrincie.apel.lib.renderers;
+
+import net.mcbrincie.apel.lib.util.math.ParticleVelocity;
+import net.minecraft.particle.ParticleEffect;
+import net.minecraft.server.world.ServerWorld;
+import org.joml.Vector3f;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/** The buffered renderer records the drawing calls made to it as {@link Instruction}s instead of drawing
+ * anything, those instructions can later be replayed onto another renderer in the same order they were recorded.
+ * Each buffer is meant to be filled by a single thread, which allows separate parts of a frame to be computed
+ * concurrently and merged afterward in a deterministic order.
+ * <p>
+ * All vectors are copied when recorded, since callers are free to modify them in-place after the call returns.
+ */
+public class BufferedApelRenderer implements ApelServerRenderer {
+    private final ServerWorld world;
+    private final List<Instruction> instructions = new ArrayList<>();
+
+    private ParticleEffect prevParticleEffect;
+    private boolean hasParticleEffect = false;
+
+    /** Creates an empty buffer. The world is only used to answer {@link #getServerWorld()} for the objects
+     * drawing into the buffer
+     *
+     * @param world The server world instance
+     */
+    public BufferedApelRenderer(ServerWorld world) {
+        this.world = world;
+    }
+
+    @Override
+    public void drawParticle(ParticleEffect particleEffect, int step, Vector3f drawPos) {
+        this.detectParticleTypeChange(particleEffect);
+        this.instructions.add(new Particle(new Vector3f(drawPos)));
+    }
+
+    @Override
+    public void drawPoints(
+            ParticleEffect particleEffect, int step, Vector3f drawPos, float[] points, int fromIndex, int toIndex
+    ) {
+        this.detectParticleTypeChange(particleEffect);
+        float[] copy = Arrays.copyOfRange(points, fromIndex * 3, toIndex * 3);
+        this.instructions.add(new Points(new Vector3f(drawPos), copy));
+    }
+
+    @Override
+    public void drawColouredPoints(
+            float size, int step, Vector3f drawPos, float[] points, int[] colours, int fromIndex, int toIndex
+    ) {
+        this.instructions.add(ColouredPoints.of(new Vector3f(drawPos), size, points, colours, fromIndex, toIndex));
+    }
+
+    @Override
+    public void drawWireframe(
+            ParticleEffect particleEffect, int step, Vector3f drawPos, float[] vertices, int[] edges,
+            Vector3f rotation, int amount
+    ) {
+        this.detectParticleTypeChange(particleEffect);
+        // The arrays are not modified by the caller, per the contract of drawWireframe
+        this.instructions.add(new Wireframe(new Vector3f(drawPos), vertices, edges, new Vector3f(rotation), amount));
+    }
+
+    @Override
+    public void drawLine(
+            ParticleEffect particleEffect, int step, Vector3f drawPos, Vector3f start, Vector3f end, Vector3f rotation,
+            int amount
+    ) {
+        this.detectParticleTypeChange(particleEffect);
+        this.instructions.add(new Line(new Vector3f(drawPos), new Vector3f(start), new Vector3f(end),
+                                       new Vector3f(rotation), amount));
+    }
+
+    @Override
+    public void drawEllipsoid(
+            ParticleEffect particleEffect, int step, Vector3f drawPos, float xSemiAxis, float ySemiAxis,
+            float zSemiAxis, Vector3f rotation, int amount
+    ) {
+        this.detectParticleTypeChange(particleEffect);
+        this.instructions.add(new Ellipsoid(new Vector3f(drawPos), xSemiAxis, ySemiAxis, zSemiAxis,
+                                            new Vector3f(rotation), amount));
+    }
+
+    @Override
+    public void drawEllipse(
+            ParticleEffect particleEffect, int step, Vector3f center, float radius, float stretch, Vector3f rotation,
+            int amount
+    ) {
+        this.detectParticleTypeChange(particleEffect);
+        this.instructions.add(new Ellipse(new Vector3f(center), radius, stretch, new Vector3f(rotation), amount));
+    }
+
+    @Override
+    public void drawBezier(
+            ParticleEffect particleEffect, int step, Vector3f drawPos,
+            net.mcbrincie.apel.lib.util.math.bezier.BezierCurve bezierCurve, Vector3f rotation, int amount
+    ) {
+        this.detectParticleTypeChange(particleEffect);
+        this.instructions.add(new BezierCurve(new Vector3f(drawPos), bezierCurve, new Vector3f(rotation), amount));
+    }
+
+    @Override
+    public void drawCone(
+            ParticleEffect particleEffect, int step, Vector3f drawPos, float height, float radius, Vector3f rotation,
+            int amount
+    ) {
+        this.detectParticleTypeChange(particleEffect);
+        this.instructions.add(new Cone(new Vector3f(drawPos), height, radius, new Vector3f(rotation), amount));
+    }
+
+    @Override
+    public void drawCylinder(
+            ParticleEffect particleEffect, int step, Vector3f center, float radius, float height, Vector3f rotation,
+            int amount
+    ) {
+        this.detectParticleTypeChange(particleEffect);
+        this.instructions.add(new Cylinder(new Vector3f(center), radius, height, new Vector3f(rotation), amount));
+    }
+
+    @Override
+    public void drawMotion(int step, float[] path, float ticksPerStep) {
+        this.instructions.add(new Motion(path.clone(), ticksPerStep));
+    }
+
+    @Override
+    public void drawTrack(int step, int startTick, int delay, int stepsPerTick, float[] positions) {
+        this.instructions.add(new Track(startTick, delay, stepsPerTick, positions.clone()));
+    }
+
+    @Override
+    public void drawVelocity(int step, Vector3f center, ParticleVelocity velocity) {
+        this.instructions.add(new Velocity(new Vector3f(center), velocity));
+    }
+
+    @Override
+    public ServerWorld getServerWorld() {
+        return this.world;
+    }
+
+    /** Recordings are replayed later, possibly elsewhere, so they always draw
+     *
+     * @param position The position the frame is drawn at
+     * @param radius The radius of the object around the position
+     * @return Always true
+     */
+    @Override
+    public boolean canBeSeen(Vector3f position, float radius) {
+        return true;
+    }
+
+    /** Gets the recorded instructions, in the order they were recorded
+     *
+     * @return An unmodifiable view of the recorded instructions
+     */
+    public List<Instruction> getInstructions() {
+        return Collections.unmodifiableList(this.instructions);
+    }
+
+    /** Replays every recorded instruction onto the given renderer, in the order they were recorded
+     *
+     * @param renderer The renderer to draw onto
+     * @param step The current animation step
+     */
+    public void replay(ApelRenderer renderer, int step) {
+        this.replayMoved(renderer, step, null);
+    }
+
+    /** Replays every recorded instruction onto the given renderer, moved by the given offset.  Recording an object
+     * drawn at the origin, then replaying it at every draw position, turns the recording into a display list: the
+     * object computes its shapes once, and each replay only moves them, so every renderer still receives the same
+     * calls it would have received from drawing the object there
+     *
+     * @param renderer The renderer to draw onto
+     * @param step The current animation step
+     * @param offset The offset added to every recorded position
+     */
+    public void replay(ApelRenderer renderer, int step, Vector3f offset) {
+        this.replayMoved(renderer, step, offset);
+    }
+
+    // A null offset replays the recorded vectors themselves
+    private void replayMoved(ApelRenderer renderer, int step, Vector3f offset) {
+        ParticleEffect particleEffect = null;
+        for (Instruction ins : this.instructions) {
+            switch (ins) {
+                case Frame frame -> { }
+
+                case PType(ParticleEffect pe) -> particleEffect = pe;
+
+                case Motion(float[] path, float ticksPerStep) -> renderer.drawMotion(step, path, ticksPerStep);
+
+                case Track(int startTick, int delay, int stepsPerTick, float[] positions) ->
+                        renderer.drawTrack(step, startTick, delay, stepsPerTick, positions);
+
+                case Velocity(Vector3f center, ParticleVelocity velocity) ->
+                        renderer.drawVelocity(step, moved(center, offset), velocity);
+
+                case Particle(Vector3f pos) -> renderer.drawParticle(particleEffect, step, moved(pos, offset));
+
+                case Points(Vector3f drawPos, float[] points) ->
+                        renderer.drawPoints(particleEffect, step, moved(drawPos, offset), points, 0, points.length / 3);
+
+                case ColouredPoints coloured -> renderer.drawColouredPoints(
+                        coloured.size(), step, moved(coloured.drawPos(), offset), coloured.points(),
+                        coloured.toColours(), 0, coloured.colourIndices().length
+                );
+
+                case Wireframe(Vector3f drawPos, float[] vertices, int[] edges, Vector3f rotation, int amount) ->
+                        renderer.drawWireframe(
+                                particleEffect, step, moved(drawPos, offset), vertices, edges, rotation, amount
+                        );
+
+                case Line(Vector3f drawPos, Vector3f start, Vector3f end, Vector3f rotation, int amount) ->
+                        renderer.drawLine(particleEffect, step, moved(drawPos, offset), start, end, rotation, amount);
+
+                case Ellipse(Vector3f center, float radius, float stretch, Vector3f rotation, int amount) ->
+                        renderer.drawEllipse(
+                                particleEffect, step, moved(center, offset), radius, stretch, rotation, amount
+                        );
+
+                case Ellipsoid(
+                        Vector3f drawPos, float xSemiAxis, float ySemiAxis, float zSemiAxis, Vector3f rotation,
+                        int amount
+                ) -> renderer.drawEllipsoid(particleEffect, step, moved(drawPos, offset), xSemiAxis, ySemiAxis,
+                                            zSemiAxis, rotation, amount
+                );
+
+                case BezierCurve(
+                        Vector3f drawPos, net.mcbrincie.apel.lib.util.math.bezier.BezierCurve bezierCurve,
+                        Vector3f rotation, int amount
+                ) -> renderer.drawBezier(
+                        particleEffect, step, moved(drawPos, offset), bezierCurve, rotation, amount
+                );
+
+                case Cone(Vector3f drawPos, float height, float radius, Vector3f rotation, int amount) ->
+                        renderer.drawCone(
+                                particleEffect, step, moved(drawPos, offset), height, radius, rotation, amount
+                        );
+
+                case Cylinder(Vector3f center, float radius, float height, Vector3f rotation, int amount) ->
+                        renderer.drawCylinder(
+                                particleEffect, step, moved(center, offset), radius, height, rotation, amount
+                        );
+            }
+        }
+    }
+
+    // Renderers may keep the vectors they are given, so every moved position is a new vector
+    private static Vector3f moved(Vector3f position, Vector3f offset) {
+        return offset == null ? position : new Vector3f(position).add(offset);
+    }
+
+    private void detectParticleTypeChange(ParticleEffect particleEffect) {
+        if (!this.hasParticleEffect || particleEffect != this.prevParticleEffect) {
+            this.instructions.add(new PType(particleEffect));
+            this.prevParticleEffect = particleEffect;
+            this.hasParticleEffect = true;
+        }
+    }
+}
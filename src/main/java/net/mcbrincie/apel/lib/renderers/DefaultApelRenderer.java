@@ -17,7 +17,29 @@ public class DefaultApelRenderer extends BaseApelRenderer implements ApelServerR
 
     @Override
     public void drawParticle(ParticleEffect particleEffect, int step, Vector3f drawPos) {
-        world.spawnParticles(particleEffect, drawPos.x, drawPos.y, drawPos.z, 0, 0.0f, 0.0f, 0.0f, 1);
+        // With a count of 0, the deltas are the velocity of the particle
+        Vector3f velocity = this.velocityAt(drawPos.x, drawPos.y, drawPos.z, new Vector3f());
+        world.spawnParticles(
+                particleEffect, drawPos.x, drawPos.y, drawPos.z, 0, velocity.x, velocity.y, velocity.z, 1
+        );
+    }
+
+    @Override
+    public void drawPoints(
+            ParticleEffect particleEffect, int step, Vector3f drawPos, float[] points, int fromIndex, int toIndex
+    ) {
+        // Particles are spawned immediately, so there is no need for a vector per point
+        Vector3f velocity = new Vector3f();
+        boolean hasVelocity = this.hasVelocity();
+        for (int i = fromIndex * 3; i < toIndex * 3; i += 3) {
+            float x = drawPos.x + points[i];
+            float y = drawPos.y + points[i + 1];
+            float z = drawPos.z + points[i + 2];
+            if (hasVelocity) {
+                this.velocityAt(x, y, z, velocity);
+            }
+            world.spawnParticles(particleEffect, x, y, z, 0, velocity.x, velocity.y, velocity.z, 1);
+        }
     }
 
     @Override
@@ -0,0 +1,58 @@
+package net.mcbrincie.apel.lib.renderers;
+
+import com.google.common.collect.MapMaker;
+import io.netty.buffer.Unpooled;
+import net.minecraft.network.RegistryByteBuf;
+import net.minecraft.particle.ParticleEffect;
+import net.minecraft.particle.ParticleTypes;
+import net.minecraft.particle.SimpleParticleType;
+import net.minecraft.registry.DynamicRegistryManager;
+
+import java.util.concurrent.ConcurrentMap;
+
+/** Keeps the encoded bytes of the particle effects that are sent, so drawing the same effect frame after frame copies
+ * its bytes instead of running {@link ParticleTypes#PACKET_CODEC} on it again.
+ * <br><br>
+ * Effects are immutable and usually long-lived (a particle object keeps its effect between frames, and
+ * {@link net.mcbrincie.apel.lib.util.image.DustPalateGenerator} shares them), so they are looked up by identity and
+ * held weakly: an effect that is no longer used is forgotten along with its bytes.  The bytes of an effect may depend
+ * on the registries of the world, such as an item stack with enchantments, so they are kept per registry manager,
+ * also held weakly.  {@link SimpleParticleType}s encode to their raw id alone, which is no slower to write than to
+ * copy, so they are not cached.  The cache is thread-safe.
+ */
+final class EncodedParticleEffects {
+    private static final ConcurrentMap<DynamicRegistryManager, ConcurrentMap<ParticleEffect, byte[]>> cache =
+            new MapMaker().weakKeys().makeMap();
+
+    private EncodedParticleEffects() {}
+
+    /** Writes a particle effect, as {@link ParticleTypes#PACKET_CODEC} would
+     *
+     * @param buf The buffer to write to, whose registries encode the effect
+     * @param particleEffect The effect
+     */
+    static void encode(RegistryByteBuf buf, ParticleEffect particleEffect) {
+        if (particleEffect instanceof SimpleParticleType) {
+            ParticleTypes.PACKET_CODEC.encode(buf, particleEffect);
+            return;
+        }
+        DynamicRegistryManager registries = buf.getRegistryManager();
+        ConcurrentMap<ParticleEffect, byte[]> encodings = cache.computeIfAbsent(
+                registries, key -> new MapMaker().weakKeys().makeMap()
+        );
+        byte[] bytes = encodings.get(particleEffect);
+        if (bytes == null) {
+            bytes = encodeUncached(registries, particleEffect);
+            encodings.put(particleEffect, bytes);
+        }
+        buf.writeBytes(bytes);
+    }
+
+    static byte[] encodeUncached(DynamicRegistryManager registries, ParticleEffect particleEffect) {
+        RegistryByteBuf scratch = new RegistryByteBuf(Unpooled.buffer(), registries);
+        ParticleTypes.PACKET_CODEC.encode(scratch, particleEffect);
+        byte[] bytes = new byte[scratch.readableBytes()];
+        scratch.readBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,120 @@
+package net.mcbrincie.apel.lib.renderers;
+
+import net.minecraft.network.RegistryByteBuf;
+import net.minecraft.particle.ParticleEffect;
+import net.minecraft.particle.ParticleTypes;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** The particle effects a connection has already seen, each with a small id.  The first time the server sends an
+ * effect it is defined, with its full encoding and an id, and from then on it is only referenced by that id, so
+ * frames no longer repeat the full encoding of every effect (such as the colour and scale of dust) they use.
+ * <br><br>
+ * Both ends of a connection keep their own palette: the server side assigns ids while encoding, see
+ * {@link #write(RegistryByteBuf, ParticleEffect)}, the client side records them while decoding, see
+ * {@link #read(RegistryByteBuf, byte)}.  The palette holds at most {@link #getCapacity()} effects; once full, the
+ * least recently used effect gives its id to the new one, and the client simply replaces its entry when the new
+ * definition arrives.  Payloads are decoded in the order they were encoded, so an id is always defined before it is
+ * referenced.  Palettes are not thread-safe, and a new one must be used for every connection.
+ * <br><br>
+ * Effects are matched with {@code equals}, which most effects inherit from {@code Object}: those are only found
+ * again when the same instance is drawn, as it is by a particle object that keeps its effect between frames.
+ */
+public final class ParticleEffectPalette {
+    public static final int DEFAULT_CAPACITY = 256;
+
+    static final byte DEFINE = 'D';
+    static final byte REFERENCE = 'U';
+
+    private final int capacity;
+    // Server side, in access order so the eldest entry is the least recently used
+    private final LinkedHashMap<ParticleEffect, Integer> ids = new LinkedHashMap<>(16, 0.75f, true);
+    // Client side
+    private final ParticleEffect[] effects;
+
+    public ParticleEffectPalette() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public ParticleEffectPalette(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.effects = new ParticleEffect[capacity];
+    }
+
+    public int getCapacity() {
+        return this.capacity;
+    }
+
+    /** Gets the number of effects the server side of the palette has assigned an id to
+     *
+     * @return The number of effects
+     */
+    public int size() {
+        return this.ids.size();
+    }
+
+    /** Assigns an id to an effect, or finds the one it already has.  A new effect takes the next free id, or the id
+     * of the least recently used effect once the palette is full
+     *
+     * @param particleEffect The effect
+     * @return The id of the effect, negated minus one if the effect was not in the palette yet
+     */
+    int assign(ParticleEffect particleEffect) {
+        Integer id = this.ids.get(particleEffect);
+        if (id != null) {
+            return id;
+        }
+        int newId;
+        if (this.ids.size() < this.capacity) {
+            newId = this.ids.size();
+        } else {
+            Iterator<Map.Entry<ParticleEffect, Integer>> eldest = this.ids.entrySet().iterator();
+            newId = eldest.next().getValue();
+            eldest.remove();
+        }
+        this.ids.put(particleEffect, newId);
+        return -newId - 1;
+    }
+
+    /** Writes an effect, in place of a {@link ApelRenderer.PType} instruction: its id alone if the connection has
+     * already seen it, or its definition otherwise
+     *
+     * @param buf The buffer to write to
+     * @param particleEffect The effect
+     */
+    void write(RegistryByteBuf buf, ParticleEffect particleEffect) {
+        int id = this.assign(particleEffect);
+        if (id >= 0) {
+            buf.writeByte(REFERENCE);
+            buf.writeVarInt(id);
+            return;
+        }
+        buf.writeByte(DEFINE);
+        buf.writeVarInt(-id - 1);
+        EncodedParticleEffects.encode(buf, particleEffect);
+    }
+
+    /** Reads an effect written by {@link #write(RegistryByteBuf, ParticleEffect)}, after its tag
+     *
+     * @param buf The buffer to read from
+     * @param tag Either {@link #DEFINE} or {@link #REFERENCE}
+     * @return The effect
+     */
+    ParticleEffect read(RegistryByteBuf buf, byte tag) {
+        int id = buf.readVarInt();
+        if (id < 0 || id >= this.capacity) {
+            throw new IllegalStateException("Particle effect id " + id + " is outside of the palette");
+        }
+        if (tag == DEFINE) {
+            this.effects[id] = ParticleTypes.PACKET_CODEC.decode(buf);
+        } else if (this.effects[id] == null) {
+            throw new IllegalStateException("Particle effect id " + id + " was never defined");
+        }
+        return this.effects[id];
+    }
+}
@@ -0,0 +1,153 @@
+package net.mcbrincie.apel.lib.renderers;
+
+import net.minecraft.particle.ParticleEffect;
+import net.minecraft.server.world.ServerWorld;
+import org.joml.Vector3f;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** An immutable cloud of points, relative to some origin, that are split into runs sharing the same particle effect.
+ * The coordinates of every point live in one flat array of {@code x, y, z} triples, with each run occupying a
+ * contiguous range of it.  Drawing a point cloud is a single translation pass over that array, handed to the
+ * renderer one run at a time via {@link ApelRenderer#drawPoints(ParticleEffect, int, Vector3f, float[], int, int)}.
+ * <p>
+ * Point clouds are produced by a {@link Recorder}, which flattens whatever is drawn into it down to particles.
+ */
+public final class PointCloud {
+    private final ParticleEffect[] particleEffects;
+    private final int[] runEnds;
+    private final float[] points;
+
+    private PointCloud(ParticleEffect[] particleEffects, int[] runEnds, float[] points) {
+        this.particleEffects = particleEffects;
+        this.runEnds = runEnds;
+        this.points = points;
+    }
+
+    /** Gets the number of points in the cloud
+     *
+     * @return The number of points
+     */
+    public int size() {
+        return this.points.length / 3;
+    }
+
+    /** Gets the number of runs in the cloud, which is the number of distinct particle effects
+     *
+     * @return The number of runs
+     */
+    public int getRunCount() {
+        return this.runEnds.length;
+    }
+
+    /** Gets the particle effect used by the given run
+     *
+     * @param run The index of the run
+     * @return The particle effect of that run
+     */
+    public ParticleEffect getParticleEffect(int run) {
+        return this.particleEffects[run];
+    }
+
+    /** Gets the position of the point at the given index, relative to the origin of the cloud
+     *
+     * @param index The index of the point
+     * @return A new vector holding the point's position
+     */
+    public Vector3f getPoint(int index) {
+        return new Vector3f(this.points[index * 3], this.points[index * 3 + 1], this.points[index * 3 + 2]);
+    }
+
+    /** Draws every point of the cloud, translated to the given position
+     *
+     * @param renderer The renderer to draw onto
+     * @param step The current animation step
+     * @param drawPos The position to move the origin of the cloud to
+     */
+    public void draw(ApelRenderer renderer, int step, Vector3f drawPos) {
+        int start = 0;
+        for (int run = 0; run < this.runEnds.length; run++) {
+            renderer.drawPoints(this.particleEffects[run], step, drawPos, this.points, start, this.runEnds[run]);
+            start = this.runEnds[run];
+        }
+    }
+
+    /** A renderer that records every particle drawn into it, grouped by particle effect, in order to build a
+     * {@link PointCloud}.  Shapes are expanded into particles by {@link BaseApelRenderer}, so the resulting cloud
+     * draws the same particles as the original drawing calls did.  The order of particles within each particle
+     * effect is preserved, but particles using different effects are no longer interleaved.
+     */
+    public static class Recorder extends BaseApelRenderer implements ApelServerRenderer {
+        private final ServerWorld world;
+        private final Map<ParticleEffect, Run> runs = new LinkedHashMap<>();
+        private int size = 0;
+
+        /** Creates an empty recorder.  The world is only used to answer {@link #getServerWorld()} for the objects
+         * drawing into the recorder, and may be null
+         *
+         * @param world The server world instance
+         */
+        public Recorder(ServerWorld world) {
+            this.world = world;
+        }
+
+        @Override
+        public void drawParticle(ParticleEffect particleEffect, int step, Vector3f drawPos) {
+            this.runs.computeIfAbsent(particleEffect, effect -> new Run()).add(drawPos.x, drawPos.y, drawPos.z);
+            this.size++;
+        }
+
+        @Override
+        public void drawPoints(
+                ParticleEffect particleEffect, int step, Vector3f drawPos, float[] points, int fromIndex, int toIndex
+        ) {
+            Run run = this.runs.computeIfAbsent(particleEffect, effect -> new Run());
+            for (int i = fromIndex * 3; i < toIndex * 3; i += 3) {
+                run.add(drawPos.x + points[i], drawPos.y + points[i + 1], drawPos.z + points[i + 2]);
+            }
+            this.size += toIndex - fromIndex;
+        }
+
+        @Override
+        public ServerWorld getServerWorld() {
+            return this.world;
+        }
+
+        /** Builds a point cloud from every particle recorded so far
+         *
+         * @return The new point cloud
+         */
+        public PointCloud toPointCloud() {
+            ParticleEffect[] particleEffects = new ParticleEffect[this.runs.size()];
+            int[] runEnds = new int[this.runs.size()];
+            float[] points = new float[this.size * 3];
+            int run = 0;
+            int end = 0;
+            for (Map.Entry<ParticleEffect, Run> entry : this.runs.entrySet()) {
+                Run recorded = entry.getValue();
+                System.arraycopy(recorded.coordinates, 0, points, end * 3, recorded.length);
+                end += recorded.length / 3;
+                particleEffects[run] = entry.getKey();
+                runEnds[run] = end;
+                run++;
+            }
+            return new PointCloud(particleEffects, runEnds, points);
+        }
+
+        private static class Run {
+            private float[] coordinates = new float[48];
+            private int length = 0;
+
+            private void add(float x, float y, float z) {
+                if (this.length + 3 > this.coordinates.length) {
+                    this.coordinates = Arrays.copyOf(this.coordinates, this.coordinates.length * 2);
+                }
+                this.coordinates[this.length++] = x;
+                this.coordinates[this.length++] = y;
+                this.coordinates[this.length++] = z;
+            }
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package net.mcbrincie.apel.lib.util.image;
+
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/** Reduces the colours of an image to a small palette, so that drawing it needs only a few distinct particle
+ * effects.  The palette is picked by median cut: the visible pixels start in one box of the RGB cube, and the box
+ * with the widest range along any channel is split at its median along that channel, until there are enough boxes.
+ * Every box then contributes the average colour of its pixels.
+ * <br><br>
+ * Without dithering, every pixel takes the closest palette colour.  With dithering, the difference between a
+ * pixel and its palette colour is spread over the neighbouring pixels (Floyd-Steinberg), which trades banding in
+ * smooth gradients for a fine noise.  Instances hold no state between images and may be shared.
+ * <br><br>
+ * A quantizer can also be given a fixed palette, for example one picked over all the frames of an animation so
+ * that every frame uses the same colours.
+ */
+public final class ColourQuantizer {
+    private final int maxColours;
+    private final boolean dithering;
+    private final int[] fixedPalette;
+
+    /** Creates a quantizer.
+     *
+     * @param maxColours The maximum number of colours of the palette
+     * @param dithering Whether to dither the quantized image
+     */
+    public ColourQuantizer(int maxColours, boolean dithering) {
+        if (maxColours < 1) {
+            throw new IllegalArgumentException("A palette needs at least one colour");
+        }
+        this.maxColours = maxColours;
+        this.dithering = dithering;
+        this.fixedPalette = null;
+    }
+
+    /** Creates a quantizer that always uses the given palette.
+     *
+     * @param palette The colours of the palette, as {@code 0xRRGGBB}
+     * @param dithering Whether to dither the quantized image
+     */
+    public ColourQuantizer(int[] palette, boolean dithering) {
+        if (palette.length < 1) {
+            throw new IllegalArgumentException("A palette needs at least one colour");
+        }
+        this.maxColours = palette.length;
+        this.dithering = dithering;
+        this.fixedPalette = palette.clone();
+    }
+
+    public int getMaxColours() {
+        return this.maxColours;
+    }
+
+    public boolean isDithering() {
+        return this.dithering;
+    }
+
+    /** Picks the palette of the visible pixels of an image, or returns the fixed palette of this quantizer.
+     *
+     * @param argb The pixels of the image, as packed {@code 0xAARRGGBB}
+     * @param alphaThreshold The lowest alpha (0 to 255) of a visible pixel
+     * @return The palette as {@code 0xRRGGBB} colours, at most {@code maxColours} long
+     */
+    public int[] palette(int[] argb, int alphaThreshold) {
+        if (this.fixedPalette != null) {
+            return this.fixedPalette.clone();
+        }
+        int[] pixels = new int[argb.length];
+        int count = 0;
+        for (int pixel : argb) {
+            if ((pixel >>> 24) >= alphaThreshold) {
+                pixels[count++] = pixel & 0xFFFFFF;
+            }
+        }
+        if (count == 0) {
+            return new int[0];
+        }
+        List<int[]> boxes = new ArrayList<>();
+        boxes.add(new int[]{0, count});
+        while (boxes.size() < this.maxColours) {
+            int widest = -1;
+            int widestChannel = 0;
+            int widestRange = 0;
+            for (int b = 0; b < boxes.size(); b++) {
+                int[] box = boxes.get(b);
+                for (int channel = 0; channel < 3; channel++) {
+                    int range = channelRange(pixels, box[0], box[1], channel);
+                    if (range > widestRange) {
+                        widest = b;
+                        widestChannel = channel;
+                        widestRange = range;
+                    }
+                }
+            }
+            if (widest == -1) {
+                // Every box holds a single colour
+                break;
+            }
+            int[] box = boxes.get(widest);
+            sortByChannel(pixels, box[0], box[1], widestChannel);
+            int median = (box[0] + box[1]) >>> 1;
+            // Keep equal values on one side, so both halves get a narrower range
+            int shift = 16 - widestChannel * 8;
+            int medianValue = (pixels[median] >> shift) & 0xFF;
+            int split = median;
+            while (split > box[0] && ((pixels[split - 1] >> shift) & 0xFF) == medianValue) {
+                split--;
+            }
+            if (split == box[0]) {
+                split = median;
+                while (split < box[1] && ((pixels[split] >> shift) & 0xFF) == medianValue) {
+                    split++;
+                }
+            }
+            boxes.set(widest, new int[]{box[0], split});
+            boxes.add(new int[]{split, box[1]});
+        }
+        int[] palette = new int[boxes.size()];
+        for (int b = 0; b < palette.length; b++) {
+            palette[b] = average(pixels, boxes.get(b)[0], boxes.get(b)[1]);
+        }
+        return palette;
+    }
+
+    /** Replaces every visible pixel of an image with a colour of its palette, keeping the alpha of every pixel.
+     *
+     * @param argb The pixels of the image, as packed {@code 0xAARRGGBB}, row by row from the top
+     * @param width The width of the image
+     * @param height The height of the image
+     * @param alphaThreshold The lowest alpha (0 to 255) of a visible pixel
+     * @return The new, quantized pixels
+     */
+    public int[] quantize(int[] argb, int width, int height, int alphaThreshold) {
+        int[] palette = this.palette(argb, alphaThreshold);
+        int[] result = argb.clone();
+        if (palette.length == 0) {
+            return result;
+        }
+        if (!this.dithering) {
+            Int2IntOpenHashMap closest = new Int2IntOpenHashMap();
+            closest.defaultReturnValue(-1);
+            for (int i = 0; i < result.length; i++) {
+                if ((result[i] >>> 24) < alphaThreshold) {
+                    continue;
+                }
+                int colour = result[i] & 0xFFFFFF;
+                int match = closest.get(colour);
+                if (match == -1) {
+                    match = closestColour(palette, colour >> 16 & 0xFF, colour >> 8 & 0xFF, colour & 0xFF);
+                    closest.put(colour, match);
+                }
+                result[i] = (result[i] & 0xFF000000) | match;
+            }
+            return result;
+        }
+        // The error carried to the pixels not quantized yet, per channel
+        float[] error = new float[width * height * 3];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int i = y * width + x;
+                if ((result[i] >>> 24) < alphaThreshold) {
+                    continue;
+                }
+                int red = clamp(((result[i] >> 16) & 0xFF) + Math.round(error[i * 3]));
+                int green = clamp(((result[i] >> 8) & 0xFF) + Math.round(error[i * 3 + 1]));
+                int blue = clamp((result[i] & 0xFF) + Math.round(error[i * 3 + 2]));
+                int match = closestColour(palette, red, green, blue);
+                result[i] = (result[i] & 0xFF000000) | match;
+                float[] difference = {red - (match >> 16 & 0xFF), green - (match >> 8 & 0xFF), blue - (match & 0xFF)};
+                spreadError(error, difference, width, height, x + 1, y, 7 / 16f);
+                spreadError(error, difference, width, height, x - 1, y + 1, 3 / 16f);
+                spreadError(error, difference, width, height, x, y + 1, 5 / 16f);
+                spreadError(error, difference, width, height, x + 1, y + 1, 1 / 16f);
+            }
+        }
+        return result;
+    }
+
+    private static void spreadError(float[] error, float[] difference, int width, int height, int x, int y, float w) {
+        if (x < 0 || x >= width || y >= height) {
+            return;
+        }
+        int i = (y * width + x) * 3;
+        error[i] += difference[0] * w;
+        error[i + 1] += difference[1] * w;
+        error[i + 2] += difference[2] * w;
+    }
+
+    private static int closestColour(int[] palette, int red, int green, int blue) {
+        int best = palette[0];
+        int bestDistance = Integer.MAX_VALUE;
+        for (int colour : palette) {
+            int dr = (colour >> 16 & 0xFF) - red;
+            int dg = (colour >> 8 & 0xFF) - green;
+            int db = (colour & 0xFF) - blue;
+            int distance = dr * dr + dg * dg + db * db;
+            if (distance < bestDistance) {
+                best = colour;
+                bestDistance = distance;
+            }
+        }
+        return best;
+    }
+
+    private static int channelRange(int[] pixels, int from, int to, int channel) {
+        int shift = 16 - channel * 8;
+        int min = 255;
+        int max = 0;
+        for (int i = from; i < to; i++) {
+            int value = (pixels[i] >> shift) & 0xFF;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        return max - min;
+    }
+
+    private static void sortByChannel(int[] pixels, int from, int to, int channel) {
+        int shift = 16 - channel * 8;
+        long[] keys = new long[to - from];
+        for (int i = from; i < to; i++) {
+            keys[i - from] = ((long) ((pixels[i] >> shift) & 0xFF) << 24) | pixels[i];
+        }
+        Arrays.sort(keys);
+        for (int i = from; i < to; i++) {
+            pixels[i] = (int) (keys[i - from] & 0xFFFFFF);
+        }
+    }
+
+    private static int average(int[] pixels, int from, int to) {
+        long red = 0;
+        long green = 0;
+        long blue = 0;
+        for (int i = from; i < to; i++) {
+            red += (pixels[i] >> 16) & 0xFF;
+            green += (pixels[i] >> 8) & 0xFF;
+            blue += pixels[i] & 0xFF;
+        }
+        int count = to - from;
+        return (int) (red / count) << 16 | (int) (green / count) << 8 | (int) (blue / count);
+    }
+
+    private static int clamp(int value) {
+        return Math.max(0, Math.min(255, value));
+    }
+}
@@ -1,20 +1,63 @@
 package net.mcbrincie.apel.lib.util.image;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import net.minecraft.particle.DustParticleEffect;
 import net.minecraft.particle.ParticleEffect;
 import net.minecraft.util.math.Vec3d;
 import org.joml.Vector3f;
 
-import java.util.HashMap;
-
+/** Turns every colour into a dust particle of that colour.  The alpha of the colour is ignored.
+ * <br><br>
+ * The effects are shared by every generator through a bounded, thread-safe cache, so that drawing the same colours
+ * again reuses the same effects, while images with many colours cannot grow the cache without limit.  Quantizing
+ * the image first (see {@link ColourQuantizer}) keeps the number of colours, and so of effects, small.
+ */
 public class DustPalateGenerator implements PalateGenerator {
-    private static final HashMap<Integer, DustParticleEffect> cache = new HashMap<>();
+    public static final float DEFAULT_SIZE = 0.2f;
+    public static final int MAX_CACHED_EFFECTS = 4096;
+
+    private static final Cache<Long, DustParticleEffect> cache = CacheBuilder.newBuilder()
+                                                                             .maximumSize(MAX_CACHED_EFFECTS)
+                                                                             .build();
+
+    private final float size;
+
+    public DustPalateGenerator() {
+        this(DEFAULT_SIZE);
+    }
+
+    /** Creates a generator of dust particles of the given size
+     *
+     * @param size The size of the dust particles
+     */
+    public DustPalateGenerator(float size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Dust size must be positive");
+        }
+        this.size = size;
+    }
+
+    public float getSize() {
+        return this.size;
+    }
 
     @Override
     public ParticleEffect apply(int rgba, int x, int y, Vector3f position) {
-        return cache.computeIfAbsent(rgba, k -> {
-            Vector3f color = Vec3d.unpackRgb(rgba).toVector3f();
-            return new DustParticleEffect(color, 0.2f);
+        return dust(rgba, this.size);
+    }
+
+    /** Gets the shared dust effect of the given colour and size
+     *
+     * @param rgb The colour, as {@code 0xRRGGBB} (any alpha is ignored)
+     * @param size The size of the dust particles
+     * @return The dust effect
+     */
+    public static DustParticleEffect dust(int rgb, float size) {
+        long key = ((long) (rgb & 0xFFFFFF) << 32) | (Float.floatToIntBits(size) & 0xFFFFFFFFL);
+        return cache.asMap().computeIfAbsent(key, k -> {
+            Vector3f color = Vec3d.unpackRgb(rgb).toVector3f();
+            return new DustParticleEffect(color, size);
         });
     }
 }
@@ -0,0 +1,275 @@
+package net.mcbrincie.apel.lib.util.image;
+
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+
+import java.util.Arrays;
+
+/** An immutable set of the visible pixels of an image, laid out as particle positions and grouped by colour, so that
+ * drawing an image is a single pass over flat arrays rather than a lookup per pixel.
+ * <br><br>
+ * The positions are stored flat as consecutive {@code x, y, z} triples, relative to the centre of the image, with
+ * {@code x} growing to the right, {@code y} growing upwards, and {@code z} always 0.  The pixels of colour {@code i}
+ * span from point {@code getRunStart(i)} up to, but excluding, point {@code getRunEnd(i)}.  Colours are
+ * {@code 0xRRGGBB} values, since the alpha of a visible pixel is not drawn.
+ */
+public final class ImagePointSet {
+    private final int width;
+    private final int height;
+    private final int[] colours;
+    private final int[] runEnds;
+    private final float[] points;
+    private final int[] firstPixels;
+    private final int[] pointColours;
+
+    private ImagePointSet(int width, int height, int[] colours, int[] runEnds, float[] points, int[] firstPixels) {
+        this.width = width;
+        this.height = height;
+        this.colours = colours;
+        this.runEnds = runEnds;
+        this.points = points;
+        this.firstPixels = firstPixels;
+        this.pointColours = new int[points.length / 3];
+        for (int colour = 0; colour < colours.length; colour++) {
+            Arrays.fill(this.pointColours, this.getRunStart(colour), runEnds[colour], colours[colour]);
+        }
+    }
+
+    /** Builds the point set of an image given as packed {@code 0xAARRGGBB} pixels, row by row from the top.
+     *
+     * @param argb The pixels of the image
+     * @param width The width of the image
+     * @param height The height of the image
+     * @param maxResolution The size of the longest side after downsampling, or 0 to keep the original size
+     * @param alphaThreshold The lowest alpha (0 to 255) of a pixel that is drawn
+     * @param pixelSize The distance between neighbouring pixels
+     * @return The new point set
+     */
+    public static ImagePointSet fromArgb(
+            int[] argb, int width, int height, int maxResolution, int alphaThreshold, float pixelSize
+    ) {
+        return fromArgb(argb, width, height, maxResolution, alphaThreshold, pixelSize, null);
+    }
+
+    /** Builds the point set of an image given as packed {@code 0xAARRGGBB} pixels, row by row from the top, with
+     * its colours reduced by a quantizer after downsampling.
+     *
+     * @param argb The pixels of the image
+     * @param width The width of the image
+     * @param height The height of the image
+     * @param maxResolution The size of the longest side after downsampling, or 0 to keep the original size
+     * @param alphaThreshold The lowest alpha (0 to 255) of a pixel that is drawn
+     * @param pixelSize The distance between neighbouring pixels
+     * @param quantizer The quantizer reducing the colours of the image, or null to keep every colour
+     * @return The new point set
+     */
+    public static ImagePointSet fromArgb(
+            int[] argb, int width, int height, int maxResolution, int alphaThreshold, float pixelSize,
+            ColourQuantizer quantizer
+    ) {
+        if (argb.length != width * height) {
+            throw new IllegalArgumentException("The image must have width times height pixels");
+        }
+        if (maxResolution < 0) {
+            throw new IllegalArgumentException("Maximum resolution cannot be negative");
+        }
+        if (maxResolution > 0 && Math.max(width, height) > maxResolution) {
+            float ratio = (float) maxResolution / Math.max(width, height);
+            int targetWidth = Math.max(1, Math.round(width * ratio));
+            int targetHeight = Math.max(1, Math.round(height * ratio));
+            argb = downsample(argb, width, height, targetWidth, targetHeight);
+            width = targetWidth;
+            height = targetHeight;
+        }
+        if (quantizer != null) {
+            argb = quantizer.quantize(argb, width, height, alphaThreshold);
+        }
+
+        // Number the colours in the order they first appear, and count the visible pixels of each
+        Int2IntOpenHashMap colourIndices = new Int2IntOpenHashMap();
+        colourIndices.defaultReturnValue(-1);
+        int[] colourOfPixel = new int[argb.length];
+        int[] counts = new int[Math.min(argb.length, 1 << 12)];
+        int colourCount = 0;
+        for (int i = 0; i < argb.length; i++) {
+            if ((argb[i] >>> 24) < alphaThreshold) {
+                colourOfPixel[i] = -1;
+                continue;
+            }
+            int colour = argb[i] & 0xFFFFFF;
+            int index = colourIndices.get(colour);
+            if (index == -1) {
+                index = colourCount++;
+                colourIndices.put(colour, index);
+                if (index == counts.length) {
+                    counts = Arrays.copyOf(counts, counts.length * 2);
+                }
+            }
+            colourOfPixel[i] = index;
+            counts[index]++;
+        }
+
+        int[] colours = new int[colourCount];
+        int[] runEnds = new int[colourCount];
+        int[] firstPixels = new int[colourCount];
+        int[] next = new int[colourCount];
+        int total = 0;
+        for (int c = 0; c < colourCount; c++) {
+            next[c] = total;
+            total += counts[c];
+            runEnds[c] = total;
+        }
+        float[] points = new float[total * 3];
+        float centreX = (width - 1) / 2f;
+        float centreY = (height - 1) / 2f;
+        for (int i = 0; i < argb.length; i++) {
+            int c = colourOfPixel[i];
+            if (c == -1) {
+                continue;
+            }
+            int x = i % width;
+            int y = i / width;
+            int p = next[c]++;
+            if (p == (c == 0 ? 0 : runEnds[c - 1])) {
+                colours[c] = argb[i] & 0xFFFFFF;
+                firstPixels[c] = i;
+            }
+            points[p * 3] = (x - centreX) * pixelSize;
+            points[p * 3 + 1] = (centreY - y) * pixelSize;
+        }
+        return new ImagePointSet(width, height, colours, runEnds, points, firstPixels);
+    }
+
+    /** Averages every block of source pixels into one target pixel, weighting the colours by their alpha so that
+     * transparent pixels do not darken the edges of opaque ones
+     */
+    private static int[] downsample(int[] argb, int width, int height, int targetWidth, int targetHeight) {
+        int[] result = new int[targetWidth * targetHeight];
+        for (int ty = 0; ty < targetHeight; ty++) {
+            int fromY = ty * height / targetHeight;
+            int toY = Math.max(fromY + 1, (ty + 1) * height / targetHeight);
+            for (int tx = 0; tx < targetWidth; tx++) {
+                int fromX = tx * width / targetWidth;
+                int toX = Math.max(fromX + 1, (tx + 1) * width / targetWidth);
+                long alpha = 0;
+                long red = 0;
+                long green = 0;
+                long blue = 0;
+                for (int y = fromY; y < toY; y++) {
+                    for (int x = fromX; x < toX; x++) {
+                        int pixel = argb[y * width + x];
+                        int a = pixel >>> 24;
+                        alpha += a;
+                        red += (long) ((pixel >> 16) & 0xFF) * a;
+                        green += (long) ((pixel >> 8) & 0xFF) * a;
+                        blue += (long) (pixel & 0xFF) * a;
+                    }
+                }
+                int pixelCount = (toX - fromX) * (toY - fromY);
+                int averageAlpha = (int) (alpha / pixelCount);
+                if (alpha == 0) {
+                    result[ty * targetWidth + tx] = 0;
+                    continue;
+                }
+                int r = (int) (red / alpha);
+                int g = (int) (green / alpha);
+                int b = (int) (blue / alpha);
+                result[ty * targetWidth + tx] = (averageAlpha << 24) | (r << 16) | (g << 8) | b;
+            }
+        }
+        return result;
+    }
+
+    /** Gets the width of the image after downsampling
+     *
+     * @return The width in pixels
+     */
+    public int getWidth() {
+        return this.width;
+    }
+
+    /** Gets the height of the image after downsampling
+     *
+     * @return The height in pixels
+     */
+    public int getHeight() {
+        return this.height;
+    }
+
+    /** Gets the number of visible pixels
+     *
+     * @return The number of points
+     */
+    public int size() {
+        return this.points.length / 3;
+    }
+
+    /** Gets the number of distinct colours of the visible pixels
+     *
+     * @return The number of colours
+     */
+    public int getColourCount() {
+        return this.colours.length;
+    }
+
+    /** Gets a colour of the image
+     *
+     * @param colour The index of the colour
+     * @return The colour as {@code 0xRRGGBB}
+     */
+    public int getColour(int colour) {
+        return this.colours[colour];
+    }
+
+    /** Gets the index of the first point of a colour
+     *
+     * @param colour The index of the colour
+     * @return The index of the first point
+     */
+    public int getRunStart(int colour) {
+        return colour == 0 ? 0 : this.runEnds[colour - 1];
+    }
+
+    /** Gets the index after the last point of a colour
+     *
+     * @param colour The index of the colour
+     * @return The index after the last point
+     */
+    public int getRunEnd(int colour) {
+        return this.runEnds[colour];
+    }
+
+    /** Gets the column of the first (top-left most) pixel of a colour
+     *
+     * @param colour The index of the colour
+     * @return The column of the pixel
+     */
+    public int getFirstPixelX(int colour) {
+        return this.firstPixels[colour] % this.width;
+    }
+
+    /** Gets the row of the first (top-left most) pixel of a colour
+     *
+     * @param colour The index of the colour
+     * @return The row of the pixel
+     */
+    public int getFirstPixelY(int colour) {
+        return this.firstPixels[colour] / this.width;
+    }
+
+    /** Gets the colour of every visible pixel, in the same order as the points.  The array is shared and must not be
+     * modified.
+     *
+     * @return The colour of every point, as {@code 0xRRGGBB}
+     */
+    public int[] getPointColours() {
+        return this.pointColours;
+    }
+
+    /** Gets the positions of the visible pixels.  The array is shared and must not be modified.
+     *
+     * @return The flat array of point coordinates, grouped by colour
+     */
+    public float[] getPoints() {
+        return this.points;
+    }
+}
@@ -0,0 +1,359 @@
+package net.mcbrincie.apel.lib.util.image;
+
+import org.w3c.dom.Node;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/** An immutable sequence of image frames, each decoded, downsampled and quantized once into an
+ * {@link ImagePointSet}, so that playing the animation only picks the point set of the current frame.
+ * <br><br>
+ * Frames last a whole number of animation steps.  All frames are quantized with one palette picked over the whole
+ * sequence, so that colours do not flicker between frames, and frames with identical pixels share one point set.
+ * The sequence loops, frame {@code i} is shown during the steps from {@code getFrameStart(i)} up to, but
+ * excluding, {@code getFrameEnd(i)}, modulo {@link #getTotalDuration()}.
+ */
+public final class ImageSequence {
+    // The most pixels looked at, over all frames, when picking the shared palette
+    private static final int MAX_PALETTE_SAMPLES = 1 << 20;
+    // GIF delays are in hundredths of a second, and an animation step is usually one tick (a twentieth of a second)
+    private static final int CENTISECONDS_PER_STEP = 5;
+
+    private final ImagePointSet[] frames;
+    private final int[] frameEnds;
+    private final int uniqueFrameCount;
+
+    /** The settings frames are prepared with.
+     *
+     * @param maxResolution The size of the longest side after downsampling, or 0 to keep the original size
+     * @param alphaThreshold The lowest alpha (0 to 255) of a pixel that is drawn
+     * @param pixelSize The distance between neighbouring pixels
+     * @param paletteSize The maximum number of colours over all frames, or 0 to keep every colour
+     * @param dithering Whether to dither the colours reduced to the palette
+     */
+    public record Options(int maxResolution, int alphaThreshold, float pixelSize, int paletteSize, boolean dithering) {
+        public Options {
+            if (maxResolution < 0 || paletteSize < 0) {
+                throw new IllegalArgumentException("Maximum resolution and palette size cannot be negative");
+            }
+            if (alphaThreshold < 0 || alphaThreshold > 255) {
+                throw new IllegalArgumentException("Alpha threshold must be between 0 and 255");
+            }
+            if (pixelSize <= 0) {
+                throw new IllegalArgumentException("Pixel size must be positive");
+            }
+        }
+    }
+
+    private ImageSequence(ImagePointSet[] frames, int[] frameEnds, int uniqueFrameCount) {
+        this.frames = frames;
+        this.frameEnds = frameEnds;
+        this.uniqueFrameCount = uniqueFrameCount;
+    }
+
+    /** Builds a sequence from decoded frames of the same size, given as packed {@code 0xAARRGGBB} pixels.
+     *
+     * @param argbFrames The pixels of every frame, row by row from the top
+     * @param width The width of the frames
+     * @param height The height of the frames
+     * @param durations The number of steps every frame lasts
+     * @param options The settings to prepare the frames with
+     * @return The new sequence
+     */
+    public static ImageSequence of(List<int[]> argbFrames, int width, int height, int[] durations, Options options) {
+        if (argbFrames.isEmpty() || argbFrames.size() != durations.length) {
+            throw new IllegalArgumentException("A sequence needs at least one frame, and a duration per frame");
+        }
+        ColourQuantizer quantizer = null;
+        if (options.paletteSize() > 0) {
+            int[] palette = new ColourQuantizer(options.paletteSize(), false)
+                    .palette(samplePixels(argbFrames), options.alphaThreshold());
+            if (palette.length > 0) {
+                quantizer = new ColourQuantizer(palette, options.dithering());
+            }
+        }
+        ImagePointSet[] frames = new ImagePointSet[argbFrames.size()];
+        int[] frameEnds = new int[frames.length];
+        Map<FrameKey, ImagePointSet> uniqueFrames = new HashMap<>();
+        int end = 0;
+        for (int i = 0; i < frames.length; i++) {
+            if (durations[i] < 1) {
+                throw new IllegalArgumentException("Frames must last at least one step");
+            }
+            int[] argb = argbFrames.get(i);
+            ColourQuantizer frameQuantizer = quantizer;
+            frames[i] = uniqueFrames.computeIfAbsent(new FrameKey(argb), key -> ImagePointSet.fromArgb(
+                    argb, width, height, options.maxResolution(), options.alphaThreshold(), options.pixelSize(),
+                    frameQuantizer
+            ));
+            end += durations[i];
+            frameEnds[i] = end;
+        }
+        return new ImageSequence(frames, frameEnds, uniqueFrames.size());
+    }
+
+    /** Decodes an image file into a sequence.  GIF files play all of their frames with their own delays, any other
+     * image becomes a single frame.
+     *
+     * @param file The image file
+     * @param options The settings to prepare the frames with
+     * @return The new sequence
+     * @throws IOException If the file cannot be read
+     */
+    public static ImageSequence load(File file, Options options) throws IOException {
+        if (file.getName().toLowerCase().endsWith(".gif")) {
+            return loadGif(file, options);
+        }
+        BufferedImage image = read(file);
+        int[] argb = image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+        return of(List.of(argb), image.getWidth(), image.getHeight(), new int[]{1}, options);
+    }
+
+    /** Decodes a sprite sheet into a sequence.  The sheet is cut into frames of the given size, read row by row
+     * from the top left, and every frame lasts the same number of steps.
+     *
+     * @param file The image file of the sprite sheet
+     * @param frameWidth The width of a frame
+     * @param frameHeight The height of a frame
+     * @param frameDuration The number of steps every frame lasts
+     * @param options The settings to prepare the frames with
+     * @return The new sequence
+     * @throws IOException If the file cannot be read
+     */
+    public static ImageSequence loadSpriteSheet(
+            File file, int frameWidth, int frameHeight, int frameDuration, Options options
+    ) throws IOException {
+        BufferedImage sheet = read(file);
+        if (frameWidth < 1 || frameHeight < 1 || frameWidth > sheet.getWidth() || frameHeight > sheet.getHeight()) {
+            throw new IllegalArgumentException("The frame size must fit within the sprite sheet");
+        }
+        List<int[]> frames = new ArrayList<>();
+        for (int y = 0; y + frameHeight <= sheet.getHeight(); y += frameHeight) {
+            for (int x = 0; x + frameWidth <= sheet.getWidth(); x += frameWidth) {
+                frames.add(sheet.getRGB(x, y, frameWidth, frameHeight, null, 0, frameWidth));
+            }
+        }
+        int[] durations = new int[frames.size()];
+        Arrays.fill(durations, frameDuration);
+        return of(frames, frameWidth, frameHeight, durations, options);
+    }
+
+    private static ImageSequence loadGif(File file, Options options) throws IOException {
+        Iterator<ImageReader> readers = ImageIO.getImageReadersByFormatName("gif");
+        if (!readers.hasNext()) {
+            throw new IOException("No GIF decoder is available");
+        }
+        ImageReader reader = readers.next();
+        try (ImageInputStream input = ImageIO.createImageInputStream(file)) {
+            if (input == null) {
+                throw new IOException("Cannot open " + file);
+            }
+            reader.setInput(input, false);
+            int frameCount = reader.getNumImages(true);
+            int width = 0;
+            int height = 0;
+            IIOMetadata streamMetadata = reader.getStreamMetadata();
+            if (streamMetadata != null) {
+                Node screen = child(streamMetadata.getAsTree("javax_imageio_gif_stream_1.0"),
+                                    "LogicalScreenDescriptor");
+                if (screen != null) {
+                    width = intAttribute(screen, "logicalScreenWidth", 0);
+                    height = intAttribute(screen, "logicalScreenHeight", 0);
+                }
+            }
+            if (width <= 0 || height <= 0) {
+                width = reader.getWidth(0);
+                height = reader.getHeight(0);
+            }
+
+            // Frames may only cover part of the screen, so they are drawn onto a canvas kept between frames
+            BufferedImage canvas = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            List<int[]> frames = new ArrayList<>(frameCount);
+            int[] durations = new int[frameCount];
+            for (int i = 0; i < frameCount; i++) {
+                BufferedImage frame = reader.read(i);
+                Node metadata = reader.getImageMetadata(i).getAsTree("javax_imageio_gif_image_1.0");
+                Node descriptor = child(metadata, "ImageDescriptor");
+                Node control = child(metadata, "GraphicControlExtension");
+                int left = descriptor == null ? 0 : intAttribute(descriptor, "imageLeftPosition", 0);
+                int top = descriptor == null ? 0 : intAttribute(descriptor, "imageTopPosition", 0);
+                String disposal = control == null ? "none" : attribute(control, "disposalMethod", "none");
+                int delay = control == null ? 0 : intAttribute(control, "delayTime", 0);
+
+                int[] previous = disposal.equals("restoreToPrevious")
+                                 ? canvas.getRGB(0, 0, width, height, null, 0, width) : null;
+                Graphics2D graphics = canvas.createGraphics();
+                graphics.drawImage(frame, left, top, null);
+                graphics.dispose();
+                frames.add(canvas.getRGB(0, 0, width, height, null, 0, width));
+                durations[i] = Math.max(1, Math.round(delay / (float) CENTISECONDS_PER_STEP));
+
+                if (disposal.equals("restoreToBackgroundColor")) {
+                    int clearWidth = Math.min(frame.getWidth(), width - left);
+                    int clearHeight = Math.min(frame.getHeight(), height - top);
+                    if (clearWidth > 0 && clearHeight > 0) {
+                        canvas.setRGB(left, top, clearWidth, clearHeight, new int[clearWidth * clearHeight], 0,
+                                      clearWidth);
+                    }
+                } else if (previous != null) {
+                    canvas.setRGB(0, 0, width, height, previous, 0, width);
+                }
+            }
+            return of(frames, width, height, durations, options);
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    private static BufferedImage read(File file) throws IOException {
+        BufferedImage image = ImageIO.read(file);
+        if (image == null) {
+            throw new IllegalArgumentException("The supplied file is not a supported image");
+        }
+        return image;
+    }
+
+    private static int[] samplePixels(List<int[]> argbFrames) {
+        long total = 0;
+        for (int[] frame : argbFrames) {
+            total += frame.length;
+        }
+        int stride = (int) Math.max(1, (total + MAX_PALETTE_SAMPLES - 1) / MAX_PALETTE_SAMPLES);
+        int[] samples = new int[(int) ((total + stride - 1) / stride)];
+        int count = 0;
+        long index = 0;
+        for (int[] frame : argbFrames) {
+            for (int i = (int) ((stride - index % stride) % stride); i < frame.length; i += stride) {
+                samples[count++] = frame[i];
+            }
+            index += frame.length;
+        }
+        return Arrays.copyOf(samples, count);
+    }
+
+    private static Node child(Node parent, String name) {
+        for (Node node = parent.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (node.getNodeName().equals(name)) {
+                return node;
+            }
+        }
+        return null;
+    }
+
+    private static String attribute(Node node, String name, String defaultValue) {
+        if (node instanceof IIOMetadataNode element && element.hasAttribute(name)) {
+            return element.getAttribute(name);
+        }
+        return defaultValue;
+    }
+
+    private static int intAttribute(Node node, String name, int defaultValue) {
+        try {
+            return Integer.parseInt(attribute(node, name, Integer.toString(defaultValue)));
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    /** Compares frames by their pixels, so that repeated frames are prepared once */
+    private record FrameKey(int[] argb, int hash) {
+        FrameKey(int[] argb) {
+            this(argb, Arrays.hashCode(argb));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof FrameKey other && this.hash == other.hash && Arrays.equals(this.argb, other.argb);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+    }
+
+    /** Gets the number of frames of the sequence
+     *
+     * @return The number of frames
+     */
+    public int getFrameCount() {
+        return this.frames.length;
+    }
+
+    /** Gets the number of distinct point sets of the sequence, repeated frames sharing one
+     *
+     * @return The number of distinct frames
+     */
+    public int getUniqueFrameCount() {
+        return this.uniqueFrameCount;
+    }
+
+    /** Gets a frame of the sequence
+     *
+     * @param frame The index of the frame
+     * @return The point set of the frame
+     */
+    public ImagePointSet getFrame(int frame) {
+        return this.frames[frame];
+    }
+
+    /** Gets the step at which a frame starts, within one loop of the sequence
+     *
+     * @param frame The index of the frame
+     * @return The first step of the frame
+     */
+    public int getFrameStart(int frame) {
+        return frame == 0 ? 0 : this.frameEnds[frame - 1];
+    }
+
+    /** Gets the step after the last step of a frame, within one loop of the sequence
+     *
+     * @param frame The index of the frame
+     * @return The step after the frame
+     */
+    public int getFrameEnd(int frame) {
+        return this.frameEnds[frame];
+    }
+
+    /** Gets the number of steps of one loop of the sequence
+     *
+     * @return The total duration in steps
+     */
+    public int getTotalDuration() {
+        return this.frameEnds[this.frameEnds.length - 1];
+    }
+
+    /** Gets the index of the frame shown at an animation step, looping over the sequence
+     *
+     * @param step The animation step
+     * @return The index of the frame
+     */
+    public int frameIndexAt(int step) {
+        int time = Math.floorMod(step, this.getTotalDuration());
+        int index = Arrays.binarySearch(this.frameEnds, time);
+        // Frame ends are exclusive, so a step equal to an end belongs to the next frame
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    /** Gets the point set of the frame shown at an animation step, looping over the sequence
+     *
+     * @param step The animation step
+     * @return The point set of the frame
+     */
+    public ImagePointSet frameAt(int step) {
+        return this.frames[this.frameIndexAt(step)];
+    }
+}
@@ -2,6 +2,7 @@ package net.mcbrincie.apel.lib.util.interceptor;
 
 import com.google.common.reflect.TypeToken;
 import net.mcbrincie.apel.lib.objects.ParticleObject;
+import net.mcbrincie.apel.lib.util.math.ParticleVelocity;
 import net.minecraft.server.world.ServerWorld;
 import net.minecraft.util.Pair;
 import org.joml.Vector3f;
@@ -48,6 +49,8 @@ public class DrawContext {
     private final int currentStep;
     private final Vector3f position;
     private final ServerWorld world;
+    private final ParticleVelocity inheritedVelocity;
+    private final Vector3f inheritedVelocityCenter;
     private final Map<Key<?>, Object> metadata;
 
     /**
@@ -149,9 +152,27 @@ public class DrawContext {
      * @param step the current animation step
      */
     public DrawContext(ServerWorld world, Vector3f position, int step) {
+        this(world, position, step, ParticleVelocity.NONE, position);
+    }
+
+    /** Constructs an InterceptorData object to pass to an interceptor, for an object drawn inside another object
+     * whose particles spawn with a velocity.
+     *
+     * @param world the active ServerWorld reference
+     * @param position the position at which drawing will occur
+     * @param step the current animation step
+     * @param inheritedVelocity the velocity particles spawn with unless the object has one of its own
+     * @param inheritedVelocityCenter the position the inherited velocity is centred on
+     */
+    public DrawContext(
+            ServerWorld world, Vector3f position, int step, ParticleVelocity inheritedVelocity,
+            Vector3f inheritedVelocityCenter
+    ) {
         this.currentStep = step;
         this.position = position;
         this.world = world;
+        this.inheritedVelocity = requireNonNull(inheritedVelocity);
+        this.inheritedVelocityCenter = requireNonNull(inheritedVelocityCenter);
         this.metadata = new HashMap<>();
     }
 
@@ -213,6 +234,23 @@ public class DrawContext {
         return position;
     }
 
+    /** Get the velocity the particles spawn with unless the object has one of its own, which is the velocity of the
+     * nearest enclosing object that has one, or {@link ParticleVelocity#NONE}.
+     *
+     * @return the velocity inherited from the enclosing objects
+     */
+    public ParticleVelocity getInheritedVelocity() {
+        return inheritedVelocity;
+    }
+
+    /** Get the position the inherited velocity is centred on
+     *
+     * @return the position the inherited velocity is centred on
+     */
+    public Vector3f getInheritedVelocityCenter() {
+        return inheritedVelocityCenter;
+    }
+
     /** Get the active Minecraft ServerWorld
      *
      * @return the active Minecraft ServerWorld
@@ -22,6 +22,10 @@ import net.mcbrincie.apel.lib.objects.ParticleObject;
  */
 @FunctionalInterface
 public interface ObjectInterceptor<T extends ParticleObject<T>> {
+    /** The shared identity interceptor, see {@link #identity()} */
+    @SuppressWarnings("rawtypes")
+    ObjectInterceptor IDENTITY = (data, object) -> {};
+
     /** Apply the interceptor.
      * <br><br>
      * Return values are sent via the {@code InterceptData}'s metadata map.
@@ -36,7 +40,16 @@ public interface ObjectInterceptor<T extends ParticleObject<T>> {
      * @return the identity interceptor
      * @param <T> The type being intercepted
      */
+    @SuppressWarnings("unchecked")
     static <T extends ParticleObject<T>> ObjectInterceptor<T> identity() {
-        return (data, object) -> {};
+        return (ObjectInterceptor<T>) IDENTITY;
+    }
+
+    /** Whether this is the {@link #identity()} interceptor, meaning applying it runs no developer code
+     *
+     * @return true if this interceptor does nothing
+     */
+    default boolean isIdentity() {
+        return this == IDENTITY;
     }
 }
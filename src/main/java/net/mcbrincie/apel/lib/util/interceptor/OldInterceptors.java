@@ -20,6 +20,10 @@ package net.mcbrincie.apel.lib.util.interceptor;
  */
 @FunctionalInterface
 public interface OldInterceptors<T, R extends Enum<R>> {
+    /** The shared identity interceptor, see {@link #identity()} */
+    @SuppressWarnings("rawtypes")
+    OldInterceptors IDENTITY = (data, object) -> {};
+
     /** Apply the interceptor.
      * <br><br>
      * Return values are sent via the {@code InterceptData}'s metadata map.
@@ -35,7 +39,16 @@ public interface OldInterceptors<T, R extends Enum<R>> {
      * @param <T> The type being intercepted
      * @param <R> The enum type defining the additional keys available in {@code InterceptData}.
      */
+    @SuppressWarnings("unchecked")
     static <T, R extends Enum<R>> OldInterceptors<T, R> identity() {
-        return (data, object) -> {};
+        return (OldInterceptors<T, R>) IDENTITY;
+    }
+
+    /** Whether this is the {@link #identity()} interceptor, meaning applying it runs no developer code
+     *
+     * @return true if this interceptor does nothing
+     */
+    default boolean isIdentity() {
+        return this == IDENTITY;
     }
 }
@@ -0,0 +1,99 @@
+package net.mcbrincie.apel.lib.util.math;
+
+import org.joml.Vector3f;
+import org.joml.Vector3fc;
+
+/** The initial velocity of the particles of a shape, in blocks per tick, given as a field around the centre of the
+ * shape rather than per particle.  The velocity of a particle at {@code r}, relative to the centre, is
+ * <pre>
+ * linear + radial * normalize(r) + spin × r
+ * </pre>
+ * so a single value describes a drifting cloud (linear), an expanding or collapsing shell (radial), a swirl (spin,
+ * the axis of rotation scaled by the angular speed in radians per tick), or any sum of them.
+ * <br><br>
+ * The velocity is handed to the particle when it spawns, and the client simulates the motion from there: how far a
+ * particle actually travels depends on its type, since most particle types slow down over time and some ignore
+ * their velocity entirely.
+ * <br><br>
+ * Velocities are immutable: the vectors are copied when the velocity is created, and are only handed out read-only,
+ * so a velocity such as {@link #NONE} can be shared freely.
+ *
+ * @param linear The velocity shared by every particle
+ * @param radial The speed away from the centre, negative moves towards it
+ * @param spin The angular velocity around the centre
+ */
+public record ParticleVelocity(Vector3fc linear, float radial, Vector3fc spin) {
+    /** No velocity, particles stay where they spawn */
+    public static final ParticleVelocity NONE = new ParticleVelocity(new Vector3f(), 0, new Vector3f());
+
+    public ParticleVelocity {
+        linear = new Vector3f(linear);
+        spin = new Vector3f(spin);
+    }
+
+    /** Creates a velocity moving every particle the same way
+     *
+     * @param velocity The velocity, in blocks per tick
+     * @return The particle velocity
+     */
+    public static ParticleVelocity linear(Vector3f velocity) {
+        return new ParticleVelocity(velocity, 0, new Vector3f());
+    }
+
+    /** Creates a velocity moving every particle straight away from the centre
+     *
+     * @param speed The speed, in blocks per tick, negative moves towards the centre
+     * @return The particle velocity
+     */
+    public static ParticleVelocity radial(float speed) {
+        return new ParticleVelocity(new Vector3f(), speed, new Vector3f());
+    }
+
+    /** Creates a velocity rotating every particle around an axis through the centre, particles further from the
+     * axis moving faster
+     *
+     * @param axis The axis of rotation, the rotation follows the right-hand rule
+     * @param angularSpeed The angular speed, in radians per tick
+     * @return The particle velocity
+     */
+    public static ParticleVelocity spin(Vector3f axis, float angularSpeed) {
+        float length = (float) Math.sqrt(axis.x * axis.x + axis.y * axis.y + axis.z * axis.z);
+        if (length == 0) {
+            throw new IllegalArgumentException("Axis of rotation cannot be zero");
+        }
+        float scale = angularSpeed / length;
+        return new ParticleVelocity(new Vector3f(), 0, new Vector3f(axis.x * scale, axis.y * scale, axis.z * scale));
+    }
+
+    /** Whether no particle gets any velocity
+     *
+     * @return true if every particle stays where it spawns
+     */
+    public boolean isNone() {
+        return this.radial == 0
+                && this.linear.x() == 0 && this.linear.y() == 0 && this.linear.z() == 0
+                && this.spin.x() == 0 && this.spin.y() == 0 && this.spin.z() == 0;
+    }
+
+    /** Computes the velocity of a particle.  Particles at the centre have no radial velocity
+     *
+     * @param x The x coordinate of the particle, relative to the centre
+     * @param y The y coordinate of the particle, relative to the centre
+     * @param z The z coordinate of the particle, relative to the centre
+     * @param dest The vector receiving the velocity
+     * @return The velocity, in {@code dest}
+     */
+    public Vector3f at(float x, float y, float z, Vector3f dest) {
+        float vx = this.linear.x() + this.spin.y() * z - this.spin.z() * y;
+        float vy = this.linear.y() + this.spin.z() * x - this.spin.x() * z;
+        float vz = this.linear.z() + this.spin.x() * y - this.spin.y() * x;
+        float distanceSquared = x * x + y * y + z * z;
+        if (this.radial != 0 && distanceSquared > 0) {
+            float scale = this.radial / (float) Math.sqrt(distanceSquared);
+            vx += x * scale;
+            vy += y * scale;
+            vz += z * scale;
+        }
+        return dest.set(vx, vy, vz);
+    }
+}
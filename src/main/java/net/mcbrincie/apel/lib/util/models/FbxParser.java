@@ -3,6 +3,15 @@ package net.mcbrincie.apel.lib.util.models;
 import java.io.File;
 
 public class FbxParser {
-    public void parseFbxFile(ModelParserManager manager, File model_file) {
+    /** FBX files cannot be read yet, so they are rejected like any other unsupported format instead of being read
+     * as an empty model
+     *
+     * @param manager The manager the model would be parsed into
+     * @param model_file The FBX file
+     * @return Never returns
+     * @throws UnsupportedOperationException always
+     */
+    public boolean parseFbxFile(ModelParserManager manager, File model_file) {
+        throw new UnsupportedOperationException("The parser doesn't support FBX 3D model files yet");
     }
 }
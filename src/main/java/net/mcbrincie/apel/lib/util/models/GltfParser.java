@@ -1,8 +1,465 @@
 package net.mcbrincie.apel.lib.util.models;
 
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import it.unimi.dsi.fastutil.floats.FloatArrayList;
+import net.mcbrincie.apel.Apel;
+import org.joml.Matrix3f;
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+
 import java.io.File;
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Base64;
 
+/** Parses glTF 2.0 models into a {@link ModelParserManager}, both as {@code .gltf} JSON with external or embedded
+ * (base64) buffers and as binary {@code .glb} files.  The two are told apart by the binary header, not the
+ * extension.
+ * <br><br>
+ * Every buffer is read into memory once, and buffer views are slices of it rather than copies.  Accessors are read
+ * straight out of those slices into the manager's primitive lists, honouring the byte stride of interleaved views,
+ * so no object is created per vertex.  Positions and normals are transformed by the world transform of the node
+ * that instantiates the mesh, starting from the default scene.
+ * <br><br>
+ * Triangles, triangle strips and triangle fans become faces; lines, line strips and line loops become polylines.
+ * Indexed and non-indexed primitives are both supported, as are normalized integer attributes.  Sparse accessors
+ * are not.  The parser holds no state between files, so one instance may be shared.
+ */
 public class GltfParser {
-    public void parseGltfFile(ModelParserManager manager, File model_file) {
+    private static final int GLB_MAGIC = 0x46546C67;
+    private static final int GLB_HEADER_LENGTH = 12;
+    private static final int CHUNK_JSON = 0x4E4F534A;
+    private static final int CHUNK_BIN = 0x004E4942;
+
+    private static final int BYTE = 5120;
+    private static final int UNSIGNED_BYTE = 5121;
+    private static final int SHORT = 5122;
+    private static final int UNSIGNED_SHORT = 5123;
+    private static final int UNSIGNED_INT = 5125;
+    private static final int FLOAT = 5126;
+
+    private static final int POINTS = 0;
+    private static final int LINES = 1;
+    private static final int LINE_LOOP = 2;
+    private static final int LINE_STRIP = 3;
+    private static final int TRIANGLES = 4;
+    private static final int TRIANGLE_STRIP = 5;
+    private static final int TRIANGLE_FAN = 6;
+
+    /** Parses a glTF or GLB file into the manager.  A file, or external buffer, that cannot be read or is malformed
+     * is logged, and leaves whatever was parsed before the error in the manager.
+     *
+     * @param manager The manager to parse into
+     * @param model_file The glTF or GLB file
+     * @return Whether the whole file was read
+     */
+    public boolean parseGltfFile(ModelParserManager manager, File model_file) {
+        try {
+            ByteBuffer contents = ByteBuffer.wrap(Files.readAllBytes(model_file.toPath()))
+                                            .order(ByteOrder.LITTLE_ENDIAN);
+            new Document(manager, model_file.getAbsoluteFile().getParentFile(), contents).parse();
+            return true;
+        } catch (IOException | IllegalArgumentException e) {
+            Apel.LOGGER.error("glTF Model File Could Not Be Read", e);
+            return false;
+        }
+    }
+
+    /** A typed view over the elements of an accessor, {@code data} is null when the accessor has no buffer view */
+    private record Accessor(
+            ByteBuffer data, int stride, int count, int componentType, int components, boolean normalized
+    ) {
+        float get(int element, int component) {
+            if (this.data == null) {
+                return 0f;
+            }
+            int offset = element * this.stride + component * componentSize(this.componentType);
+            return switch (this.componentType) {
+                case FLOAT -> this.data.getFloat(offset);
+                case BYTE -> {
+                    byte value = this.data.get(offset);
+                    yield this.normalized ? Math.max(value / 127f, -1f) : value;
+                }
+                case UNSIGNED_BYTE -> {
+                    int value = Byte.toUnsignedInt(this.data.get(offset));
+                    yield this.normalized ? value / 255f : value;
+                }
+                case SHORT -> {
+                    short value = this.data.getShort(offset);
+                    yield this.normalized ? Math.max(value / 32767f, -1f) : value;
+                }
+                case UNSIGNED_SHORT -> {
+                    int value = Short.toUnsignedInt(this.data.getShort(offset));
+                    yield this.normalized ? value / 65535f : value;
+                }
+                case UNSIGNED_INT -> (float) Integer.toUnsignedLong(this.data.getInt(offset));
+                default -> throw new IllegalArgumentException("Malformed glTF file: unknown component type");
+            };
+        }
+
+        int getIndex(int element) {
+            if (this.data == null) {
+                return 0;
+            }
+            int offset = element * this.stride;
+            return switch (this.componentType) {
+                case UNSIGNED_BYTE -> Byte.toUnsignedInt(this.data.get(offset));
+                case UNSIGNED_SHORT -> Short.toUnsignedInt(this.data.getShort(offset));
+                case UNSIGNED_INT -> this.data.getInt(offset);
+                default -> throw new IllegalArgumentException("Malformed glTF file: indices must be unsigned");
+            };
+        }
+    }
+
+    /** The state of parsing a single file */
+    private static final class Document {
+        private final ModelParserManager manager;
+        private final File directory;
+        private final ByteBuffer contents;
+        private JsonObject json;
+        private ByteBuffer binaryChunk;
+        private ByteBuffer[] buffers;
+
+        private Document(ModelParserManager manager, File directory, ByteBuffer contents) {
+            this.manager = manager;
+            this.directory = directory;
+            this.contents = contents;
+        }
+
+        private void parse() throws IOException {
+            String jsonText;
+            if (this.contents.remaining() >= GLB_HEADER_LENGTH && this.contents.getInt(0) == GLB_MAGIC) {
+                jsonText = this.readGlbChunks();
+            } else {
+                jsonText = StandardCharsets.UTF_8.decode(this.contents).toString();
+            }
+            try {
+                this.json = JsonParser.parseString(jsonText).getAsJsonObject();
+            } catch (JsonParseException | IllegalStateException e) {
+                throw error("the JSON is invalid");
+            }
+            JsonObject asset = this.json.getAsJsonObject("asset");
+            if (asset == null || !asset.has("version")) {
+                throw error("the asset version is missing");
+            }
+            String version = asset.get("version").getAsString();
+            if (!version.startsWith("2.")) {
+                throw error("only glTF 2.0 is supported, found " + version);
+            }
+            this.loadBuffers();
+
+            JsonArray scenes = this.json.getAsJsonArray("scenes");
+            if (scenes == null || scenes.isEmpty()) {
+                // Without a scene there is nothing to place the meshes, draw each one as-is
+                JsonArray meshes = this.json.getAsJsonArray("meshes");
+                for (int i = 0; meshes != null && i < meshes.size(); i++) {
+                    this.loadMesh(i, new Matrix4f());
+                }
+                return;
+            }
+            JsonObject scene = scenes.get(getInt(this.json, "scene", 0)).getAsJsonObject();
+            JsonArray roots = scene.getAsJsonArray("nodes");
+            for (int i = 0; roots != null && i < roots.size(); i++) {
+                this.loadNode(roots.get(i).getAsInt(), new Matrix4f(), 0);
+            }
+        }
+
+        /** Reads the chunks of a .glb file, keeping the binary chunk and returning the JSON chunk's text */
+        private String readGlbChunks() {
+            int version = this.contents.getInt(4);
+            if (version != 2) {
+                throw error("only version 2 binary files are supported, found " + version);
+            }
+            int length = Math.min(this.contents.getInt(8), this.contents.limit());
+            String jsonText = null;
+            int offset = GLB_HEADER_LENGTH;
+            while (offset + 8 <= length) {
+                int chunkLength = this.contents.getInt(offset);
+                int chunkType = this.contents.getInt(offset + 4);
+                int chunkStart = offset + 8;
+                if (chunkLength < 0 || chunkStart + chunkLength > length) {
+                    throw error("a chunk extends past the end of the file");
+                }
+                if (chunkType == CHUNK_JSON && jsonText == null) {
+                    jsonText = StandardCharsets.UTF_8.decode(this.contents.slice(chunkStart, chunkLength)).toString();
+                } else if (chunkType == CHUNK_BIN && this.binaryChunk == null) {
+                    this.binaryChunk = this.contents.slice(chunkStart, chunkLength).order(ByteOrder.LITTLE_ENDIAN);
+                }
+                // Chunks are padded to 4-byte boundaries
+                offset = chunkStart + ((chunkLength + 3) & ~3);
+            }
+            if (jsonText == null) {
+                throw error("the binary file has no JSON chunk");
+            }
+            return jsonText;
+        }
+
+        private void loadBuffers() throws IOException {
+            JsonArray buffers = this.json.getAsJsonArray("buffers");
+            this.buffers = new ByteBuffer[buffers == null ? 0 : buffers.size()];
+            for (int i = 0; i < this.buffers.length; i++) {
+                JsonObject buffer = buffers.get(i).getAsJsonObject();
+                int byteLength = getInt(buffer, "byteLength", 0);
+                ByteBuffer data;
+                if (!buffer.has("uri")) {
+                    if (i != 0 || this.binaryChunk == null) {
+                        throw error("buffer " + i + " has no data");
+                    }
+                    data = this.binaryChunk;
+                } else {
+                    data = this.readUri(buffer.get("uri").getAsString());
+                }
+                if (data.remaining() < byteLength) {
+                    throw error("buffer " + i + " is shorter than its byteLength");
+                }
+                this.buffers[i] = data.slice(0, byteLength).order(ByteOrder.LITTLE_ENDIAN);
+            }
+        }
+
+        private ByteBuffer readUri(String uri) throws IOException {
+            if (uri.startsWith("data:")) {
+                int dataStart = uri.indexOf(";base64,");
+                if (dataStart == -1) {
+                    throw error("only base64 data URIs are supported");
+                }
+                return ByteBuffer.wrap(Base64.getDecoder().decode(uri.substring(dataStart + 8)));
+            }
+            // URIs are percent-encoded, while a '+' is a literal plus sign rather than a space
+            String path = URLDecoder.decode(uri.replace("+", "%2B"), StandardCharsets.UTF_8);
+            return ByteBuffer.wrap(Files.readAllBytes(new File(this.directory, path).toPath()));
+        }
+
+        private void loadNode(int nodeIndex, Matrix4f parentTransform, int depth) {
+            // Nodes must form a tree, a cycle would otherwise recurse forever
+            JsonArray nodes = this.json.getAsJsonArray("nodes");
+            if (depth > nodes.size()) {
+                throw error("the node hierarchy contains a cycle");
+            }
+            JsonObject node = nodes.get(nodeIndex).getAsJsonObject();
+            Matrix4f transform = new Matrix4f(parentTransform).mul(localTransform(node));
+            if (node.has("mesh")) {
+                this.loadMesh(node.get("mesh").getAsInt(), transform);
+            }
+            JsonArray children = node.getAsJsonArray("children");
+            for (int i = 0; children != null && i < children.size(); i++) {
+                this.loadNode(children.get(i).getAsInt(), transform, depth + 1);
+            }
+        }
+
+        private void loadMesh(int meshIndex, Matrix4f transform) {
+            JsonObject mesh = this.json.getAsJsonArray("meshes").get(meshIndex).getAsJsonObject();
+            JsonArray primitives = mesh.getAsJsonArray("primitives");
+            for (JsonElement primitive : primitives) {
+                this.loadPrimitive(primitive.getAsJsonObject(), transform);
+            }
+        }
+
+        private void loadPrimitive(JsonObject primitive, Matrix4f transform) {
+            JsonObject attributes = primitive.getAsJsonObject("attributes");
+            if (!attributes.has("POSITION")) {
+                return;
+            }
+            ModelParserManager manager = this.manager;
+            Accessor positions = this.accessor(attributes.get("POSITION").getAsInt());
+            int vertexCount = positions.count();
+            int vertexBase = manager.getVertexCount();
+            appendTransformed(manager.vertices, positions, transform, false);
+
+            int normalBase = -1;
+            if (attributes.has("NORMAL")) {
+                Accessor normals = this.accessor(attributes.get("NORMAL").getAsInt());
+                normalBase = manager.normalVertices.size() / 3;
+                Matrix4f normalTransform = new Matrix4f().set(transform.normal(new Matrix3f()));
+                appendTransformed(manager.normalVertices, normals, normalTransform, true);
+            }
+            int textureBase = -1;
+            if (attributes.has("TEXCOORD_0")) {
+                Accessor textureCoordinates = this.accessor(attributes.get("TEXCOORD_0").getAsInt());
+                textureBase = manager.textureVertices.size() / 2;
+                manager.textureVertices.ensureCapacity(manager.textureVertices.size() + textureCoordinates.count() * 2);
+                for (int i = 0; i < textureCoordinates.count(); i++) {
+                    manager.textureVertices.add(textureCoordinates.get(i, 0));
+                    manager.textureVertices.add(textureCoordinates.get(i, 1));
+                }
+            }
+
+            Accessor indices = primitive.has("indices") ? this.accessor(primitive.get("indices").getAsInt()) : null;
+            int indexCount = indices == null ? vertexCount : indices.count();
+            int mode = getInt(primitive, "mode", TRIANGLES);
+            switch (mode) {
+                case TRIANGLES -> {
+                    for (int i = 0; i + 2 < indexCount; i += 3) {
+                        this.addFace(indices, vertexCount, i, i + 1, i + 2, vertexBase, normalBase, textureBase);
+                    }
+                }
+                case TRIANGLE_STRIP -> {
+                    for (int i = 0; i + 2 < indexCount; i++) {
+                        // Every other triangle is reversed, to keep the winding consistent
+                        int first = (i & 1) == 0 ? i : i + 1;
+                        int second = (i & 1) == 0 ? i + 1 : i;
+                        this.addFace(indices, vertexCount, first, second, i + 2, vertexBase, normalBase, textureBase);
+                    }
+                }
+                case TRIANGLE_FAN -> {
+                    for (int i = 1; i + 1 < indexCount; i++) {
+                        this.addFace(indices, vertexCount, 0, i, i + 1, vertexBase, normalBase, textureBase);
+                    }
+                }
+                case LINES -> {
+                    for (int i = 0; i + 1 < indexCount; i += 2) {
+                        manager.lineVertexIndices.add(vertexBase + index(indices, i, vertexCount));
+                        manager.lineVertexIndices.add(vertexBase + index(indices, i + 1, vertexCount));
+                        manager.lineEnds.add(manager.lineVertexIndices.size());
+                    }
+                }
+                case LINE_STRIP, LINE_LOOP -> {
+                    for (int i = 0; i < indexCount; i++) {
+                        manager.lineVertexIndices.add(vertexBase + index(indices, i, vertexCount));
+                    }
+                    if (mode == LINE_LOOP && indexCount > 0) {
+                        manager.lineVertexIndices.add(vertexBase + index(indices, 0, vertexCount));
+                    }
+                    manager.lineEnds.add(manager.lineVertexIndices.size());
+                }
+                case POINTS -> { }
+                default -> throw error("unknown primitive mode " + mode);
+            }
+        }
+
+        private void addFace(
+                Accessor indices, int vertexCount, int a, int b, int c, int vertexBase, int normalBase,
+                int textureBase
+        ) {
+            this.addCorner(index(indices, a, vertexCount), vertexBase, normalBase, textureBase);
+            this.addCorner(index(indices, b, vertexCount), vertexBase, normalBase, textureBase);
+            this.addCorner(index(indices, c, vertexCount), vertexBase, normalBase, textureBase);
+            this.manager.faceEnds.add(this.manager.faceVertexIndices.size());
+        }
+
+        private void addCorner(int index, int vertexBase, int normalBase, int textureBase) {
+            // Attributes are per-vertex in glTF, so every attribute shares the vertex's index
+            this.manager.faceVertexIndices.add(vertexBase + index);
+            this.manager.faceNormalIndices.add(normalBase == -1 ? -1 : normalBase + index);
+            this.manager.faceTextureIndices.add(textureBase == -1 ? -1 : textureBase + index);
+        }
+
+        private Accessor accessor(int accessorIndex) {
+            JsonObject accessor = this.json.getAsJsonArray("accessors").get(accessorIndex).getAsJsonObject();
+            if (accessor.has("sparse")) {
+                throw error("sparse accessors are not supported");
+            }
+            int count = getInt(accessor, "count", 0);
+            int componentType = getInt(accessor, "componentType", FLOAT);
+            int components = switch (accessor.get("type").getAsString()) {
+                case "SCALAR" -> 1;
+                case "VEC2" -> 2;
+                case "VEC3" -> 3;
+                case "VEC4", "MAT2" -> 4;
+                case "MAT3" -> 9;
+                case "MAT4" -> 16;
+                default -> throw error("unknown accessor type " + accessor.get("type").getAsString());
+            };
+            boolean normalized = accessor.has("normalized") && accessor.get("normalized").getAsBoolean();
+            int elementSize = components * componentSize(componentType);
+            if (!accessor.has("bufferView")) {
+                // Accessors without a buffer view are all zeros
+                return new Accessor(null, elementSize, count, componentType, components, normalized);
+            }
+            JsonObject view = this.json.getAsJsonArray("bufferViews")
+                                       .get(accessor.get("bufferView").getAsInt()).getAsJsonObject();
+            ByteBuffer buffer = this.buffers[getInt(view, "buffer", 0)];
+            int viewOffset = getInt(view, "byteOffset", 0);
+            int viewLength = getInt(view, "byteLength", 0);
+            int stride = getInt(view, "byteStride", elementSize);
+            int accessorOffset = getInt(accessor, "byteOffset", 0);
+            long end = (long) accessorOffset + (long) stride * Math.max(count - 1, 0) + elementSize;
+            if (viewOffset + viewLength > buffer.limit() || (count > 0 && end > viewLength)) {
+                throw error("accessor " + accessorIndex + " reads past the end of its buffer view");
+            }
+            ByteBuffer data = buffer.slice(viewOffset + accessorOffset, viewLength - accessorOffset)
+                                    .order(ByteOrder.LITTLE_ENDIAN);
+            return new Accessor(data, stride, count, componentType, components, normalized);
+        }
+
+        private static void appendTransformed(
+                FloatArrayList target, Accessor accessor, Matrix4f transform, boolean direction
+        ) {
+            target.ensureCapacity(target.size() + accessor.count() * 3);
+            Vector3f vector = new Vector3f();
+            for (int i = 0; i < accessor.count(); i++) {
+                vector.set(accessor.get(i, 0), accessor.get(i, 1), accessor.get(i, 2));
+                if (direction) {
+                    transform.transformDirection(vector);
+                    if (vector.lengthSquared() > 0) {
+                        vector.normalize();
+                    }
+                } else {
+                    transform.transformPosition(vector);
+                }
+                target.add(vector.x);
+                target.add(vector.y);
+                target.add(vector.z);
+            }
+        }
+
+        private static int index(Accessor indices, int element, int vertexCount) {
+            int index = indices == null ? element : indices.getIndex(element);
+            if (index < 0 || index >= vertexCount) {
+                throw error("index " + Integer.toUnsignedString(index) + " is out of range");
+            }
+            return index;
+        }
+
+        private static Matrix4f localTransform(JsonObject node) {
+            if (node.has("matrix")) {
+                return new Matrix4f().set(floats(node.getAsJsonArray("matrix"), 16));
+            }
+            float[] translation = node.has("translation") ? floats(node.getAsJsonArray("translation"), 3)
+                                                          : new float[]{0, 0, 0};
+            float[] rotation = node.has("rotation") ? floats(node.getAsJsonArray("rotation"), 4)
+                                                    : new float[]{0, 0, 0, 1};
+            float[] scale = node.has("scale") ? floats(node.getAsJsonArray("scale"), 3) : new float[]{1, 1, 1};
+            return new Matrix4f().translationRotateScale(
+                    translation[0], translation[1], translation[2],
+                    rotation[0], rotation[1], rotation[2], rotation[3],
+                    scale[0], scale[1], scale[2]
+            );
+        }
+
+        private static float[] floats(JsonArray array, int expected) {
+            if (array.size() != expected) {
+                throw error("expected " + expected + " numbers, found " + array.size());
+            }
+            float[] values = new float[expected];
+            for (int i = 0; i < expected; i++) {
+                values[i] = array.get(i).getAsFloat();
+            }
+            return values;
+        }
+    }
+
+    private static int componentSize(int componentType) {
+        return switch (componentType) {
+            case BYTE, UNSIGNED_BYTE -> 1;
+            case SHORT, UNSIGNED_SHORT -> 2;
+            case UNSIGNED_INT, FLOAT -> 4;
+            default -> throw error("unknown component type " + componentType);
+        };
+    }
+
+    private static int getInt(JsonObject object, String name, int defaultValue) {
+        return object.has(name) ? object.get(name).getAsInt() : defaultValue;
+    }
+
+    private static IllegalArgumentException error(String message) {
+        return new IllegalArgumentException("Malformed glTF file: " + message);
     }
 }
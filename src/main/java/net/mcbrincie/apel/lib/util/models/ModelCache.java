@@ -0,0 +1,186 @@
+package net.mcbrincie.apel.lib.util.models;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+
+/** A bounded, thread-safe cache of parsed models, so that every model file is read and parsed once no matter how
+ * many {@link net.mcbrincie.apel.lib.objects.ParticleModel}s use it.  The cached meshes are immutable and are shared
+ * by every instance referencing them.
+ * <br><br>
+ * Entries are keyed by the canonical path of the file and remember the modification time and size of the file
+ * they were parsed from.  A lookup that finds either has changed parses the file again, so editing a model on disk
+ * is picked up by the next model that loads it.  When the estimated size of all cached meshes exceeds the
+ * configured limit, the least recently used entries are evicted.
+ * <br><br>
+ * The {@link ModelLodChain} of a model is built in the background the first time it is asked for, since simplifying
+ * a large model takes a while, and is cached along with its mesh.
+ * <br><br>
+ * The process-wide instance is {@link net.mcbrincie.apel.Apel#MODEL_CACHE}.
+ */
+public class ModelCache {
+    private final Cache<String, Entry> cache;
+    private final long maximumBytes;
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+
+    private record Entry(
+            long lastModified, long size, ModelMesh mesh, Supplier<CompletableFuture<ModelLodChain>> lodChain
+    ) {
+        Entry(long lastModified, long size, ModelMesh mesh) {
+            this(lastModified, size, mesh,
+                 Suppliers.memoize(() -> CompletableFuture.supplyAsync(() -> ModelLodChain.build(mesh))));
+        }
+
+        /** The levels of detail hold about as many triangles as the mesh itself, so they are counted up front */
+        int weight() {
+            return 2 * this.mesh.estimateSizeBytes();
+        }
+
+        boolean isCurrent(BasicFileAttributes attributes) {
+            return this.lastModified == attributes.lastModifiedTime().toMillis() && this.size == attributes.size();
+        }
+    }
+
+    /** A snapshot of the cache's usage.
+     *
+     * @param entryCount The number of cached meshes
+     * @param estimatedBytes The estimated memory used by the cached meshes and their levels of detail
+     * @param maximumBytes The memory limit of the cache
+     * @param hitCount The number of lookups that found a current entry
+     * @param missCount The number of lookups that had to parse the file
+     * @param evictionCount The number of entries evicted to stay within the limit
+     */
+    public record Stats(
+            long entryCount, long estimatedBytes, long maximumBytes, long hitCount, long missCount, long evictionCount
+    ) {}
+
+    /** Creates an empty cache that holds at most {@code maximumBytes} of meshes, as estimated by
+     * {@link ModelMesh#estimateSizeBytes()}.  Every mesh is counted twice, to leave room for its levels of detail.
+     *
+     * @param maximumBytes The memory limit of the cache
+     */
+    public ModelCache(long maximumBytes) {
+        if (maximumBytes <= 0) {
+            throw new IllegalArgumentException("Maximum bytes must be positive");
+        }
+        this.maximumBytes = maximumBytes;
+        this.cache = CacheBuilder.newBuilder()
+                                 .maximumWeight(maximumBytes)
+                                 .<String, Entry>weigher((path, entry) -> entry.weight())
+                                 .recordStats()
+                                 .build();
+    }
+
+    /** Gets the mesh of the given model file, parsing it only if it is not cached or has changed since it was
+     * cached.  Concurrent lookups of the same file parse it once.  A file that cannot be read gives an empty mesh,
+     * which is not cached.
+     *
+     * @param file The model file
+     * @return The shared, immutable mesh of the model
+     */
+    public ModelMesh get(File file) {
+        return this.getEntry(file).mesh();
+    }
+
+    /** Gets the levels of detail of the given model file, waiting for them if they are still being built.
+     *
+     * @param file The model file
+     * @return The shared, immutable levels of detail of the model
+     * @see #getLodChainAsync(File)
+     */
+    public ModelLodChain getLodChain(File file) {
+        return this.getLodChainAsync(file).join();
+    }
+
+    /** Gets the levels of detail of the given model file, starting to build them on the common
+     * {@link java.util.concurrent.ForkJoinPool} the first time they are asked for.
+     *
+     * @param file The model file
+     * @return The future of the shared, immutable levels of detail of the model
+     * @see #get(File)
+     */
+    public CompletableFuture<ModelLodChain> getLodChainAsync(File file) {
+        return this.getEntry(file).lodChain().get();
+    }
+
+    private Entry getEntry(File file) {
+        String path;
+        BasicFileAttributes attributes;
+        try {
+            path = file.getCanonicalPath();
+            attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            throw new IllegalArgumentException("The supplied file object is not a file");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (!attributes.isRegularFile()) {
+            throw new IllegalArgumentException("The supplied file object is not a file");
+        }
+        Entry entry = this.cache.getIfPresent(path);
+        if (entry != null && entry.isCurrent(attributes)) {
+            this.hitCount.increment();
+            return entry;
+        }
+        // Replace missing or stale entries atomically, so a file is parsed only once however many threads want it.  A
+        // file that could not be read is not cached, so the next lookup tries again instead of keeping a partial mesh
+        entry = this.cache.asMap().compute(path, (key, existing) -> {
+            if (existing != null && existing.isCurrent(attributes)) {
+                this.hitCount.increment();
+                return existing;
+            }
+            this.missCount.increment();
+            ModelParserManager manager = new ModelParserManager();
+            if (!manager.parseFile(file)) {
+                return null;
+            }
+            return new Entry(attributes.lastModifiedTime().toMillis(), attributes.size(), manager.toMesh());
+        });
+        if (entry == null) {
+            ModelMesh empty = new ModelParserManager().toMesh();
+            return new Entry(attributes.lastModifiedTime().toMillis(), attributes.size(), empty);
+        }
+        return entry;
+    }
+
+    /** Discards the cached mesh of the given model file, if any.
+     *
+     * @param file The model file
+     */
+    public void invalidate(File file) {
+        try {
+            this.cache.invalidate(file.getCanonicalPath());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Discards every cached mesh. */
+    public void invalidateAll() {
+        this.cache.invalidateAll();
+    }
+
+    /** Gets a snapshot of the cache's usage.  Lookups that replaced a stale entry count as misses.
+     *
+     * @return The current statistics
+     */
+    public Stats getStats() {
+        long estimatedBytes = 0;
+        for (Entry entry : this.cache.asMap().values()) {
+            estimatedBytes += entry.weight();
+        }
+        return new Stats(this.cache.size(), estimatedBytes, this.maximumBytes, this.hitCount.sum(),
+                         this.missCount.sum(), this.cache.stats().evictionCount());
+    }
+}
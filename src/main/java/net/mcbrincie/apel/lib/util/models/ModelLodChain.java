@@ -0,0 +1,118 @@
+package net.mcbrincie.apel.lib.util.models;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** An immutable chain of progressively simplified versions of a mesh (levels of detail), built once when the model
+ * is loaded.  Level 0 is the original mesh, and every following level has about half the triangles of the one
+ * before it, down to a minimum.  Drawing a coarser level of a large model keeps the number of particles under
+ * control without needing hand-made low-poly variants.
+ *
+ * @see ModelMesh#simplify(int)
+ */
+public final class ModelLodChain {
+    public static final float DEFAULT_REDUCTION = 0.5f;
+    public static final int DEFAULT_MINIMUM_TRIANGLES = 32;
+
+    private final ModelMesh[] levels;
+
+    private ModelLodChain(ModelMesh[] levels) {
+        this.levels = levels;
+    }
+
+    /** Builds the chain of a mesh with the default reduction and minimum number of triangles.
+     *
+     * @param mesh The full-detail mesh
+     * @return The new chain
+     */
+    public static ModelLodChain build(ModelMesh mesh) {
+        return build(mesh, DEFAULT_REDUCTION, DEFAULT_MINIMUM_TRIANGLES);
+    }
+
+    /** Builds the chain of a mesh.  Each level keeps {@code reduction} times the triangles of the one before it, and
+     * no level is built below {@code minimumTriangles} triangles.
+     *
+     * @param mesh The full-detail mesh
+     * @param reduction The fraction of triangles kept from one level to the next, between 0 and 1 (exclusive)
+     * @param minimumTriangles The number of triangles under which no further level is built
+     * @return The new chain
+     */
+    public static ModelLodChain build(ModelMesh mesh, float reduction, int minimumTriangles) {
+        if (reduction <= 0 || reduction >= 1) {
+            throw new IllegalArgumentException("Reduction must be between 0 and 1");
+        }
+        List<ModelMesh> levels = new ArrayList<>();
+        levels.add(mesh);
+        ModelMesh current = mesh;
+        while (current.getTriangleCount() * reduction >= minimumTriangles) {
+            ModelMesh simplified = current.simplify((int) (current.getTriangleCount() * reduction));
+            // Stop once simplifying barely removes anything, the mesh has no collapsible edges left
+            if (simplified.getTriangleCount() > current.getTriangleCount() * (1 + reduction) / 2) {
+                break;
+            }
+            levels.add(simplified);
+            current = simplified;
+        }
+        return new ModelLodChain(levels.toArray(new ModelMesh[0]));
+    }
+
+    /** Gets the number of levels of the chain, including the original mesh
+     *
+     * @return The number of levels
+     */
+    public int getLevelCount() {
+        return this.levels.length;
+    }
+
+    /** Gets a level of the chain, 0 being the original mesh
+     *
+     * @param level The level
+     * @return The mesh of that level
+     */
+    public ModelMesh getLevel(int level) {
+        return this.levels[level];
+    }
+
+    /** Selects the most detailed level whose wireframe fits the given particle budget, or the coarsest level if none
+     * fits.
+     *
+     * @param particleBudget The maximum number of particles to draw
+     * @param amountPerEdge The number of particles drawn along every edge
+     * @return The selected level
+     */
+    public int selectForBudget(int particleBudget, int amountPerEdge) {
+        for (int level = 0; level < this.levels.length; level++) {
+            if ((long) this.levels[level].getEdgeCount() * amountPerEdge <= particleBudget) {
+                return level;
+            }
+        }
+        return this.levels.length - 1;
+    }
+
+    /** Selects a level by distance from the viewer.  Up to {@code fullDetailDistance} the original mesh is used, and
+     * every time the distance doubles past it, the next coarser level is used.
+     *
+     * @param distance The distance from the viewer to the model
+     * @param fullDetailDistance The distance up to which the original mesh is used
+     * @return The selected level
+     */
+    public int selectForDistance(float distance, float fullDetailDistance) {
+        if (distance <= fullDetailDistance) {
+            return 0;
+        }
+        int level = 1 + (int) Math.floor(Math.log(distance / fullDetailDistance) / Math.log(2));
+        return Math.min(level, this.levels.length - 1);
+    }
+
+    /** Estimates the memory used by the simplified levels, in bytes.  The original mesh is not included.
+     *
+     * @return The estimated size
+     */
+    public long estimateSizeBytes() {
+        long size = 16L + this.levels.length * 8L;
+        for (int level = 1; level < this.levels.length; level++) {
+            size += this.levels[level].estimateSizeBytes();
+        }
+        return size;
+    }
+}
@@ -0,0 +1,640 @@
+package net.mcbrincie.apel.lib.util.models;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import org.joml.Vector3f;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/** An immutable indexed mesh, used for drawing 3D models.  The vertices are stored flat as consecutive
+ * {@code x, y, z} triples, the edges as consecutive pairs of indices into those vertices, and the triangles as
+ * consecutive triples of indices.
+ * <br><br>
+ * Every edge is unique, even though neighbouring faces share their edges, so each edge is drawn exactly once.
+ * Faces with more than three vertices are split into a fan of triangles.  Only vertices used by at least one face
+ * are kept.
+ */
+public final class ModelMesh {
+    // Random sequential addition covers about 54.7% of the area with disks before no more fit
+    private static final double DISK_PACKING_DENSITY = 0.547;
+    // The number of candidates generated per requested Poisson-disk sample
+    private static final int POISSON_DISK_CANDIDATES = 8;
+    // How much more an open border resists collapsing than the surface, so that holes and outlines keep their shape
+    private static final double BORDER_WEIGHT = 1000;
+
+    private final float[] vertices;
+    private final int[] edges;
+    private final int[] triangles;
+
+    private ModelMesh(float[] vertices, int[] edges, int[] triangles) {
+        this.vertices = vertices;
+        this.edges = edges;
+        this.triangles = triangles;
+    }
+
+    /** Builds the mesh of the faces of a parsed model.  Every face contributes the edges of its outline, edges
+     * that have already been contributed by another face (in either direction) are skipped.  Every face also
+     * contributes a fan of triangles around its first vertex.  The faces are laid
+     * out as described by {@link ModelParserManager}.
+     *
+     * @param vertices The flat array of vertex coordinates of the model
+     * @param faceVertexIndices The zero-based vertex indices of every face, back-to-back
+     * @param faceEnds The index after the last vertex index of each face
+     * @return The new mesh
+     */
+    public static ModelMesh fromFaces(float[] vertices, int[] faceVertexIndices, int[] faceEnds) {
+        LongOpenHashSet seenEdges = new LongOpenHashSet();
+        IntArrayList edges = new IntArrayList();
+        IntArrayList triangles = new IntArrayList();
+        int[] remappedIndices = new int[vertices.length / 3];
+        Arrays.fill(remappedIndices, -1);
+        int vertexCount = 0;
+        int faceStart = 0;
+        for (int faceEnd : faceEnds) {
+            int faceLength = faceEnd - faceStart;
+            // Number the vertices in the order they are first used, dropping unused ones
+            for (int i = faceStart; i < faceEnd; i++) {
+                if (remappedIndices[faceVertexIndices[i]] == -1) {
+                    remappedIndices[faceVertexIndices[i]] = vertexCount++;
+                }
+            }
+            for (int i = 0; i < faceLength; i++) {
+                int start = faceVertexIndices[faceStart + i];
+                int end = faceVertexIndices[faceStart + (i + 1) % faceLength];
+                if (start == end) {
+                    continue;
+                }
+                long key = ((long) Math.min(start, end) << 32) | Math.max(start, end);
+                if (seenEdges.add(key)) {
+                    edges.add(remappedIndices[start]);
+                    edges.add(remappedIndices[end]);
+                }
+            }
+            for (int i = 1; i + 1 < faceLength; i++) {
+                triangles.add(remappedIndices[faceVertexIndices[faceStart]]);
+                triangles.add(remappedIndices[faceVertexIndices[faceStart + i]]);
+                triangles.add(remappedIndices[faceVertexIndices[faceStart + i + 1]]);
+            }
+            faceStart = faceEnd;
+        }
+        float[] meshVertices = new float[vertexCount * 3];
+        for (int i = 0; i < remappedIndices.length; i++) {
+            int index = remappedIndices[i];
+            if (index != -1) {
+                System.arraycopy(vertices, i * 3, meshVertices, index * 3, 3);
+            }
+        }
+        return new ModelMesh(meshVertices, edges.toIntArray(), triangles.toIntArray());
+    }
+
+    /** Gets the number of vertices of the mesh
+     *
+     * @return The number of vertices
+     */
+    public int getVertexCount() {
+        return this.vertices.length / 3;
+    }
+
+    /** Gets the number of unique edges of the mesh
+     *
+     * @return The number of edges
+     */
+    public int getEdgeCount() {
+        return this.edges.length / 2;
+    }
+
+    /** Gets the number of triangles of the mesh
+     *
+     * @return The number of triangles
+     */
+    public int getTriangleCount() {
+        return this.triangles.length / 3;
+    }
+
+    /** Gets the total area of the triangles of the mesh
+     *
+     * @return The surface area
+     */
+    public float getSurfaceArea() {
+        double area = 0;
+        for (int t = 0; t < this.triangles.length; t += 3) {
+            area += this.triangleArea(t);
+        }
+        return (float) area;
+    }
+
+    /** Picks {@code count} points spread uniformly over the surface of the mesh, so that every triangle receives
+     * samples in proportion to its area.  The same seed always picks the same points.
+     *
+     * @param count The number of points to pick
+     * @param seed The seed of the random number generator
+     * @return The flat array of sampled point coordinates, empty if the mesh has no area
+     */
+    public float[] sampleSurface(int count, long seed) {
+        double[] cumulativeAreas = this.cumulativeAreas();
+        if (count <= 0 || cumulativeAreas.length == 0 || cumulativeAreas[cumulativeAreas.length - 1] <= 0) {
+            return new float[0];
+        }
+        float[] points = new float[count * 3];
+        Random random = new Random(seed);
+        for (int i = 0; i < count; i++) {
+            this.samplePoint(cumulativeAreas, random, points, i * 3);
+        }
+        return points;
+    }
+
+    /** Picks up to {@code count} points over the surface of the mesh, like {@link #sampleSurface(int, long)},
+     * while keeping the points apart from one another (Poisson-disk or blue-noise sampling).  This avoids the clumps
+     * and gaps of uniform sampling, at the cost of generating and testing several candidates per point.
+     * <br><br>
+     * Candidates are accepted in random order when no accepted point lies within the current minimum distance.  The
+     * distance starts from an estimate based on the surface area and shrinks until enough points are accepted.
+     *
+     * @param count The number of points to pick
+     * @param seed The seed of the random number generator
+     * @return The flat array of sampled point coordinates, empty if the mesh has no area
+     */
+    public float[] samplePoissonDisk(int count, long seed) {
+        float[] candidates = this.sampleSurface(count * POISSON_DISK_CANDIDATES, seed);
+        int candidateCount = candidates.length / 3;
+        if (candidateCount == 0) {
+            return candidates;
+        }
+        double area = this.getSurfaceArea();
+        double radius = Math.sqrt(DISK_PACKING_DENSITY * 4 * area / (Math.PI * count));
+        boolean[] accepted = new boolean[candidateCount];
+        int acceptedCount = 0;
+        while (acceptedCount < count && radius > 1e-6) {
+            float cellSize = (float) radius;
+            Long2ObjectOpenHashMap<IntArrayList> grid = new Long2ObjectOpenHashMap<>();
+            for (int i = 0; i < candidateCount; i++) {
+                if (accepted[i]) {
+                    grid.computeIfAbsent(cell(candidates, i, cellSize), key -> new IntArrayList()).add(i);
+                }
+            }
+            for (int i = 0; i < candidateCount && acceptedCount < count; i++) {
+                if (!accepted[i] && !hasNeighbour(grid, candidates, i, cellSize, radius)) {
+                    accepted[i] = true;
+                    acceptedCount++;
+                    grid.computeIfAbsent(cell(candidates, i, cellSize), key -> new IntArrayList()).add(i);
+                }
+            }
+            radius *= 0.8;
+        }
+        float[] points = new float[acceptedCount * 3];
+        int p = 0;
+        for (int i = 0; i < candidateCount; i++) {
+            if (accepted[i]) {
+                System.arraycopy(candidates, i * 3, points, p, 3);
+                p += 3;
+            }
+        }
+        return points;
+    }
+
+    private double[] cumulativeAreas() {
+        double[] cumulativeAreas = new double[this.triangles.length / 3];
+        double total = 0;
+        for (int t = 0; t < this.triangles.length; t += 3) {
+            total += this.triangleArea(t);
+            cumulativeAreas[t / 3] = total;
+        }
+        return cumulativeAreas;
+    }
+
+    private double triangleArea(int t) {
+        int a = this.triangles[t] * 3;
+        int b = this.triangles[t + 1] * 3;
+        int c = this.triangles[t + 2] * 3;
+        double abX = this.vertices[b] - this.vertices[a];
+        double abY = this.vertices[b + 1] - this.vertices[a + 1];
+        double abZ = this.vertices[b + 2] - this.vertices[a + 2];
+        double acX = this.vertices[c] - this.vertices[a];
+        double acY = this.vertices[c + 1] - this.vertices[a + 1];
+        double acZ = this.vertices[c + 2] - this.vertices[a + 2];
+        double crossX = abY * acZ - abZ * acY;
+        double crossY = abZ * acX - abX * acZ;
+        double crossZ = abX * acY - abY * acX;
+        return 0.5 * Math.sqrt(crossX * crossX + crossY * crossY + crossZ * crossZ);
+    }
+
+    private void samplePoint(double[] cumulativeAreas, Random random, float[] points, int offset) {
+        double target = random.nextDouble() * cumulativeAreas[cumulativeAreas.length - 1];
+        int triangle = Arrays.binarySearch(cumulativeAreas, target);
+        if (triangle < 0) {
+            triangle = -triangle - 1;
+        }
+        triangle = Math.min(triangle, cumulativeAreas.length - 1);
+        // Uniform barycentric coordinates, the square root keeps the density even across the triangle
+        double r1 = Math.sqrt(random.nextDouble());
+        double r2 = random.nextDouble();
+        double weightA = 1 - r1;
+        double weightB = r1 * (1 - r2);
+        double weightC = r1 * r2;
+        int a = this.triangles[triangle * 3] * 3;
+        int b = this.triangles[triangle * 3 + 1] * 3;
+        int c = this.triangles[triangle * 3 + 2] * 3;
+        for (int axis = 0; axis < 3; axis++) {
+            points[offset + axis] = (float) (weightA * this.vertices[a + axis] + weightB * this.vertices[b + axis]
+                                             + weightC * this.vertices[c + axis]);
+        }
+    }
+
+    private static long cell(float[] points, int index, float cellSize) {
+        return cellKey((int) Math.floor(points[index * 3] / cellSize),
+                       (int) Math.floor(points[index * 3 + 1] / cellSize),
+                       (int) Math.floor(points[index * 3 + 2] / cellSize));
+    }
+
+    private static long cellKey(int x, int y, int z) {
+        return ((long) (x & 0x1FFFFF) << 42) | ((long) (y & 0x1FFFFF) << 21) | (z & 0x1FFFFF);
+    }
+
+    private static boolean hasNeighbour(
+            Long2ObjectOpenHashMap<IntArrayList> grid, float[] points, int index, float cellSize, double radius
+    ) {
+        float x = points[index * 3];
+        float y = points[index * 3 + 1];
+        float z = points[index * 3 + 2];
+        int cellX = (int) Math.floor(x / cellSize);
+        int cellY = (int) Math.floor(y / cellSize);
+        int cellZ = (int) Math.floor(z / cellSize);
+        double radiusSquared = radius * radius;
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dy = -1; dy <= 1; dy++) {
+                for (int dz = -1; dz <= 1; dz++) {
+                    IntArrayList neighbours = grid.get(cellKey(cellX + dx, cellY + dy, cellZ + dz));
+                    if (neighbours == null) {
+                        continue;
+                    }
+                    for (int n = 0; n < neighbours.size(); n++) {
+                        int other = neighbours.getInt(n) * 3;
+                        double distX = points[other] - x;
+                        double distY = points[other + 1] - y;
+                        double distZ = points[other + 2] - z;
+                        if (distX * distX + distY * distY + distZ * distZ < radiusSquared) {
+                            return true;
+                        }
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /** Builds a simplified version of this mesh with at most {@code targetTriangleCount} triangles, using quadric
+     * edge collapse: every vertex accumulates the planes of its triangles, and the edge whose collapse moves the
+     * merged vertex the least away from those planes is collapsed first.  The merged vertex is placed at whichever
+     * of the two ends or the middle of the edge is closest to the planes.  Collapses that would fold a triangle over
+     * are skipped.
+     * <br><br>
+     * The edges of the simplified mesh are the edges of its triangles.  Simplification may stop above the target
+     * when no edges are left to collapse.
+     *
+     * @param targetTriangleCount The number of triangles to reduce the mesh to
+     * @return The simplified mesh, or this mesh if it already has few enough triangles
+     */
+    public ModelMesh simplify(int targetTriangleCount) {
+        int triangleCount = this.getTriangleCount();
+        if (triangleCount <= targetTriangleCount) {
+            return this;
+        }
+        int vertexCount = this.getVertexCount();
+        double[] positions = new double[this.vertices.length];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = this.vertices[i];
+        }
+        int[] corners = this.triangles.clone();
+        double[] quadrics = this.computeQuadrics();
+
+        IntArrayList[] vertexTriangles = new IntArrayList[vertexCount];
+        for (int v = 0; v < vertexCount; v++) {
+            vertexTriangles[v] = new IntArrayList();
+        }
+        for (int t = 0; t < corners.length; t++) {
+            vertexTriangles[corners[t]].add(t / 3);
+        }
+        boolean[] removed = new boolean[triangleCount];
+        int[] versions = new int[vertexCount];
+
+        PriorityQueue<Collapse> queue = new PriorityQueue<>();
+        LongOpenHashSet seenEdges = new LongOpenHashSet();
+        for (int t = 0; t < corners.length; t += 3) {
+            for (int i = 0; i < 3; i++) {
+                int a = corners[t + i];
+                int b = corners[t + (i + 1) % 3];
+                if (a != b && seenEdges.add(((long) Math.min(a, b) << 32) | Math.max(a, b))) {
+                    queue.add(Collapse.of(a, b, positions, quadrics, versions));
+                }
+            }
+        }
+
+        int liveTriangles = triangleCount;
+        IntArrayList neighbours = new IntArrayList();
+        while (liveTriangles > targetTriangleCount && !queue.isEmpty()) {
+            Collapse collapse = queue.poll();
+            int kept = collapse.kept;
+            int merged = collapse.merged;
+            if (versions[kept] != collapse.keptVersion || versions[merged] != collapse.mergedVersion) {
+                // One of the vertices has moved or been merged since this collapse was evaluated
+                continue;
+            }
+            if (flipsTriangles(collapse, vertexTriangles[kept], corners, removed, positions)
+                    || flipsTriangles(collapse, vertexTriangles[merged], corners, removed, positions)) {
+                continue;
+            }
+            positions[kept * 3] = collapse.x;
+            positions[kept * 3 + 1] = collapse.y;
+            positions[kept * 3 + 2] = collapse.z;
+            for (int q = 0; q < 10; q++) {
+                quadrics[kept * 10 + q] += quadrics[merged * 10 + q];
+            }
+            versions[kept]++;
+            versions[merged] = -1;
+
+            IntArrayList mergedTriangles = vertexTriangles[merged];
+            for (int i = 0; i < mergedTriangles.size(); i++) {
+                int t = mergedTriangles.getInt(i);
+                if (removed[t]) {
+                    continue;
+                }
+                int base = t * 3;
+                for (int c = 0; c < 3; c++) {
+                    if (corners[base + c] == merged) {
+                        corners[base + c] = kept;
+                    }
+                }
+                if (corners[base] == corners[base + 1] || corners[base + 1] == corners[base + 2]
+                        || corners[base] == corners[base + 2]) {
+                    removed[t] = true;
+                    liveTriangles--;
+                } else {
+                    vertexTriangles[kept].add(t);
+                }
+            }
+            vertexTriangles[merged] = null;
+
+            // Re-evaluate every edge around the moved vertex
+            neighbours.clear();
+            IntArrayList keptTriangles = vertexTriangles[kept];
+            for (int i = 0; i < keptTriangles.size(); i++) {
+                int t = keptTriangles.getInt(i);
+                if (removed[t]) {
+                    continue;
+                }
+                for (int c = 0; c < 3; c++) {
+                    int neighbour = corners[t * 3 + c];
+                    if (neighbour != kept && !neighbours.contains(neighbour)) {
+                        neighbours.add(neighbour);
+                    }
+                }
+            }
+            for (int i = 0; i < neighbours.size(); i++) {
+                queue.add(Collapse.of(kept, neighbours.getInt(i), positions, quadrics, versions));
+            }
+        }
+
+        float[] simplifiedVertices = new float[positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            simplifiedVertices[i] = (float) positions[i];
+        }
+        IntArrayList faceVertexIndices = new IntArrayList(liveTriangles * 3);
+        IntArrayList faceEnds = new IntArrayList(liveTriangles);
+        for (int t = 0; t < triangleCount; t++) {
+            if (!removed[t]) {
+                faceVertexIndices.add(corners[t * 3]);
+                faceVertexIndices.add(corners[t * 3 + 1]);
+                faceVertexIndices.add(corners[t * 3 + 2]);
+                faceEnds.add(faceVertexIndices.size());
+            }
+        }
+        return fromFaces(simplifiedVertices, faceVertexIndices.toIntArray(), faceEnds.toIntArray());
+    }
+
+    /** Checks whether moving the ends of a collapsing edge would turn any of the surviving triangles around them */
+    private static boolean flipsTriangles(
+            Collapse collapse, IntArrayList vertexTriangles, int[] corners, boolean[] removed, double[] positions
+    ) {
+        double[] before = new double[3];
+        double[] after = new double[3];
+        for (int i = 0; i < vertexTriangles.size(); i++) {
+            int t = vertexTriangles.getInt(i);
+            if (removed[t]) {
+                continue;
+            }
+            int base = t * 3;
+            boolean hasKept = false;
+            boolean hasMerged = false;
+            for (int c = 0; c < 3; c++) {
+                hasKept |= corners[base + c] == collapse.kept;
+                hasMerged |= corners[base + c] == collapse.merged;
+            }
+            if (hasKept && hasMerged) {
+                // The triangle disappears with the edge
+                continue;
+            }
+            cornerCross(corners, base, positions, null, before);
+            cornerCross(corners, base, positions, collapse, after);
+            if (before[0] * after[0] + before[1] * after[1] + before[2] * after[2] <= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Computes the (unnormalized) normal of a triangle, with the ends of the collapse moved if given */
+    private static void cornerCross(int[] corners, int base, double[] positions, Collapse collapse, double[] cross) {
+        double[] corner = new double[9];
+        for (int c = 0; c < 3; c++) {
+            int vertex = corners[base + c];
+            if (collapse != null && (vertex == collapse.kept || vertex == collapse.merged)) {
+                corner[c * 3] = collapse.x;
+                corner[c * 3 + 1] = collapse.y;
+                corner[c * 3 + 2] = collapse.z;
+            } else {
+                System.arraycopy(positions, vertex * 3, corner, c * 3, 3);
+            }
+        }
+        double abX = corner[3] - corner[0];
+        double abY = corner[4] - corner[1];
+        double abZ = corner[5] - corner[2];
+        double acX = corner[6] - corner[0];
+        double acY = corner[7] - corner[1];
+        double acZ = corner[8] - corner[2];
+        cross[0] = abY * acZ - abZ * acY;
+        cross[1] = abZ * acX - abX * acZ;
+        cross[2] = abX * acY - abY * acX;
+    }
+
+    /** Sums, for every vertex, the area-weighted planes of its triangles, and the planes standing on the edges of
+     * open borders.  Each quadric is stored as the 10 unique entries of a symmetric 4x4 matrix.
+     */
+    private double[] computeQuadrics() {
+        double[] quadrics = new double[this.getVertexCount() * 10];
+        LongOpenHashSet seenOnce = new LongOpenHashSet();
+        LongOpenHashSet seenTwice = new LongOpenHashSet();
+        for (int t = 0; t < this.triangles.length; t += 3) {
+            for (int i = 0; i < 3; i++) {
+                int a = this.triangles[t + i];
+                int b = this.triangles[t + (i + 1) % 3];
+                long key = ((long) Math.min(a, b) << 32) | Math.max(a, b);
+                if (!seenOnce.add(key)) {
+                    seenTwice.add(key);
+                }
+            }
+        }
+        double[] normal = new double[3];
+        for (int t = 0; t < this.triangles.length; t += 3) {
+            int a = this.triangles[t];
+            double area = this.triangleNormal(t, normal);
+            if (area == 0) {
+                continue;
+            }
+            double d = -(normal[0] * this.vertices[a * 3] + normal[1] * this.vertices[a * 3 + 1]
+                         + normal[2] * this.vertices[a * 3 + 2]);
+            for (int i = 0; i < 3; i++) {
+                addPlane(quadrics, this.triangles[t + i], normal[0], normal[1], normal[2], d, area);
+            }
+            for (int i = 0; i < 3; i++) {
+                int start = this.triangles[t + i];
+                int end = this.triangles[t + (i + 1) % 3];
+                if (seenTwice.contains(((long) Math.min(start, end) << 32) | Math.max(start, end))) {
+                    continue;
+                }
+                // A plane through the border edge, perpendicular to the triangle
+                double edgeX = this.vertices[end * 3] - this.vertices[start * 3];
+                double edgeY = this.vertices[end * 3 + 1] - this.vertices[start * 3 + 1];
+                double edgeZ = this.vertices[end * 3 + 2] - this.vertices[start * 3 + 2];
+                double borderX = edgeY * normal[2] - edgeZ * normal[1];
+                double borderY = edgeZ * normal[0] - edgeX * normal[2];
+                double borderZ = edgeX * normal[1] - edgeY * normal[0];
+                double length = Math.sqrt(borderX * borderX + borderY * borderY + borderZ * borderZ);
+                if (length == 0) {
+                    continue;
+                }
+                borderX /= length;
+                borderY /= length;
+                borderZ /= length;
+                double borderD = -(borderX * this.vertices[start * 3] + borderY * this.vertices[start * 3 + 1]
+                                   + borderZ * this.vertices[start * 3 + 2]);
+                double weight = BORDER_WEIGHT * length * length;
+                addPlane(quadrics, start, borderX, borderY, borderZ, borderD, weight);
+                addPlane(quadrics, end, borderX, borderY, borderZ, borderD, weight);
+            }
+        }
+        return quadrics;
+    }
+
+    /** Computes the unit normal of a triangle and returns its area */
+    private double triangleNormal(int t, double[] normal) {
+        int a = this.triangles[t] * 3;
+        int b = this.triangles[t + 1] * 3;
+        int c = this.triangles[t + 2] * 3;
+        double abX = this.vertices[b] - this.vertices[a];
+        double abY = this.vertices[b + 1] - this.vertices[a + 1];
+        double abZ = this.vertices[b + 2] - this.vertices[a + 2];
+        double acX = this.vertices[c] - this.vertices[a];
+        double acY = this.vertices[c + 1] - this.vertices[a + 1];
+        double acZ = this.vertices[c + 2] - this.vertices[a + 2];
+        normal[0] = abY * acZ - abZ * acY;
+        normal[1] = abZ * acX - abX * acZ;
+        normal[2] = abX * acY - abY * acX;
+        double length = Math.sqrt(normal[0] * normal[0] + normal[1] * normal[1] + normal[2] * normal[2]);
+        if (length == 0) {
+            return 0;
+        }
+        normal[0] /= length;
+        normal[1] /= length;
+        normal[2] /= length;
+        return 0.5 * length;
+    }
+
+    private static void addPlane(double[] quadrics, int vertex, double a, double b, double c, double d, double weight) {
+        int q = vertex * 10;
+        quadrics[q] += weight * a * a;
+        quadrics[q + 1] += weight * a * b;
+        quadrics[q + 2] += weight * a * c;
+        quadrics[q + 3] += weight * a * d;
+        quadrics[q + 4] += weight * b * b;
+        quadrics[q + 5] += weight * b * c;
+        quadrics[q + 6] += weight * b * d;
+        quadrics[q + 7] += weight * c * c;
+        quadrics[q + 8] += weight * c * d;
+        quadrics[q + 9] += weight * d * d;
+    }
+
+    /** A candidate edge collapse, ordered by the error it introduces */
+    private record Collapse(
+            double cost, int kept, int merged, int keptVersion, int mergedVersion, double x, double y, double z
+    ) implements Comparable<Collapse> {
+        static Collapse of(int kept, int merged, double[] positions, double[] quadrics, int[] versions) {
+            double[] sum = new double[10];
+            for (int q = 0; q < 10; q++) {
+                sum[q] = quadrics[kept * 10 + q] + quadrics[merged * 10 + q];
+            }
+            double bestCost = Double.MAX_VALUE;
+            double bestX = 0;
+            double bestY = 0;
+            double bestZ = 0;
+            // Try the kept end, the merged end and the middle of the edge
+            for (int candidate = 0; candidate < 3; candidate++) {
+                double keptWeight = candidate == 0 ? 1 : candidate == 1 ? 0 : 0.5;
+                double x = positions[kept * 3] * keptWeight + positions[merged * 3] * (1 - keptWeight);
+                double y = positions[kept * 3 + 1] * keptWeight + positions[merged * 3 + 1] * (1 - keptWeight);
+                double z = positions[kept * 3 + 2] * keptWeight + positions[merged * 3 + 2] * (1 - keptWeight);
+                double cost = sum[0] * x * x + 2 * sum[1] * x * y + 2 * sum[2] * x * z + 2 * sum[3] * x
+                              + sum[4] * y * y + 2 * sum[5] * y * z + 2 * sum[6] * y
+                              + sum[7] * z * z + 2 * sum[8] * z + sum[9];
+                if (cost < bestCost) {
+                    bestCost = cost;
+                    bestX = x;
+                    bestY = y;
+                    bestZ = z;
+                }
+            }
+            return new Collapse(bestCost, kept, merged, versions[kept], versions[merged], bestX, bestY, bestZ);
+        }
+
+        @Override
+        public int compareTo(Collapse other) {
+            return Double.compare(this.cost, other.cost);
+        }
+    }
+
+    /** Estimates the memory used by the mesh, in bytes
+     *
+     * @return The estimated size of the mesh
+     */
+    public int estimateSizeBytes() {
+        // Object headers and array lengths, then the array contents
+        return 64 + this.vertices.length * Float.BYTES + (this.edges.length + this.triangles.length) * Integer.BYTES;
+    }
+
+    /** Gets the vertices of the mesh, scaled on each axis.  The returned array is flat, in the same layout as
+     * the mesh's own vertices, and belongs to the caller.
+     *
+     * @param scale The scale per axis
+     * @return A new array of scaled vertices
+     */
+    public float[] getScaledVertices(Vector3f scale) {
+        float[] scaled = new float[this.vertices.length];
+        for (int i = 0; i < scaled.length; i += 3) {
+            scaled[i] = this.vertices[i] * scale.x;
+            scaled[i + 1] = this.vertices[i + 1] * scale.y;
+            scaled[i + 2] = this.vertices[i + 2] * scale.z;
+        }
+        return scaled;
+    }
+
+    /** Gets the edges of the mesh as consecutive pairs of vertex indices.  The returned array is shared and must
+     * not be modified.
+     *
+     * @return The edges of the mesh
+     */
+    public int[] getEdges() {
+        return this.edges;
+    }
+}
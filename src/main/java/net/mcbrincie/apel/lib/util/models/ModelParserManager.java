@@ -1,50 +1,78 @@
 package net.mcbrincie.apel.lib.util.models;
 
 import com.google.common.io.Files;
-import org.joml.Vector2f;
-import org.joml.Vector3f;
+import it.unimi.dsi.fastutil.floats.FloatArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 
 import java.io.File;
-import java.util.ArrayList;
-import java.util.List;
 
+/** Holds the geometry of a parsed 3D model in flat primitive lists, so that large models do not need an object per
+ * vertex or per face.  Coordinates are stored as consecutive {@code x, y, z} triples ({@code u, v} pairs for texture
+ * coordinates), and every index is zero-based.
+ * <br><br>
+ * Faces are stored back-to-back in {@link #faceVertexIndices}, face {@code i} spans from {@code faceEnds[i - 1]}
+ * (or 0 for the first face) up to, but excluding, {@code faceEnds[i]}.  The texture and normal indices run parallel
+ * to the vertex indices, with {@code -1} where a face element has none.  Polylines are stored the same way.
+ */
 public class ModelParserManager {
-    public List<Vector3f> vertices = new ArrayList<>();
-    public List<Vector2f> textureVertices = new ArrayList<>();
-    public List<Vector3f> normalVertices = new ArrayList<>();
-    public List<List<Vector3f>> drawableLines = new ArrayList<>();
-    public List<FaceToken> drawableFaces = new ArrayList<>();
+    public final FloatArrayList vertices = new FloatArrayList();
+    public final FloatArrayList textureVertices = new FloatArrayList();
+    public final FloatArrayList normalVertices = new FloatArrayList();
+
+    public final IntArrayList faceVertexIndices = new IntArrayList();
+    public final IntArrayList faceTextureIndices = new IntArrayList();
+    public final IntArrayList faceNormalIndices = new IntArrayList();
+    public final IntArrayList faceEnds = new IntArrayList();
+
+    public final IntArrayList lineVertexIndices = new IntArrayList();
+    public final IntArrayList lineEnds = new IntArrayList();
 
     private static final ObjParser objParser = new ObjParser();
     private static final GltfParser gltfParser = new GltfParser();
     private static final FbxParser fbxParser = new FbxParser();
 
-    public static class FaceToken {
-        public Vector3f[] vertices;
-        public Vector2f[] textureVertices;
-        public Vector3f[] normalVertices;
-
-        public FaceToken(
-                Vector3f[] vertex_tokens,
-                Vector2f[] texture_vertex_tokens,
-                Vector3f[] normal_vertex_tokens
-        ) {
-            this.vertices = vertex_tokens;
-            this.textureVertices = texture_vertex_tokens;
-            this.normalVertices = normal_vertex_tokens;
-        }
-    }
-
-    public void parseFile(File file) {
+    /** Parses a model file into this manager, picking the parser by the extension of the file
+     *
+     * @param file The model file
+     * @return Whether the whole file was read, false if reading it failed part way and only some of it was parsed
+     * @throws UnsupportedOperationException if the format of the file cannot be read
+     */
+    public boolean parseFile(File file) {
         if (!file.isFile()) {
             throw new IllegalArgumentException("The supplied file object is not a file");
         }
         String extension = Files.getFileExtension(file.getPath());
-        switch (extension) {
+        return switch (extension) {
             case "obj" -> objParser.parseObjFile(this, file);
-            case "gltf" -> gltfParser.parseGltfFile(this, file);
+            case "gltf", "glb" -> gltfParser.parseGltfFile(this, file);
             case "fbx" -> fbxParser.parseFbxFile(this, file);
             default -> throw new UnsupportedOperationException("The parser doesn't support this 3D model file");
-        }
+        };
+    }
+
+    /** Gets the number of vertices parsed so far
+     *
+     * @return The number of vertices
+     */
+    public int getVertexCount() {
+        return this.vertices.size() / 3;
+    }
+
+    /** Gets the number of faces parsed so far
+     *
+     * @return The number of faces
+     */
+    public int getFaceCount() {
+        return this.faceEnds.size();
+    }
+
+    /** Builds the wireframe mesh of the faces parsed so far
+     *
+     * @return The new mesh
+     */
+    public ModelMesh toMesh() {
+        return ModelMesh.fromFaces(
+                this.vertices.toFloatArray(), this.faceVertexIndices.toIntArray(), this.faceEnds.toIntArray()
+        );
     }
 }
@@ -1,110 +1,320 @@
 package net.mcbrincie.apel.lib.util.models;
 
+import it.unimi.dsi.fastutil.floats.FloatArrayList;
 import net.mcbrincie.apel.Apel;
-import org.joml.Vector2f;
-import org.joml.Vector3f;
 
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Scanner;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 
+/** Parses Wavefront OBJ files into a {@link ModelParserManager}.  The file is streamed through a fixed-size buffer
+ * and every number is parsed directly from its bytes, so memory use does not grow with the size of the file beyond
+ * the parsed geometry itself, which lands straight in the manager's primitive lists.
+ * <br><br>
+ * Supported statements are {@code v}, {@code vt}, {@code vn}, {@code f} and {@code l}, in any of the
+ * {@code v}, {@code v/vt}, {@code v//vn} and {@code v/vt/vn} element forms, including negative (relative) indices.
+ * Every other statement is skipped.  The parser holds no state between files, so one instance may be shared.
+ */
 public class ObjParser {
-    public void readLine(ModelParserManager manager, String line) {
-        line = line.replace("#.*", "");
-        line = line.replace("o.*", "");
-        if (line.isBlank()) return;
-        int first_space_index = line.indexOf(" ");
-        String token = line.substring(0, first_space_index);
-        line = line.substring(first_space_index + 1);
-        switch (token) {
-            case "v" -> parseVertexToken(manager, line);
-            case "vn" -> parseVertexNormalToken(manager, line);
-            case "vt" -> parseVertexTextureToken(manager, line);
-            case "f" -> parseFaceToken(manager, line);
-            case "l" -> parsePolyLineToken(manager, line);
-            case "mtllib" -> parseMTLFileDependency(line);
+    private static final int BUFFER_SIZE = 1 << 16;
+    // Numbers are assumed to be shorter than this, so their bytes stay in the buffer until fully read
+    private static final int MAX_NUMBER_LENGTH = 256;
+    private static final int MAX_MANTISSA_DIGITS = 18;
+    private static final double[] POWERS_OF_TEN = new double[23];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
         }
     }
 
-    public void parseVertexToken(ModelParserManager manager, String metadata) {
-        String[] coords = metadata.split(" ");
-        manager.vertices.add(new Vector3f(
-                Float.parseFloat(coords[0]),
-                Float.parseFloat(coords[1]),
-                Float.parseFloat(coords[2])
-        ));
+    /** Parses an OBJ file into the manager.  A file that cannot be read is logged, and leaves whatever was parsed
+     * before the error in the manager.
+     *
+     * @param manager The manager to parse into
+     * @param model_file The OBJ file
+     * @return Whether the whole file was read
+     */
+    public boolean parseObjFile(ModelParserManager manager, File model_file) {
+        try (FileChannel channel = FileChannel.open(model_file.toPath(), StandardOpenOption.READ)) {
+            new Reader(manager, channel).parse();
+            return true;
+        } catch (IOException e) {
+            Apel.LOGGER.error("Object Model File Could Not Be Read");
+            e.printStackTrace();
+            return false;
+        }
     }
 
-    public void parsePolyLineToken(ModelParserManager manager, String metadata) {
-        String[] verticesString = metadata.split(" ");
-        List<Vector3f> listOfVertices = new ArrayList<>();
-        for (String stringVertex : verticesString) {
-            Vector3f vertex = manager.vertices.get(Integer.parseInt(stringVertex) - 1);
-            listOfVertices.add(vertex);
+    /** The state of parsing a single file */
+    private static final class Reader {
+        private final ModelParserManager manager;
+        private final ReadableByteChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        private final byte[] bytes = this.buffer.array();
+        private int position = 0;
+        private int limit = 0;
+        private int lineNumber = 1;
+
+        private Reader(ModelParserManager manager, ReadableByteChannel channel) {
+            this.manager = manager;
+            this.channel = channel;
         }
-        manager.drawableLines.add(listOfVertices);
-    }
 
-    public void parseVertexNormalToken(ModelParserManager manager, String metadata) {
-        String[] coords = metadata.split(" ");
-        manager.normalVertices.add(new Vector3f(
-                Float.parseFloat(coords[0]),
-                Float.parseFloat(coords[1]),
-                Float.parseFloat(coords[2])
-        ));
-    }
+        private void parse() throws IOException {
+            int c;
+            while ((c = this.skipBlanks()) != -1) {
+                if (c == '\n') {
+                    this.next();
+                    this.lineNumber++;
+                    continue;
+                }
+                this.next();
+                int second = this.peek();
+                if (c == 'v' && isBlank(second)) {
+                    this.readFloats(this.manager.vertices, 3);
+                } else if (c == 'v' && second == 't') {
+                    this.next();
+                    this.readFloats(this.manager.textureVertices, 2);
+                } else if (c == 'v' && second == 'n') {
+                    this.next();
+                    this.readFloats(this.manager.normalVertices, 3);
+                } else if (c == 'f' && isBlank(second)) {
+                    this.readFace();
+                } else if (c == 'l' && isBlank(second)) {
+                    this.readPolyLine();
+                }
+                // Comments, object names, groups, materials, and anything unsupported
+                this.skipLine();
+            }
+        }
 
-    public void parseVertexTextureToken(ModelParserManager manager, String metadata) {
-        String[] coords = metadata.split(" ");
-        manager.textureVertices.add(new Vector2f(
-                Float.parseFloat(coords[0]),
-                Float.parseFloat(coords[1])
-        ));
-    }
+        private void readFloats(FloatArrayList target, int count) throws IOException {
+            for (int i = 0; i < count; i++) {
+                this.skipBlanks();
+                target.add(this.readFloat());
+            }
+        }
 
-    public void parseFaceToken(ModelParserManager manager, String metadata) {
-        String[] elements = metadata.split(" ");
-        List<Vector3f> verticesPair = new ArrayList<>();
-        List<Vector3f> normalVerticesPair = new ArrayList<>();
-        List<Vector2f> textureVerticesPair = new ArrayList<>();
-        for (String element : elements) {
-            boolean usingDoubleSlashes = element.contains("//");
-            String[] data = element.split("(/|//)");
-            int pair_normal_vertex_index = usingDoubleSlashes ? 1 : 2;
-            if (!usingDoubleSlashes) {
-                int textureVertexIndex = Integer.parseInt(data[1]);
-                textureVerticesPair.add(manager.textureVertices.get(textureVertexIndex - 1));
-            }
-            int vertexIndex = Integer.parseInt(data[0]);
-            int vertexNormalIndex = Integer.parseInt(data[pair_normal_vertex_index]);
-            verticesPair.add(manager.vertices.get(vertexIndex - 1));
-            normalVerticesPair.add(manager.normalVertices.get(vertexNormalIndex));
-        }
-        manager.drawableFaces.add(new ModelParserManager.FaceToken(
-                verticesPair.toArray(Vector3f[]::new),
-                textureVerticesPair.toArray(Vector2f[]::new),
-                normalVerticesPair.toArray(Vector3f[]::new)
-        ));
-    }
+        private void readFace() throws IOException {
+            ModelParserManager manager = this.manager;
+            int vertexCount = manager.getVertexCount();
+            int textureCount = manager.textureVertices.size() / 2;
+            int normalCount = manager.normalVertices.size() / 3;
+            int elements = 0;
+            while (this.skipBlanks() != -1 && this.peek() != '\n') {
+                manager.faceVertexIndices.add(this.readIndex(vertexCount));
+                int textureIndex = -1;
+                int normalIndex = -1;
+                if (this.peek() == '/') {
+                    this.next();
+                    if (this.peek() != '/') {
+                        textureIndex = this.readIndex(textureCount);
+                    }
+                    if (this.peek() == '/') {
+                        this.next();
+                        normalIndex = this.readIndex(normalCount);
+                    }
+                }
+                manager.faceTextureIndices.add(textureIndex);
+                manager.faceNormalIndices.add(normalIndex);
+                elements++;
+            }
+            if (elements < 3) {
+                throw this.error("A face needs at least 3 vertices");
+            }
+            manager.faceEnds.add(manager.faceVertexIndices.size());
+        }
 
-    public void parseObjFile(ModelParserManager manager, File model_file) {
-        manager.normalVertices.add(new Vector3f());
-        try {
-            Scanner myReader = new Scanner(model_file);
-            while (myReader.hasNextLine()) {
-                String data = myReader.nextLine();
-                this.readLine(manager, data);
-            }
-            myReader.close();
-        } catch (FileNotFoundException e) {
-            Apel.LOGGER.error("Object Model File Has Not Been Found");
-            e.printStackTrace();
+        private void readPolyLine() throws IOException {
+            int vertexCount = this.manager.getVertexCount();
+            while (this.skipBlanks() != -1 && this.peek() != '\n') {
+                this.manager.lineVertexIndices.add(this.readIndex(vertexCount));
+                // Texture coordinates of polylines are not used
+                while (this.peek() == '/' || isDigit(this.peek()) || this.peek() == '-') {
+                    this.next();
+                }
+            }
+            this.manager.lineEnds.add(this.manager.lineVertexIndices.size());
+        }
+
+        /** Reads a one-based (or negative, relative to the end) index and returns it zero-based */
+        private int readIndex(int count) throws IOException {
+            boolean negative = this.peek() == '-';
+            if (negative) {
+                this.next();
+            }
+            if (!isDigit(this.peek())) {
+                throw this.error("Expected an index");
+            }
+            int value = 0;
+            while (isDigit(this.peek())) {
+                value = value * 10 + (this.next() - '0');
+            }
+            int index = negative ? count - value : value - 1;
+            if (value == 0 || index < 0 || index >= count) {
+                throw this.error("Index " + (negative ? -value : value) + " is out of range");
+            }
+            return index;
         }
-    }
 
-    public void parseMTLFileDependency(String line) {
-        // Work In Progress
+        private float readFloat() throws IOException {
+            int start = this.position;
+            if (this.limit - start < MAX_NUMBER_LENGTH) {
+                this.compact();
+                start = this.position;
+            }
+            boolean negative = false;
+            int c = this.peek();
+            if (c == '-' || c == '+') {
+                negative = c == '-';
+                this.next();
+            }
+            long mantissa = 0;
+            int digits = 0;
+            int exponent = 0;
+            boolean anyDigit = false;
+            while (isDigit(c = this.peek())) {
+                anyDigit = true;
+                if (digits < MAX_MANTISSA_DIGITS) {
+                    mantissa = mantissa * 10 + (c - '0');
+                    if (mantissa != 0) {
+                        digits++;
+                    }
+                } else {
+                    exponent++;
+                }
+                this.next();
+            }
+            if (c == '.') {
+                this.next();
+                while (isDigit(c = this.peek())) {
+                    anyDigit = true;
+                    if (digits < MAX_MANTISSA_DIGITS) {
+                        mantissa = mantissa * 10 + (c - '0');
+                        exponent--;
+                        if (mantissa != 0) {
+                            digits++;
+                        }
+                    }
+                    this.next();
+                }
+            }
+            if (anyDigit && (c == 'e' || c == 'E')) {
+                this.next();
+                boolean negativeExponent = false;
+                c = this.peek();
+                if (c == '-' || c == '+') {
+                    negativeExponent = c == '-';
+                    this.next();
+                }
+                int explicitExponent = 0;
+                while (isDigit(c = this.peek())) {
+                    explicitExponent = Math.min(explicitExponent * 10 + (c - '0'), 1000);
+                    this.next();
+                }
+                exponent += negativeExponent ? -explicitExponent : explicitExponent;
+            }
+            if (!anyDigit || !isBlank(c)) {
+                // Rare forms such as "nan", "inf", or hexadecimal floats
+                return this.readFloatSlowly(start);
+            }
+            double value;
+            if (mantissa == 0) {
+                value = 0;
+            } else if (exponent >= 0 && exponent < POWERS_OF_TEN.length) {
+                value = mantissa * POWERS_OF_TEN[exponent];
+            } else if (exponent < 0 && -exponent < POWERS_OF_TEN.length) {
+                value = mantissa / POWERS_OF_TEN[-exponent];
+            } else {
+                value = mantissa * Math.pow(10, exponent);
+            }
+            return (float) (negative ? -value : value);
+        }
+
+        private float readFloatSlowly(int start) throws IOException {
+            while (!isBlank(this.peek())) {
+                this.next();
+            }
+            if (this.position < start) {
+                throw this.error("Number is too long");
+            }
+            String token = new String(this.bytes, start, this.position - start, StandardCharsets.US_ASCII);
+            try {
+                return Float.parseFloat(token);
+            } catch (NumberFormatException e) {
+                throw this.error("Expected a number, found '" + token + "'");
+            }
+        }
+
+        /** Skips spaces, tabs and carriage returns, then returns the next byte without consuming it */
+        private int skipBlanks() throws IOException {
+            int c;
+            while ((c = this.peek()) == ' ' || c == '\t' || c == '\r') {
+                this.next();
+            }
+            return c;
+        }
+
+        private void skipLine() throws IOException {
+            int c;
+            while ((c = this.peek()) != -1 && c != '\n') {
+                this.next();
+            }
+        }
+
+        private int peek() throws IOException {
+            if (this.position == this.limit && !this.fill()) {
+                return -1;
+            }
+            return this.bytes[this.position];
+        }
+
+        private int next() throws IOException {
+            int c = this.peek();
+            this.position++;
+            return c;
+        }
+
+        /** Moves the unread bytes to the front of the buffer, so a whole token can be read without refilling */
+        private void compact() throws IOException {
+            int remaining = this.limit - this.position;
+            System.arraycopy(this.bytes, this.position, this.bytes, 0, remaining);
+            this.position = 0;
+            this.limit = remaining;
+            this.readMore();
+        }
+
+        private boolean fill() throws IOException {
+            this.position = 0;
+            this.limit = 0;
+            return this.readMore();
+        }
+
+        private boolean readMore() throws IOException {
+            this.buffer.limit(this.bytes.length).position(this.limit);
+            int read = this.channel.read(this.buffer);
+            if (read > 0) {
+                this.limit += read;
+            }
+            return this.limit > this.position;
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException("Malformed OBJ file at line " + this.lineNumber + ": " + message);
+        }
+
+        private static boolean isDigit(int c) {
+            return c >= '0' && c <= '9';
+        }
+
+        private static boolean isBlank(int c) {
+            return c == ' ' || c == '\t' || c == '\r' || c == '\n' || c == -1;
+        }
     }
-}
\ No newline at end of file
+}
@@ -1,47 +1,99 @@
 package net.mcbrincie.apel.lib.util.scheduler;
 
 import net.mcbrincie.apel.lib.animators.PathAnimatorBase;
-import net.mcbrincie.apel.lib.exceptions.SeqDuplicateException;
 import net.mcbrincie.apel.lib.exceptions.SeqMissingException;
+import net.minecraft.server.world.ServerWorld;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /** The Scheduler. The scheduler runs on the world server ticks and handles
  *  delaying multiple functions requested by a path animator object by creating
  *  sequences for each object. It also does some security checks to verify
+ *  <br><br>
+ *  Every {@link ServerWorld} owns exactly one scheduler, which is ticked once per tick of that world.
+ *  Animations are registered against the scheduler of the world their renderer draws in, use
+ *  {@link #forWorld(ServerWorld)} to retrieve it
+ *  <br><br>
+ *  <b>Ownership:</b> Sequences and steps may be allocated from any thread (path animators commonly allocate from
+ *  the draw executor). Allocations never touch the sequences directly, they are pushed onto a lock-free
+ *  multi-producer queue. The thread calling {@link #runTick()} (the world's tick thread) is the single consumer,
+ *  it drains the queue at the start of every tick and is the only thread that reads or modifies the sequences
  */
 @SuppressWarnings("unused")
 public class ApelScheduler {
-    private final List<ScheduledSequence> scheduledTasks = new ArrayList<>();
-    private final List<PathAnimatorBase> animators = new ArrayList<>();
+    // Written by any thread, drained only by the ticking thread
+    private final Queue<Request> pendingRequests = new ConcurrentLinkedQueue<>();
+    // The number of live or pending sequences per animator, used for validating allocations from any thread
+    private final Map<PathAnimatorBase, Integer> registrations = new ConcurrentHashMap<>();
+    // Owned by the ticking thread, insertion ordered so sequences tick in allocation order
+    private final Map<PathAnimatorBase, ScheduledSequence> sequences = new LinkedHashMap<>();
 
-    private final ExecutorService SchedulerThread = Executors.newSingleThreadExecutor();
+    /** A sequence allocation being opened or closed, or a step allocation waiting to be handed to its sequence */
+    private record Request(
+            PathAnimatorBase animator, SequenceAllocation allocation, ScheduledStep step, boolean close
+    ) {}
+
+    /** Gets the scheduler that belongs to the supplied world. The scheduler is created alongside
+     *  the world and is ticked at the start of every tick of that world only
+     *
+     * @param world The server world the animation renders in
+     * @return The scheduler of that world
+     */
+    public static ApelScheduler forWorld(ServerWorld world) {
+        return ((ApelSchedulerHolder) world).apel$getScheduler();
+    }
 
     /** Allocates a new sequence chunk to be used in the scheduler. It accepts the animator object
-     *  as a parameter. It is crucial to allocate first if you don't have any chunk. The method
-     *  throws a {@link  SeqDuplicateException} if it finds that the animator has allocated more
-     *  than one sequence chunk
+     *  as a parameter. It is crucial to allocate first if you don't have any chunk. If the animator
+     *  still has a sequence chunk that hasn't finished, the steps are appended to that chunk instead. The chunk
+     *  does not finish while the returned allocation is open, so steps allocated through it are never rejected,
+     *  which is why the allocation must be closed once its steps are allocated. This method is safe to call from
+     *  any thread
      *
+     * @param object The animator the sequence belongs to
+     * @return The allocation to allocate the steps through, and to close afterward
      */
-    public void allocateNewSequence(PathAnimatorBase object) throws SeqDuplicateException {
-        this.scheduledTasks.add(new ScheduledSequence());
-        this.animators.add(object);
+    public SequenceAllocation allocateNewSequence(PathAnimatorBase object) {
+        SequenceAllocation allocation = new SequenceAllocation(this, object);
+        this.registrations.merge(object, 1, Integer::sum);
+        this.pendingRequests.add(new Request(object, allocation, null, false));
+        return allocation;
+    }
+
+    /** Allocates a new delayed step in the sequence of the given allocation. The allocated step gets deleted once
+     * it is executed. This method is safe to call from any thread
+     *
+     * @param allocation The open allocation of the sequence
+     * @param step The step
+     * @throws IllegalArgumentException if the allocation was made by another scheduler
+     * @throws IllegalStateException if the allocation is closed
+     */
+    public void allocateNewStep(SequenceAllocation allocation, ScheduledStep step) {
+        if (allocation.getScheduler() != this) {
+            throw new IllegalArgumentException("The sequence allocation belongs to another scheduler");
+        }
+        if (allocation.isClosed()) {
+            throw new IllegalStateException("Steps cannot be allocated through a closed sequence allocation");
+        }
+        this.pendingRequests.add(new Request(allocation.getAnimator(), allocation, step, false));
     }
 
     /** Allocates a new delayed step. It accepts the animator object and the scheduled step.
      * If the method finds that the object hasn't allocated a sequence chunk, then it throws
-     * a {@link SeqMissingException}. The allocated step gets deleted once it is executed
+     * a {@link SeqMissingException}. The allocated step gets deleted once it is executed.
+     * Unlike {@link #allocateNewStep(SequenceAllocation, ScheduledStep)}, the step does not keep the chunk
+     * from finishing before it is handed over. This method is safe to call from any thread
      */
     public void allocateNewStep(PathAnimatorBase object, ScheduledStep step) throws SeqMissingException {
-        int index = this.animators.indexOf(object);
-        if (index == -1) {
+        if (!this.registrations.containsKey(object)) {
             throw new SeqMissingException("No sequence chunk is found belonging to this path animator");
         }
-        this.scheduledTasks.get(index).allocateStep(step);
+        this.pendingRequests.add(new Request(object, null, step, false));
     }
 
     /** Returns whenever the scheduler has any work to do
@@ -49,26 +101,62 @@ public class ApelScheduler {
      * @return a boolean that indicates if the scheduler has work to do
      */
     public boolean isProcessing() {
-        return !this.scheduledTasks.isEmpty();
+        return !this.registrations.isEmpty() || !this.pendingRequests.isEmpty();
     }
 
+    /** Advances every sequence by one tick. This must only ever be called by a single thread, the world's tick
+     *  thread, since that thread owns the sequences
+     */
     public void runTick() {
-        // Use `size()` so each iteration of the loop checks the current size of the list
-        for (int index = 0; index < this.scheduledTasks.size(); index++) {
-            ScheduledSequence sequence = this.scheduledTasks.get(index);
-            if (sequence.isEmpty()) {
+        this.drainPendingAllocations();
+        Iterator<Map.Entry<PathAnimatorBase, ScheduledSequence>> iterator = this.sequences.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<PathAnimatorBase, ScheduledSequence> entry = iterator.next();
+            ScheduledSequence sequence = entry.getValue();
+            sequence.tick();
+            if (sequence.isFinished()) {
+                iterator.remove();
+                this.release(entry.getKey(), sequence.getRegistrations());
+            }
+        }
+    }
+
+    /** Closes an allocation, called by {@link SequenceAllocation#close()} */
+    void release(SequenceAllocation allocation) {
+        this.pendingRequests.add(new Request(allocation.getAnimator(), allocation, null, true));
+    }
+
+    private void drainPendingAllocations() {
+        Request request;
+        while ((request = this.pendingRequests.poll()) != null) {
+            ScheduledSequence sequence = this.sequences.get(request.animator());
+            if (request.close()) {
+                // An open allocation keeps its sequence from finishing, so the sequence is still there
+                sequence.close(request.allocation());
                 continue;
             }
-            Future<?> future = this.SchedulerThread.submit(sequence::tick);
-            if (sequence.isFinished()) {
-                this.deallocateSequence(index);
-                index--;
+            if (request.step() == null) {
+                if (sequence == null) {
+                    // The registration made by allocateNewSequence now belongs to this sequence
+                    this.sequences.put(request.animator(), new ScheduledSequence(request.allocation()));
+                } else {
+                    // Merged into the unfinished sequence, which now holds this registration as well, and keeps it
+                    // until the allocation is closed and its steps have been drained
+                    sequence.merge(request.allocation());
+                }
+                continue;
+            }
+            if (sequence == null) {
+                // The sequence finished while this step was in flight, revive it rather than lose the step
+                sequence = new ScheduledSequence();
+                this.sequences.put(request.animator(), sequence);
+                this.registrations.merge(request.animator(), 1, Integer::sum);
             }
+            sequence.allocateStep(request.step());
         }
     }
 
-    private void deallocateSequence(int index) {
-        this.scheduledTasks.remove(index);
-        this.animators.remove(index);
+    private void release(PathAnimatorBase animator, int released) {
+        this.registrations.computeIfPresent(animator, (key, count) -> count <= released ? null : count - released);
     }
 }
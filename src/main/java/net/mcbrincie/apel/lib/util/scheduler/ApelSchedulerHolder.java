@@ -0,0 +1,13 @@
+package net.mcbrincie.apel.lib.util.scheduler;
+
+import net.minecraft.server.world.ServerWorld;
+
+/** Implemented on {@link ServerWorld} through a mixin so that every world owns its own {@link ApelScheduler}.
+ * The world's scheduler is ticked once at the start of every world tick, so animations delays are measured in
+ * ticks of the world they are rendered in regardless of how many dimensions are loaded
+ *
+ * @see ApelScheduler#forWorld(ServerWorld)
+ */
+public interface ApelSchedulerHolder {
+    ApelScheduler apel$getScheduler();
+}
@@ -1,27 +1,72 @@
 package net.mcbrincie.apel.lib.util.scheduler;
 
-import java.util.LinkedList;
+import java.util.ArrayDeque;
+import java.util.HashSet;
 import java.util.Queue;
+import java.util.Set;
 
+/** A queue of delayed steps belonging to one path animator. Each step's delay starts counting once the
+ *  previous step has executed. Sequences are owned by the thread ticking their {@link ApelScheduler},
+ *  other threads hand steps over through the scheduler instead of touching the sequence
+ */
 public class ScheduledSequence {
     private final Queue<ScheduledStep> scheduledSteps;
-    private boolean hasAllocatedOnce = false;
+    // The sequence allocations held by this sequence that have not been closed yet
+    private final Set<SequenceAllocation> openAllocations = new HashSet<>();
+    // The number of sequence allocations held by this sequence, each holding a registration of its animator
+    private int registrations = 1;
 
     public ScheduledSequence() {
-        this.scheduledSteps = new LinkedList<>();
+        this.scheduledSteps = new ArrayDeque<>();
+    }
+
+    /** Creates a sequence for the given sequence allocation, which is not finished before that allocation is closed
+     *
+     * @param allocation The allocation of the sequence
+     */
+    public ScheduledSequence(SequenceAllocation allocation) {
+        this();
+        this.openAllocations.add(allocation);
     }
 
     public void allocateStep(ScheduledStep step) {
-        this.hasAllocatedOnce = true;
         this.scheduledSteps.add(step);
     }
 
+    /** Merges another sequence allocation of the same animator into this one.  The sequence then holds that
+     *  allocation's registration too, and is not finished until the allocation is closed and its steps have
+     *  executed, so the animator stays registered while the allocation's own steps are drained
+     *
+     * @param allocation The merged allocation
+     */
+    public void merge(SequenceAllocation allocation) {
+        this.registrations++;
+        this.openAllocations.add(allocation);
+    }
+
+    /** Closes one of the allocations held by this sequence, which may finish once no allocation is open and every
+     *  step has executed
+     *
+     * @param allocation The closed allocation
+     */
+    public void close(SequenceAllocation allocation) {
+        this.openAllocations.remove(allocation);
+    }
+
+    /** Gets the number of sequence allocations this sequence holds, to be released once it is finished
+     *
+     * @return The number of registrations held
+     */
+    public int getRegistrations() {
+        return this.registrations;
+    }
+
     public boolean isEmpty() {
         return this.scheduledSteps.isEmpty();
     }
 
     public boolean isFinished() {
-        return isEmpty() && this.hasAllocatedOnce;
+        return isEmpty() && this.openAllocations.isEmpty();
     }
 
     public boolean tick() {
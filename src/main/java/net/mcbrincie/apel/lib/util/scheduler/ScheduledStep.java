@@ -2,23 +2,47 @@ package net.mcbrincie.apel.lib.util.scheduler;
 
 import net.mcbrincie.apel.Apel;
 
+import java.util.function.BooleanSupplier;
+
 public class ScheduledStep {
     private final Runnable[] actions;
+    private final BooleanSupplier canBeSeen;
+    private final boolean waitUntilSeen;
     private int delay;
 
     public ScheduledStep(Integer delay, Runnable[] actions) {
+        this(delay, actions, () -> true, false);
+    }
+
+    /** Creates a step that is only executed if somebody can see it once its delay is over.  Checking happens on the
+     * thread ticking the scheduler, so the check may read the world safely
+     *
+     * @param delay The number of ticks before the step is executed
+     * @param actions The actions of the step, submitted to the draw executor
+     * @param canBeSeen Whether anybody can see the step right now
+     * @param waitUntilSeen Whether an unseen step waits for somebody to come close, holding back the rest of its
+     *                      sequence, instead of being skipped
+     */
+    public ScheduledStep(Integer delay, Runnable[] actions, BooleanSupplier canBeSeen, boolean waitUntilSeen) {
         this.delay = delay;
         this.actions = actions;
+        this.canBeSeen = canBeSeen;
+        this.waitUntilSeen = waitUntilSeen;
     }
 
     public boolean tick() {
         this.delay--;
-        if (this.delay == 0) {
-            for (Runnable action : this.actions) {
-                Apel.DRAW_EXECUTOR.submit(action);
-            }
-            return true;
+        // A non-positive delay executes on the first tick instead of never
+        if (this.delay > 0) {
+            return false;
+        }
+        if (!this.canBeSeen.getAsBoolean()) {
+            // Skipped steps are done, waiting steps are checked again next tick
+            return !this.waitUntilSeen;
+        }
+        for (Runnable action : this.actions) {
+            Apel.DRAW_EXECUTOR.submit(action);
         }
-        return false;
+        return true;
     }
 }
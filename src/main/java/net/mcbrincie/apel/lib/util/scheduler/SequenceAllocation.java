@@ -0,0 +1,63 @@
+package net.mcbrincie.apel.lib.util.scheduler;
+
+import net.mcbrincie.apel.lib.animators.PathAnimatorBase;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/** A sequence allocation made by {@link ApelScheduler#allocateNewSequence(PathAnimatorBase)}.  Steps are allocated
+ *  through it, and the sequence it belongs to is not finished while it is open, so steps allocated through it are
+ *  never rejected.  It must be closed once all of its steps have been allocated, even if there were none or the
+ *  allocating code failed, otherwise its animator stays registered with the scheduler
+ *  <br><br>
+ *  Allocations are independent of the thread that made them, they may be handed to and closed by another thread
+ */
+public final class SequenceAllocation implements AutoCloseable {
+    private final ApelScheduler scheduler;
+    private final PathAnimatorBase animator;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    SequenceAllocation(ApelScheduler scheduler, PathAnimatorBase animator) {
+        this.scheduler = scheduler;
+        this.animator = animator;
+    }
+
+    /** Gets the animator the allocation was made for
+     *
+     * @return The animator
+     */
+    public PathAnimatorBase getAnimator() {
+        return this.animator;
+    }
+
+    /** Allocates a new delayed step in the sequence of this allocation, see
+     *  {@link ApelScheduler#allocateNewStep(SequenceAllocation, ScheduledStep)}
+     *
+     * @param step The step
+     * @throws IllegalStateException if the allocation is closed
+     */
+    public void allocateStep(ScheduledStep step) {
+        this.scheduler.allocateNewStep(this, step);
+    }
+
+    /** Gets whether the allocation is closed, after which no more steps can be allocated through it
+     *
+     * @return true if the allocation is closed
+     */
+    public boolean isClosed() {
+        return this.closed.get();
+    }
+
+    /** Closes the allocation, so its sequence may finish once the steps allocated through it have executed.  Closing
+     *  an allocation again does nothing
+     */
+    @Override
+    public void close() {
+        if (this.closed.compareAndSet(false, true)) {
+            this.scheduler.release(this);
+        }
+    }
+
+    ApelScheduler getScheduler() {
+        return this.scheduler;
+    }
+}
@@ -0,0 +1,155 @@
+package net.mcbrincie.apel.lib.util.text;
+
+import it.unimi.dsi.fastutil.floats.FloatArrayList;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+
+import java.awt.Font;
+import java.awt.FontFormatException;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** Rasterizes the glyphs of a font into particle positions, once per glyph.  Every glyph is drawn into a small
+ * monochrome image the first time it is requested, and its set pixels are kept as points for every later request,
+ * so laying out text never rasterizes anything the cache has seen before.
+ * <br><br>
+ * The points of a glyph are relative to its origin on the baseline, with {@code x} growing to the right,
+ * {@code y} growing upwards, {@code z} always 0, and one pixel of the font every {@code pixelSize}.  Caches are
+ * shared per font and pixel size, see {@link #of(Font, float)}, and are safe to use from several threads.
+ *
+ * @see TextPoints
+ */
+public final class GlyphCache {
+    private static final Map<Key, GlyphCache> CACHES = new ConcurrentHashMap<>();
+    // Antialiasing would blur the edges into grey pixels, which have no particle equivalent
+    private static final FontRenderContext RENDER_CONTEXT = new FontRenderContext(null, false, true);
+
+    private final Font font;
+    private final float pixelSize;
+    private final float lineHeight;
+    private final Int2ObjectOpenHashMap<Glyph> glyphs = new Int2ObjectOpenHashMap<>();
+
+    /** The rasterized points of one glyph, and the distance the next glyph starts after it.  The points are shared
+     * and must not be modified.
+     *
+     * @param points The flat array of point coordinates
+     * @param advance The horizontal advance of the glyph
+     */
+    public record Glyph(float[] points, float advance) {
+        public int size() {
+            return this.points.length / 3;
+        }
+    }
+
+    private record Key(Font font, float pixelSize) {}
+
+    private GlyphCache(Font font, float pixelSize) {
+        this.font = font;
+        this.pixelSize = pixelSize;
+        this.lineHeight = font.getLineMetrics("", RENDER_CONTEXT).getHeight() * pixelSize;
+    }
+
+    /** Gets the shared cache of a font.  The size of the font is its height in pixels, and {@code pixelSize} is the
+     * distance between neighbouring pixels, so the drawn text is about {@code font.getSize() * pixelSize} tall.
+     *
+     * @param font The font to rasterize
+     * @param pixelSize The distance between neighbouring pixels
+     * @return The cache of the font
+     */
+    public static GlyphCache of(Font font, float pixelSize) {
+        if (pixelSize <= 0) {
+            throw new IllegalArgumentException("Pixel size must be positive");
+        }
+        return CACHES.computeIfAbsent(new Key(font, pixelSize), key -> new GlyphCache(key.font, key.pixelSize));
+    }
+
+    /** Loads a TrueType or OpenType font file, such as one bundled with a mod, at the given size.
+     *
+     * @param file The font file
+     * @param size The height of the font in pixels
+     * @return The loaded font
+     * @throws IOException If the file cannot be read or is not a supported font
+     */
+    public static Font loadFont(File file, float size) throws IOException {
+        try {
+            return Font.createFont(Font.TRUETYPE_FONT, file).deriveFont(size);
+        } catch (FontFormatException e) {
+            throw new IOException("The supplied file is not a supported font", e);
+        }
+    }
+
+    public Font getFont() {
+        return this.font;
+    }
+
+    public float getPixelSize() {
+        return this.pixelSize;
+    }
+
+    /** Gets the distance between the baselines of two consecutive lines
+     *
+     * @return The line height
+     */
+    public float getLineHeight() {
+        return this.lineHeight;
+    }
+
+    /** Gets the glyph of a character, rasterizing it if it was never requested before.  Characters the font cannot
+     * display get the glyph the font uses for missing characters.
+     *
+     * @param codePoint The character
+     * @return The glyph
+     */
+    public synchronized Glyph getGlyph(int codePoint) {
+        Glyph glyph = this.glyphs.get(codePoint);
+        if (glyph == null) {
+            glyph = this.rasterize(codePoint);
+            this.glyphs.put(codePoint, glyph);
+        }
+        return glyph;
+    }
+
+    /** Gets the number of glyphs rasterized so far
+     *
+     * @return The number of cached glyphs
+     */
+    public synchronized int size() {
+        return this.glyphs.size();
+    }
+
+    private Glyph rasterize(int codePoint) {
+        GlyphVector vector = this.font.createGlyphVector(RENDER_CONTEXT, Character.toString(codePoint));
+        float advance = vector.getGlyphMetrics(0).getAdvanceX() * this.pixelSize;
+        Rectangle bounds = vector.getPixelBounds(RENDER_CONTEXT, 0, 0);
+        if (bounds.isEmpty()) {
+            return new Glyph(new float[0], advance);
+        }
+        BufferedImage image = new BufferedImage(bounds.width, bounds.height, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+        graphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_OFF);
+        graphics.drawGlyphVector(vector, -bounds.x, -bounds.y);
+        graphics.dispose();
+
+        byte[] pixels = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+        FloatArrayList points = new FloatArrayList();
+        for (int y = 0; y < bounds.height; y++) {
+            for (int x = 0; x < bounds.width; x++) {
+                if ((pixels[y * bounds.width + x] & 0xFF) >= 128) {
+                    points.add((bounds.x + x) * this.pixelSize);
+                    points.add(-(bounds.y + y) * this.pixelSize);
+                    points.add(0);
+                }
+            }
+        }
+        return new Glyph(points.toFloatArray(), advance);
+    }
+}
@@ -0,0 +1,145 @@
+package net.mcbrincie.apel.lib.util.text;
+
+import java.util.Arrays;
+
+/** The particle positions of a line (or lines) of text, laid out by concatenating the cached points of its glyphs.
+ * The text starts at the origin, on the baseline of the first line, and every {@code '\n'} starts a new line one
+ * {@link GlyphCache#getLineHeight() line height} lower.  Kerning is not applied.
+ * <br><br>
+ * Changing the text only lays out the glyphs from the first character that changed onwards; the points of the
+ * unchanged beginning are kept as they are.  This makes counters, timers and scoreboards that change every tick
+ * cheap, since usually only their last few characters differ.  Instances are not thread-safe.
+ */
+public final class TextPoints {
+    private final GlyphCache glyphs;
+    private String text = "";
+    private int[] codePoints = new int[0];
+    // Per character: the index of its first point and the pen position it was drawn at
+    private int[] glyphStarts = new int[16];
+    private float[] penX = new float[16];
+    private float[] penY = new float[16];
+    private float endPenX;
+    private float endPenY;
+    private float[] points = new float[256];
+    private int size;
+    private float width;
+
+    public TextPoints(GlyphCache glyphs) {
+        this.glyphs = glyphs;
+    }
+
+    /** Copies the layout of another text, sharing its glyph cache
+     *
+     * @param textPoints The layout to copy
+     */
+    public TextPoints(TextPoints textPoints) {
+        this.glyphs = textPoints.glyphs;
+        this.text = textPoints.text;
+        this.codePoints = textPoints.codePoints;
+        this.glyphStarts = textPoints.glyphStarts.clone();
+        this.penX = textPoints.penX.clone();
+        this.penY = textPoints.penY.clone();
+        this.endPenX = textPoints.endPenX;
+        this.endPenY = textPoints.endPenY;
+        this.points = textPoints.points.clone();
+        this.size = textPoints.size;
+        this.width = textPoints.width;
+    }
+
+    /** Sets the text and lays out the characters that changed.  Points before the returned index are unchanged,
+     * and every point from it up to {@link #size()} was rewritten.
+     *
+     * @param text The new text
+     * @return The index of the first point that changed, {@link #size()} if the text did not change
+     */
+    public int setText(String text) {
+        int[] newCodePoints = text.codePoints().toArray();
+        int first = Arrays.mismatch(this.codePoints, newCodePoints);
+        if (first == -1) {
+            return this.size;
+        }
+        int oldLength = this.codePoints.length;
+        float x = first < oldLength ? this.penX[first] : this.endPenX;
+        float y = first < oldLength ? this.penY[first] : this.endPenY;
+        int changedFrom = first < oldLength ? this.glyphStarts[first] : this.size;
+
+        if (newCodePoints.length > this.glyphStarts.length) {
+            int capacity = Math.max(newCodePoints.length, this.glyphStarts.length * 2);
+            this.glyphStarts = Arrays.copyOf(this.glyphStarts, capacity);
+            this.penX = Arrays.copyOf(this.penX, capacity);
+            this.penY = Arrays.copyOf(this.penY, capacity);
+        }
+        int next = changedFrom;
+        for (int i = first; i < newCodePoints.length; i++) {
+            this.glyphStarts[i] = next;
+            this.penX[i] = x;
+            this.penY[i] = y;
+            if (newCodePoints[i] == '\n') {
+                x = 0;
+                y -= this.glyphs.getLineHeight();
+                continue;
+            }
+            GlyphCache.Glyph glyph = this.glyphs.getGlyph(newCodePoints[i]);
+            float[] glyphPoints = glyph.points();
+            int needed = next * 3 + glyphPoints.length;
+            if (needed > this.points.length) {
+                this.points = Arrays.copyOf(this.points, Math.max(this.points.length * 2, needed));
+            }
+            for (int p = 0; p < glyphPoints.length; p += 3) {
+                this.points[next * 3 + p] = glyphPoints[p] + x;
+                this.points[next * 3 + p + 1] = glyphPoints[p + 1] + y;
+                this.points[next * 3 + p + 2] = 0;
+            }
+            next += glyph.size();
+            x += glyph.advance();
+        }
+        this.text = text;
+        this.codePoints = newCodePoints;
+        this.endPenX = x;
+        this.endPenY = y;
+        this.size = next;
+
+        // The widest line ends either at a line break or at the end of the text
+        float widest = this.endPenX;
+        for (int i = 0; i < newCodePoints.length; i++) {
+            if (newCodePoints[i] == '\n') {
+                widest = Math.max(widest, this.penX[i]);
+            }
+        }
+        this.width = widest;
+        return Math.min(changedFrom, next);
+    }
+
+    public String getText() {
+        return this.text;
+    }
+
+    public GlyphCache getGlyphCache() {
+        return this.glyphs;
+    }
+
+    /** Gets the number of points of the text
+     *
+     * @return The number of points
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /** Gets the width of the widest line, from its start to the advance of its last character
+     *
+     * @return The width of the text
+     */
+    public float getWidth() {
+        return this.width;
+    }
+
+    /** Gets the positions of the points of the text.  The array is shared, is reused when the text changes, may be
+     * longer than needed, and must not be modified.  Only the first {@link #size()} points are valid.
+     *
+     * @return The flat array of point coordinates
+     */
+    public float[] getPoints() {
+        return this.points;
+    }
+}
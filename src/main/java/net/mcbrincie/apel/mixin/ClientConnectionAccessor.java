@@ -0,0 +1,12 @@
+package net.mcbrincie.apel.mixin;
+
+import io.netty.channel.Channel;
+import net.minecraft.network.ClientConnection;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.gen.Accessor;
+
+@Mixin(ClientConnection.class)
+public interface ClientConnectionAccessor {
+	@Accessor("channel")
+	Channel apel$getChannel();
+}
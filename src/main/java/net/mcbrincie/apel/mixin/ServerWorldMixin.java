@@ -1,17 +1,26 @@
 package net.mcbrincie.apel.mixin;
 
-import net.mcbrincie.apel.Apel;
+import net.mcbrincie.apel.lib.util.scheduler.ApelScheduler;
+import net.mcbrincie.apel.lib.util.scheduler.ApelSchedulerHolder;
 import net.minecraft.server.world.ServerWorld;
 import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Unique;
 import org.spongepowered.asm.mixin.injection.At;
 import org.spongepowered.asm.mixin.injection.Inject;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
 
 @Mixin(ServerWorld.class)
-public abstract class ServerWorldMixin {
+public abstract class ServerWorldMixin implements ApelSchedulerHolder {
+	@Unique
+	private final ApelScheduler apel$scheduler = new ApelScheduler();
 
 	@Inject(at = @At("HEAD"), method = "tick")
 	private void tickInject(CallbackInfo info) {
-		Apel.SCHEDULER.runTick();
+		this.apel$scheduler.runTick();
 	}
-}
\ No newline at end of file
+
+	@Override
+	public ApelScheduler apel$getScheduler() {
+		return this.apel$scheduler;
+	}
+}
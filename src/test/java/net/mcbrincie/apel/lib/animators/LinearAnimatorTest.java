@@ -1,12 +1,15 @@
 package net.mcbrincie.apel.lib.animators;
 
 import net.mcbrincie.apel.lib.objects.ParticlePoint;
+import net.mcbrincie.apel.lib.renderers.ApelRenderer;
+import net.mcbrincie.apel.lib.renderers.BufferedApelRenderer;
 import org.joml.Vector3f;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.List;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.*;
 
 class LinearAnimatorTest {
     // null particle to avoid needing to load Minecraft
@@ -42,4 +45,63 @@ class LinearAnimatorTest {
         // (9 to -9) * 2 == 36
         assertEquals(726, steps);
     }
-}
\ No newline at end of file
+
+    @Test
+    void testRecordTracks_positionsRelativeToTheFirstStep() {
+        // Given a LinearAnimator of four steps, two ticks apart
+        LinearAnimator linearAnimator = LinearAnimator.builder().delay(2)
+                .endpoints(List.of(new Vector3f(1, 2, 3), new Vector3f(5, 2, 3)))
+                .particleObject(POINT_WITH_NULL_PARTICLE).stepsForAllSegments(4).build();
+
+        // When its steps are recorded for the client
+        List<PathAnimatorBase.ClientTrack> tracks = new ArrayList<>();
+        linearAnimator.recordTracks(new BufferedApelRenderer(null), 0, tracks);
+
+        // Then there is one track, starting at the first endpoint, with every step relative to it
+        assertTrue(linearAnimator.canRunOnClient());
+        assertEquals(1, tracks.size());
+        PathAnimatorBase.ClientTrack track = tracks.getFirst();
+        assertEquals(new Vector3f(1, 2, 3), track.origin());
+        assertArrayEquals(new float[]{0, 0, 0, 1, 0, 0, 2, 0, 0, 3, 0, 0}, track.positions());
+        // And the object was drawn once, at the first endpoint
+        assertTrue(track.template().getInstructions().contains(new ApelRenderer.Particle(new Vector3f(1, 2, 3))));
+        // And the steps are timed like the scheduler would run them
+        ApelRenderer.Track instruction = new ApelRenderer.Track(
+                track.startTick(), track.delay(), track.stepsPerTick(), track.positions());
+        assertEquals(2, instruction.tickOf(0));
+        assertEquals(8, instruction.tickOf(3));
+    }
+
+    @Test
+    void testRecordTracks_parallelChildrenStartAfterTheirDelays() {
+        // Given two LinearAnimators played in parallel, the second one 5 ticks later
+        LinearAnimator first = LinearAnimator.builder().delay(1)
+                .endpoints(List.of(new Vector3f(0, 0, 0), new Vector3f(2, 0, 0)))
+                .particleObject(POINT_WITH_NULL_PARTICLE).stepsForAllSegments(2).build();
+        LinearAnimator second = new LinearAnimator(first);
+        ParallelAnimator parallelAnimator = ParallelAnimator.builder().delay(1)
+                .animator(first).animator(second, 5).build();
+
+        // When its steps are recorded for the client
+        List<PathAnimatorBase.ClientTrack> tracks = new ArrayList<>();
+        parallelAnimator.recordTracks(new BufferedApelRenderer(null), 0, tracks);
+
+        // Then each child has its track, starting after the delay of the parallel animator and its own
+        assertTrue(parallelAnimator.canRunOnClient());
+        assertEquals(2, tracks.size());
+        assertEquals(1, tracks.get(0).startTick());
+        assertEquals(6, tracks.get(1).startTick());
+    }
+
+    @Test
+    void testCanRunOnClient_notWithInterceptors() {
+        // Given a LinearAnimator with an interceptor
+        LinearAnimator linearAnimator = LinearAnimator.builder().delay(1)
+                .endpoints(List.of(new Vector3f(0, 0, 0), new Vector3f(1, 0, 0)))
+                .particleObject(POINT_WITH_NULL_PARTICLE).stepsForAllSegments(1).build();
+        linearAnimator.setDuringRenderingSteps((data, animator) -> {});
+
+        // When it is checked, Then it depends on the server
+        assertFalse(linearAnimator.canRunOnClient());
+    }
+}
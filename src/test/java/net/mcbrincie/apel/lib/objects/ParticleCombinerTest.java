@@ -1,9 +1,17 @@
 package net.mcbrincie.apel.lib.objects;
 
+import net.mcbrincie.apel.lib.renderers.ApelRenderer;
+import net.mcbrincie.apel.lib.renderers.ApelServerRenderer;
+import net.mcbrincie.apel.lib.renderers.BufferedApelRenderer;
+import net.mcbrincie.apel.lib.renderers.PointCloud;
+import net.mcbrincie.apel.lib.util.interceptor.DrawContext;
+import net.mcbrincie.apel.lib.util.math.ParticleVelocity;
 import org.joml.Vector3f;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -115,6 +123,164 @@ class ParticleCombinerTest {
         assertVector3fEquals(new Vector3f(0.3f, 0.5f, 0.7f), combiner.getObject(2).getRotation());
     }
 
+    @Test
+    void parallelDrawingMatchesSequentialDrawing() {
+        // Given a nested hierarchy of points with distinct offsets, drawn sequentially at every level
+        List<ParticleObject<?>> points = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            points.add(ParticlePoint.builder().particleEffect(null).offset(new Vector3f(i, 0, 0)).build());
+        }
+        ParticleCombiner nested = ParticleCombiner.builder().objects(points).build();
+        ParticleCombiner sequential = ParticleCombiner.builder().objects(points).object(nested).build();
+        // Given the same hierarchy drawn in parallel at every level, sharing the points between the levels
+        ParticleCombiner parallelNested = ParticleCombiner.builder().objects(points).parallelDrawing(true).build();
+        ParticleCombiner parallel = ParticleCombiner.builder()
+                                                 .objects(points)
+                                                 .object(parallelNested)
+                                                 .parallelDrawing(true)
+                                                 .build();
+
+        // When both are drawn into buffers
+        BufferedApelRenderer sequentialBuffer = new BufferedApelRenderer(null);
+        sequential.doDraw(sequentialBuffer, 0, new Vector3f(1, 2, 3));
+        BufferedApelRenderer parallelBuffer = new BufferedApelRenderer(null);
+        parallel.doDraw(parallelBuffer, 0, new Vector3f(1, 2, 3));
+
+        // Then the recorded instructions are identical, in the same order
+        assertEquals(sequentialBuffer.getInstructions(), parallelBuffer.getInstructions());
+    }
+
+    @Test
+    void objectsAreOnlyDrawnByOneThreadAtATime() {
+        // Given a point that is drawn ten times in one frame, and records how many threads draw it at once
+        AtomicInteger drawing = new AtomicInteger();
+        AtomicInteger mostDrawing = new AtomicInteger();
+        ParticlePoint point = new ParticlePoint(NULL_POINT_BUILDER.build()) {
+            @Override
+            public void draw(ApelServerRenderer renderer, DrawContext drawContext) {
+                mostDrawing.accumulateAndGet(drawing.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.draw(renderer, drawContext);
+                drawing.decrementAndGet();
+            }
+        };
+        ParticleCombiner.Builder<?> builder = ParticleCombiner.builder().parallelDrawing(true);
+        for (int i = 0; i < 5; i++) {
+            builder.object(point).object(ParticleCombiner.builder().object(point).build());
+        }
+        ParticleCombiner combiner = builder.build();
+
+        // When it is drawn in parallel
+        BufferedApelRenderer buffer = new BufferedApelRenderer(null);
+        combiner.doDraw(buffer, 0, new Vector3f());
+
+        // Then the point was drawn every time, but never by two threads at once
+        assertEquals(10, buffer.getInstructions().stream().filter(ApelRenderer.Particle.class::isInstance).count());
+        assertEquals(1, mostDrawing.get());
+    }
+
+    @Test
+    void nestedObjectsKeepTheVelocityOfTheOuterCombiner() {
+        // Given a combiner with a velocity, around a combiner without one whose first point has its own velocity
+        ParticleVelocity outward = ParticleVelocity.radial(0.5f);
+        ParticleVelocity upward = ParticleVelocity.linear(new Vector3f(0, 1, 0));
+        ParticlePoint rising = ParticlePoint.builder().particleEffect(null).velocity(upward).build();
+        ParticlePoint following = ParticlePoint.builder().particleEffect(null).build();
+        ParticleCombiner inner = ParticleCombiner.builder().object(rising).object(following).build();
+        ParticleCombiner outer = ParticleCombiner.builder().object(inner).velocity(outward).build();
+
+        // When it is drawn
+        BufferedApelRenderer buffer = new BufferedApelRenderer(null);
+        Vector3f center = new Vector3f(1, 2, 3);
+        outer.doDraw(buffer, 0, center);
+
+        // Then the velocity of the outer combiner is set again only after the point with its own velocity
+        List<ApelRenderer.Instruction> velocities = buffer.getInstructions()
+                                                          .stream()
+                                                          .filter(ApelRenderer.Velocity.class::isInstance)
+                                                          .toList();
+        assertEquals(List.of(
+                new ApelRenderer.Velocity(center, outward),
+                new ApelRenderer.Velocity(center, upward),
+                new ApelRenderer.Velocity(center, outward),
+                new ApelRenderer.Velocity(center, ParticleVelocity.NONE)
+        ), velocities);
+    }
+
+    @Test
+    void compiledCombinerDrawsTheSameParticles() {
+        // Given a nested hierarchy of points without interceptors
+        List<ParticleObject<?>> points = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            points.add(ParticlePoint.builder().particleEffect(null).offset(new Vector3f(i, 0, 0)).build());
+        }
+        ParticleCombiner nested = ParticleCombiner.builder().objects(points).build();
+        ParticleCombiner combiner = ParticleCombiner.builder().objects(points).object(nested).build();
+        PointCloud.Recorder walked = new PointCloud.Recorder(null);
+        combiner.doDraw(walked, 0, new Vector3f(1, 2, 3));
+
+        // When the combiner is compiled and drawn again
+        combiner.compile();
+        PointCloud.Recorder compiled = new PointCloud.Recorder(null);
+        combiner.doDraw(compiled, 0, new Vector3f(1, 2, 3));
+
+        // Then the same particles are drawn
+        assertTrue(combiner.isCompiled());
+        PointCloud expected = walked.toPointCloud();
+        PointCloud actual = compiled.toPointCloud();
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertVector3fEquals(expected.getPoint(i), actual.getPoint(i));
+        }
+    }
+
+    @Test
+    void settersInvalidateCompiledCombiner() {
+        // Given a compiled combiner
+        ParticleCombiner combiner = ParticleCombiner.builder()
+                .object(ParticlePoint.builder().particleEffect(null).build())
+                .build();
+        combiner.compile();
+
+        // When the offsets are changed
+        combiner.setOffsets(new Vector3f(1, 0, 0));
+
+        // Then the compiled form is discarded
+        assertFalse(combiner.isCompiled());
+    }
+
+    @Test
+    void compilingWithInterceptorsThrows() {
+        // Given a combiner with a child interceptor
+        ParticleCombiner combiner = ParticleCombiner.builder()
+                .object(ParticlePoint.builder().particleEffect(null).build())
+                .beforeChildDraw((data, obj) -> {})
+                .build();
+
+        // When compiled, then it is rejected
+        assertThrows(IllegalStateException.class, combiner::compile);
+    }
+
+    @Test
+    void compilingObjectsThatChangeBetweenFramesThrows() {
+        // Given a combiner with a child that has no interceptor, but does not draw the same particles every frame
+        ParticlePoint changing = new ParticlePoint(NULL_POINT_BUILDER.build()) {
+            @Override
+            public boolean isReplayable() {
+                return false;
+            }
+        };
+        ParticleCombiner combiner = ParticleCombiner.builder().object(changing).build();
+
+        // When compiled, then it is rejected
+        assertThrows(IllegalStateException.class, combiner::compile);
+        assertFalse(combiner.isCompiled());
+    }
+
     private static void assertVector3fEquals(Vector3f expected, Vector3f actual) {
         assertTrue(expected.equals(actual, EPSILON));
     }
@@ -0,0 +1,57 @@
+package net.mcbrincie.apel.lib.objects;
+
+import net.mcbrincie.apel.lib.renderers.ApelRenderer;
+import net.mcbrincie.apel.lib.renderers.BufferedApelRenderer;
+import org.joml.Vector3f;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Font;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParticleTextTest {
+    private static final Font FONT = new Font(Font.MONOSPACED, Font.PLAIN, 16);
+
+    @Test
+    void changesBetweenDrawsAreAllDrawn() {
+        // Given a rotated score that has been drawn
+        ParticleText score = text("Score: 19");
+        drawnPoints(score);
+
+        // When it changes twice before it is drawn again, once near the start and once at the end
+        score.setText("Scare: 19");
+        score.setText("Scare: 20");
+
+        // Then it draws the same points as a new text of the last version
+        assertArrayEquals(drawnPoints(text("Scare: 20")), drawnPoints(score));
+    }
+
+    @Test
+    void changesAtTheEndAreDrawn() {
+        // Given a rotated counter that has been drawn
+        ParticleText counter = text("Time: 10");
+        drawnPoints(counter);
+
+        // When only its last characters change
+        counter.setText("Time: 9");
+
+        // Then it draws the same points as a new text of the new version
+        assertArrayEquals(drawnPoints(text("Time: 9")), drawnPoints(counter));
+    }
+
+    private static ParticleText text(String text) {
+        return ParticleText.builder()
+                           .particleEffect(null)
+                           .rotation(new Vector3f(0.3f, 1.2f, 0))
+                           .font(FONT)
+                           .text(text)
+                           .build();
+    }
+
+    private static float[] drawnPoints(ParticleText text) {
+        BufferedApelRenderer buffer = new BufferedApelRenderer(null);
+        text.doDraw(buffer, 0, new Vector3f());
+        ApelRenderer.Points points = (ApelRenderer.Points) buffer.getInstructions().getLast();
+        return points.points();
+    }
+}
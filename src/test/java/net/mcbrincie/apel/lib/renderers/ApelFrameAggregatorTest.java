@@ -0,0 +1,89 @@
+package net.mcbrincie.apel.lib.renderers;
+
+import org.joml.Vector3f;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ApelFrameAggregatorTest {
+
+    @Test
+    void testMerge_framesOfATickShareOnePayload() {
+        // Given the frames of three animations drawn during the same tick
+        List<ApelRenderer.Instruction> first = frame(new Vector3f(0, 0, 0), 2);
+        List<ApelRenderer.Instruction> second = frame(new Vector3f(5, 0, 0), 3);
+        List<ApelRenderer.Instruction> third = frame(new Vector3f(0, 5, 0), 1);
+
+        // When they are merged
+        List<List<ApelRenderer.Instruction>> payloads = ApelFrameAggregator.merge(List.of(first, second, third));
+
+        // Then a single payload holds every frame, in order, each still starting with its own origin
+        assertEquals(1, payloads.size());
+        List<ApelRenderer.Instruction> merged = payloads.getFirst();
+        assertEquals(first.size() + second.size() + third.size(), merged.size());
+        assertEquals(first.getFirst(), merged.get(0));
+        assertEquals(second.getFirst(), merged.get(first.size()));
+        assertEquals(third.getFirst(), merged.get(first.size() + second.size()));
+    }
+
+    @Test
+    void testMerge_splitsBetweenFramesAboveTheLimit() {
+        // Given two frames that together exceed the instruction limit, and a frame larger than the limit
+        int half = ApelFrameAggregator.MAX_INSTRUCTIONS_PER_PAYLOAD / 2 + 1;
+        List<ApelRenderer.Instruction> first = frame(new Vector3f(), half);
+        List<ApelRenderer.Instruction> second = frame(new Vector3f(), half);
+        List<ApelRenderer.Instruction> huge = frame(new Vector3f(), ApelFrameAggregator.MAX_INSTRUCTIONS_PER_PAYLOAD);
+
+        // When they are merged
+        List<List<ApelRenderer.Instruction>> payloads = ApelFrameAggregator.merge(List.of(first, second, huge));
+
+        // Then every frame gets its own payload, and no frame is cut in two
+        assertEquals(3, payloads.size());
+        assertEquals(first, payloads.get(0));
+        assertEquals(second, payloads.get(1));
+        assertEquals(huge, payloads.get(2));
+    }
+
+    @Test
+    void testHoldTracks_onlyWholeAnimationsOutliveTheTick() {
+        // Given a step of an animation, a whole animation sent as a track, then another step
+        List<ApelRenderer.Instruction> step = frame(new Vector3f(), 3);
+        List<ApelRenderer.Instruction> track = frame(new Vector3f(), 0);
+        track.add(new ApelRenderer.Track(0, 1, 1, new float[]{0, 0, 0, 1, 0, 0}));
+        track.add(new ApelRenderer.Particle(new Vector3f()));
+        List<ApelRenderer.Instruction> nextStep = frame(new Vector3f(), 3);
+
+        // When the connection is behind and the frames to hold back are picked
+        List<List<ApelRenderer.Instruction>> held = ApelFrameAggregator.holdTracks(List.of(step, track, nextStep));
+
+        // Then only the track is kept, the steps are stale by the next tick
+        assertEquals(List.of(track), held);
+    }
+
+    @Test
+    void testHoldTracks_dropsTheOldestTracksAboveTheLimit() {
+        // Given two tracks that together exceed the limit of held instructions
+        List<ApelRenderer.Instruction> older = frame(new Vector3f(), ApelFrameAggregator.MAX_HELD_INSTRUCTIONS / 2);
+        older.add(new ApelRenderer.Track(0, 0, 1, new float[3]));
+        List<ApelRenderer.Instruction> newer = frame(new Vector3f(), ApelFrameAggregator.MAX_HELD_INSTRUCTIONS / 2);
+        newer.add(new ApelRenderer.Track(0, 0, 1, new float[3]));
+
+        // When the frames to hold back are picked
+        List<List<ApelRenderer.Instruction>> held = ApelFrameAggregator.holdTracks(List.of(older, newer));
+
+        // Then the most recent track wins
+        assertEquals(List.of(newer), held);
+    }
+
+    private static List<ApelRenderer.Instruction> frame(Vector3f origin, int particles) {
+        List<ApelRenderer.Instruction> frame = new ArrayList<>();
+        frame.add(new ApelRenderer.Frame(origin));
+        for (int i = 0; i < particles; i++) {
+            frame.add(new ApelRenderer.Particle(new Vector3f(i, 0, 0)));
+        }
+        return frame;
+    }
+}
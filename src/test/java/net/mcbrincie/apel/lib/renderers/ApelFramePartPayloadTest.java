@@ -0,0 +1,55 @@
+package net.mcbrincie.apel.lib.renderers;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ApelFramePartPayloadTest {
+
+    @Test
+    void testSplit_partsAreSlicesOfTheSingleEncoding() {
+        // Given an encoded payload of 10 bytes
+        ByteBuf encoded = Unpooled.wrappedBuffer(new byte[]{0, 1, 2, 3, 4, 5, 6, 7, 8, 9});
+
+        // When it is split with a budget of 4 bytes
+        List<ApelFramePartPayload> parts = ApelFramePartPayload.split(encoded, 7, 4);
+
+        // Then it is sent as three numbered parts of the same payload
+        assertEquals(3, parts.size());
+        for (int i = 0; i < parts.size(); i++) {
+            assertEquals(7, parts.get(i).id());
+            assertEquals(i, parts.get(i).index());
+            assertEquals(3, parts.get(i).count());
+        }
+        assertEquals(4, parts.get(0).bytes().readableBytes());
+        assertEquals(2, parts.get(2).bytes().readableBytes());
+        assertEquals(8, parts.get(2).bytes().getByte(0));
+        // And every part shares the memory of the encoding rather than copying it
+        assertSame(encoded.array(), parts.get(1).bytes().array());
+        // And concatenating the parts gives the encoding back
+        ByteBuf[] slices = parts.stream().map(ApelFramePartPayload::bytes).toArray(ByteBuf[]::new);
+        ByteBuf reassembled = Unpooled.wrappedBuffer(slices);
+        assertEquals(encoded, reassembled);
+    }
+
+    @Test
+    void testSplit_smallPayloadsAreSentWhole() {
+        // Given payloads below the budget, one of them empty
+        ByteBuf small = Unpooled.wrappedBuffer(new byte[]{1, 2, 3});
+        ByteBuf empty = Unpooled.buffer();
+
+        // When they are split
+        List<ApelFramePartPayload> smallParts = ApelFramePartPayload.split(small, 0, 4);
+        List<ApelFramePartPayload> emptyParts = ApelFramePartPayload.split(empty, 1, 4);
+
+        // Then each is sent as a single part
+        assertEquals(1, smallParts.size());
+        assertEquals(3, smallParts.getFirst().bytes().readableBytes());
+        assertEquals(1, emptyParts.size());
+        assertEquals(0, emptyParts.getFirst().bytes().readableBytes());
+    }
+}
@@ -28,4 +28,41 @@ class ApelRendererTest {
         assertEquals(curve1, curve2);
         assertEquals(curve1.hashCode(), curve2.hashCode());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testColouredPoints_sharePaletteEntries() {
+        // Given three points, two of them red and one blue
+        float[] points = {0, 0, 0, 1, 0, 0, 2, 0, 0, 3, 0, 0};
+        int[] colours = {0x00FF00, 0xFF0000, 0x0000FF, 0xFF0000};
+
+        // When the last three points are turned into an instruction
+        ApelRenderer.ColouredPoints coloured = ApelRenderer.ColouredPoints.of(
+                IGNORED_OFFSET, 0.2f, points, colours, 1, 4);
+
+        // Then each colour is stored once, and every point refers to its colour
+        assertArrayEquals(new int[]{0xFF0000, 0x0000FF}, coloured.palette());
+        assertArrayEquals(new int[]{0, 1, 0}, coloured.colourIndices());
+        assertArrayEquals(new int[]{0xFF0000, 0x0000FF, 0xFF0000}, coloured.toColours());
+        assertArrayEquals(new float[]{1, 0, 0, 2, 0, 0, 3, 0, 0}, coloured.points());
+    }
+
+    @Test
+    void testMotion_interpolatesBetweenSteps() {
+        // Given a keyframe moving along x, then along y, with two ticks per step
+        float[] path = {0, 0, 0, 1, 0, 0, 1, 2, 0};
+        ApelRenderer.Motion motion = new ApelRenderer.Motion(path, 2);
+
+        // When the offsets are computed between and past the steps
+        Vector3f halfway = motion.offsetAt(1, new Vector3f());
+        Vector3f secondStep = motion.offsetAt(2, new Vector3f());
+        Vector3f lateInSecondSegment = motion.offsetAt(3.5f, new Vector3f());
+        Vector3f pastTheEnd = motion.offsetAt(10, new Vector3f());
+
+        // Then positions are interpolated linearly, and the last one is held once the path ends after four ticks
+        assertEquals(4, motion.durationTicks());
+        assertEquals(new Vector3f(0.5f, 0, 0), halfway);
+        assertEquals(new Vector3f(1, 0, 0), secondStep);
+        assertEquals(new Vector3f(1, 1.5f, 0), lateInSecondSegment);
+        assertEquals(new Vector3f(1, 2, 0), pastTheEnd);
+    }
+}
@@ -0,0 +1,70 @@
+package net.mcbrincie.apel.lib.renderers;
+
+import net.mcbrincie.apel.lib.objects.ParticleCircle;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.server.world.ServerWorld;
+import org.joml.Vector3f;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ApelServerRendererTest {
+
+    @Test
+    void objectsReachingPlayersCanBeSeen() {
+        // Given a player 40 blocks from the centre of a circle with a radius of 10
+        ApelServerRenderer renderer = ApelServerRenderer.create(worldWithPlayerAt(new Vector3f(40, 0, 0)));
+        ParticleCircle circle = ParticleCircle.builder().particleEffect(null).radius(10).amount(100).build();
+        Vector3f center = new Vector3f();
+
+        // When asked whether the circle can be seen
+        boolean circleSeen = renderer.canBeSeen(center, circle.getBoundingRadius());
+
+        // Then it can, since its nearest particles are only 30 blocks away, while its centre alone cannot
+        assertTrue(circleSeen);
+        assertFalse(renderer.canBeSeen(center, 0));
+    }
+
+    @Test
+    void objectsOutOfReachCannotBeSeen() {
+        // Given a player 50 blocks from the centre of a circle with a radius of 10
+        ApelServerRenderer renderer = ApelServerRenderer.create(worldWithPlayerAt(new Vector3f(50, 0, 0)));
+        ParticleCircle circle = ParticleCircle.builder().particleEffect(null).radius(10).amount(100).build();
+
+        // When asked whether the circle can be seen, then it cannot
+        assertFalse(renderer.canBeSeen(new Vector3f(), circle.getBoundingRadius()));
+    }
+
+    @Test
+    void objectsOfUnknownSizeCanAlwaysBeSeen() {
+        // Given a world nobody is in
+        ApelServerRenderer renderer = ApelServerRenderer.create(mock(ServerWorld.class));
+
+        // When asked whether an object without a bound can be seen, then it can
+        assertTrue(renderer.canBeSeen(new Vector3f(), Float.POSITIVE_INFINITY));
+    }
+
+    private static ServerWorld worldWithPlayerAt(Vector3f position) {
+        ServerPlayerEntity player = mock(ServerPlayerEntity.class);
+        when(player.squaredDistanceTo(anyDouble(), anyDouble(), anyDouble())).thenAnswer(invocation -> {
+            double dx = invocation.<Double>getArgument(0) - position.x;
+            double dy = invocation.<Double>getArgument(1) - position.y;
+            double dz = invocation.<Double>getArgument(2) - position.z;
+            return dx * dx + dy * dy + dz * dz;
+        });
+        MinecraftServer server = mock(MinecraftServer.class);
+        when(server.isOnThread()).thenReturn(true);
+        ServerWorld world = mock(ServerWorld.class);
+        when(world.getPlayers()).thenReturn(List.of(player));
+        when(world.getServer()).thenReturn(server);
+        when(world.isChunkLoaded(anyInt(), anyInt())).thenReturn(true);
+        return world;
+    }
+}
@@ -0,0 +1,32 @@
+package net.mcbrincie.apel.lib.renderers;
+
+import net.mcbrincie.apel.lib.objects.ParticleCuboid;
+import org.joml.Vector3f;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BufferedApelRendererTest {
+
+    @Test
+    void testReplay_displayListMatchesDrawingInPlace() {
+        // Given a rotated, offset cuboid, and a position to draw it at
+        ParticleCuboid cuboid = ParticleCuboid.builder().size(new Vector3f(1, 2, 3)).amount(4)
+                .rotation(new Vector3f(0.3f, 0.5f, 0)).offset(new Vector3f(0, 1, 0)).build();
+        Vector3f drawPos = new Vector3f(10, 64, -5);
+
+        // When it is drawn there, and also drawn at the origin then replayed at that position
+        BufferedApelRenderer inPlace = new BufferedApelRenderer(null);
+        cuboid.doDraw(inPlace, 3, drawPos);
+        BufferedApelRenderer displayList = new BufferedApelRenderer(null);
+        cuboid.doDraw(displayList, 0, new Vector3f());
+        BufferedApelRenderer replayed = new BufferedApelRenderer(null);
+        displayList.replay(replayed, 3, drawPos);
+
+        // Then the renderer receives the same twelve edges either way
+        assertEquals(13, inPlace.getInstructions().size());
+        assertEquals(inPlace.getInstructions(), replayed.getInstructions());
+        // And the display list itself is left untouched
+        assertEquals(new Vector3f(0, 1, 0), ((ApelRenderer.Line) displayList.getInstructions().get(1)).drawPos());
+    }
+}
@@ -0,0 +1,51 @@
+package net.mcbrincie.apel.lib.renderers;
+
+import io.netty.buffer.Unpooled;
+import net.minecraft.Bootstrap;
+import net.minecraft.SharedConstants;
+import net.minecraft.network.RegistryByteBuf;
+import net.minecraft.particle.DustParticleEffect;
+import net.minecraft.particle.ParticleEffect;
+import net.minecraft.particle.ParticleTypes;
+import net.minecraft.registry.DynamicRegistryManager;
+import net.minecraft.registry.Registries;
+import org.joml.Vector3f;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EncodedParticleEffectsTest {
+    private static DynamicRegistryManager registries;
+
+    @BeforeAll
+    static void bootstrap() {
+        SharedConstants.createGameVersion();
+        Bootstrap.initialize();
+        registries = DynamicRegistryManager.of(Registries.REGISTRIES);
+    }
+
+    @Test
+    void testEncode_cachedBytesMatchTheCodec() {
+        // Given a dust effect and a vanilla effect
+        ParticleEffect dust = new DustParticleEffect(new Vector3f(1, 0.5f, 0), 0.2f);
+        ParticleEffect flame = ParticleTypes.FLAME;
+
+        // When each is written twice, the second time from the cache
+        RegistryByteBuf buf = new RegistryByteBuf(Unpooled.buffer(), registries);
+        EncodedParticleEffects.encode(buf, dust);
+        EncodedParticleEffects.encode(buf, dust);
+        EncodedParticleEffects.encode(buf, flame);
+        EncodedParticleEffects.encode(buf, flame);
+
+        // Then the codec reads back the same effects, every time
+        for (int i = 0; i < 2; i++) {
+            DustParticleEffect decoded = (DustParticleEffect) ParticleTypes.PACKET_CODEC.decode(buf);
+            assertEquals(new Vector3f(1, 0.5f, 0), decoded.getColor());
+            assertEquals(0.2f, decoded.getScale());
+        }
+        assertSame(flame, ParticleTypes.PACKET_CODEC.decode(buf));
+        assertSame(flame, ParticleTypes.PACKET_CODEC.decode(buf));
+        assertEquals(0, buf.readableBytes());
+    }
+}
@@ -0,0 +1,65 @@
+package net.mcbrincie.apel.lib.renderers;
+
+import io.netty.buffer.Unpooled;
+import net.minecraft.Bootstrap;
+import net.minecraft.SharedConstants;
+import net.minecraft.network.RegistryByteBuf;
+import net.minecraft.particle.DustParticleEffect;
+import net.minecraft.particle.ParticleEffect;
+import net.minecraft.particle.ParticleTypes;
+import net.minecraft.registry.DynamicRegistryManager;
+import net.minecraft.registry.Registries;
+import org.joml.Vector3f;
+
+/** Measures how many particle effects are written per second, through {@link ParticleTypes#PACKET_CODEC} and
+ * through {@link EncodedParticleEffects}, for dust and for a vanilla effect without parameters.  It is not part of
+ * the tests; run its {@code main} method from the IDE, with the test classpath.
+ */
+public final class ParticleEffectEncodingBenchmark {
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int ROUNDS = 10;
+    private static final int ENCODES_PER_ROUND = 1_000_000;
+
+    private interface Encoder {
+        void encode(RegistryByteBuf buf, ParticleEffect particleEffect);
+    }
+
+    public static void main(String[] args) {
+        SharedConstants.createGameVersion();
+        Bootstrap.initialize();
+        DynamicRegistryManager registries = DynamicRegistryManager.of(Registries.REGISTRIES);
+
+        ParticleEffect dust = new DustParticleEffect(new Vector3f(1, 0.5f, 0), 0.2f);
+        ParticleEffect flame = ParticleTypes.FLAME;
+        Encoder codec = ParticleTypes.PACKET_CODEC::encode;
+        Encoder cached = EncodedParticleEffects::encode;
+
+        run("dust, codec", registries, dust, codec);
+        run("dust, cached", registries, dust, cached);
+        run("flame, codec", registries, flame, codec);
+        run("flame, cached", registries, flame, cached);
+    }
+
+    private static void run(String name, DynamicRegistryManager registries, ParticleEffect effect, Encoder encoder) {
+        RegistryByteBuf buf = new RegistryByteBuf(Unpooled.buffer(), registries);
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            round(buf, effect, encoder);
+        }
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < ROUNDS; i++) {
+            best = Math.min(best, round(buf, effect, encoder));
+        }
+        double perSecond = ENCODES_PER_ROUND / (best / 1e9);
+        System.out.printf("%-14s %,15.0f encodes/s%n", name, perSecond);
+    }
+
+    private static long round(RegistryByteBuf buf, ParticleEffect effect, Encoder encoder) {
+        long start = System.nanoTime();
+        for (int i = 0; i < ENCODES_PER_ROUND; i++) {
+            // Reusing the buffer keeps allocation out of the measurement
+            buf.clear();
+            encoder.encode(buf, effect);
+        }
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,57 @@
+package net.mcbrincie.apel.lib.renderers;
+
+import net.minecraft.particle.ParticleEffect;
+import net.minecraft.particle.ParticleType;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParticleEffectPaletteTest {
+
+    @Test
+    void testAssign_effectsAreDefinedOnceThenReferenced() {
+        // Given an empty palette
+        ParticleEffectPalette palette = new ParticleEffectPalette();
+
+        // When two effects are sent, then the first one again
+        int first = palette.assign(new TestEffect(1));
+        int second = palette.assign(new TestEffect(2));
+        int again = palette.assign(new TestEffect(1));
+
+        // Then both are defined with the next free id, and the first is referenced by its id afterward
+        assertEquals(-1, first);
+        assertEquals(-2, second);
+        assertEquals(0, again);
+        assertEquals(2, palette.size());
+    }
+
+    @Test
+    void testAssign_leastRecentlyUsedEffectIsEvicted() {
+        // Given a full palette of two effects, the first of which was used last
+        ParticleEffectPalette palette = new ParticleEffectPalette(2);
+        palette.assign(new TestEffect(1));
+        palette.assign(new TestEffect(2));
+        palette.assign(new TestEffect(1));
+
+        // When a third effect is sent
+        int third = palette.assign(new TestEffect(3));
+
+        // Then it takes the id of the second effect, which must be defined again when it comes back
+        assertEquals(-2, third);
+        assertEquals(2, palette.size());
+        assertEquals(0, palette.assign(new TestEffect(1)));
+        assertTrue(palette.assign(new TestEffect(2)) < 0);
+    }
+
+    @Test
+    void testConstructor_capacityMustBePositive() {
+        assertThrows(IllegalArgumentException.class, () -> new ParticleEffectPalette(0));
+    }
+
+    private record TestEffect(int id) implements ParticleEffect {
+        @Override
+        public ParticleType<?> getType() {
+            return null;
+        }
+    }
+}
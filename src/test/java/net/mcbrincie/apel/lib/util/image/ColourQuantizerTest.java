@@ -0,0 +1,65 @@
+package net.mcbrincie.apel.lib.util.image;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColourQuantizerTest {
+
+    @Test
+    void paletteKeepsFewColoursExactly() {
+        // Given an image with three colours and a transparent pixel
+        int[] argb = {0xFFFF0000, 0xFF00FF00, 0xFF0000FF, 0x00FFFFFF, 0xFFFF0000, 0xFF00FF00};
+
+        // When its palette of up to 8 colours is picked
+        int[] palette = new ColourQuantizer(8, false).palette(argb, 128);
+
+        // Then it holds exactly the three visible colours
+        Set<Integer> colours = new HashSet<>();
+        for (int colour : palette) {
+            colours.add(colour);
+        }
+        assertEquals(Set.of(0xFF0000, 0x00FF00, 0x0000FF), colours);
+    }
+
+    @Test
+    void quantizedImagesUseAtMostThePaletteSize() {
+        // Given a 64 by 64 image with a distinct colour per pixel
+        int[] argb = gradient();
+
+        // When it is quantized to 16 colours, with and without dithering
+        for (boolean dithering : new boolean[]{false, true}) {
+            int[] quantized = new ColourQuantizer(16, dithering).quantize(argb, 64, 64, 128);
+
+            // Then at most 16 colours remain, the alpha is kept, and the average colour barely moves
+            Set<Integer> colours = new HashSet<>();
+            for (int pixel : quantized) {
+                colours.add(pixel & 0xFFFFFF);
+                assertEquals(0xFF, pixel >>> 24);
+            }
+            assertTrue(colours.size() <= 16);
+            assertEquals(averageRed(argb), averageRed(quantized), 4);
+        }
+    }
+
+    private static int[] gradient() {
+        int[] argb = new int[64 * 64];
+        for (int y = 0; y < 64; y++) {
+            for (int x = 0; x < 64; x++) {
+                argb[y * 64 + x] = 0xFF000000 | (x * 4) << 16 | (y * 4) << 8 | ((x + y) * 2);
+            }
+        }
+        return argb;
+    }
+
+    private static double averageRed(int[] argb) {
+        double sum = 0;
+        for (int pixel : argb) {
+            sum += (pixel >> 16) & 0xFF;
+        }
+        return sum / argb.length;
+    }
+}
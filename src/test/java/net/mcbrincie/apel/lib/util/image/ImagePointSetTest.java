@@ -0,0 +1,64 @@
+package net.mcbrincie.apel.lib.util.image;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImagePointSetTest {
+    private static final int RED = 0xFFFF0000;
+    private static final int BLUE = 0xFF0000FF;
+    private static final int CLEAR = 0x00FFFFFF;
+    private static final int FAINT = 0x40FF0000;
+
+    @Test
+    void pixelsAreGroupedByColour() {
+        // Given a 3 by 2 image mixing two colours with transparent and faint pixels
+        int[] argb = {
+                RED, BLUE, CLEAR,
+                BLUE, FAINT, RED
+        };
+
+        // When its point set is built with the default alpha threshold
+        ImagePointSet points = ImagePointSet.fromArgb(argb, 3, 2, 0, 128, 1);
+
+        // Then only the opaque pixels remain, each colour's pixels are contiguous, and the image is centred, y up
+        assertEquals(4, points.size());
+        assertEquals(2, points.getColourCount());
+        assertEquals(0xFF0000, points.getColour(0));
+        assertEquals(0x0000FF, points.getColour(1));
+        assertEquals(2, points.getRunEnd(0));
+        assertEquals(2, points.getRunStart(1));
+        assertArrayEquals(new float[]{-1, 0.5f, 0, 1, -0.5f, 0}, slice(points, 0), 1e-6f);
+        assertArrayEquals(new float[]{0, 0.5f, 0, -1, -0.5f, 0}, slice(points, 1), 1e-6f);
+        assertEquals(0, points.getFirstPixelX(0));
+        assertEquals(1, points.getFirstPixelX(1));
+        assertEquals(0, points.getFirstPixelY(1));
+    }
+
+    @Test
+    void downsamplingAveragesVisiblePixels() {
+        // Given a 4 by 2 image whose left half is red and right half is half red, half transparent
+        int[] argb = {
+                RED, RED, RED, CLEAR,
+                RED, RED, CLEAR, RED
+        };
+
+        // When it is downsampled to a longest side of 2 pixels
+        ImagePointSet points = ImagePointSet.fromArgb(argb, 4, 2, 2, 100, 1);
+
+        // Then each 2 by 2 block becomes one pixel, and transparency does not darken the colour
+        assertEquals(2, points.getWidth());
+        assertEquals(1, points.getHeight());
+        assertEquals(1, points.getColourCount());
+        assertEquals(0xFF0000, points.getColour(0));
+        assertEquals(2, points.size());
+        // And raising the threshold above the averaged alpha of the right block drops it
+        assertEquals(1, ImagePointSet.fromArgb(argb, 4, 2, 2, 200, 1).size());
+    }
+
+    private static float[] slice(ImagePointSet points, int colour) {
+        float[] slice = new float[(points.getRunEnd(colour) - points.getRunStart(colour)) * 3];
+        System.arraycopy(points.getPoints(), points.getRunStart(colour) * 3, slice, 0, slice.length);
+        return slice;
+    }
+}
@@ -0,0 +1,75 @@
+package net.mcbrincie.apel.lib.util.image;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageSequenceTest {
+    private static final ImageSequence.Options OPTIONS = new ImageSequence.Options(0, 128, 1, 16, false);
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void repeatedFramesShareTheirPointSet() {
+        // Given three 2 by 1 frames, the first and last identical
+        int[] red = {0xFFFF0000, 0xFFFF0000};
+        int[] blue = {0xFF0000FF, 0xFF0000FF};
+
+        // When the sequence is built
+        ImageSequence sequence = ImageSequence.of(List.of(red, blue, red.clone()), 2, 1, new int[]{1, 2, 3}, OPTIONS);
+
+        // Then the repeated frame is prepared once and shared
+        assertEquals(3, sequence.getFrameCount());
+        assertEquals(2, sequence.getUniqueFrameCount());
+        assertSame(sequence.getFrame(0), sequence.getFrame(2));
+        assertEquals(0x0000FF, sequence.getFrame(1).getColour(0));
+    }
+
+    @Test
+    void stepsPickFramesByDurationAndLoop() {
+        // Given frames lasting 1, 2 and 3 steps
+        int[] pixel = {0xFFFFFFFF};
+        ImageSequence sequence = ImageSequence.of(
+                List.of(pixel, new int[]{0xFF000000}, new int[]{0xFF808080}), 1, 1, new int[]{1, 2, 3}, OPTIONS
+        );
+
+        // When frames are picked by step, Then each frame is shown for its duration, looping after 6 steps
+        assertEquals(6, sequence.getTotalDuration());
+        int[] expected = {0, 1, 1, 2, 2, 2, 0, 1};
+        for (int step = 0; step < expected.length; step++) {
+            assertEquals(expected[step], sequence.frameIndexAt(step));
+        }
+    }
+
+    @Test
+    void spriteSheetsAreCutRowByRow() throws IOException {
+        // Given a 4 by 2 sprite sheet of four 2 by 1 frames, red, green, blue, and red again
+        BufferedImage sheet = new BufferedImage(4, 2, BufferedImage.TYPE_INT_ARGB);
+        int[] colours = {0xFFFF0000, 0xFF00FF00, 0xFF0000FF, 0xFFFF0000};
+        for (int frame = 0; frame < 4; frame++) {
+            sheet.setRGB((frame % 2) * 2, frame / 2, colours[frame]);
+            sheet.setRGB((frame % 2) * 2 + 1, frame / 2, colours[frame]);
+        }
+        File file = this.tempDir.resolve("sheet.png").toFile();
+        ImageIO.write(sheet, "png", file);
+
+        // When it is loaded with frames of 2 by 1 lasting 5 steps
+        ImageSequence sequence = ImageSequence.loadSpriteSheet(file, 2, 1, 5, OPTIONS);
+
+        // Then the frames follow the sheet, and the repeated red frame is shared
+        assertEquals(4, sequence.getFrameCount());
+        assertEquals(3, sequence.getUniqueFrameCount());
+        assertEquals(0x00FF00, sequence.frameAt(5).getColour(0));
+        assertEquals(0x0000FF, sequence.frameAt(10).getColour(0));
+        assertSame(sequence.getFrame(0), sequence.frameAt(15));
+    }
+}
@@ -0,0 +1,76 @@
+package net.mcbrincie.apel.lib.util.math;
+
+import org.joml.Vector3f;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParticleVelocityTest {
+
+    @Test
+    void radialVelocityPointsAwayFromTheCentre() {
+        // Given an expanding shell
+        ParticleVelocity velocity = ParticleVelocity.radial(0.5f);
+
+        // When the velocity of particles around the centre is computed
+        Vector3f right = velocity.at(2, 0, 0, new Vector3f());
+        Vector3f diagonal = velocity.at(0, 3, 4, new Vector3f());
+        Vector3f centre = velocity.at(0, 0, 0, new Vector3f());
+
+        // Then every particle moves straight away from the centre at the same speed
+        assertEquals(0.5f, right.x, 1e-6f);
+        assertEquals(0, right.y, 1e-6f);
+        assertEquals(0.3f, diagonal.y, 1e-6f);
+        assertEquals(0.4f, diagonal.z, 1e-6f);
+        // And the particle at the centre does not move
+        assertEquals(0, centre.lengthSquared(), 1e-6f);
+    }
+
+    @Test
+    void spinVelocityIsTangentialAndGrowsWithTheDistance() {
+        // Given a swirl around the vertical axis, one radian per tick
+        ParticleVelocity velocity = ParticleVelocity.spin(new Vector3f(0, 2, 0), 1);
+
+        // When the velocity of particles at different distances from the axis is computed
+        Vector3f near = velocity.at(1, 0, 0, new Vector3f());
+        Vector3f far = velocity.at(2, 5, 0, new Vector3f());
+
+        // Then they move around the axis, following the right-hand rule, faster the further they are
+        assertEquals(0, near.x, 1e-6f);
+        assertEquals(0, near.y, 1e-6f);
+        assertEquals(-1, near.z, 1e-6f);
+        assertEquals(0, far.y, 1e-6f);
+        assertEquals(-2, far.z, 1e-6f);
+    }
+
+    @Test
+    void velocitiesAddUp() {
+        // Given a drifting, expanding shell
+        ParticleVelocity velocity = new ParticleVelocity(new Vector3f(0, 0.1f, 0), 1, new Vector3f());
+
+        // When the velocity of a particle is computed
+        Vector3f result = velocity.at(0, 0, 2, new Vector3f());
+
+        // Then it is the sum of the drift and the expansion
+        assertEquals(0, result.x, 1e-6f);
+        assertEquals(0.1f, result.y, 1e-6f);
+        assertEquals(1, result.z, 1e-6f);
+        // And only a velocity without any component is none
+        assertFalse(velocity.isNone());
+        assertTrue(ParticleVelocity.NONE.isNone());
+    }
+
+    @Test
+    void velocitiesDoNotShareTheirVectors() {
+        // Given a velocity created from a vector
+        Vector3f linear = new Vector3f(1, 0, 0);
+        ParticleVelocity velocity = ParticleVelocity.linear(linear);
+
+        // When the vector is changed afterwards
+        linear.set(0, 2, 0);
+
+        // Then the velocity keeps the value it was created with
+        assertEquals(new Vector3f(1, 0, 0), velocity.linear());
+        assertEquals(velocity, new ParticleVelocity(new Vector3f(1, 0, 0), 0, new Vector3f()));
+    }
+}
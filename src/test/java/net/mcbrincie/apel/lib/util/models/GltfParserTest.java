@@ -0,0 +1,146 @@
+package net.mcbrincie.apel.lib.util.models;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GltfParserTest {
+    // A unit quad with interleaved positions and normals, followed by unsigned short indices
+    private static final float[] INTERLEAVED_QUAD = {
+            0, 0, 0, 0, 0, 1,
+            1, 0, 0, 0, 0, 1,
+            1, 1, 0, 0, 0, 1,
+            0, 1, 0, 0, 0, 1
+    };
+    private static final short[] QUAD_INDICES = {0, 1, 2, 0, 2, 3};
+    private static final int VERTEX_BYTES = INTERLEAVED_QUAD.length * Float.BYTES;
+    private static final int BUFFER_BYTES = VERTEX_BYTES + QUAD_INDICES.length * Short.BYTES;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void readsEmbeddedBuffers() throws IOException {
+        // Given a .gltf file with its buffer embedded as base64
+        String uri = "\"uri\": \"data:application/octet-stream;base64,"
+                     + Base64.getEncoder().encodeToString(quadBuffer().array()) + "\", ";
+        File file = this.write("quad.gltf", quadJson(uri).getBytes(StandardCharsets.UTF_8));
+
+        // When the file is parsed
+        ModelParserManager manager = new ModelParserManager();
+        manager.parseFile(file);
+
+        // Then the interleaved, indexed quad is read and placed by its node
+        assertQuad(manager);
+    }
+
+    @Test
+    void readsExternalBuffers() throws IOException {
+        // Given a .gltf file with its buffer in a separate file
+        this.write("quad data.bin", quadBuffer().array());
+        String json = quadJson("\"uri\": \"quad%20data.bin\", ");
+        File file = this.write("quad.gltf", json.getBytes(StandardCharsets.UTF_8));
+
+        // When the file is parsed
+        ModelParserManager manager = new ModelParserManager();
+        manager.parseFile(file);
+
+        // Then the quad is read
+        assertQuad(manager);
+    }
+
+    @Test
+    void readsBinaryFiles() throws IOException {
+        // Given a .glb file holding the JSON and the buffer as chunks
+        byte[] json = quadJson("").getBytes(StandardCharsets.UTF_8);
+        int jsonLength = (json.length + 3) & ~3;
+        ByteBuffer glb = ByteBuffer.allocate(12 + 8 + jsonLength + 8 + BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        glb.putInt(0x46546C67).putInt(2).putInt(glb.capacity());
+        glb.putInt(jsonLength).putInt(0x4E4F534A).put(json);
+        while (glb.position() < 20 + jsonLength) {
+            glb.put((byte) ' ');
+        }
+        glb.putInt(BUFFER_BYTES).putInt(0x004E4942).put(quadBuffer().array());
+        File file = this.write("quad.glb", glb.array());
+
+        // When the file is parsed
+        ModelParserManager manager = new ModelParserManager();
+        manager.parseFile(file);
+
+        // Then the quad is read
+        assertQuad(manager);
+    }
+
+    @Test
+    void malformedFilesAreNotRead() throws IOException {
+        // Given a .gltf file whose JSON is cut short
+        File file = this.write("quad.gltf", "{\"asset\": {\"version\": ".getBytes(StandardCharsets.UTF_8));
+        ModelParserManager manager = new ModelParserManager();
+
+        // When it is parsed, then it is reported as not read instead of throwing
+        assertFalse(manager.parseFile(file));
+        assertEquals(0, manager.getVertexCount());
+    }
+
+    private static void assertQuad(ModelParserManager manager) {
+        assertEquals(4, manager.getVertexCount());
+        assertEquals(2, manager.getFaceCount());
+        assertArrayEquals(new int[]{0, 1, 2, 0, 2, 3}, manager.faceVertexIndices.toIntArray());
+        assertArrayEquals(new int[]{0, 1, 2, 0, 2, 3}, manager.faceNormalIndices.toIntArray());
+        // The node translates the quad by 10 along X
+        float[] translatedQuad = {10, 0, 0, 11, 0, 0, 11, 1, 0, 10, 1, 0};
+        assertArrayEquals(translatedQuad, manager.vertices.toFloatArray(), 1e-6f);
+        float[] normals = {0, 0, 1, 0, 0, 1, 0, 0, 1, 0, 0, 1};
+        assertArrayEquals(normals, manager.normalVertices.toFloatArray(), 1e-6f);
+        assertEquals(5, manager.toMesh().getEdgeCount());
+    }
+
+    private static ByteBuffer quadBuffer() {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        for (float value : INTERLEAVED_QUAD) {
+            buffer.putFloat(value);
+        }
+        for (short index : QUAD_INDICES) {
+            buffer.putShort(index);
+        }
+        return buffer;
+    }
+
+    private static String quadJson(String bufferUri) {
+        return """
+                {
+                  "asset": {"version": "2.0"},
+                  "scene": 0,
+                  "scenes": [{"nodes": [0]}],
+                  "nodes": [{"mesh": 0, "translation": [10, 0, 0]}],
+                  "meshes": [{"primitives": [{"attributes": {"POSITION": 0, "NORMAL": 1}, "indices": 2}]}],
+                  "buffers": [{%s"byteLength": %d}],
+                  "bufferViews": [
+                    {"buffer": 0, "byteOffset": 0, "byteLength": %d, "byteStride": 24},
+                    {"buffer": 0, "byteOffset": %d, "byteLength": 12}
+                  ],
+                  "accessors": [
+                    {"bufferView": 0, "byteOffset": 0, "componentType": 5126, "count": 4, "type": "VEC3"},
+                    {"bufferView": 0, "byteOffset": 12, "componentType": 5126, "count": 4, "type": "VEC3"},
+                    {"bufferView": 1, "componentType": 5123, "count": 6, "type": "SCALAR"}
+                  ]
+                }
+                """.formatted(bufferUri, BUFFER_BYTES, VERTEX_BYTES, VERTEX_BYTES);
+    }
+
+    private File write(String name, byte[] contents) throws IOException {
+        Path path = this.tempDir.resolve(name);
+        Files.write(path, contents);
+        return path.toFile();
+    }
+}
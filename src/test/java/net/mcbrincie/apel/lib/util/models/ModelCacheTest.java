@@ -0,0 +1,138 @@
+package net.mcbrincie.apel.lib.util.models;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ModelCacheTest {
+    private static final String TRIANGLE = """
+            v 0 0 0
+            v 1 0 0
+            v 0 1 0
+            f 1 2 3
+            """;
+    private static final String SQUARE = """
+            v 0 0 0
+            v 1 0 0
+            v 1 1 0
+            v 0 1 0
+            f 1 2 3 4
+            """;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void repeatedLookupsShareTheMesh() throws IOException {
+        // Given a cache and a model file
+        ModelCache cache = new ModelCache(1024 * 1024);
+        File file = this.write(TRIANGLE);
+
+        // When the file is looked up twice, once through a different path
+        ModelMesh first = cache.get(file);
+        ModelMesh second = cache.get(new File(file.getParentFile(), "./" + file.getName()));
+
+        // Then it was parsed once and both lookups share the mesh
+        assertSame(first, second);
+        ModelCache.Stats stats = cache.getStats();
+        assertEquals(1, stats.entryCount());
+        assertEquals(1, stats.missCount());
+        assertEquals(1, stats.hitCount());
+        assertEquals(2L * first.estimateSizeBytes(), stats.estimatedBytes());
+    }
+
+    @Test
+    void changedFilesAreParsedAgain() throws IOException {
+        // Given a cached model
+        ModelCache cache = new ModelCache(1024 * 1024);
+        File file = this.write(TRIANGLE);
+        ModelMesh triangle = cache.get(file);
+
+        // When the file is changed on disk
+        this.write(SQUARE);
+        ModelMesh square = cache.get(file);
+
+        // Then the new contents are used
+        assertNotSame(triangle, square);
+        assertEquals(3, triangle.getEdgeCount());
+        assertEquals(4, square.getEdgeCount());
+        assertEquals(1, cache.getStats().entryCount());
+    }
+
+    @Test
+    void invalidatedFilesAreParsedAgain() throws IOException {
+        // Given a cached model
+        ModelCache cache = new ModelCache(1024 * 1024);
+        File file = this.write(TRIANGLE);
+        ModelMesh first = cache.get(file);
+
+        // When its entry is invalidated
+        cache.invalidate(file);
+
+        // Then the next lookup parses it again
+        assertNotSame(first, cache.get(file));
+        assertEquals(2, cache.getStats().missCount());
+    }
+
+    @Test
+    void levelsOfDetailAreBuiltOnceInTheBackground() throws IOException {
+        // Given a cached model
+        ModelCache cache = new ModelCache(1024 * 1024);
+        File file = this.write(SQUARE);
+        ModelMesh mesh = cache.get(file);
+
+        // When its levels of detail are asked for twice
+        CompletableFuture<ModelLodChain> first = cache.getLodChainAsync(file);
+        CompletableFuture<ModelLodChain> second = cache.getLodChainAsync(file);
+
+        // Then they are built once, starting from the cached mesh
+        assertSame(first, second);
+        assertSame(first.join(), cache.getLodChain(file));
+        assertSame(mesh, first.join().getLevel(0));
+    }
+
+    @Test
+    void unreadableFilesAreNotCached() throws IOException {
+        // Given a glTF file whose buffer is missing
+        Path path = this.tempDir.resolve("model.gltf");
+        Files.writeString(path, """
+                {"asset": {"version": "2.0"}, "buffers": [{"uri": "missing.bin", "byteLength": 4}]}
+                """);
+        ModelCache cache = new ModelCache(1024 * 1024);
+
+        // When it is looked up twice
+        ModelMesh first = cache.get(path.toFile());
+        ModelMesh second = cache.get(path.toFile());
+
+        // Then both lookups get an empty mesh, and nothing is cached
+        assertEquals(0, first.getEdgeCount());
+        assertEquals(0, second.getEdgeCount());
+        assertEquals(0, cache.getStats().entryCount());
+        assertEquals(2, cache.getStats().missCount());
+    }
+
+    @Test
+    void fbxFilesAreRejected() throws IOException {
+        // Given an FBX file, which cannot be read yet
+        Path path = this.tempDir.resolve("model.fbx");
+        Files.writeString(path, "; FBX 7.4.0 project file");
+        ModelCache cache = new ModelCache(1024 * 1024);
+
+        // When it is looked up, then it is rejected like any unsupported format, and nothing is cached
+        assertThrows(UnsupportedOperationException.class, () -> cache.get(path.toFile()));
+        assertEquals(0, cache.getStats().entryCount());
+    }
+
+    private File write(String contents) throws IOException {
+        Path path = this.tempDir.resolve("model.obj");
+        Files.writeString(path, contents);
+        return path.toFile();
+    }
+}
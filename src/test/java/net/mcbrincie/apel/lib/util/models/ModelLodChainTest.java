@@ -0,0 +1,43 @@
+package net.mcbrincie.apel.lib.util.models;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ModelLodChainTest {
+
+    @Test
+    void levelsHalveTheTriangles() {
+        // Given a grid of 800 triangles
+        ModelMesh mesh = ModelMeshTest.grid(20);
+
+        // When its chain is built
+        ModelLodChain chain = ModelLodChain.build(mesh);
+
+        // Then the first level is the mesh itself, and every level has about half the triangles of the one before
+        assertSame(mesh, chain.getLevel(0));
+        assertTrue(chain.getLevelCount() >= 4);
+        for (int level = 1; level < chain.getLevelCount(); level++) {
+            int previous = chain.getLevel(level - 1).getTriangleCount();
+            assertTrue(chain.getLevel(level).getTriangleCount() <= previous / 2);
+        }
+    }
+
+    @Test
+    void levelsAreSelectedByBudgetAndDistance() {
+        // Given the chain of a grid
+        ModelLodChain chain = ModelLodChain.build(ModelMeshTest.grid(20));
+        int fullEdges = chain.getLevel(0).getEdgeCount();
+        int coarseEdges = chain.getLevel(1).getEdgeCount();
+
+        // When levels are selected, Then budgets pick the most detailed level that fits
+        assertEquals(0, chain.selectForBudget(fullEdges * 2, 2));
+        assertEquals(1, chain.selectForBudget(coarseEdges * 2, 2));
+        assertEquals(chain.getLevelCount() - 1, chain.selectForBudget(1, 2));
+        // And every doubling of the distance drops one level
+        assertEquals(0, chain.selectForDistance(10, 16));
+        assertEquals(1, chain.selectForDistance(20, 16));
+        assertEquals(2, chain.selectForDistance(40, 16));
+        assertEquals(chain.getLevelCount() - 1, chain.selectForDistance(1e6f, 16));
+    }
+}
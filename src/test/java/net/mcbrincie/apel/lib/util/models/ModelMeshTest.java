@@ -0,0 +1,140 @@
+package net.mcbrincie.apel.lib.util.models;
+
+import org.joml.Vector3f;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ModelMeshTest {
+
+    @Test
+    void sharedEdgesAreStoredOnce() {
+        // Given a quad split into two triangles that share the edge 0-2, plus an unused vertex
+        float[] vertices = {0, 0, 0, 1, 0, 0, 1, 1, 0, 0, 1, 0, 5, 5, 5};
+        int[] faceVertexIndices = {0, 1, 2, 2, 3, 0};
+        int[] faceEnds = {3, 6};
+
+        // When the mesh is built
+        ModelMesh mesh = ModelMesh.fromFaces(vertices, faceVertexIndices, faceEnds);
+
+        // Then every edge of both outlines appears exactly once, and the unused vertex is dropped
+        assertEquals(5, mesh.getEdgeCount());
+        assertEquals(4, mesh.getVertexCount());
+    }
+
+    @Test
+    void scaledVerticesAreScaledPerAxis() {
+        // Given a mesh of a single triangle
+        float[] vertices = {1, 1, 1, 2, 2, 2, 3, 3, 3};
+        ModelMesh mesh = ModelMesh.fromFaces(vertices, new int[]{0, 1, 2}, new int[]{3});
+
+        // When the vertices are scaled
+        float[] scaled = mesh.getScaledVertices(new Vector3f(1, 2, 3));
+
+        // Then each axis is scaled separately
+        assertArrayEquals(new float[]{1, 2, 3, 2, 4, 6, 3, 6, 9}, scaled, 1e-6f);
+    }
+
+    @Test
+    void surfaceSamplesAreWeightedByArea() {
+        // Given two separate squares in the XY plane, the second one with three times the area of the first
+        float s = (float) Math.sqrt(3);
+        float[] vertices = {0, 0, 0, 1, 0, 0, 1, 1, 0, 0, 1, 0, 10, 0, 0, 10 + s, 0, 0, 10 + s, s, 0, 10, s, 0};
+        ModelMesh mesh = ModelMesh.fromFaces(vertices, new int[]{0, 1, 2, 3, 4, 5, 6, 7}, new int[]{4, 8});
+
+        // When the surface is sampled
+        float[] points = mesh.sampleSurface(4000, 1);
+
+        // Then every point lies on one of the squares, and the larger square receives three quarters of them
+        assertEquals(4000 * 3, points.length);
+        int onLarger = 0;
+        for (int i = 0; i < points.length; i += 3) {
+            assertEquals(0, points[i + 2], 1e-6f);
+            if (points[i] >= 10) {
+                assertTrue(points[i] <= 10 + s + 1e-4f && points[i + 1] <= s + 1e-4f);
+                onLarger++;
+            } else {
+                assertTrue(points[i] <= 1 + 1e-4f && points[i + 1] <= 1 + 1e-4f);
+            }
+        }
+        assertEquals(3000, onLarger, 150);
+    }
+
+    @Test
+    void poissonDiskSamplesAreSpreadApart() {
+        // Given a 10 by 10 square
+        float[] vertices = {0, 0, 0, 10, 0, 0, 10, 10, 0, 0, 10, 0};
+        ModelMesh mesh = ModelMesh.fromFaces(vertices, new int[]{0, 1, 2, 3}, new int[]{4});
+
+        // When the surface is sampled uniformly and with Poisson-disk sampling
+        float[] uniform = mesh.sampleSurface(200, 1);
+        float[] poissonDisk = mesh.samplePoissonDisk(200, 1);
+
+        // Then both give the requested budget, and the Poisson-disk points keep much further apart
+        assertEquals(200 * 3, poissonDisk.length);
+        assertEquals(100, mesh.getSurfaceArea(), 1e-4f);
+        assertTrue(minimumDistance(poissonDisk) > 3 * minimumDistance(uniform));
+    }
+
+    @Test
+    void simplifiedMeshesKeepTheirShape() {
+        // Given a flat 20 by 20 grid of squares, split into 800 triangles
+        ModelMesh mesh = grid(20);
+
+        // When it is simplified to 100 triangles
+        ModelMesh simplified = mesh.simplify(100);
+
+        // Then it has at most 100 triangles, stays flat, and its border still spans the whole grid
+        assertTrue(simplified.getTriangleCount() <= 100);
+        assertTrue(simplified.getTriangleCount() > 0);
+        float[] vertices = simplified.getScaledVertices(new Vector3f(1));
+        float minX = Float.MAX_VALUE;
+        float maxX = -Float.MAX_VALUE;
+        for (int i = 0; i < vertices.length; i += 3) {
+            assertEquals(0, vertices[i + 2], 1e-4f);
+            minX = Math.min(minX, vertices[i]);
+            maxX = Math.max(maxX, vertices[i]);
+        }
+        assertEquals(0, minX, 1e-4f);
+        assertEquals(20, maxX, 1e-4f);
+        assertEquals(400, simplified.getSurfaceArea(), 1);
+    }
+
+    static ModelMesh grid(int size) {
+        int side = size + 1;
+        float[] vertices = new float[side * side * 3];
+        for (int y = 0; y < side; y++) {
+            for (int x = 0; x < side; x++) {
+                vertices[(y * side + x) * 3] = x;
+                vertices[(y * side + x) * 3 + 1] = y;
+            }
+        }
+        int[] faceVertexIndices = new int[size * size * 6];
+        int[] faceEnds = new int[size * size * 2];
+        int f = 0;
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                int corner = y * side + x;
+                int[] quad = {corner, corner + 1, corner + side + 1, corner, corner + side + 1, corner + side};
+                System.arraycopy(quad, 0, faceVertexIndices, f * 3, 6);
+                faceEnds[f] = f * 3 + 3;
+                faceEnds[f + 1] = f * 3 + 6;
+                f += 2;
+            }
+        }
+        return ModelMesh.fromFaces(vertices, faceVertexIndices, faceEnds);
+    }
+
+    private static double minimumDistance(float[] points) {
+        double minimum = Double.MAX_VALUE;
+        for (int i = 0; i < points.length; i += 3) {
+            for (int j = i + 3; j < points.length; j += 3) {
+                double dx = points[i] - points[j];
+                double dy = points[i + 1] - points[j + 1];
+                double dz = points[i + 2] - points[j + 2];
+                minimum = Math.min(minimum, Math.sqrt(dx * dx + dy * dy + dz * dz));
+            }
+        }
+        return minimum;
+    }
+}
@@ -0,0 +1,109 @@
+package net.mcbrincie.apel.lib.util.models;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Scanner;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ObjParserPerformanceTest {
+    private static final int GRID_SIZE = 300;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void compareStreamingVsScannerParser() throws IOException {
+        File file = this.writeGrid();
+
+        // Pre-run both parsers once
+        ModelParserManager manager = new ModelParserManager();
+        manager.parseFile(file);
+        int scannerFaces = parseWithScanner(file);
+        System.out.println("streaming parser prewarmed: " + manager.getFaceCount() + " faces");
+        System.out.println("scanner parser prewarmed: " + scannerFaces + " faces");
+        assertEquals(GRID_SIZE * GRID_SIZE, manager.getVertexCount());
+        assertEquals(scannerFaces, manager.getFaceCount());
+
+        final int trials = 10;
+        List<Float> streamingTimes = new ArrayList<>(trials);
+        List<Float> scannerTimes = new ArrayList<>(trials);
+        for (int times = 0; times < trials; times++) {
+            long streamingStartNanos = System.nanoTime();
+            new ModelParserManager().parseFile(file);
+            streamingTimes.add((System.nanoTime() - streamingStartNanos) / 1_000_000f);
+
+            long scannerStartNanos = System.nanoTime();
+            parseWithScanner(file);
+            scannerTimes.add((System.nanoTime() - scannerStartNanos) / 1_000_000f);
+        }
+        System.out.println("streaming parser (ms): " + streamingTimes);
+        System.out.println("scanner parser (ms): " + scannerTimes);
+    }
+
+    /** Writes a grid of quads, using only the forms the scanner-based parser understood */
+    private File writeGrid() throws IOException {
+        Path path = this.tempDir.resolve("grid.obj");
+        Random random = new Random(1);
+        try (BufferedWriter writer = Files.newBufferedWriter(path)) {
+            for (int i = 0; i < GRID_SIZE; i++) {
+                for (int j = 0; j < GRID_SIZE; j++) {
+                    writer.write("v " + i + " " + (random.nextFloat() * 10f) + " " + j + "\n");
+                }
+            }
+            writer.write("vt 0.5 0.5\n");
+            writer.write("vn 0.0 1.0 0.0\n");
+            for (int i = 0; i < GRID_SIZE - 1; i++) {
+                for (int j = 0; j < GRID_SIZE - 1; j++) {
+                    int v = i * GRID_SIZE + j + 1;
+                    writer.write("f " + v + "/1/1 " + (v + 1) + "/1/1 " + (v + GRID_SIZE + 1) + "/1/1 "
+                                 + (v + GRID_SIZE) + "/1/1\n");
+                }
+            }
+        }
+        return path.toFile();
+    }
+
+    /** The previous approach: a Scanner per file, string splitting per line and per face element, and boxed
+     * vectors for every vertex and face */
+    private static int parseWithScanner(File file) throws FileNotFoundException {
+        List<float[]> vertices = new ArrayList<>();
+        List<float[][]> faces = new ArrayList<>();
+        try (Scanner scanner = new Scanner(file)) {
+            while (scanner.hasNextLine()) {
+                String line = scanner.nextLine();
+                if (line.isBlank()) {
+                    continue;
+                }
+                int firstSpaceIndex = line.indexOf(" ");
+                String token = line.substring(0, firstSpaceIndex);
+                String metadata = line.substring(firstSpaceIndex + 1);
+                if (token.equals("v")) {
+                    String[] coords = metadata.split(" ");
+                    vertices.add(new float[]{
+                            Float.parseFloat(coords[0]), Float.parseFloat(coords[1]), Float.parseFloat(coords[2])
+                    });
+                } else if (token.equals("f")) {
+                    String[] elements = metadata.split(" ");
+                    float[][] face = new float[elements.length][];
+                    for (int i = 0; i < elements.length; i++) {
+                        String[] data = elements[i].split("(/|//)");
+                        face[i] = vertices.get(Integer.parseInt(data[0]) - 1);
+                    }
+                    faces.add(face);
+                }
+            }
+        }
+        return faces.size();
+    }
+}
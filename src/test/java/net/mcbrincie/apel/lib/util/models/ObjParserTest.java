@@ -0,0 +1,89 @@
+package net.mcbrincie.apel.lib.util.models;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ObjParserTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void parsesAllElementForms() throws IOException {
+        // Given a file mixing comments, CRLF line endings and every face element form
+        File file = this.write("""
+                # A comment
+                o square\r
+                v 0 0 0\r
+                v 1.5 -2.25e1 +3
+                v 1 1 0
+                v 0 1 0
+                vt 0.5 0.5
+                vn 0 0 1
+                f 1 2 3
+                f 1/1 3/1 4/1
+                f 1//1 2//1 4//1
+                f 1/1/1 2/1/1 3/1/1 4/1/1
+                l 1 2
+                """);
+
+        // When the file is parsed
+        ModelParserManager manager = new ModelParserManager();
+        manager.parseFile(file);
+
+        // Then every vertex, face and polyline is read
+        assertEquals(4, manager.getVertexCount());
+        assertEquals(4, manager.getFaceCount());
+        assertEquals(1, manager.lineEnds.size());
+        assertEquals(1.5f, manager.vertices.getFloat(3));
+        assertEquals(-22.5f, manager.vertices.getFloat(4));
+        assertEquals(3f, manager.vertices.getFloat(5));
+        assertArrayEquals(new int[]{3, 6, 9, 13}, manager.faceEnds.toIntArray());
+        assertEquals(-1, manager.faceTextureIndices.getInt(6));
+        assertEquals(0, manager.faceNormalIndices.getInt(6));
+    }
+
+    @Test
+    void resolvesNegativeIndicesRelativeToTheEnd() throws IOException {
+        // Given a face referring to the three most recent vertices
+        File file = this.write("""
+                v 0 0 0
+                v 1 0 0
+                v 1 1 0
+                v 0 1 0
+                f -3 -2 -1
+                """);
+
+        // When the file is parsed
+        ModelParserManager manager = new ModelParserManager();
+        manager.parseFile(file);
+
+        // Then the indices are the last three vertices
+        assertArrayEquals(new int[]{1, 2, 3}, manager.faceVertexIndices.toIntArray());
+    }
+
+    @Test
+    void rejectsIndicesOutOfRange() throws IOException {
+        // Given a face referring to a vertex that does not exist
+        File file = this.write("""
+                v 0 0 0
+                v 1 0 0
+                f 1 2 3
+                """);
+
+        // When parsed, then it is rejected
+        assertThrows(IllegalArgumentException.class, () -> new ModelParserManager().parseFile(file));
+    }
+
+    private File write(String contents) throws IOException {
+        Path path = this.tempDir.resolve("model.obj");
+        Files.writeString(path, contents);
+        return path.toFile();
+    }
+}
@@ -0,0 +1,177 @@
+package net.mcbrincie.apel.lib.util.scheduler;
+
+import net.mcbrincie.apel.Apel;
+import net.mcbrincie.apel.lib.animators.PathAnimatorBase;
+import net.mcbrincie.apel.lib.animators.PointAnimator;
+import net.mcbrincie.apel.lib.exceptions.SeqMissingException;
+import net.mcbrincie.apel.lib.objects.ParticlePoint;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ApelSchedulerStressTest {
+    // null particle to avoid needing to load Minecraft
+    private static final ParticlePoint POINT_WITH_NULL_PARTICLE = ParticlePoint.builder().particleEffect(null).build();
+    private static final int PRODUCERS = 8;
+    private static final long TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    @Test
+    void stepsFromManyThreadsExecuteExactlyOnce() throws Exception {
+        // Given a scheduler and producers that each own a set of animators
+        ApelScheduler scheduler = new ApelScheduler();
+        int animatorsPerProducer = 50;
+        int stepsPerAnimator = 20;
+        AtomicIntegerArray executions = new AtomicIntegerArray(PRODUCERS * animatorsPerProducer * stepsPerAnimator);
+
+        // When every producer allocates sequences and steps while the scheduler ticks
+        runWhileTicking(scheduler, producer -> {
+            for (int a = 0; a < animatorsPerProducer; a++) {
+                PathAnimatorBase animator = newAnimator();
+                try (SequenceAllocation allocation = scheduler.allocateNewSequence(animator)) {
+                    for (int s = 0; s < stepsPerAnimator; s++) {
+                        int id = (producer * animatorsPerProducer + a) * stepsPerAnimator + s;
+                        allocation.allocateStep(countingStep(1 + s % 3, executions, id));
+                    }
+                }
+            }
+        });
+
+        // Then no step is lost and no step is doubled
+        assertExactlyOnce(executions);
+    }
+
+    @Test
+    void sharedAnimatorReallocatedWhileFinishingLosesNothing() throws Exception {
+        // Given a scheduler and a single animator shared by every producer
+        ApelScheduler scheduler = new ApelScheduler();
+        PathAnimatorBase animator = newAnimator();
+        int rounds = 2_000;
+        AtomicIntegerArray executions = new AtomicIntegerArray(PRODUCERS * rounds);
+
+        // When producers keep re-allocating its sequence as the ticking thread finishes it
+        runWhileTicking(scheduler, producer -> {
+            for (int round = 0; round < rounds; round++) {
+                try (SequenceAllocation allocation = scheduler.allocateNewSequence(animator)) {
+                    allocation.allocateStep(countingStep(1, executions, producer * rounds + round));
+                }
+                if (round % 64 == 0) {
+                    Thread.yield();
+                }
+            }
+        });
+
+        // Then every step executed exactly once, and no allocation was rejected
+        assertExactlyOnce(executions);
+        assertFalse(scheduler.isProcessing());
+    }
+
+    @Test
+    void allocationsWithoutStepsAreReleased() throws Exception {
+        // Given a scheduler and a single animator shared by every producer
+        ApelScheduler scheduler = new ApelScheduler();
+        PathAnimatorBase animator = newAnimator();
+        int rounds = 1_000;
+        AtomicIntegerArray executions = new AtomicIntegerArray(PRODUCERS * rounds);
+
+        // When producers keep allocating its sequence, only every other allocation yields a step, and a third fails
+        runWhileTicking(scheduler, producer -> {
+            for (int round = 0; round < rounds; round++) {
+                try (SequenceAllocation allocation = scheduler.allocateNewSequence(animator)) {
+                    if (round % 3 == 2) {
+                        throw new IllegalStateException("Failed to compute the steps");
+                    }
+                    if (round % 2 == 0) {
+                        allocation.allocateStep(countingStep(1, executions, producer * rounds + round));
+                    }
+                } catch (IllegalStateException expected) {
+                    // The allocation is closed regardless
+                }
+            }
+        });
+
+        // Then the steps made executed once, and the animator is no longer registered
+        for (int i = 0; i < executions.length(); i++) {
+            int round = i % rounds;
+            int expected = round % 3 != 2 && round % 2 == 0 ? 1 : 0;
+            assertEquals(expected, executions.get(i), "Step " + i + " executed the wrong number of times");
+        }
+        assertFalse(scheduler.isProcessing());
+    }
+
+    @Test
+    void allocatingStepThroughClosedAllocationThrows() {
+        // Given a scheduler and a sequence allocation that has been closed
+        ApelScheduler scheduler = new ApelScheduler();
+        SequenceAllocation allocation = scheduler.allocateNewSequence(newAnimator());
+        allocation.close();
+
+        // When a step is allocated through it, then it is rejected
+        assertThrows(IllegalStateException.class, () -> allocation.allocateStep(new ScheduledStep(1, new Runnable[0])));
+    }
+
+    @Test
+    void allocatingStepWithoutSequenceThrows() {
+        // Given a scheduler and an animator that never allocated a sequence
+        ApelScheduler scheduler = new ApelScheduler();
+        PathAnimatorBase animator = newAnimator();
+
+        // When a step is allocated, then it is rejected
+        assertThrows(SeqMissingException.class,
+                     () -> scheduler.allocateNewStep(animator, new ScheduledStep(1, new Runnable[0])));
+    }
+
+    private interface Producer {
+        void produce(int producerIndex);
+    }
+
+    /** Runs the producers on their own threads while the calling thread acts as the world's tick thread */
+    private static void runWhileTicking(ApelScheduler scheduler, Producer producer) throws Exception {
+        ExecutorService producers = Executors.newFixedThreadPool(PRODUCERS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>(PRODUCERS);
+        for (int i = 0; i < PRODUCERS; i++) {
+            int producerIndex = i;
+            futures.add(producers.submit(() -> {
+                start.await();
+                producer.produce(producerIndex);
+                return null;
+            }));
+        }
+        start.countDown();
+        long deadline = System.nanoTime() + TIMEOUT_NANOS;
+        while (!futures.stream().allMatch(Future::isDone) || scheduler.isProcessing()) {
+            scheduler.runTick();
+            assertTrue(System.nanoTime() < deadline, "Scheduler did not drain in time");
+        }
+        producers.shutdown();
+        for (Future<?> future : futures) {
+            // Surfaces any exception thrown by a producer
+            future.get();
+        }
+        // Steps hand their actions to the draw executor, wait for it to catch up
+        Apel.DRAW_EXECUTOR.submit(() -> {}).get(30, TimeUnit.SECONDS);
+    }
+
+    private static ScheduledStep countingStep(int delay, AtomicIntegerArray executions, int id) {
+        return new ScheduledStep(delay, new Runnable[]{() -> executions.incrementAndGet(id)});
+    }
+
+    private static PathAnimatorBase newAnimator() {
+        return PointAnimator.builder().particleObject(POINT_WITH_NULL_PARTICLE).renderingSteps(1).build();
+    }
+
+    private static void assertExactlyOnce(AtomicIntegerArray executions) {
+        for (int i = 0; i < executions.length(); i++) {
+            assertEquals(1, executions.get(i), "Step " + i + " executed the wrong number of times");
+        }
+    }
+}
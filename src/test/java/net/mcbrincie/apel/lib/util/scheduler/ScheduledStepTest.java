@@ -0,0 +1,47 @@
+package net.mcbrincie.apel.lib.util.scheduler;
+
+import net.mcbrincie.apel.Apel;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScheduledStepTest {
+
+    @Test
+    void testTick_unseenStepIsSkipped() throws Exception {
+        // Given a step of one tick that nobody can see
+        AtomicInteger executions = new AtomicInteger();
+        ScheduledStep step = new ScheduledStep(1, new Runnable[]{executions::incrementAndGet}, () -> false, false);
+
+        // When it is ticked
+        boolean done = step.tick();
+
+        // Then it is done, without having drawn anything
+        assertTrue(done);
+        Apel.DRAW_EXECUTOR.submit(() -> {}).get(30, TimeUnit.SECONDS);
+        assertEquals(0, executions.get());
+    }
+
+    @Test
+    void testTick_dormantStepWaitsUntilSeen() throws Exception {
+        // Given a dormant step of one tick that nobody can see yet
+        AtomicInteger executions = new AtomicInteger();
+        AtomicBoolean seen = new AtomicBoolean(false);
+        ScheduledStep step = new ScheduledStep(1, new Runnable[]{executions::incrementAndGet}, seen::get, true);
+
+        // When it is ticked a few times, then once somebody comes close
+        boolean doneWhileUnseen = step.tick() || step.tick() || step.tick();
+        seen.set(true);
+        boolean doneOnceSeen = step.tick();
+
+        // Then it waits, and only runs once it is seen
+        assertFalse(doneWhileUnseen);
+        assertTrue(doneOnceSeen);
+        Apel.DRAW_EXECUTOR.submit(() -> {}).get(30, TimeUnit.SECONDS);
+        assertEquals(1, executions.get());
+    }
+}
@@ -0,0 +1,78 @@
+package net.mcbrincie.apel.lib.util.text;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.Font;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TextPointsTest {
+    private static final GlyphCache GLYPHS = GlyphCache.of(new Font(Font.MONOSPACED, Font.PLAIN, 16), 0.1f);
+
+    @Test
+    void textIsLaidOutFromCachedGlyphs() {
+        // Given the glyphs of "1" and "2"
+        GlyphCache.Glyph one = GLYPHS.getGlyph('1');
+        GlyphCache.Glyph two = GLYPHS.getGlyph('2');
+
+        // When "12" is laid out
+        TextPoints text = new TextPoints(GLYPHS);
+        text.setText("12");
+
+        // Then its points are those of "1", followed by those of "2" moved by the advance of "1"
+        assertEquals(one.size() + two.size(), text.size());
+        float[] points = text.getPoints();
+        assertArrayEquals(one.points(), Arrays.copyOf(points, one.size() * 3));
+        assertEquals(two.points()[0] + one.advance(), points[one.size() * 3], 1e-6f);
+        assertEquals(two.points()[1], points[one.size() * 3 + 1], 1e-6f);
+        assertEquals(one.advance() + two.advance(), text.getWidth(), 1e-6f);
+        // And the glyphs are taken from the cache rather than rasterized again
+        assertSame(one, GLYPHS.getGlyph('1'));
+    }
+
+    @Test
+    void onlyTheChangedEndIsLaidOutAgain() {
+        // Given a laid out score
+        TextPoints text = new TextPoints(GLYPHS);
+        text.setText("Score: 19");
+        float[] before = Arrays.copyOf(text.getPoints(), text.size() * 3);
+        int prefix = pointsOf("Score: ");
+
+        // When only its last digits change
+        int changedFrom = text.setText("Score: 20");
+
+        // Then the points of the unchanged beginning are kept, and the text matches a fresh layout
+        assertEquals(prefix, changedFrom);
+        assertArrayEquals(Arrays.copyOf(before, prefix * 3), Arrays.copyOf(text.getPoints(), prefix * 3));
+        TextPoints fresh = new TextPoints(GLYPHS);
+        fresh.setText("Score: 20");
+        assertEquals(fresh.size(), text.size());
+        assertArrayEquals(
+                Arrays.copyOf(fresh.getPoints(), fresh.size() * 3), Arrays.copyOf(text.getPoints(), text.size() * 3)
+        );
+        // And setting the same text again changes nothing
+        assertEquals(text.size(), text.setText("Score: 20"));
+    }
+
+    @Test
+    void lineBreaksStartANewLineBelow() {
+        // Given a text of two lines, the second one wider
+        TextPoints text = new TextPoints(GLYPHS);
+
+        // When it is laid out
+        text.setText("1\n22");
+
+        // Then the second line starts back at the left, one line lower, and sets the width
+        GlyphCache.Glyph one = GLYPHS.getGlyph('1');
+        GlyphCache.Glyph two = GLYPHS.getGlyph('2');
+        float[] points = text.getPoints();
+        assertEquals(two.points()[0], points[one.size() * 3], 1e-6f);
+        assertEquals(two.points()[1] - GLYPHS.getLineHeight(), points[one.size() * 3 + 1], 1e-6f);
+        assertEquals(2 * two.advance(), text.getWidth(), 1e-6f);
+    }
+
+    private static int pointsOf(String text) {
+        return text.codePoints().map(codePoint -> GLYPHS.getGlyph(codePoint).size()).sum();
+    }
+}